@@ -172,8 +172,7 @@ public final class B64Code
                     final byte[] encoded = new byte[outputSize];
                     encode(input, inOffset, inLen, encoded, 0);
                     // return a fresh buffer.
-                    return new LinkedBuffer(session.nextBufferSize, 
-                            new LinkedBuffer(encoded, 0, outputSize, lb));
+                    return session.grow(new LinkedBuffer(encoded, 0, outputSize, lb));
                 }
                 
                 final byte[] encoded = new byte[session.nextBufferSize];
@@ -210,8 +209,7 @@ public final class B64Code
                 final byte[] encoded = new byte[outputSize];
                 encode(input, inOffset, inLen, encoded, 0);
                 // return a fresh buffer.
-                return new LinkedBuffer(session.nextBufferSize, 
-                        new LinkedBuffer(encoded, 0, outputSize, lb));
+                return session.grow(new LinkedBuffer(encoded, 0, outputSize, lb));
             }
             
             final byte[] encoded = new byte[session.nextBufferSize];
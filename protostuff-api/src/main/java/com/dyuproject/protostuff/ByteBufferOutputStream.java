@@ -0,0 +1,61 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link OutputStream} that writes into a {@link ByteBuffer} (heap or direct).
+ * 
+ * When used as the sink of a streaming {@link WriteSession}, the contents of the 
+ * session's buffer are copied in bulk into the {@link ByteBuffer} whenever it 
+ * fills up, so that the serialized message does not have to be materialized 
+ * as a byte array first.
+ * 
+ * Writing past the remaining bytes of the {@link ByteBuffer} throws a 
+ * {@link java.nio.BufferOverflowException}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class ByteBufferOutputStream extends OutputStream
+{
+    
+    /**
+     * The target buffer.
+     */
+    public final ByteBuffer buffer;
+    
+    public ByteBufferOutputStream(ByteBuffer buffer)
+    {
+        if(buffer.isReadOnly())
+            throw new IllegalArgumentException("Read-only buffer.");
+        
+        this.buffer = buffer;
+    }
+    
+    public void write(int b)
+    {
+        buffer.put((byte)b);
+    }
+    
+    public void write(byte[] b, int off, int len)
+    {
+        buffer.put(b, off, len);
+    }
+
+}
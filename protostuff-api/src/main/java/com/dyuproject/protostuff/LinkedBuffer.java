@@ -17,6 +17,11 @@ package com.dyuproject.protostuff;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
 
 
 /**
@@ -129,7 +134,89 @@ public final class LinkedBuffer
         
         return contentSize;
     }
-
+    
+    /**
+     * Writes the contents of the {@link LinkedBuffer} into the {@link ByteBuffer}.
+     * 
+     * @return the total content size of the buffer.
+     * @throws java.nio.BufferOverflowException if the contents do not fit
+     * in the remaining bytes of {@code out}.
+     */
+    public static int writeTo(final ByteBuffer out, LinkedBuffer node)
+    {
+        int contentSize = 0, len;
+        do
+        {
+            if((len = node.offset - node.start) > 0)
+            {
+                out.put(node.buffer, node.start, len);
+                contentSize += len;
+            }
+        }
+        while((node=node.next) != null);
+        
+        return contentSize;
+    }
+    
+    /**
+     * Writes the contents of the {@link LinkedBuffer} into the {@link GatheringByteChannel},
+     * wrapping every non-empty buffer (no copy) for a single gathering write.
+     * 
+     * The call does not return until all the contents are written, so the channel 
+     * must be in blocking mode.
+     * 
+     * @return the total content size of the buffer.
+     * @throws IllegalBlockingModeException if the channel is in non-blocking mode.
+     */
+    public static int writeTo(final GatheringByteChannel out, final LinkedBuffer head)
+            throws IOException
+    {
+        checkBlocking(out);
+        
+        int count = 0, contentSize = 0, len;
+        LinkedBuffer node = head;
+        do
+        {
+            if(node.offset - node.start > 0)
+                count++;
+        }
+        while((node=node.next) != null);
+        
+        if(count == 0)
+            return 0;
+        
+        final ByteBuffer[] chunks = new ByteBuffer[count];
+        count = 0;
+        node = head;
+        do
+        {
+            if((len = node.offset - node.start) > 0)
+            {
+                chunks[count++] = ByteBuffer.wrap(node.buffer, node.start, len);
+                contentSize += len;
+            }
+        }
+        while((node=node.next) != null);
+        
+        for(long remaining = contentSize; remaining > 0;)
+            remaining -= out.write(chunks);
+        
+        return contentSize;
+    }
+    
+    /**
+     * Rejects a channel in non-blocking mode, on which the writes that loop until 
+     * everything is written would spin.
+     */
+    static void checkBlocking(Channel channel)
+    {
+        if(channel instanceof SelectableChannel && 
+                !((SelectableChannel)channel).isBlocking())
+        {
+            throw new IllegalBlockingModeException();
+        }
+    }
+    
     final byte[] buffer;
     
     final int start;
@@ -138,6 +225,11 @@ public final class LinkedBuffer
 
     LinkedBuffer next;
     
+    /**
+     * The pool this buffer is recycled to (null if not allocated from a pool).
+     */
+    LinkedBufferPool pool;
+    
     /**
      * Creates a buffer with the specified {@code size}.
      */
@@ -199,12 +291,28 @@ public final class LinkedBuffer
     
     /**
      * The offset will be reset to its starting position.
-     * The buffer next to this will be dereferenced.
+     * The buffers next to this will be dereferenced, and the ones allocated from 
+     * a {@link LinkedBufferPool} are given back to it.
      */
     public LinkedBuffer clear()
     {
+        LinkedBuffer node = next;
         next = null;
         offset = start;
+        
+        while(node != null)
+        {
+            final LinkedBuffer n = node.next;
+            if(node.pool != null)
+            {
+                // released one by one since the nodes can be interleaved with 
+                // views and wrapped arrays
+                node.next = null;
+                node.pool.release(node);
+            }
+            node = n;
+        }
+        
         return this;
     }
 
@@ -0,0 +1,307 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of {@link LinkedBuffer}s that recycles the head buffer as well as the 
+ * buffers appended to it when a {@link WriteSession} grows.
+ * 
+ * A buffer obtained via {@link #acquire()} must be given back via 
+ * {@link #release(LinkedBuffer)} once its contents have been consumed, after 
+ * which neither it nor the buffers appended to it should be used again.
+ * Only the buffers allocated by this pool are recycled; wrapped byte arrays 
+ * and views are left to the garbage collector.
+ * The appended buffers come from the pool only when its {@link #bufferSize} is 
+ * at least the session's {@link WriteSession#nextBufferSize} (which defaults to 
+ * {@link LinkedBuffer#DEFAULT_BUFFER_SIZE}).
+ * 
+ * The bytes retained (when released) are capped per thread 
+ * ({@link #newThreadLocalPool(int, int)}) or per stripe 
+ * ({@link #newStripedPool(int, int, int)}) and anything beyond that is dropped.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public abstract class LinkedBufferPool
+{
+    
+    /**
+     * Creates a pool that keeps a separate set of buffers for each thread, with 
+     * each thread retaining at most {@code maxRetainedBytes}.  The pool records 
+     * the hit/miss counts.
+     */
+    public static LinkedBufferPool newThreadLocalPool(int bufferSize, 
+            int maxRetainedBytes)
+    {
+        return newThreadLocalPool(bufferSize, maxRetainedBytes, true);
+    }
+    
+    /**
+     * Creates a pool that keeps a separate set of buffers for each thread, with 
+     * each thread retaining at most {@code maxRetainedBytes}.
+     * 
+     * The hit/miss counts are only recorded if {@code recordStats} is true, since 
+     * all the threads would otherwise contend on them on every acquire.
+     */
+    public static LinkedBufferPool newThreadLocalPool(int bufferSize, 
+            int maxRetainedBytes, boolean recordStats)
+    {
+        return new ThreadLocalPool(bufferSize, maxRetainedBytes, recordStats);
+    }
+    
+    /**
+     * Creates a pool shared by all threads, split into {@code stripes} (selected 
+     * by thread id) to reduce contention, with each stripe retaining at most 
+     * {@code maxRetainedBytes}.  The pool records the hit/miss counts.
+     */
+    public static LinkedBufferPool newStripedPool(int bufferSize, int stripes, 
+            int maxRetainedBytes)
+    {
+        return newStripedPool(bufferSize, stripes, maxRetainedBytes, true);
+    }
+    
+    /**
+     * Creates a pool shared by all threads, split into {@code stripes} (selected 
+     * by thread id) to reduce contention, with each stripe retaining at most 
+     * {@code maxRetainedBytes}.
+     * 
+     * The hit/miss counts are only recorded if {@code recordStats} is true, since 
+     * all the threads would otherwise contend on them on every acquire.
+     */
+    public static LinkedBufferPool newStripedPool(int bufferSize, int stripes, 
+            int maxRetainedBytes, boolean recordStats)
+    {
+        return new StripedPool(bufferSize, stripes, maxRetainedBytes, recordStats);
+    }
+    
+    /**
+     * The size of the buffers allocated by this pool.
+     */
+    public final int bufferSize;
+    
+    /**
+     * The max bytes retained per thread/stripe.
+     */
+    public final int maxRetainedBytes;
+    
+    // null if the stats are not recorded
+    private final AtomicLong hits, misses;
+    
+    LinkedBufferPool(int bufferSize, int maxRetainedBytes)
+    {
+        this(bufferSize, maxRetainedBytes, true);
+    }
+    
+    LinkedBufferPool(int bufferSize, int maxRetainedBytes, boolean recordStats)
+    {
+        if(bufferSize < LinkedBuffer.MIN_BUFFER_SIZE)
+        {
+            throw new IllegalArgumentException(LinkedBuffer.MIN_BUFFER_SIZE + 
+                    " is the minimum buffer size.");
+        }
+        
+        if(maxRetainedBytes < 0)
+            throw new IllegalArgumentException("maxRetainedBytes cannot be negative.");
+        
+        this.bufferSize = bufferSize;
+        this.maxRetainedBytes = maxRetainedBytes;
+        hits = recordStats ? new AtomicLong() : null;
+        misses = recordStats ? new AtomicLong() : null;
+    }
+    
+    /**
+     * Returns the number of buffers that were recycled from the pool (0 if the 
+     * stats are not recorded).
+     */
+    public final long getHitCount()
+    {
+        return hits == null ? 0 : hits.get();
+    }
+    
+    /**
+     * Returns the number of buffers that had to be allocated because the pool 
+     * was empty (0 if the stats are not recorded).
+     */
+    public final long getMissCount()
+    {
+        return misses == null ? 0 : misses.get();
+    }
+    
+    /**
+     * Returns an empty buffer, recycled if available.
+     */
+    public final LinkedBuffer acquire()
+    {
+        LinkedBuffer node = poll();
+        if(node == null)
+        {
+            if(misses != null)
+                misses.incrementAndGet();
+            
+            node = new LinkedBuffer(bufferSize);
+            node.pool = this;
+        }
+        else if(hits != null)
+            hits.incrementAndGet();
+        
+        return node;
+    }
+    
+    /**
+     * Gives back the {@code head} and the buffers appended to it.
+     */
+    public final void release(LinkedBuffer head)
+    {
+        recycle(head);
+    }
+    
+    /**
+     * Appends a buffer (with at least the given {@code size}) to the 
+     * {@code appendTarget}.
+     */
+    final LinkedBuffer allocate(int size, LinkedBuffer appendTarget)
+    {
+        if(size > bufferSize)
+            return new LinkedBuffer(size, appendTarget);
+        
+        final LinkedBuffer node = acquire();
+        appendTarget.next = node;
+        return node;
+    }
+    
+    /**
+     * Returns a recycled buffer or null if none is available.
+     */
+    abstract LinkedBuffer poll();
+    
+    /**
+     * Recycles the buffers allocated from this pool starting from {@code head}.
+     */
+    abstract void recycle(LinkedBuffer head);
+    
+    /**
+     * The recycled buffers linked via {@link LinkedBuffer#next}.
+     */
+    static final class Stack
+    {
+        LinkedBuffer top;
+        int retainedBytes;
+        
+        LinkedBuffer pop()
+        {
+            final LinkedBuffer node = top;
+            if(node != null)
+            {
+                top = node.next;
+                node.next = null;
+                retainedBytes -= node.buffer.length;
+            }
+            return node;
+        }
+        
+        void pushAll(LinkedBuffer head, final LinkedBufferPool pool, 
+                final int maxRetainedBytes)
+        {
+            for(LinkedBuffer next; head != null; head = next)
+            {
+                next = head.next;
+                if(head.pool != pool || 
+                        retainedBytes + head.buffer.length > maxRetainedBytes)
+                {
+                    // not from this pool or the cap is reached
+                    continue;
+                }
+                
+                head.offset = head.start;
+                head.next = top;
+                top = head;
+                retainedBytes += head.buffer.length;
+            }
+        }
+    }
+    
+    static final class ThreadLocalPool extends LinkedBufferPool
+    {
+        
+        private final ThreadLocal<Stack> stacks = new ThreadLocal<Stack>()
+        {
+            protected Stack initialValue()
+            {
+                return new Stack();
+            }
+        };
+        
+        ThreadLocalPool(int bufferSize, int maxRetainedBytes, boolean recordStats)
+        {
+            super(bufferSize, maxRetainedBytes, recordStats);
+        }
+        
+        LinkedBuffer poll()
+        {
+            return stacks.get().pop();
+        }
+        
+        void recycle(LinkedBuffer head)
+        {
+            stacks.get().pushAll(head, this, maxRetainedBytes);
+        }
+    }
+    
+    static final class StripedPool extends LinkedBufferPool
+    {
+        
+        private final Stack[] stripes;
+        
+        StripedPool(int bufferSize, int stripes, int maxRetainedBytes, 
+                boolean recordStats)
+        {
+            super(bufferSize, maxRetainedBytes, recordStats);
+            
+            if(stripes < 1)
+                throw new IllegalArgumentException("There must be at least 1 stripe.");
+            
+            this.stripes = new Stack[stripes];
+            for(int i = 0; i < stripes; i++)
+                this.stripes[i] = new Stack();
+        }
+        
+        private Stack stripe()
+        {
+            return stripes[(int)(Thread.currentThread().getId() % stripes.length)];
+        }
+        
+        LinkedBuffer poll()
+        {
+            final Stack stack = stripe();
+            synchronized(stack)
+            {
+                return stack.pop();
+            }
+        }
+        
+        void recycle(LinkedBuffer head)
+        {
+            final Stack stack = stripe();
+            synchronized(stack)
+            {
+                stack.pushAll(head, this, maxRetainedBytes);
+            }
+        }
+    }
+
+}
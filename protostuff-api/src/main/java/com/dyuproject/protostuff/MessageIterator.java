@@ -0,0 +1,199 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily reads the messages of a list (or a stream of delimited messages), 
+ * one at a time, so that arbitrarily large inputs can be processed in constant memory.
+ * 
+ * If a {@code reuse} message is provided, every element is merged into that same 
+ * instance, which must be reset by the caller before the next element is read 
+ * (fields absent from the next element keep their previous values otherwise).
+ * 
+ * Since {@link Iterator} cannot throw checked exceptions, {@link #hasNext()} and 
+ * {@link #next()} wrap the {@link IOException} in a {@link RuntimeException}. 
+ * Use {@link #hasNextMessage()}/{@link #nextMessage()} or {@link #visit(Visitor)} 
+ * to get the {@link IOException} as is.
+ * 
+ * The underlying parser is released once the last message is read, or on 
+ * {@link #close()}.  Not thread-safe.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public abstract class MessageIterator<T> implements Iterator<T>, Closeable
+{
+    
+    /**
+     * Receives the messages read by a {@link MessageIterator}.
+     */
+    public interface Visitor<T>
+    {
+        /**
+         * Called for every message read, in order.
+         * 
+         * @return false to stop reading the remaining messages.
+         */
+        public boolean visit(T message, int index) throws IOException;
+    }
+    
+    static final int UNKNOWN = 0, HAS_NEXT = 1, END = 2;
+    
+    protected final Schema<T> schema;
+    protected final T reuse;
+    
+    private int state = UNKNOWN, index;
+    private boolean released;
+    
+    protected MessageIterator(Schema<T> schema, T reuse)
+    {
+        this.schema = schema;
+        this.reuse = reuse;
+    }
+    
+    /**
+     * Moves to the next message.
+     * 
+     * @return false if there are no more messages.
+     */
+    protected abstract boolean advance() throws IOException;
+    
+    /**
+     * Merges the current message (positioned via {@link #advance()}).
+     */
+    protected abstract void merge(T message) throws IOException;
+    
+    /**
+     * Releases the underlying parser.  Called only once.
+     */
+    protected void release() throws IOException
+    {
+        
+    }
+    
+    /**
+     * Returns the number of messages read so far.
+     */
+    public final int getIndex()
+    {
+        return index;
+    }
+    
+    /**
+     * Returns true if there are more messages to read.
+     */
+    public final boolean hasNextMessage() throws IOException
+    {
+        if(state == UNKNOWN)
+        {
+            if(advance())
+                state = HAS_NEXT;
+            else
+            {
+                state = END;
+                close();
+            }
+        }
+        
+        return state == HAS_NEXT;
+    }
+    
+    /**
+     * Reads the next message, which is the {@code reuse} message if provided.
+     * 
+     * @throws NoSuchElementException if there are no more messages.
+     */
+    public final T nextMessage() throws IOException
+    {
+        if(!hasNextMessage())
+            throw new NoSuchElementException();
+        
+        final T message = reuse == null ? schema.newMessage() : reuse;
+        state = UNKNOWN;
+        merge(message);
+        index++;
+        return message;
+    }
+    
+    /**
+     * Passes the remaining messages to the {@code visitor} until it returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public final int visit(Visitor<? super T> visitor) throws IOException
+    {
+        int count = 0;
+        while(hasNextMessage())
+        {
+            count++;
+            if(!visitor.visit(nextMessage(), index - 1))
+                break;
+        }
+        
+        return count;
+    }
+    
+    public final boolean hasNext()
+    {
+        try
+        {
+            return hasNextMessage();
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    public final T next()
+    {
+        try
+        {
+            return nextMessage();
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Not supported.
+     */
+    public final void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+    
+    /**
+     * Releases the underlying parser (if not yet released) without reading 
+     * the remaining messages.
+     */
+    public void close() throws IOException
+    {
+        state = END;
+        if(!released)
+        {
+            released = true;
+            release();
+        }
+    }
+
+}
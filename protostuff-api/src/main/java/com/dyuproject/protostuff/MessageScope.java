@@ -0,0 +1,48 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+/**
+ * An {@link Output} or {@link Input} that keeps some state for the message 
+ * (or delimited frame) being written/read, on behalf of the schemas that need it 
+ * (e.g. the class names already written, so that the next occurrences can be 
+ * written as back-references).
+ * 
+ * The state is dropped when the next message starts (e.g. when the output is 
+ * cleared), which keeps every message self-contained.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public interface MessageScope
+{
+    
+    /**
+     * Returns the state kept under the {@code key} (compared by identity), or null 
+     * if none was set for the current message.
+     */
+    public Object getScoped(Object key);
+    
+    /**
+     * Keeps the {@code value} under the {@code key} until the current message ends.
+     */
+    public void setScoped(Object key, Object value);
+    
+    /**
+     * Drops the state kept for the current message.
+     */
+    public void resetScope();
+
+}
@@ -0,0 +1,670 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Writes repeated scalar fields using the packed encoding when the output is a 
+ * {@link PackedOutput}.  Otherwise, the elements are written one by one (unpacked) 
+ * as usual.
+ * 
+ * Null elements are skipped.  Nothing is written if there are no elements, since 
+ * an empty packed field cannot be distinguished from a missing one.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class PackedFieldUtil
+{
+    
+    static final int LITTLE_ENDIAN_32_SIZE = 4, LITTLE_ENDIAN_64_SIZE = 8;
+    
+    private PackedFieldUtil() {}
+    
+    public static void writeInt32(Output output, int fieldNumber, 
+            Collection<Integer> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Integer v : values)
+            {
+                if(v != null)
+                    output.writeInt32(fieldNumber, v.intValue(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(Integer v : values)
+        {
+            if(v != null)
+                size += sizeOfInt32(v.intValue());
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Integer v : values)
+        {
+            if(v != null)
+                writeInt32(po, v.intValue());
+        }
+    }
+    
+    public static void writeUInt32(Output output, int fieldNumber, 
+            Collection<Integer> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Integer v : values)
+            {
+                if(v != null)
+                    output.writeUInt32(fieldNumber, v.intValue(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(Integer v : values)
+        {
+            if(v != null)
+                size += computeRawVarint32Size(v.intValue());
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Integer v : values)
+        {
+            if(v != null)
+                po.writePackedVarInt32(v.intValue());
+        }
+    }
+    
+    public static void writeSInt32(Output output, int fieldNumber, 
+            Collection<Integer> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Integer v : values)
+            {
+                if(v != null)
+                    output.writeSInt32(fieldNumber, v.intValue(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(Integer v : values)
+        {
+            if(v != null)
+                size += computeRawVarint32Size(encodeZigZag32(v.intValue()));
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Integer v : values)
+        {
+            if(v != null)
+                po.writePackedVarInt32(encodeZigZag32(v.intValue()));
+        }
+    }
+    
+    public static void writeFixed32(Output output, int fieldNumber, 
+            Collection<Integer> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Integer v : values)
+            {
+                if(v != null)
+                    output.writeFixed32(fieldNumber, v.intValue(), true);
+            }
+            return;
+        }
+        
+        final int size = countNonNull(values) * LITTLE_ENDIAN_32_SIZE;
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Integer v : values)
+        {
+            if(v != null)
+                po.writePackedFixed32(v.intValue());
+        }
+    }
+    
+    public static void writeSFixed32(Output output, int fieldNumber, 
+            Collection<Integer> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Integer v : values)
+            {
+                if(v != null)
+                    output.writeSFixed32(fieldNumber, v.intValue(), true);
+            }
+            return;
+        }
+        
+        final int size = countNonNull(values) * LITTLE_ENDIAN_32_SIZE;
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Integer v : values)
+        {
+            if(v != null)
+                po.writePackedFixed32(v.intValue());
+        }
+    }
+    
+    public static void writeInt64(Output output, int fieldNumber, 
+            Collection<Long> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Long v : values)
+            {
+                if(v != null)
+                    output.writeInt64(fieldNumber, v.longValue(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(Long v : values)
+        {
+            if(v != null)
+                size += computeRawVarint64Size(v.longValue());
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Long v : values)
+        {
+            if(v != null)
+                po.writePackedVarInt64(v.longValue());
+        }
+    }
+    
+    public static void writeUInt64(Output output, int fieldNumber, 
+            Collection<Long> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Long v : values)
+            {
+                if(v != null)
+                    output.writeUInt64(fieldNumber, v.longValue(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(Long v : values)
+        {
+            if(v != null)
+                size += computeRawVarint64Size(v.longValue());
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Long v : values)
+        {
+            if(v != null)
+                po.writePackedVarInt64(v.longValue());
+        }
+    }
+    
+    public static void writeSInt64(Output output, int fieldNumber, 
+            Collection<Long> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Long v : values)
+            {
+                if(v != null)
+                    output.writeSInt64(fieldNumber, v.longValue(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(Long v : values)
+        {
+            if(v != null)
+                size += computeRawVarint64Size(encodeZigZag64(v.longValue()));
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Long v : values)
+        {
+            if(v != null)
+                po.writePackedVarInt64(encodeZigZag64(v.longValue()));
+        }
+    }
+    
+    public static void writeFixed64(Output output, int fieldNumber, 
+            Collection<Long> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Long v : values)
+            {
+                if(v != null)
+                    output.writeFixed64(fieldNumber, v.longValue(), true);
+            }
+            return;
+        }
+        
+        final int size = countNonNull(values) * LITTLE_ENDIAN_64_SIZE;
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Long v : values)
+        {
+            if(v != null)
+                po.writePackedFixed64(v.longValue());
+        }
+    }
+    
+    public static void writeSFixed64(Output output, int fieldNumber, 
+            Collection<Long> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Long v : values)
+            {
+                if(v != null)
+                    output.writeSFixed64(fieldNumber, v.longValue(), true);
+            }
+            return;
+        }
+        
+        final int size = countNonNull(values) * LITTLE_ENDIAN_64_SIZE;
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Long v : values)
+        {
+            if(v != null)
+                po.writePackedFixed64(v.longValue());
+        }
+    }
+    
+    public static void writeFloat(Output output, int fieldNumber, 
+            Collection<Float> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Float v : values)
+            {
+                if(v != null)
+                    output.writeFloat(fieldNumber, v.floatValue(), true);
+            }
+            return;
+        }
+        
+        final int size = countNonNull(values) * LITTLE_ENDIAN_32_SIZE;
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Float v : values)
+        {
+            if(v != null)
+                po.writePackedFixed32(Float.floatToRawIntBits(v.floatValue()));
+        }
+    }
+    
+    public static void writeDouble(Output output, int fieldNumber, 
+            Collection<Double> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Double v : values)
+            {
+                if(v != null)
+                    output.writeDouble(fieldNumber, v.doubleValue(), true);
+            }
+            return;
+        }
+        
+        final int size = countNonNull(values) * LITTLE_ENDIAN_64_SIZE;
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Double v : values)
+        {
+            if(v != null)
+                po.writePackedFixed64(Double.doubleToRawLongBits(v.doubleValue()));
+        }
+    }
+    
+    public static void writeBool(Output output, int fieldNumber, 
+            Collection<Boolean> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(Boolean v : values)
+            {
+                if(v != null)
+                    output.writeBool(fieldNumber, v.booleanValue(), true);
+            }
+            return;
+        }
+        
+        // 1 byte per element
+        final int size = countNonNull(values);
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(Boolean v : values)
+        {
+            if(v != null)
+                po.writePackedVarInt32(v.booleanValue() ? 1 : 0);
+        }
+    }
+    
+    public static void writeEnum(Output output, int fieldNumber, 
+            Collection<? extends EnumLite<?>> values) throws IOException
+    {
+        if(!(output instanceof PackedOutput))
+        {
+            for(EnumLite<?> v : values)
+            {
+                if(v != null)
+                    output.writeEnum(fieldNumber, v.getNumber(), true);
+            }
+            return;
+        }
+        
+        int size = 0;
+        for(EnumLite<?> v : values)
+        {
+            if(v != null)
+                size += sizeOfInt32(v.getNumber());
+        }
+        
+        if(size == 0)
+            return;
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(EnumLite<?> v : values)
+        {
+            if(v != null)
+                writeInt32(po, v.getNumber());
+        }
+    }
+    
+    public static void writeInt32(Output output, int fieldNumber, 
+            int[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(int v : values)
+                output.writeInt32(fieldNumber, v, true);
+            return;
+        }
+        
+        int size = 0;
+        for(int v : values)
+            size += sizeOfInt32(v);
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(int v : values)
+            writeInt32(po, v);
+    }
+    
+    /**
+     * Chars are written as uint32.
+     */
+    public static void writeUInt32(Output output, int fieldNumber, 
+            char[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(char v : values)
+                output.writeUInt32(fieldNumber, v, true);
+            return;
+        }
+        
+        int size = 0;
+        for(char v : values)
+            size += computeRawVarint32Size(v);
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(char v : values)
+            po.writePackedVarInt32(v);
+    }
+    
+    /**
+     * Shorts are written as uint32.
+     */
+    public static void writeUInt32(Output output, int fieldNumber, 
+            short[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(short v : values)
+                output.writeUInt32(fieldNumber, v, true);
+            return;
+        }
+        
+        int size = 0;
+        for(short v : values)
+            size += computeRawVarint32Size(v);
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(short v : values)
+            po.writePackedVarInt32(v);
+    }
+    
+    public static void writeInt64(Output output, int fieldNumber, 
+            long[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(long v : values)
+                output.writeInt64(fieldNumber, v, true);
+            return;
+        }
+        
+        int size = 0;
+        for(long v : values)
+            size += computeRawVarint64Size(v);
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, size);
+        for(long v : values)
+            po.writePackedVarInt64(v);
+    }
+    
+    public static void writeFloat(Output output, int fieldNumber, 
+            float[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(float v : values)
+                output.writeFloat(fieldNumber, v, true);
+            return;
+        }
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, values.length * LITTLE_ENDIAN_32_SIZE);
+        for(float v : values)
+            po.writePackedFixed32(Float.floatToRawIntBits(v));
+    }
+    
+    public static void writeDouble(Output output, int fieldNumber, 
+            double[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(double v : values)
+                output.writeDouble(fieldNumber, v, true);
+            return;
+        }
+        
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, values.length * LITTLE_ENDIAN_64_SIZE);
+        for(double v : values)
+            po.writePackedFixed64(Double.doubleToRawLongBits(v));
+    }
+    
+    public static void writeBool(Output output, int fieldNumber, 
+            boolean[] values) throws IOException
+    {
+        if(values.length == 0)
+            return;
+        
+        if(!(output instanceof PackedOutput))
+        {
+            for(boolean v : values)
+                output.writeBool(fieldNumber, v, true);
+            return;
+        }
+        
+        // 1 byte per element
+        final PackedOutput po = (PackedOutput)output;
+        po.writePackedHeader(fieldNumber, values.length);
+        for(boolean v : values)
+            po.writePackedVarInt32(v ? 1 : 0);
+    }
+    
+    /**
+     * Negative int32 values are sign-extended to 10 bytes, same as 
+     * {@link Output#writeInt32(int, int, boolean)}.
+     */
+    static int sizeOfInt32(int value)
+    {
+        return value < 0 ? 10 : computeRawVarint32Size(value);
+    }
+    
+    static void writeInt32(PackedOutput po, int value) throws IOException
+    {
+        if(value < 0)
+            po.writePackedVarInt64(value);
+        else
+            po.writePackedVarInt32(value);
+    }
+    
+    /**
+     * The varint/zigzag helpers below are the ones behind 
+     * {@code ProtobufOutput#computeRawVarint32Size(int)} and friends (protostuff-core 
+     * delegates to them).
+     */
+    static int computeRawVarint32Size(final int value)
+    {
+        if((value & (0xffffffff <<  7)) == 0) return 1;
+        if((value & (0xffffffff << 14)) == 0) return 2;
+        if((value & (0xffffffff << 21)) == 0) return 3;
+        if((value & (0xffffffff << 28)) == 0) return 4;
+        return 5;
+    }
+    
+    static int computeRawVarint64Size(final long value)
+    {
+        if((value & (0xffffffffffffffffL <<  7)) == 0) return 1;
+        if((value & (0xffffffffffffffffL << 14)) == 0) return 2;
+        if((value & (0xffffffffffffffffL << 21)) == 0) return 3;
+        if((value & (0xffffffffffffffffL << 28)) == 0) return 4;
+        if((value & (0xffffffffffffffffL << 35)) == 0) return 5;
+        if((value & (0xffffffffffffffffL << 42)) == 0) return 6;
+        if((value & (0xffffffffffffffffL << 49)) == 0) return 7;
+        if((value & (0xffffffffffffffffL << 56)) == 0) return 8;
+        if((value & (0xffffffffffffffffL << 63)) == 0) return 9;
+        return 10;
+    }
+    
+    static int encodeZigZag32(final int n)
+    {
+        // Note:  the right-shift must be arithmetic
+        return (n << 1) ^ (n >> 31);
+    }
+    
+    static long encodeZigZag64(final long n)
+    {
+        // Note:  the right-shift must be arithmetic
+        return (n << 1) ^ (n >> 63);
+    }
+    
+    static int countNonNull(Collection<?> values)
+    {
+        int count = 0;
+        for(Object v : values)
+        {
+            if(v != null)
+                count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,61 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+
+/**
+ * An output that can write repeated scalar fields in the packed (length-delimited) 
+ * encoding.  The caller writes the header with the exact byte size of the packed 
+ * payload and then writes each element without a tag.
+ * 
+ * Inputs that support packed fields read both the packed and the unpacked forms, 
+ * so a writer can opt-in per field without affecting existing readers of the 
+ * same format.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public interface PackedOutput extends Output
+{
+    
+    /**
+     * Writes the tag (length-delimited) and the byte size of the packed elements 
+     * that will follow.
+     */
+    public void writePackedHeader(int fieldNumber, int packedSize) throws IOException;
+    
+    /**
+     * Writes a raw varint32 element (no tag).
+     */
+    public void writePackedVarInt32(int value) throws IOException;
+    
+    /**
+     * Writes a raw varint64 element (no tag).
+     */
+    public void writePackedVarInt64(long value) throws IOException;
+    
+    /**
+     * Writes a raw little-endian 32-bit element (no tag).
+     */
+    public void writePackedFixed32(int value) throws IOException;
+    
+    /**
+     * Writes a raw little-endian 64-bit element (no tag).
+     */
+    public void writePackedFixed64(long value) throws IOException;
+
+}
@@ -0,0 +1,210 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import static com.dyuproject.protostuff.StringSerializer.STRING;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deduplicates decoded strings, keyed by their raw UTF-8 bytes.
+ * 
+ * An input configured with a cache looks up the bytes of a string field before 
+ * decoding them, so a repeated value (codes, country names, tenant ids) is 
+ * decoded once and shared, instead of allocating a new {@link String} per read.
+ * 
+ * The cache from {@link #newBoundedCache(int, int)} is a fixed-size, 
+ * hash-indexed table where a new entry replaces the one in its slot.  
+ * It is thread-safe and can be shared by any number of inputs.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public abstract class StringCache
+{
+    
+    /**
+     * An {@link Input} that can read a string field via a {@link StringCache}.
+     */
+    public interface Source
+    {
+        /**
+         * Reads a string field value, looked up from the {@code cache} if not null.
+         */
+        public String readString(StringCache cache) throws IOException;
+    }
+    
+    /**
+     * Reads a string field value from the {@code input} via the {@code cache} 
+     * (if the input is a {@link Source}, otherwise it is read as usual).
+     */
+    public static String readString(Input input, StringCache cache) throws IOException
+    {
+        return input instanceof Source ? ((Source)input).readString(cache) : 
+            input.readString();
+    }
+    
+    /**
+     * Creates a bounded cache with {@code capacity} entries (rounded up to a power 
+     * of 2), which records the hit/miss counts.  Strings larger than 
+     * {@code maxLength} bytes are decoded without being cached.
+     */
+    public static StringCache newBoundedCache(int capacity, int maxLength)
+    {
+        return newBoundedCache(capacity, maxLength, true);
+    }
+    
+    /**
+     * Creates a bounded cache with {@code capacity} entries (rounded up to a power 
+     * of 2).  Strings larger than {@code maxLength} bytes are decoded without 
+     * being cached.
+     * 
+     * The hit/miss counts are only recorded if {@code recordStats} is true, since 
+     * the threads sharing the cache would otherwise contend on them on every lookup.
+     */
+    public static StringCache newBoundedCache(int capacity, int maxLength, 
+            boolean recordStats)
+    {
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1.");
+        
+        int size = 1;
+        while(size < capacity)
+            size <<= 1;
+        
+        return new Bounded(size, maxLength, recordStats);
+    }
+    
+    /**
+     * Returns the string decoded from the UTF-8 bytes (a previously decoded 
+     * instance if cached).
+     */
+    public abstract String get(byte[] utf8, int offset, int length);
+    
+    /**
+     * Gets the number of lookups that returned a cached string (0 if the 
+     * stats are not recorded).
+     */
+    public abstract long getHitCount();
+    
+    /**
+     * Gets the number of lookups that had to decode the string (0 if the 
+     * stats are not recorded).
+     */
+    public abstract long getMissCount();
+    
+    /**
+     * Returns the ratio of hits over all the lookups (0 if none yet).
+     */
+    public double getHitRate()
+    {
+        final long hits = getHitCount(), total = hits + getMissCount();
+        return total == 0 ? 0 : (double)hits / total;
+    }
+    
+    static final class Entry
+    {
+        final byte[] utf8;
+        final int hash;
+        final String value;
+        
+        Entry(byte[] utf8, int hash, String value)
+        {
+            this.utf8 = utf8;
+            this.hash = hash;
+            this.value = value;
+        }
+        
+        boolean matches(byte[] data, int offset, int length)
+        {
+            final byte[] utf8 = this.utf8;
+            if(utf8.length != length)
+                return false;
+            
+            for(int i = 0; i < length; i++)
+            {
+                if(utf8[i] != data[offset + i])
+                    return false;
+            }
+            
+            return true;
+        }
+    }
+    
+    static final class Bounded extends StringCache
+    {
+        // the entries are immutable (final fields), so the races on the slots are benign
+        final Entry[] table;
+        final int mask, maxLength;
+        
+        // null if the stats are not recorded
+        private final AtomicLong hits, misses;
+        
+        Bounded(int size, int maxLength, boolean recordStats)
+        {
+            table = new Entry[size];
+            mask = size - 1;
+            this.maxLength = maxLength;
+            
+            hits = recordStats ? new AtomicLong() : null;
+            misses = recordStats ? new AtomicLong() : null;
+        }
+        
+        public String get(byte[] utf8, int offset, int length)
+        {
+            if(length == 0)
+                return ByteString.EMPTY_STRING;
+            
+            if(length > maxLength)
+                return STRING.deser(utf8, offset, length);
+            
+            int hash = length;
+            for(int i = offset, limit = offset + length; i < limit; i++)
+                hash = hash * 31 + utf8[i];
+            
+            // spread the higher bits
+            final int index = (hash ^ (hash >>> 16)) & mask;
+            final Entry entry = table[index];
+            if(entry != null && entry.hash == hash && entry.matches(utf8, offset, length))
+            {
+                if(hits != null)
+                    hits.incrementAndGet();
+                return entry.value;
+            }
+            
+            if(misses != null)
+                misses.incrementAndGet();
+            
+            final byte[] copy = new byte[length];
+            System.arraycopy(utf8, offset, copy, 0, length);
+            
+            final String value = STRING.deser(copy);
+            table[index] = new Entry(copy, hash, value);
+            return value;
+        }
+        
+        public long getHitCount()
+        {
+            return hits == null ? 0 : hits.get();
+        }
+        
+        public long getMissCount()
+        {
+            return misses == null ? 0 : misses.get();
+        }
+    }
+
+}
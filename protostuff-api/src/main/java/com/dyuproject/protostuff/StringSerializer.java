@@ -223,7 +223,7 @@ public final class StringSerializer
             if(lb.offset + valueLen > lb.buffer.length)
             {
                 // not enough size
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
             
             System.arraycopy(INT_MIN_VALUE, 0, lb.buffer, lb.offset, valueLen);
@@ -239,7 +239,7 @@ public final class StringSerializer
         if(lb.offset + size > lb.buffer.length)
         {
             // not enough size
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         }
         
         putBytesFromInt(value, lb.offset, size, lb.buffer);
@@ -263,7 +263,7 @@ public final class StringSerializer
             {
                 //TODO space efficiency (slower path)
                 // not enough size
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
             
             System.arraycopy(LONG_MIN_VALUE, 0, lb.buffer, lb.offset, valueLen);
@@ -280,7 +280,7 @@ public final class StringSerializer
         {
             //TODO space efficiency (slower path)
             // not enough size
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         }
         
         putBytesFromLong(value, lb.offset, size, lb.buffer);
@@ -332,6 +332,46 @@ public final class StringSerializer
         return size;
     }
     
+    /**
+     * Returns true if the 8 chars starting at {@code i} are all ascii.
+     * 
+     * The chars are or-ed together so that a single branch checks the whole block.
+     */
+    static boolean isAsciiBlock(final String str, final int i)
+    {
+        return (str.charAt(i) | str.charAt(i+1) | str.charAt(i+2) | str.charAt(i+3) | 
+                str.charAt(i+4) | str.charAt(i+5) | str.charAt(i+6) | str.charAt(i+7)) 
+                < 0x0080;
+    }
+    
+    /**
+     * Returns the length of the ascii run (in blocks of 8 chars) of the string 
+     * starting at {@code index}, before {@code limit}.
+     * 
+     * The first char is checked alone to bail out early on non-ascii text.
+     */
+    static int asciiBlocks(final String str, final int index, final int limit)
+    {
+        if(limit - index < 8 || str.charAt(index) >= 0x0080)
+            return 0;
+        
+        int i = index;
+        while(limit - i >= 8 && isAsciiBlock(str, i))
+            i += 8;
+        
+        return i - index;
+    }
+    
+    /**
+     * Copies the ascii chars as bytes (a bulk copy on jvms with compact strings).
+     */
+    @SuppressWarnings("deprecation")
+    static void copyAscii(final String str, final int i, final int len, 
+            final byte[] buffer, final int offset)
+    {
+        str.getBytes(i, i + len, buffer, offset);
+    }
+    
     /**
      * Slow path.  It checks the limit before every write.
      * Shared with StreamedStringSerializer.
@@ -342,8 +382,23 @@ public final class StringSerializer
     {
         for(char c = 0; ; c = 0)
         {
-            while(i != len && offset != limit && (c=str.charAt(i++)) < 0x0080)
-                buffer[offset++] = (byte)c;
+            if(i == len || offset == limit || (c=str.charAt(i)) < 0x0080)
+            {
+                // the ascii run is bulk copied in blocks of 8, resumed after every 
+                // multi-byte char and buffer switch
+                final int run = asciiBlocks(str, i, Math.min(len, i + limit - offset));
+                if(run != 0)
+                {
+                    copyAscii(str, i, run, buffer, offset);
+                    i += run;
+                    offset += run;
+                }
+                
+                while(i != len && offset != limit && (c=str.charAt(i++)) < 0x0080)
+                    buffer[offset++] = (byte)c;
+            }
+            else
+                i++;
             
             if(i == len && c < 0x0080)
             {
@@ -540,10 +595,26 @@ public final class StringSerializer
             final WriteSession session, final LinkedBuffer lb)
     {
         final byte[] buffer = lb.buffer;
-        for(int c = 0, offset = lb.offset, adjustableLimit = offset + len; ; c = 0)
+        int offset = lb.offset;
+        for(int c = 0, adjustableLimit = lb.offset + len; ; c = 0)
         {
-            while(i != len && (c=str.charAt(i++)) < 0x0080)
-                buffer[offset++] = (byte)c;
+            if(i == len || (c=str.charAt(i)) < 0x0080)
+            {
+                // the ascii run is bulk copied in blocks of 8, resumed after every 
+                // multi-byte char
+                final int run = asciiBlocks(str, i, len);
+                if(run != 0)
+                {
+                    copyAscii(str, i, run, buffer, offset);
+                    i += run;
+                    offset += run;
+                }
+                
+                while(i != len && (c=str.charAt(i++)) < 0x0080)
+                    buffer[offset++] = (byte)c;
+            }
+            else
+                i++;
             
             if(i == len && c < 0x0080)
             {
@@ -636,8 +707,8 @@ public final class StringSerializer
         else
         {
             // fast path
-            for(int i = 0; i < len; i++)
-                buffer[offset++] = (byte)str.charAt(i);
+            copyAscii(str, 0, len, buffer, offset);
+            offset += len;
         }
         
         lb.offset = offset;
@@ -924,7 +995,7 @@ public final class StringSerializer
             if(lb.offset == lb.buffer.length)
             {
                 // buffer full
-                lb = new LinkedBuffer(session.nextBufferSize, lb); 
+                lb = session.grow(lb); 
             }
             
             // write zero
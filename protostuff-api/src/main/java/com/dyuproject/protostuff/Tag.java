@@ -60,4 +60,12 @@ public @interface Tag
      * Optional.
      */
     int groupFilter() default 0;
+    
+    /**
+     * If true, a repeated scalar field (e.g {@code List<Integer>}) is written 
+     * using the packed encoding on formats that support it (protobuf/protostuff).  
+     * Readers accept both the packed and unpacked forms regardless of this setting.
+     * Optional.
+     */
+    boolean packed() default false;
 }
@@ -0,0 +1,272 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import static com.dyuproject.protostuff.StringSerializer.STRING;
+
+import java.io.IOException;
+
+/**
+ * An immutable, lazily decoded string backed by its UTF-8 bytes.
+ * 
+ * When read from a {@link Source} (e.g the byte array input), the bytes are a slice 
+ * of the input buffer (no copy), and decoding to a {@link String} only happens when 
+ * {@link #toString()} is called (the result is cached).  Writing it back via 
+ * {@link #writeTo(Output, Utf8String, int, boolean)} does not re-encode the string.
+ * 
+ * {@link #equals(Object)}, {@link #hashCode()} and {@link #compareTo(Utf8String)} 
+ * operate on the raw bytes.  Note that the byte-wise ordering is the unicode code 
+ * point order, which differs from {@link String#compareTo(String)} only for 
+ * supplementary characters.
+ * 
+ * A slice shares the buffer of the input it was read from, so that buffer must 
+ * not be modified while the slice is in use.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class Utf8String implements Comparable<Utf8String>
+{
+    
+    /**
+     * An {@link Input} that can read a string field as a {@link Utf8String} 
+     * without decoding it.
+     */
+    public interface Source
+    {
+        /**
+         * Reads a string field value as a {@link Utf8String}.
+         */
+        public Utf8String readUtf8String() throws IOException;
+    }
+    
+    /**
+     * Empty string.
+     */
+    public static final Utf8String EMPTY = new Utf8String(ByteString.EMPTY_BYTE_ARRAY, 
+            0, 0, ByteString.EMPTY_STRING);
+    
+    /**
+     * Reads a string field value from the {@code input}, without decoding it 
+     * if the input is a {@link Source}.
+     */
+    public static Utf8String readFrom(Input input) throws IOException
+    {
+        return input instanceof Source ? ((Source)input).readUtf8String() : 
+            copyFrom(input.readString());
+    }
+    
+    /**
+     * Writes the string field value to the {@code output} (as utf8 bytes, no encoding).
+     */
+    public static void writeTo(Output output, Utf8String value, int fieldNumber, 
+            boolean repeated) throws IOException
+    {
+        output.writeByteRange(true, fieldNumber, value.buffer, value.offset, 
+                value.length, repeated);
+    }
+    
+    /**
+     * Creates a view of the UTF-8 bytes (no copy).  The bytes must not be modified 
+     * afterwards.
+     */
+    public static Utf8String wrap(byte[] utf8, int offset, int length)
+    {
+        if(offset < 0 || length < 0 || offset + length > utf8.length)
+            throw new IndexOutOfBoundsException();
+        
+        return length == 0 ? EMPTY : new Utf8String(utf8, offset, length, null);
+    }
+    
+    /**
+     * Creates a copy of the UTF-8 bytes.
+     */
+    public static Utf8String copyFrom(byte[] utf8, int offset, int length)
+    {
+        if(length == 0)
+            return EMPTY;
+        
+        final byte[] copy = new byte[length];
+        System.arraycopy(utf8, offset, copy, 0, length);
+        return new Utf8String(copy, 0, length, null);
+    }
+    
+    /**
+     * Encodes the {@code value} (already decoded, so {@link #toString()} returns it).
+     */
+    public static Utf8String copyFrom(String value)
+    {
+        if(value.length() == 0)
+            return EMPTY;
+        
+        final byte[] utf8 = STRING.ser(value);
+        return new Utf8String(utf8, 0, utf8.length, value);
+    }
+    
+    private final byte[] buffer;
+    private final int offset, length;
+    
+    private int hash;
+    
+    // benign race (like java.lang.String's hash), since the string is immutable
+    private String string;
+    
+    private Utf8String(byte[] buffer, int offset, int length, String string)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.string = string;
+    }
+    
+    /**
+     * Gets the number of UTF-8 bytes.
+     */
+    public int size()
+    {
+        return length;
+    }
+    
+    /**
+     * Returns true if empty.
+     */
+    public boolean isEmpty()
+    {
+        return length == 0;
+    }
+    
+    /**
+     * Gets the byte at the given index.
+     */
+    public byte byteAt(int index)
+    {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException();
+        
+        return buffer[offset + index];
+    }
+    
+    /**
+     * Returns true if the string was already decoded.
+     */
+    public boolean isDecoded()
+    {
+        return string != null;
+    }
+    
+    /**
+     * Copies the UTF-8 bytes to the {@code target}.
+     */
+    public void copyTo(byte[] target, int targetOffset)
+    {
+        System.arraycopy(buffer, offset, target, targetOffset, length);
+    }
+    
+    /**
+     * Returns a copy of the UTF-8 bytes.
+     */
+    public byte[] toByteArray()
+    {
+        final byte[] copy = new byte[length];
+        System.arraycopy(buffer, offset, copy, 0, length);
+        return copy;
+    }
+    
+    /**
+     * Returns true if the UTF-8 bytes match the {@code data}.
+     */
+    public boolean equals(byte[] data, int offset, int len)
+    {
+        if(len != length)
+            return false;
+        
+        final byte[] buffer = this.buffer;
+        for(int i = this.offset, limit = i + len; i < limit;)
+        {
+            if(buffer[i++] != data[offset++])
+                return false;
+        }
+        
+        return true;
+    }
+    
+    public boolean equals(Object obj)
+    {
+        if(this == obj)
+            return true;
+        
+        if(!(obj instanceof Utf8String))
+            return false;
+        
+        final Utf8String other = (Utf8String)obj;
+        if(other.length != length)
+            return false;
+        
+        final int h1 = hash, h2 = other.hash;
+        if(h1 != 0 && h2 != 0 && h1 != h2)
+            return false;
+        
+        return equals(other.buffer, other.offset, other.length);
+    }
+    
+    public int hashCode()
+    {
+        int h = hash;
+        if(h == 0)
+        {
+            final byte[] buffer = this.buffer;
+            h = length;
+            for(int i = offset, limit = offset + length; i < limit; i++)
+                h = h * 31 + buffer[i];
+            
+            if(h == 0)
+                h = 1;
+            
+            hash = h;
+        }
+        
+        return h;
+    }
+    
+    /**
+     * Compares the UTF-8 bytes (unsigned, lexicographically).
+     */
+    public int compareTo(Utf8String other)
+    {
+        final byte[] b1 = buffer, b2 = other.buffer;
+        final int len = Math.min(length, other.length);
+        for(int i = 0, o1 = offset, o2 = other.offset; i < len; i++)
+        {
+            final int c = (b1[o1 + i] & 0xFF) - (b2[o2 + i] & 0xFF);
+            if(c != 0)
+                return c;
+        }
+        
+        return length - other.length;
+    }
+    
+    /**
+     * Returns the decoded string (decoded once and cached).
+     */
+    public String toString()
+    {
+        String s = string;
+        if(s == null)
+            string = s = STRING.deser(buffer, offset, length);
+        
+        return s;
+    }
+
+}
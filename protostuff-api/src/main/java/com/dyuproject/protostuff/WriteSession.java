@@ -15,6 +15,8 @@
 package com.dyuproject.protostuff;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
 
 /**
  * Designed to be subclassed by implementations of {@link Output} for easier serialization 
@@ -24,7 +26,7 @@ import java.io.OutputStream;
  * @author David Yu
  * @created Sep 20, 2010
  */
-public class WriteSession
+public class WriteSession implements MessageScope
 {
     
     /**
@@ -57,6 +59,11 @@ public class WriteSession
      */
     public final WriteSink sink;
     
+    /**
+     * The state kept for the message being written (lazily created).
+     */
+    private IdentityHashMap<Object,Object> scoped;
+    
     public WriteSession(LinkedBuffer head)
     {
         this(head, LinkedBuffer.DEFAULT_BUFFER_SIZE);
@@ -82,17 +89,57 @@ public class WriteSession
         assert out != null;
     }
     
+    /**
+     * Streams the contents into the {@link ByteBuffer} (heap or direct) through a 
+     * {@link ByteBufferOutputStream}.
+     */
+    public WriteSession(LinkedBuffer head, ByteBuffer out)
+    {
+        this(head, new ByteBufferOutputStream(out));
+    }
+    
     /**
      * The buffer will be cleared (tail will point to the head) and the size 
-     * will be reset to zero.
+     * will be reset to zero.  The state kept for the message is dropped.
      */
     public WriteSession clear()
     {
         tail = head.clear();
         size = 0;
+        resetScope();
         return this;
     }
     
+    public Object getScoped(Object key)
+    {
+        return scoped == null ? null : scoped.get(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        if(scoped == null)
+            scoped = new IdentityHashMap<Object,Object>(4);
+        
+        scoped.put(key, value);
+    }
+    
+    public void resetScope()
+    {
+        if(scoped != null)
+            scoped.clear();
+    }
+    
+    /**
+     * Appends a new buffer to {@code lb}, where the buffer is recycled from the 
+     * {@link LinkedBufferPool} of the head (if it came from one).
+     */
+    final LinkedBuffer grow(LinkedBuffer lb)
+    {
+        final LinkedBufferPool pool = head.pool;
+        return pool == null ? new LinkedBuffer(nextBufferSize, lb) : 
+            pool.allocate(nextBufferSize, lb);
+    }
+    
     /**
      * Returns the amount of bytes written in this session.
      */
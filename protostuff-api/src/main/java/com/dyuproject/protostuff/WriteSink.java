@@ -30,7 +30,7 @@ public enum WriteSink
                 final LinkedBuffer lb) throws IOException
         {
             // grow
-            return new LinkedBuffer(session.nextBufferSize, lb);
+            return session.grow(lb);
         }
         
         public LinkedBuffer writeByteArrayB64(final byte[] value, 
@@ -58,8 +58,7 @@ public enum WriteSink
                     if(available == 0)
                     {
                         // buffer was actually full ... return a fresh buffer 
-                        return new LinkedBuffer(session.nextBufferSize, 
-                                new LinkedBuffer(value, offset, offset+valueLen, lb));
+                        return session.grow(new LinkedBuffer(value, offset, offset+valueLen, lb));
                     }
                     
                     // continue with the existing byte array of the previous buffer
@@ -73,7 +72,7 @@ public enum WriteSink
                 lb.offset += available;
                 
                 // grow
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
                 
                 final int leftover = valueLen - available;
                 
@@ -101,7 +100,7 @@ public enum WriteSink
             if(lb.offset == lb.buffer.length)
             {
                 // grow
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
             lb.buffer[lb.offset++] = value;
 
@@ -116,7 +115,7 @@ public enum WriteSink
             if(lb.offset + 4 > lb.buffer.length)
             {
                 // grow
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
             
             IntSerializer.writeInt32(value, lb.buffer, lb.offset);
@@ -133,7 +132,7 @@ public enum WriteSink
             if(lb.offset + 8 > lb.buffer.length)
             {
                 // grow
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
             
             IntSerializer.writeInt64(value, lb.buffer, lb.offset);
@@ -150,7 +149,7 @@ public enum WriteSink
             if(lb.offset + 4 > lb.buffer.length)
             {
                 // grow
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
 
             IntSerializer.writeInt32LE(value, lb.buffer, lb.offset);
@@ -167,7 +166,7 @@ public enum WriteSink
             if(lb.offset + 8 > lb.buffer.length)
             {
                 // grow
-                lb = new LinkedBuffer(session.nextBufferSize, lb);
+                lb = session.grow(lb);
             }
             
             IntSerializer.writeInt64LE(value, lb.buffer, lb.offset);
@@ -185,7 +184,7 @@ public enum WriteSink
                 if(lb.offset == lb.buffer.length)
                 {
                     // grow
-                    lb = new LinkedBuffer(session.nextBufferSize, lb);
+                    lb = session.grow(lb);
                 }
                 
                 if ((value & ~0x7F) == 0)
@@ -208,7 +207,7 @@ public enum WriteSink
                 if(lb.offset == lb.buffer.length)
                 {
                     // grow
-                    lb = new LinkedBuffer(session.nextBufferSize, lb);
+                    lb = session.grow(lb);
                 }
                 
                 if ((value & ~0x7FL) == 0)
@@ -326,6 +326,73 @@ public class StringSerializerTest extends TestCase
         check(moreThan2048);
     }
     
+    static String mixed(int seed, int len)
+    {
+        final java.util.Random random = new java.util.Random(seed);
+        final char[] nonAscii = new char[]{ '\u00e9', '\u07ff', '\u4e2d', '\uffff' };
+        final StringBuilder sb = new StringBuilder(len);
+        while(sb.length() < len)
+        {
+            // ascii runs of 0-20 chars (the fast path copies blocks of 8)
+            for(int run = random.nextInt(21); run > 0; run--)
+                sb.append((char)('a' + random.nextInt(26)));
+            
+            sb.append(nonAscii[random.nextInt(nonAscii.length)]);
+        }
+        return sb.toString();
+    }
+    
+    public void testAsciiRuns() throws Exception
+    {
+        for(int seed = 0; seed < 20; seed++)
+        {
+            final String str = mixed(seed, 100 + seed * 50);
+            final byte[] expected = str.getBytes("UTF-8");
+            
+            assertEquals(expected.length, 
+                    StringSerializer.computeUTF8Size(str, 0, str.length()));
+            
+            // fast path
+            LinkedBuffer head = new LinkedBuffer(expected.length);
+            WriteSession fast = new WriteSession(head);
+            StringSerializer.writeUTF8(str, fast, head);
+            assertTrue(head.next == null);
+            assertTrue(java.util.Arrays.equals(expected, fast.toByteArray()));
+            
+            // starting near the end of the buffer (slow path)
+            for(int start = 0; start < 40; start++)
+            {
+                LinkedBuffer lb = new LinkedBuffer(new byte[256], 256 - start - 100, 
+                        256 - start - 100);
+                WriteSession session = new WriteSession(lb);
+                StringSerializer.writeUTF8(str, session, lb);
+                
+                assertEquals(expected.length, session.size);
+                assertTrue(java.util.Arrays.equals(expected, session.toByteArray()));
+            }
+            
+            assertEquals(str, STRING.deser(expected));
+            assertTrue(java.util.Arrays.equals(expected, STRING.ser(str)));
+            
+            // the ascii/non-ascii check only covers the given range
+            final String prefix = str.substring(0, 10);
+            final int prefixSize = StringSerializer.computeUTF8Size(prefix, 0, 
+                    prefix.length());
+            for(int len = 0; len < 20; len++)
+            {
+                final String range = str.substring(10, 10 + len);
+                assertEquals(range, STRING.deser(expected, prefixSize, 
+                        StringSerializer.computeUTF8Size(range, 0, range.length())));
+            }
+        }
+        
+        final String ascii = str_len_130 + alphabet;
+        assertEquals(ascii, STRING.deser(ascii.getBytes("UTF-8")));
+        assertEquals(ascii.substring(3, 20), 
+                STRING.deser(ascii.getBytes("UTF-8"), 3, 17));
+        assertTrue(java.util.Arrays.equals(ascii.getBytes("UTF-8"), STRING.ser(ascii)));
+    }
+    
     public void testUTF8VarDelimited() throws Exception
     {
         checkVarDelimited(foo, 1, 59);
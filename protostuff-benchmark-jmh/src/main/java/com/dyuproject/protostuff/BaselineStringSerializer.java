@@ -0,0 +1,341 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * The char-at-a-time utf8 encoding/decoding of {@link StringSerializer} prior to 
+ * its ascii fast paths, kept verbatim as the baseline of 
+ * {@link com.dyuproject.protostuff.benchmark.jmh.StringSerializerBenchmark}.
+ * 
+ * Lives in the same package to access the {@link LinkedBuffer} internals.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class BaselineStringSerializer
+{
+    
+    private BaselineStringSerializer() {}
+    
+    /**
+     * Computes the size of the utf8 string beginning at the specified {@code index} with the 
+     * specified {@code length}.
+     */
+    public static int computeUTF8Size(final String str, final int index, final int len)
+    {
+        int size = len;
+        for(int i = index; i < len; i++)
+        {
+            final char c = str.charAt(i);
+            if(c < 0x0080)
+                continue;
+            
+            if(c < 0x0800)
+                size++;
+            else
+                size += 2;
+        }
+        return size;
+    }
+    
+    /**
+     * Slow path.  It checks the limit before every write.
+     */
+    static LinkedBuffer writeUTF8(final String str, int i, final int len, 
+            byte[] buffer, int offset, int limit,
+            final WriteSession session, LinkedBuffer lb)
+    {
+        for(char c = 0; ; c = 0)
+        {
+            while(i != len && offset != limit && (c=str.charAt(i++)) < 0x0080)
+                buffer[offset++] = (byte)c;
+            
+            if(i == len && c < 0x0080)
+            {
+                session.size += (offset - lb.offset);
+                lb.offset = offset;
+                return lb;
+            }
+            
+            if(offset == limit)
+            {
+                // we are done with this LinkedBuffer
+                session.size += (offset - lb.offset);
+                lb.offset = offset;
+                
+                if(lb.next == null)
+                {
+                    // reset
+                    offset = 0;
+                    limit = session.nextBufferSize;
+                    buffer = new byte[limit];
+                    // grow
+                    lb = new LinkedBuffer(buffer, 0, lb);
+                }
+                else
+                {
+                    // use the existing buffer from previous utf8 write.
+                    // this condition happens only on streaming mode
+                    lb = lb.next;
+                    // reset
+                    lb.offset = offset = lb.start;
+                    buffer = lb.buffer;
+                    limit = buffer.length;
+                }
+                
+                continue;
+            }
+            
+            if(c < 0x0800)
+            {
+                if(offset == limit)
+                {
+                    // we are done with this LinkedBuffer
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    
+                    if(lb.next == null)
+                    {
+                        // reset
+                        offset = 0;
+                        limit = session.nextBufferSize;
+                        buffer = new byte[limit];
+                        // grow
+                        lb = new LinkedBuffer(buffer, 0, lb);
+                    }
+                    else
+                    {
+                        // use the existing buffer from previous utf8 write.
+                        // this condition happens only on streaming mode
+                        lb = lb.next;
+                        // reset
+                        lb.offset = offset = lb.start;
+                        buffer = lb.buffer;
+                        limit = buffer.length;
+                    }
+                }
+                
+                buffer[offset++] = (byte) (0xC0 | ((c >>  6) & 0x1F));
+                
+                if(offset == limit)
+                {
+                    // we are done with this LinkedBuffer
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    
+                    if(lb.next == null)
+                    {
+                        // reset
+                        offset = 0;
+                        limit = session.nextBufferSize;
+                        buffer = new byte[limit];
+                        // grow
+                        lb = new LinkedBuffer(buffer, 0, lb);
+                    }
+                    else
+                    {
+                        // use the existing buffer from previous utf8 write.
+                        // this condition happens only on streaming mode
+                        lb = lb.next;
+                        // reset
+                        lb.offset = offset = lb.start;
+                        buffer = lb.buffer;
+                        limit = buffer.length;
+                    }
+                }
+                
+                buffer[offset++] = (byte) (0x80 | ((c >>  0) & 0x3F));
+            }
+            else
+            {
+                if(offset == limit)
+                {
+                    // we are done with this LinkedBuffer
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    
+                    if(lb.next == null)
+                    {
+                        // reset
+                        offset = 0;
+                        limit = session.nextBufferSize;
+                        buffer = new byte[limit];
+                        // grow
+                        lb = new LinkedBuffer(buffer, 0, lb);
+                    }
+                    else
+                    {
+                        // use the existing buffer from previous utf8 write.
+                        // this condition happens only on streaming mode
+                        lb = lb.next;
+                        // reset
+                        lb.offset = offset = lb.start;
+                        buffer = lb.buffer;
+                        limit = buffer.length;
+                    }
+                }
+                
+                buffer[offset++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                
+                if(offset == limit)
+                {
+                    // we are done with this LinkedBuffer
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    
+                    if(lb.next == null)
+                    {
+                        // reset
+                        offset = 0;
+                        limit = session.nextBufferSize;
+                        buffer = new byte[limit];
+                        // grow
+                        lb = new LinkedBuffer(buffer, 0, lb);
+                    }
+                    else
+                    {
+                        // use the existing buffer from previous utf8 write.
+                        // this condition happens only on streaming mode
+                        lb = lb.next;
+                        // reset
+                        lb.offset = offset = lb.start;
+                        buffer = lb.buffer;
+                        limit = buffer.length;
+                    }
+                }
+                
+                buffer[offset++] = (byte) (0x80 | ((c >>  6) & 0x3F));
+                
+                if(offset == limit)
+                {
+                    // we are done with this LinkedBuffer
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    
+                    if(lb.next == null)
+                    {
+                        // reset
+                        offset = 0;
+                        limit = session.nextBufferSize;
+                        buffer = new byte[limit];
+                        // grow
+                        lb = new LinkedBuffer(buffer, 0, lb);
+                    }
+                    else
+                    {
+                        // use the existing buffer from previous utf8 write.
+                        // this condition happens only on streaming mode
+                        lb = lb.next;
+                        // reset
+                        lb.offset = offset = lb.start;
+                        buffer = lb.buffer;
+                        limit = buffer.length;
+                    }
+                }
+                
+                buffer[offset++] = (byte) (0x80 | ((c >>  0) & 0x3F));
+            }
+        }
+    }
+    
+    /**
+     * Fast path.  The {@link LinkedBuffer}'s capacity is >= string length.
+     */
+    static LinkedBuffer writeUTF8(final String str, int i, final int len, 
+            final WriteSession session, final LinkedBuffer lb)
+    {
+        final byte[] buffer = lb.buffer;
+        for(int c = 0, offset = lb.offset, adjustableLimit = offset + len; ; c = 0)
+        {
+            while(i != len && (c=str.charAt(i++)) < 0x0080)
+                buffer[offset++] = (byte)c;
+            
+            if(i == len && c < 0x0080)
+            {
+                session.size += (offset - lb.offset);
+                lb.offset = offset;
+                return lb;
+            }
+            
+            if(c < 0x0800)
+            {
+                if(++adjustableLimit > buffer.length)
+                {
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    return writeUTF8(str, i-1, len, buffer, offset, buffer.length, session, lb);
+                }
+                
+                buffer[offset++] = (byte) (0xC0 | ((c >>  6) & 0x1F));
+                buffer[offset++] = (byte) (0x80 | ((c >>  0) & 0x3F));
+            }
+            else
+            {
+                adjustableLimit += 2;
+                if(adjustableLimit > buffer.length)
+                {
+                    session.size += (offset - lb.offset);
+                    lb.offset = offset;
+                    return writeUTF8(str, i-1, len, buffer, offset, buffer.length, session, lb);
+                }
+                
+                buffer[offset++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                buffer[offset++] = (byte) (0x80 | ((c >>  6) & 0x3F));
+                buffer[offset++] = (byte) (0x80 | ((c >>  0) & 0x3F));
+            }
+        }
+    }
+    
+    /**
+     * Writes the utf8-encoded bytes from the string into the {@link LinkedBuffer}.
+     */
+    public static LinkedBuffer writeUTF8(final String str, final WriteSession session, 
+            final LinkedBuffer lb)
+    {
+        final int len = str.length();
+        if(len == 0)
+            return lb;
+        
+        return lb.offset + len > lb.buffer.length ? writeUTF8(str, 0, len, lb.buffer, lb.offset, 
+                lb.buffer.length, session, lb) : writeUTF8(str, 0, len, session, lb);
+    }
+    
+    public static String deser(byte[] nonNullValue, int offset, int len)
+    {
+        try
+        {
+            return new String(nonNullValue, offset, len, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    public static byte[] ser(String nonNullValue)
+    {
+        try
+        {
+            return nonNullValue.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dyuproject.protostuff.ByteArrayInput;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffOutput;
+import com.dyuproject.protostuff.runtime.EnumIO;
+
+/**
+ * Compares the table-driven {@link EnumIO} reads against the previous lookups 
+ * ({@code getEnumConstants()[ordinal]} and {@code Enum.valueOf(readString())}), 
+ * for both modes of {@code RuntimeEnv.ENUMS_BY_NAME}.
+ * 
+ * Every invocation reads {@link #COUNT} enum fields from a protostuff message.
+ * Run with {@code -prof gc} to compare the allocation rates.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class EnumIOBenchmark
+{
+    
+    public enum Currency
+    {
+        USD, EUR, JPY, GBP, AUD, CAD, CHF, CNY, HKD, NZD, SEK, KRW, SGD, NOK, MXN, 
+        INR, RUB, ZAR, TRY, BRL, TWD, DKK, PLN, THB, IDR, HUF, CZK, ILS, CLP, PHP
+    }
+    
+    static final int COUNT = 64;
+    
+    @Param({"number", "name"})
+    public String mode;
+    
+    public byte[] data;
+    
+    public EnumIO<Currency> eio;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        final boolean byName = "name".equals(mode);
+        final Currency[] values = Currency.values();
+        final ProtostuffOutput output = new ProtostuffOutput(LinkedBuffer.allocate(1024));
+        for(int i = 0; i < COUNT; i++)
+        {
+            final Currency c = values[(i * 7) % values.length];
+            if(byName)
+                output.writeString(1, c.name(), true);
+            else
+                output.writeEnum(1, c.ordinal(), true);
+        }
+        data = output.toByteArray();
+        eio = byName ? new EnumIO.ByName<Currency>(Currency.class) : 
+            new EnumIO.ByNumber<Currency>(Currency.class);
+    }
+    
+    @Benchmark
+    public int read() throws IOException
+    {
+        final ByteArrayInput input = new ByteArrayInput(data, true);
+        final EnumIO<Currency> eio = this.eio;
+        int sum = 0;
+        while(input.readFieldNumber(null) != 0)
+            sum += eio.readFrom(input).ordinal();
+        
+        return sum;
+    }
+    
+    @Benchmark
+    public int readBaseline() throws IOException
+    {
+        final ByteArrayInput input = new ByteArrayInput(data, true);
+        final boolean byName = "name".equals(mode);
+        int sum = 0;
+        while(input.readFieldNumber(null) != 0)
+        {
+            sum += (byName ? Enum.valueOf(Currency.class, input.readString()) : 
+                Currency.class.getEnumConstants()[input.readEnum()]).ordinal();
+        }
+        
+        return sum;
+    }
+
+}
@@ -0,0 +1,167 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Compares the runtime field access backends: sun.misc.Unsafe (the default), 
+ * the generated schema classes ({@code protostuff.runtime.use_bytecode_schemas}) 
+ * and reflection ({@code protostuff.runtime.use_sun_misc_unsafe=false}).
+ * 
+ * The backend is picked once per jvm, so every method forks with its own 
+ * system properties.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@State(Scope.Thread)
+public class FieldAccessBenchmark
+{
+    
+    static final String BYTECODE = "-Dprotostuff.runtime.use_bytecode_schemas=true", 
+            REFLECTION = "-Dprotostuff.runtime.use_sun_misc_unsafe=false";
+    
+    public static class Pojo
+    {
+        private int id;
+        private long timestamp;
+        private boolean active;
+        private double score;
+        private String name;
+        private Integer boxed;
+        private final String code;
+        
+        public Pojo()
+        {
+            this(null);
+        }
+        
+        Pojo(String code)
+        {
+            this.code = code;
+        }
+    }
+    
+    public Schema<Pojo> schema;
+    
+    public Pojo message;
+    
+    public byte[] data;
+    
+    public LinkedBuffer buffer;
+    
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        schema = RuntimeSchema.getSchema(Pojo.class);
+        
+        message = new Pojo("code");
+        message.id = 1;
+        message.timestamp = System.currentTimeMillis();
+        message.active = true;
+        message.score = 0.5d;
+        message.name = "name";
+        message.boxed = Integer.valueOf(2);
+        
+        buffer = LinkedBuffer.allocate(512);
+        data = ProtostuffIOUtil.toByteArray(message, schema, buffer);
+        buffer.clear();
+    }
+    
+    int write()
+    {
+        try
+        {
+            return ProtostuffIOUtil.writeTo(buffer, message, schema);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+    
+    Pojo read() throws IOException
+    {
+        final Pojo message = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, message, schema);
+        return message;
+    }
+    
+    @Benchmark
+    @Fork(2)
+    public int writeUnsafe()
+    {
+        return write();
+    }
+    
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = BYTECODE)
+    public int writeBytecode()
+    {
+        return write();
+    }
+    
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = REFLECTION)
+    public int writeReflection()
+    {
+        return write();
+    }
+    
+    @Benchmark
+    @Fork(2)
+    public Pojo readUnsafe() throws IOException
+    {
+        return read();
+    }
+    
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = BYTECODE)
+    public Pojo readBytecode() throws IOException
+    {
+        return read();
+    }
+    
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = REFLECTION)
+    public Pojo readReflection() throws IOException
+    {
+        return read();
+    }
+
+}
@@ -0,0 +1,159 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.Tag;
+import com.dyuproject.protostuff.runtime.FieldMap;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Measures the runtime field lookup ({@link FieldMap}) on a dense schema (tags 1-8) 
+ * and on a sparse one (the same fields with a {@code @Tag(50000)}).
+ * 
+ * {@code getFieldName} indexes the schema's {@code fieldsByNumber} on the dense 
+ * layout and goes through the field map on the sparse one, while 
+ * {@code getFieldNameBaseline} indexes an array sized after the last field number 
+ * (the previous lookup), so the dense results should match.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FieldLookupBenchmark
+{
+    
+    public static class Dense
+    {
+        @Tag(1) int a;
+        @Tag(2) int b;
+        @Tag(3) long c;
+        @Tag(4) long d;
+        @Tag(5) String e;
+        @Tag(6) String f;
+        @Tag(7) boolean g;
+        @Tag(8) double h;
+    }
+    
+    public static class Sparse
+    {
+        @Tag(1) int a;
+        @Tag(2) int b;
+        @Tag(3) long c;
+        @Tag(4) long d;
+        @Tag(5) String e;
+        @Tag(6) String f;
+        @Tag(7) boolean g;
+        @Tag(50000) double h;
+    }
+    
+    @Param({"dense", "sparse"})
+    public String layout;
+    
+    public Schema<Object> schema;
+    
+    public byte[] data;
+    
+    public int[] numbers;
+    
+    public String[] namesByNumber;
+    
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        final Object message;
+        if("sparse".equals(layout))
+        {
+            Sparse s = new Sparse();
+            s.a = 1; s.b = 2; s.c = 3; s.d = 4; s.e = "e"; s.f = "f"; s.g = true; s.h = 8;
+            message = s;
+            schema = (Schema<Object>)(Schema<?>)RuntimeSchema.getSchema(Sparse.class);
+            numbers = new int[]{1, 2, 3, 4, 5, 6, 7, 50000};
+        }
+        else
+        {
+            Dense d = new Dense();
+            d.a = 1; d.b = 2; d.c = 3; d.d = 4; d.e = "e"; d.f = "f"; d.g = true; d.h = 8;
+            message = d;
+            schema = (Schema<Object>)(Schema<?>)RuntimeSchema.getSchema(Dense.class);
+            numbers = new int[]{1, 2, 3, 4, 5, 6, 7, 8};
+        }
+        
+        data = ProtostuffIOUtil.toByteArray(message, schema, LinkedBuffer.allocate(512));
+        
+        namesByNumber = new String[numbers[numbers.length - 1] + 1];
+        for(int number : numbers)
+            namesByNumber[number] = schema.getFieldName(number);
+    }
+    
+    @Benchmark
+    public Object mergeFrom() throws IOException
+    {
+        final Object message = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, message, schema);
+        return message;
+    }
+    
+    @Benchmark
+    public int getFieldName()
+    {
+        final Schema<Object> schema = this.schema;
+        int sum = 0;
+        for(int number : numbers)
+            sum += schema.getFieldName(number).length();
+        
+        return sum;
+    }
+    
+    @Benchmark
+    public int getFieldNameBaseline()
+    {
+        final String[] namesByNumber = this.namesByNumber;
+        int sum = 0;
+        for(int number : numbers)
+        {
+            final String name = number < namesByNumber.length ? 
+                    namesByNumber[number] : null;
+            sum += name.length();
+        }
+        
+        return sum;
+    }
+
+}
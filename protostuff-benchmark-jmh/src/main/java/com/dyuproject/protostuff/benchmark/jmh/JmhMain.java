@@ -0,0 +1,61 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * 
+ * Accepts the standard jmh command-line options, but defaults to the gc 
+ * profiler (for gc.alloc.rate.norm) and a json result file so that runs 
+ * from different releases can be compared.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class JmhMain
+{
+    
+    /**
+     * The default result file (override with -rff).
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+    
+    private JmhMain() {}
+    
+    public static void main(String[] args) throws Exception
+    {
+        final CommandLineOptions cli = new CommandLineOptions(args);
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent(cli);
+        
+        if(cli.getProfilers().isEmpty())
+            builder.addProfiler(GCProfiler.class);
+        
+        if(!cli.getResultFormat().hasValue())
+            builder.resultFormat(ResultFormatType.JSON);
+        
+        if(!cli.getResult().hasValue())
+            builder.result(DEFAULT_RESULT_FILE);
+        
+        new Runner(builder.build()).run();
+    }
+
+}
@@ -0,0 +1,75 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dyuproject.protostuff.JsonIOUtil;
+import com.dyuproject.protostuff.JsonXIOUtil;
+import com.dyuproject.protostuff.benchmark.MediaContent;
+
+/**
+ * Benchmarks json ser/deser via {@link JsonIOUtil} (jackson) and 
+ * {@link JsonXIOUtil} (LinkedBuffer-based).
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JsonBenchmark
+{
+    
+    @Benchmark
+    public byte[] serialize(MediaState state)
+    {
+        return JsonIOUtil.toByteArray(state.message, state.mediaSchema, false);
+    }
+    
+    @Benchmark
+    public byte[] serializeX(MediaState state)
+    {
+        try
+        {
+            return JsonXIOUtil.toByteArray(state.message, state.mediaSchema, false, 
+                    state.buffer);
+        }
+        finally
+        {
+            state.buffer.clear();
+        }
+    }
+    
+    @Benchmark
+    public MediaContent deserialize(MediaState state) throws IOException
+    {
+        final MediaContent message = state.mediaSchema.newMessage();
+        JsonIOUtil.mergeFrom(state.json, message, state.mediaSchema, false);
+        return message;
+    }
+
+}
@@ -0,0 +1,95 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.dyuproject.protostuff.GraphIOUtil;
+import com.dyuproject.protostuff.JsonIOUtil;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.XmlIOUtil;
+import com.dyuproject.protostuff.benchmark.MediaContent;
+import com.dyuproject.protostuff.benchmark.serializers.ProtostuffCoreSerializer;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+
+/**
+ * The per-thread fixture shared by the benchmarks.
+ * 
+ * The message is the same {@link MediaContent} used by the legacy 
+ * {@link com.dyuproject.protostuff.benchmark.BenchmarkRunner}, and the 
+ * {@code schema} param switches between the generated schema (from media.proto) 
+ * and the {@link RuntimeSchema}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@State(Scope.Thread)
+public class MediaState
+{
+    
+    @Param({"generated", "runtime"})
+    public String schema;
+    
+    public MediaContent message;
+    
+    public Schema<MediaContent> mediaSchema;
+    
+    public LinkedBuffer buffer;
+    
+    public byte[] protostuff, protobuf, graph, json, xml;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        message = new ProtostuffCoreSerializer().create();
+        
+        if("generated".equals(schema))
+            mediaSchema = message.cachedSchema();
+        else if("runtime".equals(schema))
+            mediaSchema = RuntimeSchema.getSchema(MediaContent.class);
+        else
+            throw new IllegalArgumentException("Unknown schema type: " + schema);
+        
+        buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        
+        protostuff = ProtostuffIOUtil.toByteArray(message, mediaSchema, buffer);
+        buffer.clear();
+        protobuf = ProtobufIOUtil.toByteArray(message, mediaSchema, buffer);
+        buffer.clear();
+        graph = GraphIOUtil.toByteArray(message, mediaSchema, buffer);
+        buffer.clear();
+        json = JsonIOUtil.toByteArray(message, mediaSchema, false);
+        xml = XmlIOUtil.toByteArray(message, mediaSchema);
+        
+        // sanity check so that a broken format doesn't produce meaningless numbers
+        final MediaContent parsed = new MediaContent();
+        ProtostuffIOUtil.mergeFrom(protostuff, parsed, mediaSchema);
+        final byte[] reserialized = ProtostuffIOUtil.toByteArray(parsed, mediaSchema, 
+                buffer);
+        buffer.clear();
+        if(!Arrays.equals(protostuff, reserialized))
+            throw new IllegalStateException("The fixture did not survive a round-trip.");
+    }
+
+}
@@ -0,0 +1,178 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dyuproject.protostuff.BaselineStringSerializer;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.StringSerializer;
+import com.dyuproject.protostuff.StringSerializer.STRING;
+import com.dyuproject.protostuff.WriteSession;
+
+/**
+ * Compares the utf8 encoding/decoding of {@link StringSerializer} (ascii fast paths) 
+ * against the char-at-a-time {@link BaselineStringSerializer}.
+ * 
+ * The {@code charset} param selects the input: ascii, latin1 (mostly ascii with 
+ * accented letters), text (long ascii runs with the occasional typographic 
+ * punctuation), cjk (3-byte chars) and emoji (surrogate pairs).
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StringSerializerBenchmark
+{
+    
+    @Param({"ascii", "latin1", "text", "cjk", "emoji"})
+    public String charset;
+    
+    @Param({"16", "256"})
+    public int length;
+    
+    public String value;
+    
+    public byte[] utf8;
+    
+    public WriteSession session;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        value = newString(charset, length, new Random(length));
+        utf8 = value.getBytes("UTF-8");
+        session = new WriteSession(LinkedBuffer.allocate(4 * length + 
+                LinkedBuffer.MIN_BUFFER_SIZE));
+    }
+    
+    static String newString(String charset, int length, Random random)
+    {
+        final StringBuilder sb = new StringBuilder(length);
+        if("ascii".equals(charset))
+        {
+            while(sb.length() < length)
+                sb.append((char)(' ' + random.nextInt(95)));
+        }
+        else if("latin1".equals(charset))
+        {
+            // e.g french/german text
+            final String accented = "\u00e9\u00e8\u00e0\u00fc\u00f6\u00df\u00e7";
+            while(sb.length() < length)
+            {
+                sb.append(random.nextInt(8) == 0 ? 
+                        accented.charAt(random.nextInt(accented.length())) : 
+                        (char)('a' + random.nextInt(26)));
+            }
+        }
+        else if("text".equals(charset))
+        {
+            // e.g english text with curly quotes and dashes
+            final String punctuation = "\u2018\u2019\u201c\u201d\u2014";
+            while(sb.length() < length)
+            {
+                sb.append(random.nextInt(32) == 0 ? 
+                        punctuation.charAt(random.nextInt(punctuation.length())) : 
+                        (char)('a' + random.nextInt(26)));
+            }
+        }
+        else if("cjk".equals(charset))
+        {
+            while(sb.length() < length)
+                sb.append((char)(0x4e00 + random.nextInt(0x5000)));
+        }
+        else if("emoji".equals(charset))
+        {
+            while(sb.length() < length)
+                sb.appendCodePoint(0x1f600 + random.nextInt(0x50));
+        }
+        else
+            throw new IllegalArgumentException("Unknown charset: " + charset);
+        
+        return sb.toString();
+    }
+    
+    @Benchmark
+    public int computeSize()
+    {
+        return StringSerializer.computeUTF8Size(value, 0, value.length());
+    }
+    
+    @Benchmark
+    public int computeSizeBaseline()
+    {
+        return BaselineStringSerializer.computeUTF8Size(value, 0, value.length());
+    }
+    
+    @Benchmark
+    public int writeUTF8()
+    {
+        final WriteSession session = this.session.clear();
+        StringSerializer.writeUTF8(value, session, session.head);
+        return session.getSize();
+    }
+    
+    @Benchmark
+    public int writeUTF8Baseline()
+    {
+        final WriteSession session = this.session.clear();
+        BaselineStringSerializer.writeUTF8(value, session, session.head);
+        return session.getSize();
+    }
+    
+    @Benchmark
+    public String deser()
+    {
+        return STRING.deser(utf8, 0, utf8.length);
+    }
+    
+    @Benchmark
+    public String deserBaseline()
+    {
+        return BaselineStringSerializer.deser(utf8, 0, utf8.length);
+    }
+    
+    @Benchmark
+    public byte[] ser()
+    {
+        return STRING.ser(value);
+    }
+    
+    @Benchmark
+    public byte[] serBaseline()
+    {
+        return BaselineStringSerializer.ser(value);
+    }
+
+}
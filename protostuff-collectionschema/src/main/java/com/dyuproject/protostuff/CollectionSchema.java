@@ -35,6 +35,42 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
     
     public static final String FIELD_NAME_VALUE = "v";
     
+    /**
+     * The field name of the (optional) size hint, which is written ahead of the values.
+     */
+    public static final String FIELD_NAME_SIZE_HINT = "s";
+    
+    /**
+     * The collections smaller than this are written without a size hint.
+     */
+    public static final int MIN_SIZE_HINT = 16;
+    
+    /**
+     * The size hints read are capped to this, which bounds what a corrupt 
+     * (or malicious) hint can reserve.  Bigger collections simply grow as usual.
+     */
+    public static final int MAX_SIZE_HINT = 1 << 16;
+    
+    /**
+     * Returns a new collection from the {@code factory}, with room for {@code sizeHint} 
+     * values if it is one of the {@link MessageFactories}.
+     */
+    public static <V> Collection<V> newMessage(MessageFactory factory, int sizeHint)
+    {
+        return sizeHint > 0 && factory instanceof MessageFactories ? 
+                ((MessageFactories)factory).<V>newMessage(Math.min(sizeHint, MAX_SIZE_HINT)) : 
+                    factory.<V>newMessage();
+    }
+    
+    /**
+     * Returns the initial capacity of a hash table that holds {@code size} entries 
+     * without being resized (default load factor).
+     */
+    static int hashCapacity(int size)
+    {
+        return (int)(size / 0.75f) + 1;
+    }
+    
     /**
      * Creates new {@code Collection} messages.
      */
@@ -61,6 +97,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new ArrayList<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new ArrayList<V>(sizeHint);
+            }
         },
         // defaults to ArrayList
         List(java.util.ArrayList.class)
@@ -69,6 +109,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new ArrayList<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new ArrayList<V>(sizeHint);
+            }
         },
         ArrayList(java.util.ArrayList.class)
         {
@@ -76,6 +120,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new ArrayList<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new ArrayList<V>(sizeHint);
+            }
         },
         LinkedList(java.util.LinkedList.class)
         {
@@ -97,6 +145,12 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.Stack<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                final java.util.Stack<V> stack = new java.util.Stack<V>();
+                stack.ensureCapacity(sizeHint);
+                return stack;
+            }
         },
         Vector(java.util.Vector.class)
         {
@@ -104,6 +158,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.Vector<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.Vector<V>(sizeHint);
+            }
         },
         // defaults to HashSet
         Set(java.util.HashSet.class)
@@ -112,6 +170,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.HashSet<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.HashSet<V>(hashCapacity(sizeHint));
+            }
         },
         HashSet(java.util.HashSet.class)
         {
@@ -119,6 +181,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.HashSet<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.HashSet<V>(hashCapacity(sizeHint));
+            }
         },
         LinkedHashSet(java.util.LinkedHashSet.class)
         {
@@ -126,6 +192,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.LinkedHashSet<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.LinkedHashSet<V>(hashCapacity(sizeHint));
+            }
         },
         // defaults to TreeSet
         SortedSet(java.util.TreeSet.class)
@@ -217,6 +287,11 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
                 // initialize to same initial value as ArrayList
                 return new java.util.concurrent.ArrayBlockingQueue<V>(10);
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.concurrent.ArrayBlockingQueue<V>(
+                        Math.max(10, sizeHint));
+            }
         },
         ArrayDeque(java.util.ArrayDeque.class)
         {
@@ -224,6 +299,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.ArrayDeque<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.ArrayDeque<V>(sizeHint);
+            }
         },
         ConcurrentLinkedQueue(java.util.concurrent.ConcurrentLinkedQueue.class)
         {
@@ -238,6 +317,11 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.concurrent.PriorityBlockingQueue<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.concurrent.PriorityBlockingQueue<V>(
+                        Math.max(1, sizeHint));
+            }
         },
         PriorityQueue(java.util.PriorityQueue.class)
         {
@@ -245,6 +329,10 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             {
                 return new java.util.PriorityQueue<V>();
             }
+            public <V> Collection<V> newMessage(int sizeHint)
+            {
+                return new java.util.PriorityQueue<V>(Math.max(1, sizeHint));
+            }
         };
         
         public final Class<?> typeClass;
@@ -259,6 +347,15 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
             return typeClass;
         }
         
+        /**
+         * Creates a new {@code Collection} message with room for {@code sizeHint} 
+         * values (if the type can be presized).
+         */
+        public <V> Collection<V> newMessage(int sizeHint)
+        {
+            return newMessage();
+        }
+        
         /**
          * Returns the message factory for the standard jdk {@link Collection} 
          * implementations.
@@ -284,14 +381,27 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
      */
     public final MessageFactory messageFactory;
     
+    /**
+     * If true, the size of the collection is written ahead of the values (if it is 
+     * at least {@link #MIN_SIZE_HINT}) so that the reader can presize it.
+     * The readers that pre-date the size hint cannot read it.
+     */
+    public final boolean writeSizeHint;
+    
     public CollectionSchema()
     {
         this(MessageFactories.ArrayList);
     }
     
     public CollectionSchema(MessageFactory messageFactory)
+    {
+        this(messageFactory, false);
+    }
+    
+    public CollectionSchema(MessageFactory messageFactory, boolean writeSizeHint)
     {
         this.messageFactory = messageFactory;
+        this.writeSizeHint = writeSizeHint;
     }
     
     /**
@@ -312,15 +422,56 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
     protected abstract void transferValue(Pipe pipe, Input input, Output output, 
             int number, boolean repeated) throws IOException;
     
+    /**
+     * Makes room for {@code sizeHint} more values (read ahead of the values) if 
+     * the collection supports it.  Only the array-backed lists can grow in place; 
+     * the other types are presized when created via 
+     * {@link #newMessage(MessageFactory, int)}.
+     */
+    protected void presize(Collection<V> collection, int sizeHint)
+    {
+        if(sizeHint <= 0)
+            return;
+        
+        if(collection instanceof ArrayList<?>)
+        {
+            ((ArrayList<V>)collection).ensureCapacity(collection.size() + 
+                    Math.min(sizeHint, MAX_SIZE_HINT));
+        }
+        else if(collection instanceof java.util.Vector<?>)
+        {
+            ((java.util.Vector<V>)collection).ensureCapacity(collection.size() + 
+                    Math.min(sizeHint, MAX_SIZE_HINT));
+        }
+    }
     
     public final String getFieldName(int number)
     {
-        return number == 1 ? FIELD_NAME_VALUE : null;
+        switch(number)
+        {
+            case 1:
+                return FIELD_NAME_VALUE;
+            case 2:
+                return FIELD_NAME_SIZE_HINT;
+            default:
+                return null;
+        }
     }
 
     public final int getFieldNumber(String name)
     {
-        return name.length() == 1 && name.charAt(0) == 'v' ? 1 : 0; 
+        if(name.length() != 1)
+            return 0;
+        
+        switch(name.charAt(0))
+        {
+            case 'v':
+                return 1;
+            case 's':
+                return 2;
+            default:
+                return 0;
+        }
     }
 
     public final boolean isInitialized(Collection<V> map)
@@ -360,6 +511,9 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
                 case 1:
                     addValueFrom(input, message);
                     break;
+                case 2:
+                    presize(message, input.readUInt32());
+                    break;
                 default:
                     throw new ProtostuffException("The collection was incorrectly " + 
                             "serialized.");
@@ -369,6 +523,9 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
 
     public void writeTo(Output output, Collection<V> message) throws IOException
     {
+        if(writeSizeHint && message.size() >= MIN_SIZE_HINT)
+            output.writeUInt32(2, message.size(), false);
+        
         for(V value : message)
         {
             // null values not serialized.
@@ -393,6 +550,9 @@ public abstract class CollectionSchema<V> implements Schema<Collection<V>>
                     case 1:
                         transferValue(pipe, input, output, 1, true);
                         break;
+                    case 2:
+                        output.writeUInt32(2, input.readUInt32(), false);
+                        break;
                     default:
                         throw new ProtostuffException("The collection was incorrectly " + 
                                 "serialized.");
@@ -60,6 +60,10 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new HashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new HashMap<K,V>(CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         // defaults to TreeMap
         SortedMap(java.util.TreeMap.class)
@@ -83,6 +87,10 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new HashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new HashMap<K,V>(CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         LinkedHashMap(java.util.LinkedHashMap.class)
         {
@@ -90,6 +98,11 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new java.util.LinkedHashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new java.util.LinkedHashMap<K,V>(
+                        CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         TreeMap(java.util.TreeMap.class)
         {
@@ -104,6 +117,11 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new java.util.WeakHashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new java.util.WeakHashMap<K,V>(
+                        CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         IdentityHashMap(java.util.IdentityHashMap.class)
         {
@@ -111,6 +129,10 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new java.util.IdentityHashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new java.util.IdentityHashMap<K,V>(sizeHint);
+            }
         },
         Hashtable(java.util.Hashtable.class)
         {
@@ -118,6 +140,11 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new java.util.Hashtable<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new java.util.Hashtable<K,V>(
+                        CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         // defaults to ConcurrentHashMap
         ConcurrentMap(java.util.concurrent.ConcurrentHashMap.class)
@@ -126,6 +153,11 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new java.util.concurrent.ConcurrentHashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new java.util.concurrent.ConcurrentHashMap<K,V>(
+                        CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         ConcurrentHashMap(java.util.concurrent.ConcurrentHashMap.class)
         {
@@ -133,6 +165,11 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
             {
                 return new java.util.concurrent.ConcurrentHashMap<K,V>();
             }
+            public <K, V> Map<K, V> newMessage(int sizeHint)
+            {
+                return new java.util.concurrent.ConcurrentHashMap<K,V>(
+                        CollectionSchema.hashCapacity(sizeHint));
+            }
         },
         // defaults to ConcurrentNavigableMap
         ConcurrentNavigableMap(java.util.concurrent.ConcurrentSkipListMap.class)
@@ -161,6 +198,15 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
         {
             return typeClass;
         }
+        
+        /**
+         * Creates a new {@link Map} message with room for {@code sizeHint} entries 
+         * (if the type can be presized).
+         */
+        public <K,V> Map<K,V> newMessage(int sizeHint)
+        {
+            return newMessage();
+        }
 
         /**
          * Returns the message factory for the standard jdk {@link Map} implementations.
@@ -181,6 +227,19 @@ public abstract class MapSchema<K,V> implements Schema<Map<K,V>>
         }
     }
     
+    /**
+     * Returns a new map from the {@code factory}, with room for {@code sizeHint} 
+     * entries (capped to {@link CollectionSchema#MAX_SIZE_HINT}) if it is one of 
+     * the {@link MessageFactories}.
+     */
+    public static <K,V> Map<K,V> newMessage(MessageFactory factory, int sizeHint)
+    {
+        return sizeHint > 0 && factory instanceof MessageFactories ? 
+                ((MessageFactories)factory).<K,V>newMessage(
+                        Math.min(sizeHint, CollectionSchema.MAX_SIZE_HINT)) : 
+                    factory.<K,V>newMessage();
+    }
+    
     /**
      * The field name of the Map.Entry.
      */
@@ -28,6 +28,7 @@ import static com.dyuproject.protostuff.WireFormat.getTagWireType;
 import static com.dyuproject.protostuff.WireFormat.makeTag;
 
 import java.io.IOException;
+import java.util.IdentityHashMap;
 
 import com.dyuproject.protostuff.StringSerializer.STRING;
 
@@ -40,15 +41,28 @@ import com.dyuproject.protostuff.StringSerializer.STRING;
  * @author David Yu
  * @created Jun 22, 2010
  */
-public final class ByteArrayInput implements Input
+public final class ByteArrayInput implements Input, Utf8String.Source, 
+        StringCache.Source, MessageScope
 {
     
     private final byte[] buffer;
     private int offset, limit, lastTag = 0;
     
+    /** The end index of the packed repeated field being read, otherwise 0. */
+    private int packedLimit = 0;
+    
     /** If true, the nested messages are group-encoded */
     public final boolean decodeNestedMessageAsGroup;
     
+    /** Deduplicates the strings read (optional). */
+    private StringCache stringCache;
+    
+    /** The state kept for the message being read (lazily created). */
+    private IdentityHashMap<Object,Object> scoped;
+    
+    /** If true, {@link #readUtf8String()} copies instead of slicing the buffer. */
+    boolean copyUtf8Strings;
+    
     public ByteArrayInput(byte[] buffer, boolean decodeNestedMessageAsGroup)
     {
         this(buffer, 0, buffer.length, decodeNestedMessageAsGroup);
@@ -72,6 +86,37 @@ public final class ByteArrayInput implements Input
         
         this.offset = offset;
         this.limit = offset + len;
+        this.packedLimit = 0;
+        resetScope();
+        return this;
+    }
+    
+    public Object getScoped(Object key)
+    {
+        return scoped == null ? null : scoped.get(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        if(scoped == null)
+            scoped = new IdentityHashMap<Object,Object>(4);
+        
+        scoped.put(key, value);
+    }
+    
+    public void resetScope()
+    {
+        if(scoped != null)
+            scoped.clear();
+    }
+    
+    /**
+     * Sets the {@link StringCache} that the strings read are deduplicated with 
+     * (null to disable).
+     */
+    public ByteArrayInput setStringCache(StringCache stringCache)
+    {
+        this.stringCache = stringCache;
         return this;
     }
     
@@ -198,6 +243,15 @@ public final class ByteArrayInput implements Input
     
     public <T> int readFieldNumber(Schema<T> schema) throws IOException
     {
+        if (packedLimit != 0)
+        {
+            // still reading the elements of a packed repeated field
+            if (offset < packedLimit)
+                return lastTag >>> TAG_TYPE_BITS;
+            
+            packedLimit = 0;
+        }
+        
         if (offset == limit)
         {
             lastTag = 0;
@@ -228,58 +282,87 @@ public final class ByteArrayInput implements Input
         lastTag = tag;
         return fieldNumber;
     }
+    
+    /**
+     * Reads the byte size of a packed repeated field if the last tag was 
+     * length-delimited and its elements are not being read yet.
+     */
+    private void checkIfPackedField() throws IOException
+    {
+        if (packedLimit == 0 && WIRETYPE_LENGTH_DELIMITED == (lastTag & TAG_TYPE_MASK))
+        {
+            final int length = readRawVarint32();
+            if (length < 0)
+                throw ProtobufException.negativeSize();
+            
+            // an empty packed field is never written
+            if (length == 0 || offset + length > limit)
+                throw ProtobufException.misreportedSize();
+            
+            packedLimit = offset + length;
+        }
+    }
 
     /** Read a {@code double} field value from the internal buffer. */
     public double readDouble() throws IOException
     {
+        checkIfPackedField();
         return Double.longBitsToDouble(readRawLittleEndian64());
     }
 
     /** Read a {@code float} field value from the internal buffer. */
     public float readFloat() throws IOException
     {
+        checkIfPackedField();
         return Float.intBitsToFloat(readRawLittleEndian32());
     }
 
     /** Read a {@code uint64} field value from the internal buffer. */
     public long readUInt64() throws IOException
     {
+        checkIfPackedField();
         return readRawVarint64();
     }
 
     /** Read an {@code int64} field value from the internal buffer. */
     public long readInt64() throws IOException
     {
+        checkIfPackedField();
         return readRawVarint64();
     }
 
     /** Read an {@code int32} field value from the internal buffer. */
     public int readInt32() throws IOException
     {
+        checkIfPackedField();
         return readRawVarint32();
     }
 
     /** Read a {@code fixed64} field value from the internal buffer. */
     public long readFixed64() throws IOException
     {
+        checkIfPackedField();
         return readRawLittleEndian64();
     }
 
     /** Read a {@code fixed32} field value from the internal buffer. */
     public int readFixed32() throws IOException
     {
+        checkIfPackedField();
         return readRawLittleEndian32();
     }
 
     /** Read a {@code bool} field value from the internal buffer. */
     public boolean readBool() throws IOException
     {
+        checkIfPackedField();
         return buffer[offset++] != 0;
     }
 
     /** Read a {@code uint32} field value from the internal buffer. */
     public int readUInt32() throws IOException
     {
+        checkIfPackedField();
         return readRawVarint32();
     }
 
@@ -289,24 +372,28 @@ public final class ByteArrayInput implements Input
      */
     public int readEnum() throws IOException
     {
+        checkIfPackedField();
         return readRawVarint32();
     }
 
     /** Read an {@code sfixed32} field value from the internal buffer. */
     public int readSFixed32() throws IOException
     {
+        checkIfPackedField();
         return readRawLittleEndian32();
     }
 
     /** Read an {@code sfixed64} field value from the internal buffer. */
     public long readSFixed64() throws IOException
     {
+        checkIfPackedField();
         return readRawLittleEndian64();
     }
 
     /** Read an {@code sint32} field value from the internal buffer. */
     public int readSInt32() throws IOException
     {
+        checkIfPackedField();
         final int n = readRawVarint32();
         return (n >>> 1) ^ -(n & 1);
     }
@@ -314,11 +401,39 @@ public final class ByteArrayInput implements Input
     /** Read an {@code sint64} field value from the internal buffer. */
     public long readSInt64() throws IOException
     {
+        checkIfPackedField();
         final long n = readRawVarint64();
         return (n >>> 1) ^ -(n & 1);
     }
 
     public String readString() throws IOException
+    {
+        return readString(stringCache);
+    }
+    
+    public String readString(StringCache cache) throws IOException
+    {
+        final int length = readRawVarint32();
+        if(length < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(offset + length > limit)
+            throw ProtobufException.misreportedSize();
+        
+        final int offset = this.offset;
+        
+        this.offset += length;
+        
+        return cache == null ? STRING.deser(buffer, offset, length) : 
+            cache.get(buffer, offset, length);
+    }
+    
+    /**
+     * Reads a string field value as a slice of the buffer (no copy, no decoding).
+     * 
+     * The buffer must not be modified while the returned {@link Utf8String} is in use.
+     */
+    public Utf8String readUtf8String() throws IOException
     {
         final int length = readRawVarint32();
         if(length < 0)
@@ -331,7 +446,8 @@ public final class ByteArrayInput implements Input
         
         this.offset += length;
         
-        return STRING.deser(buffer, offset, length);
+        return copyUtf8Strings ? Utf8String.copyFrom(buffer, offset, length) : 
+            Utf8String.wrap(buffer, offset, length);
     }
     
     public ByteString readBytes() throws IOException
@@ -0,0 +1,644 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import static com.dyuproject.protostuff.WireFormat.TAG_TYPE_BITS;
+import static com.dyuproject.protostuff.WireFormat.TAG_TYPE_MASK;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_END_GROUP;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_FIXED32;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_FIXED64;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_LENGTH_DELIMITED;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_START_GROUP;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_TAIL_DELIMITER;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_VARINT;
+import static com.dyuproject.protostuff.WireFormat.getTagFieldNumber;
+import static com.dyuproject.protostuff.WireFormat.getTagWireType;
+import static com.dyuproject.protostuff.WireFormat.makeTag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.IdentityHashMap;
+
+import com.dyuproject.protostuff.StringSerializer.STRING;
+
+/**
+ * Reads and decodes protocol buffer message fields from a {@link ByteBuffer} 
+ * (heap, direct or memory-mapped) without copying it into a byte array first.
+ * 
+ * The remaining bytes of the buffer (position to limit) are read using absolute 
+ * indexes, so the position, limit and byte order of the buffer passed in are 
+ * left untouched.
+ * This is used internally by {@link IOUtil} where it catches 
+ * {@link IndexOutOfBoundsException} when a message is truncated.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class ByteBufferInput implements Input, Utf8String.Source, 
+        StringCache.Source, MessageScope
+{
+    
+    private final ByteBuffer buffer;
+    private int offset, limit, lastTag = 0;
+    
+    /** The end index of the packed repeated field being read, otherwise 0. */
+    private int packedLimit = 0;
+    
+    /** If true, the nested messages are group-encoded */
+    public final boolean decodeNestedMessageAsGroup;
+    
+    /** Deduplicates the strings read (optional). */
+    private StringCache stringCache;
+    
+    /** The state kept for the message being read (lazily created). */
+    private IdentityHashMap<Object,Object> scoped;
+    
+    public ByteBufferInput(ByteBuffer buffer, boolean decodeNestedMessageAsGroup)
+    {
+        // a view that shares the content but has its own byte order.
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.offset = buffer.position();
+        this.limit = buffer.limit();
+        this.decodeNestedMessageAsGroup = decodeNestedMessageAsGroup;
+    }
+    
+    /**
+     * Resets the offset and the limit of the internal buffer.
+     */
+    public ByteBufferInput reset(int offset, int len)
+    {
+        if(len < 0)
+            throw new IllegalArgumentException("length cannot be negative.");
+        
+        this.offset = offset;
+        this.limit = offset + len;
+        this.packedLimit = 0;
+        resetScope();
+        return this;
+    }
+    
+    public Object getScoped(Object key)
+    {
+        return scoped == null ? null : scoped.get(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        if(scoped == null)
+            scoped = new IdentityHashMap<Object,Object>(4);
+        
+        scoped.put(key, value);
+    }
+    
+    public void resetScope()
+    {
+        if(scoped != null)
+            scoped.clear();
+    }
+    
+    /**
+     * Sets the {@link StringCache} that the strings read are deduplicated with 
+     * (null to disable).
+     */
+    public ByteBufferInput setStringCache(StringCache stringCache)
+    {
+        this.stringCache = stringCache;
+        return this;
+    }
+    
+    /**
+     * Returns the current offset (the position). 
+     */
+    public int currentOffset()
+    {
+        return offset;
+    }
+    
+    /**
+     * Returns the current limit (the end index).
+     */
+    public int currentLimit()
+    {
+        return limit;
+    }
+    
+    /**
+     * Returns the last tag.
+     */
+    public int getLastTag()
+    {
+        return lastTag;
+    }
+    
+    /**
+     * Attempt to read a field tag, returning zero if we have reached EOF.
+     * Protocol message parsers use this to read tags, since a protocol message
+     * may legally end wherever a tag occurs, and zero is not a valid tag
+     * number.
+     */
+    public int readTag() throws IOException
+    {
+        if (offset == limit)
+        {
+            lastTag = 0;
+            return 0;
+        }
+
+        final int tag = readRawVarint32();
+        if (tag >>> TAG_TYPE_BITS == 0)
+        {
+            // If we actually read zero, that's not a valid tag.
+            throw ProtobufException.invalidTag();
+        }
+        lastTag = tag;
+        return tag;
+    }
+
+    /**
+     * Verifies that the last call to readTag() returned the given tag value.
+     * This is used to verify that a nested group ended with the correct end
+     * tag.
+     * 
+     * @throws ProtobufException
+     *             {@code value} does not match the last tag.
+     */
+    public void checkLastTagWas(final int value) throws ProtobufException
+    {
+        if (lastTag != value)
+        {
+            throw ProtobufException.invalidEndTag();
+        }
+    }
+
+    /**
+     * Reads and discards a single field, given its tag value.
+     * 
+     * @return {@code false} if the tag is an endgroup tag, in which case
+     *         nothing is skipped. Otherwise, returns {@code true}.
+     */
+    public boolean skipField(final int tag) throws IOException
+    {
+        switch (getTagWireType(tag))
+        {
+            case WIRETYPE_VARINT:
+                readInt32();
+                return true;
+            case WIRETYPE_FIXED64:
+                readRawLittleEndian64();
+                return true;
+            case WIRETYPE_LENGTH_DELIMITED:
+                final int size = readRawVarint32();
+                if(size < 0)
+                    throw ProtobufException.negativeSize();
+                offset += size;
+                return true;
+            case WIRETYPE_START_GROUP:
+                skipMessage();
+                checkLastTagWas(makeTag(getTagFieldNumber(tag), WIRETYPE_END_GROUP));
+                return true;
+            case WIRETYPE_END_GROUP:
+                return false;
+            case WIRETYPE_FIXED32:
+                readRawLittleEndian32();
+                return true;
+            default:
+                throw ProtobufException.invalidWireType();
+        }
+    }
+
+    /**
+     * Reads and discards an entire message. This will read either until EOF or
+     * until an endgroup tag, whichever comes first.
+     */
+    public void skipMessage() throws IOException
+    {
+        while (true)
+        {
+            final int tag = readTag();
+            if (tag == 0 || !skipField(tag))
+            {
+                return;
+            }
+        }
+    }
+
+    public <T> void handleUnknownField(int fieldNumber, Schema<T> schema) throws IOException
+    {
+        skipField(lastTag);
+    }
+    
+    public <T> int readFieldNumber(Schema<T> schema) throws IOException
+    {
+        if (packedLimit != 0)
+        {
+            // still reading the elements of a packed repeated field
+            if (offset < packedLimit)
+                return lastTag >>> TAG_TYPE_BITS;
+            
+            packedLimit = 0;
+        }
+        
+        if (offset == limit)
+        {
+            lastTag = 0;
+            return 0;
+        }
+        
+        final int tag = readRawVarint32();
+        final int fieldNumber = tag >>> TAG_TYPE_BITS;
+        if (fieldNumber == 0)
+        {
+            if (decodeNestedMessageAsGroup && 
+                    WIRETYPE_TAIL_DELIMITER == (tag & TAG_TYPE_MASK))
+            {
+                // protostuff's tail delimiter for streaming
+                // 2 options: length-delimited or tail-delimited.
+                lastTag = 0;
+                return 0;
+            }
+            // If we actually read zero, that's not a valid tag.
+            throw ProtobufException.invalidTag();
+        }
+        if (decodeNestedMessageAsGroup && WIRETYPE_END_GROUP == (tag & TAG_TYPE_MASK))
+        {
+            lastTag = 0;
+            return 0;
+        }
+
+        lastTag = tag;
+        return fieldNumber;
+    }
+    
+    /**
+     * Reads the byte size of a packed repeated field if the last tag was 
+     * length-delimited and its elements are not being read yet.
+     */
+    private void checkIfPackedField() throws IOException
+    {
+        if (packedLimit == 0 && WIRETYPE_LENGTH_DELIMITED == (lastTag & TAG_TYPE_MASK))
+        {
+            final int length = readRawVarint32();
+            if (length < 0)
+                throw ProtobufException.negativeSize();
+            
+            // an empty packed field is never written
+            if (length == 0 || offset + length > limit)
+                throw ProtobufException.misreportedSize();
+            
+            packedLimit = offset + length;
+        }
+    }
+
+    /** Read a {@code double} field value from the internal buffer. */
+    public double readDouble() throws IOException
+    {
+        checkIfPackedField();
+        return Double.longBitsToDouble(readRawLittleEndian64());
+    }
+
+    /** Read a {@code float} field value from the internal buffer. */
+    public float readFloat() throws IOException
+    {
+        checkIfPackedField();
+        return Float.intBitsToFloat(readRawLittleEndian32());
+    }
+
+    /** Read a {@code uint64} field value from the internal buffer. */
+    public long readUInt64() throws IOException
+    {
+        checkIfPackedField();
+        return readRawVarint64();
+    }
+
+    /** Read an {@code int64} field value from the internal buffer. */
+    public long readInt64() throws IOException
+    {
+        checkIfPackedField();
+        return readRawVarint64();
+    }
+
+    /** Read an {@code int32} field value from the internal buffer. */
+    public int readInt32() throws IOException
+    {
+        checkIfPackedField();
+        return readRawVarint32();
+    }
+
+    /** Read a {@code fixed64} field value from the internal buffer. */
+    public long readFixed64() throws IOException
+    {
+        checkIfPackedField();
+        return readRawLittleEndian64();
+    }
+
+    /** Read a {@code fixed32} field value from the internal buffer. */
+    public int readFixed32() throws IOException
+    {
+        checkIfPackedField();
+        return readRawLittleEndian32();
+    }
+
+    /** Read a {@code bool} field value from the internal buffer. */
+    public boolean readBool() throws IOException
+    {
+        checkIfPackedField();
+        return buffer.get(offset++) != 0;
+    }
+
+    /** Read a {@code uint32} field value from the internal buffer. */
+    public int readUInt32() throws IOException
+    {
+        checkIfPackedField();
+        return readRawVarint32();
+    }
+
+    /**
+     * Read an enum field value from the internal buffer. Caller is responsible
+     * for converting the numeric value to an actual enum.
+     */
+    public int readEnum() throws IOException
+    {
+        checkIfPackedField();
+        return readRawVarint32();
+    }
+
+    /** Read an {@code sfixed32} field value from the internal buffer. */
+    public int readSFixed32() throws IOException
+    {
+        checkIfPackedField();
+        return readRawLittleEndian32();
+    }
+
+    /** Read an {@code sfixed64} field value from the internal buffer. */
+    public long readSFixed64() throws IOException
+    {
+        checkIfPackedField();
+        return readRawLittleEndian64();
+    }
+
+    /** Read an {@code sint32} field value from the internal buffer. */
+    public int readSInt32() throws IOException
+    {
+        checkIfPackedField();
+        final int n = readRawVarint32();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /** Read an {@code sint64} field value from the internal buffer. */
+    public long readSInt64() throws IOException
+    {
+        checkIfPackedField();
+        final long n = readRawVarint64();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    public String readString() throws IOException
+    {
+        return readString(stringCache);
+    }
+    
+    public String readString(StringCache cache) throws IOException
+    {
+        final int length = readRawVarint32();
+        if(length < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(offset + length > limit)
+            throw ProtobufException.misreportedSize();
+        
+        final int offset = this.offset;
+        
+        this.offset += length;
+        
+        if(buffer.hasArray())
+        {
+            return cache == null ? 
+                    STRING.deser(buffer.array(), buffer.arrayOffset() + offset, length) : 
+                    cache.get(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+        
+        return cache == null ? STRING.deser(copyOf(offset, length)) : 
+            cache.get(copyOf(offset, length), 0, length);
+    }
+    
+    /**
+     * Reads a string field value as a {@link Utf8String} (copied but not decoded, 
+     * since the buffer can be recycled).
+     */
+    public Utf8String readUtf8String() throws IOException
+    {
+        final int length = readRawVarint32();
+        if(length < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(offset + length > limit)
+            throw ProtobufException.misreportedSize();
+        
+        final int offset = this.offset;
+        
+        this.offset += length;
+        
+        final byte[] utf8 = copyOf(offset, length);
+        return Utf8String.wrap(utf8, 0, length);
+    }
+    
+    public ByteString readBytes() throws IOException
+    {
+        return ByteString.wrap(readByteArray());
+    }
+    
+    public byte[] readByteArray() throws IOException
+    {
+        final int length = readRawVarint32();
+        if(length < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(offset + length > limit)
+            throw ProtobufException.misreportedSize();
+        
+        final byte[] copy = copyOf(offset, length);
+        
+        offset += length;
+        
+        return copy;
+    }
+    
+    /**
+     * Bulk copies the bytes at the given absolute index into a new byte array.
+     */
+    private byte[] copyOf(int offset, int length)
+    {
+        final byte[] copy = new byte[length];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(copy, 0, length);
+        return copy;
+    }
+
+    public <T> T mergeObject(T value, final Schema<T> schema) throws IOException
+    {
+        if(decodeNestedMessageAsGroup)
+            return mergeObjectEncodedAsGroup(value, schema);
+        
+        final int length = readRawVarint32();
+        if(length < 0)
+            throw ProtobufException.negativeSize();
+        
+        // save old limit
+        final int oldLimit = this.limit;
+        
+        this.limit = offset + length;
+        
+        if(value == null)
+            value = schema.newMessage();
+        schema.mergeFrom(this, value);
+        if(!schema.isInitialized(value))
+            throw new UninitializedMessageException(value, schema);
+        checkLastTagWas(0);
+        
+        // restore old limit
+        this.limit = oldLimit;
+        
+        return value;
+    }
+    
+    private <T> T mergeObjectEncodedAsGroup(T value, final Schema<T> schema) throws IOException
+    {
+        if(value == null)
+            value = schema.newMessage();
+        schema.mergeFrom(this, value);
+        if(!schema.isInitialized(value))
+            throw new UninitializedMessageException(value, schema);
+        // handling is in #readFieldNumber
+        checkLastTagWas(0);
+        return value;
+    }
+    
+    /**
+     * Reads a var int 32 from the internal byte buffer.
+     */
+    public int readRawVarint32() throws IOException
+    {
+        final ByteBuffer buffer = this.buffer;
+        byte tmp = buffer.get(offset++);
+        if (tmp >= 0)
+        {
+            return tmp;
+        }
+        int result = tmp & 0x7f;
+        if ((tmp = buffer.get(offset++)) >= 0)
+        {
+            result |= tmp << 7;
+        }
+        else
+        {
+            result |= (tmp & 0x7f) << 7;
+            if ((tmp = buffer.get(offset++)) >= 0)
+            {
+                result |= tmp << 14;
+            }
+            else
+            {
+                result |= (tmp & 0x7f) << 14;
+                if ((tmp = buffer.get(offset++)) >= 0)
+                {
+                    result |= tmp << 21;
+                }
+                else
+                {
+                    result |= (tmp & 0x7f) << 21;
+                    result |= (tmp = buffer.get(offset++)) << 28;
+                    if (tmp < 0)
+                    {
+                        // Discard upper 32 bits.
+                        for (int i = 0; i < 5; i++)
+                        {
+                            if (buffer.get(offset++) >= 0)
+                            {
+                                return result;
+                            }
+                        }
+                        throw ProtobufException.malformedVarint();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    /** Reads a var int 64 from the internal byte buffer. */
+    public long readRawVarint64() throws IOException
+    {
+        final ByteBuffer buffer = this.buffer;
+        int offset = this.offset;
+
+        int shift = 0;
+        long result = 0;
+        while (shift < 64)
+        {
+            final byte b = buffer.get(offset++);
+            result |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                this.offset = offset;
+                return result;
+            }
+            shift += 7;
+        }
+        throw ProtobufException.malformedVarint();
+    }
+    
+    /** Read a 32-bit little-endian integer from the internal buffer. */
+    public int readRawLittleEndian32() throws IOException
+    {
+        // the internal view is little-endian
+        final int value = buffer.getInt(offset);
+        offset += 4;
+        return value;
+    }
+    
+    /** Read a 64-bit little-endian integer from the internal byte buffer. */
+    public long readRawLittleEndian64() throws IOException
+    {
+        // the internal view is little-endian
+        final long value = buffer.getLong(offset);
+        offset += 8;
+        return value;
+    }
+
+    public void transferByteRangeTo(Output output, boolean utf8String, int fieldNumber,
+            boolean repeated) throws IOException
+    {
+        final int length = readRawVarint32();
+        if(length < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(buffer.hasArray())
+        {
+            output.writeByteRange(utf8String, fieldNumber, buffer.array(), 
+                    buffer.arrayOffset() + offset, length, repeated);
+        }
+        else
+        {
+            output.writeByteRange(utf8String, fieldNumber, copyOf(offset, length), 
+                    0, length, repeated);
+        }
+        
+        offset += length;
+    }
+    
+}
@@ -54,6 +54,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 import com.dyuproject.protostuff.StringSerializer.STRING;
@@ -71,7 +72,8 @@ import com.dyuproject.protostuff.StringSerializer.STRING;
  * @author kenton@google.com Kenton Varda
  * @author David Yu
  */
-public final class CodedInput implements Input {
+public final class CodedInput implements Input, Utf8String.Source, 
+    StringCache.Source, MessageScope {
   /**
    * Create a new CodedInput wrapping the given InputStream.
    */
@@ -181,59 +183,82 @@ public final class CodedInput implements Input {
 
   /** Read a {@code double} field value from the stream. */
   public double readDouble() throws IOException {
+    checkIfPackedField();
     return Double.longBitsToDouble(readRawLittleEndian64());
   }
 
   /** Read a {@code float} field value from the stream. */
   public float readFloat() throws IOException {
+    checkIfPackedField();
     return Float.intBitsToFloat(readRawLittleEndian32());
   }
 
   /** Read a {@code uint64} field value from the stream. */
   public long readUInt64() throws IOException {
+    checkIfPackedField();
     return readRawVarint64();
   }
 
   /** Read an {@code int64} field value from the stream. */
   public long readInt64() throws IOException {
+    checkIfPackedField();
     return readRawVarint64();
   }
 
   /** Read an {@code int32} field value from the stream. */
   public int readInt32() throws IOException {
+    checkIfPackedField();
     return readRawVarint32();
   }
 
   /** Read a {@code fixed64} field value from the stream. */
   public long readFixed64() throws IOException {
+    checkIfPackedField();
     return readRawLittleEndian64();
   }
 
   /** Read a {@code fixed32} field value from the stream. */
   public int readFixed32() throws IOException {
+    checkIfPackedField();
     return readRawLittleEndian32();
   }
 
   /** Read a {@code bool} field value from the stream. */
   public boolean readBool() throws IOException {
+    checkIfPackedField();
     return readRawVarint32() != 0;
   }
 
   /** Read a {@code string} field value from the stream. */
   public String readString() throws IOException {
+    return readString(stringCache);
+  }
+  
+  public String readString(StringCache cache) throws IOException {
     final int size = readRawVarint32();
     if (size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
-      final String result = STRING.deser(buffer, bufferPos, size);
+      final String result = cache == null ? STRING.deser(buffer, bufferPos, size) : 
+        cache.get(buffer, bufferPos, size);
       bufferPos += size;
       return result;
     } else {
       // Slow path:  Build a byte array first then copy it.
-      return STRING.deser(readRawBytes(size));
+      final byte[] bytes = readRawBytes(size);
+      return cache == null ? STRING.deser(bytes) : cache.get(bytes, 0, size);
     }
   }
   
+  /**
+   * Reads a string field value as a {@link Utf8String} (copied from the internal 
+   * buffer but not decoded).
+   */
+  public Utf8String readUtf8String() throws IOException {
+    final byte[] utf8 = readByteArray();
+    return Utf8String.wrap(utf8, 0, utf8.length);
+  }
+  
   public <T> T mergeObject(T value, final Schema<T> schema) throws IOException {
     if(decodeNestedMessageAsGroup)
       return mergeObjectEncodedAsGroup(value, schema);
@@ -319,6 +344,7 @@ public final class CodedInput implements Input {
 
   /** Read a {@code uint32} field value from the stream. */
   public int readUInt32() throws IOException {
+    checkIfPackedField();
     return readRawVarint32();
   }
 
@@ -327,26 +353,31 @@ public final class CodedInput implements Input {
    * for converting the numeric value to an actual enum.
    */
   public int readEnum() throws IOException {
+    checkIfPackedField();
     return readRawVarint32();
   }
 
   /** Read an {@code sfixed32} field value from the stream. */
   public int readSFixed32() throws IOException {
+    checkIfPackedField();
     return readRawLittleEndian32();
   }
 
   /** Read an {@code sfixed64} field value from the stream. */
   public long readSFixed64() throws IOException {
+    checkIfPackedField();
     return readRawLittleEndian64();
   }
 
   /** Read an {@code sint32} field value from the stream. */
   public int readSInt32() throws IOException {
+    checkIfPackedField();
     return decodeZigZag32(readRawVarint32());
   }
 
   /** Read an {@code sint64} field value from the stream. */
   public long readSInt64() throws IOException {
+    checkIfPackedField();
     return decodeZigZag64(readRawVarint64());
   }
 
@@ -561,12 +592,53 @@ public final class CodedInput implements Input {
   /** The absolute position of the end of the current message. */
   private int currentLimit = Integer.MAX_VALUE;
 
+  /** 
+   * The absolute position of the end of the packed repeated field being read, 
+   * otherwise 0.
+   */
+  private int packedLimit = 0;
+
   //** See setRecursionLimit() */
   //private int recursionDepth;
   //private int recursionLimit = DEFAULT_RECURSION_LIMIT;
   
   /** If true, the nested messages are group-encoded */
   public final boolean decodeNestedMessageAsGroup;
+  
+  /** Deduplicates the strings read (optional). */
+  private StringCache stringCache;
+  
+  /**
+   * Sets the {@link StringCache} that the strings read are deduplicated with 
+   * (null to disable).
+   */
+  public CodedInput setStringCache(StringCache stringCache) {
+    this.stringCache = stringCache;
+    return this;
+  }
+  
+  /** The state kept for the message being read (lazily created). */
+  private IdentityHashMap<Object,Object> scoped;
+  
+  public Object getScoped(Object key) {
+    return scoped == null ? null : scoped.get(key);
+  }
+  
+  public void setScoped(Object key, Object value) {
+    if (scoped == null)
+      scoped = new IdentityHashMap<Object,Object>(4);
+    
+    scoped.put(key, value);
+  }
+  
+  /**
+   * Drops the state kept for the message, which must be called before reading 
+   * the next message when this input is reused for a stream of messages.
+   */
+  public void resetScope() {
+    if (scoped != null)
+      scoped.clear();
+  }
 
   /** See setSizeLimit() */
   private int sizeLimit = DEFAULT_SIZE_LIMIT;
@@ -945,6 +1017,14 @@ public final class CodedInput implements Input {
 
   //START EXTRA
   public <T> int readFieldNumber(Schema<T> schema) throws IOException {
+    if (packedLimit != 0) {
+      // still reading the elements of a packed repeated field
+      if (totalBytesRetired + bufferPos < packedLimit) {
+        return lastTag >>> TAG_TYPE_BITS;
+      }
+      packedLimit = 0;
+    }
+    
     if (isAtEnd()) {
       lastTag = 0;
       return 0;
@@ -971,6 +1051,28 @@ public final class CodedInput implements Input {
     return fieldNumber;
   }
   
+  /**
+   * Reads the byte size of a packed repeated field if the last tag was 
+   * length-delimited and its elements are not being read yet.
+   */
+  private void checkIfPackedField() throws IOException {
+    if (packedLimit == 0 && WireFormat.WIRETYPE_LENGTH_DELIMITED == (lastTag & TAG_TYPE_MASK)) {
+      final int length = readRawVarint32();
+      if (length < 0) {
+        throw ProtobufException.negativeSize();
+      }
+      // an empty packed field is never written
+      if (length == 0) {
+        throw ProtobufException.misreportedSize();
+      }
+      final int limit = totalBytesRetired + bufferPos + length;
+      if (limit > currentLimit) {
+        throw ProtobufException.truncatedMessage();
+      }
+      packedLimit = limit;
+    }
+  }
+  
   public byte[] readByteArray() throws IOException {
     final int size = readRawVarint32();
     if (size <= (bufferSize - bufferPos) && size > 0) {
@@ -0,0 +1,297 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the frames written by a {@link CompressedOutputStream}, decompressing 
+ * a frame only when its bytes are read.
+ * 
+ * Whole frames are skipped (via {@link #skip(long)} or {@link #skipFrame()}) by 
+ * their header, without being decompressed.  The stream ends at the end frame 
+ * (or at the end of the underlying stream), and never reads past the end frame.
+ * 
+ * Not thread-safe.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class CompressedInputStream extends InputStream
+{
+    
+    /**
+     * The default limit of the (uncompressed and compressed) size of a frame.
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    
+    final InputStream in;
+    final int maxFrameSize;
+    
+    private final CompressionCodec.Decompressor[] decompressors = 
+        new CompressionCodec.Decompressor[256];
+    
+    private byte[] block = new byte[0], compressed = new byte[0];
+    private int position, limit;
+    
+    /** The header of the next frame (read but not yet loaded), if {@code size != -1}. */
+    private int codecId, size = -1, compressedSize;
+    
+    private boolean ended;
+    
+    public CompressedInputStream(InputStream in)
+    {
+        this(in, DEFAULT_MAX_FRAME_SIZE);
+    }
+    
+    public CompressedInputStream(InputStream in, int maxFrameSize)
+    {
+        this.in = in;
+        this.maxFrameSize = maxFrameSize;
+    }
+    
+    /**
+     * Returns true if the end frame (or the end of the underlying stream) was reached.
+     */
+    public boolean isEnded()
+    {
+        return ended;
+    }
+    
+    public int read() throws IOException
+    {
+        if(position == limit && !loadFrame())
+            return -1;
+        
+        return block[position++] & 0xFF;
+    }
+    
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if(len == 0)
+            return 0;
+        
+        if(position == limit && !loadFrame())
+            return -1;
+        
+        final int n = Math.min(len, limit - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+    
+    public int available()
+    {
+        return limit - position;
+    }
+    
+    /**
+     * Skips {@code n} bytes, where the frames that are entirely skipped are 
+     * not decompressed.
+     */
+    public long skip(long n) throws IOException
+    {
+        long skipped = Math.min(n, limit - position);
+        position += (int)skipped;
+        
+        while(skipped < n && readHeader())
+        {
+            if(size > n - skipped)
+            {
+                // partially skipped
+                loadFrame();
+                position = (int)(n - skipped);
+                return n;
+            }
+            
+            skipped += size;
+            skipCompressed();
+        }
+        
+        return skipped;
+    }
+    
+    /**
+     * Skips the remaining bytes of the current frame, or the next frame (without 
+     * decompressing it) if the current frame was entirely read.
+     * 
+     * @return the number of (uncompressed) bytes skipped, or -1 if the stream ended.
+     */
+    public int skipFrame() throws IOException
+    {
+        if(position != limit)
+        {
+            final int skipped = limit - position;
+            position = limit;
+            return skipped;
+        }
+        
+        if(!readHeader())
+            return -1;
+        
+        final int skipped = size;
+        skipCompressed();
+        return skipped;
+    }
+    
+    /**
+     * Reads the header of the next frame (if not yet read).
+     * 
+     * @return false if the stream ended.
+     */
+    private boolean readHeader() throws IOException
+    {
+        if(size != -1)
+            return true;
+        
+        if(ended)
+            return false;
+        
+        final int id = in.read();
+        if(id == -1)
+        {
+            ended = true;
+            return false;
+        }
+        
+        final int size = CodedInput.readRawVarint32(in), 
+                compressedSize = CodedInput.readRawVarint32(in);
+        
+        if(size == 0)
+        {
+            // the end frame
+            ended = true;
+            return false;
+        }
+        
+        if(size < 0 || compressedSize < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(size > maxFrameSize || compressedSize > maxFrameSize)
+        {
+            // size limit exceeded.
+            throw new ProtobufException("size limit exceeded. " + 
+                    Math.max(size, compressedSize) + " > " + maxFrameSize);
+        }
+        
+        if(id == CompressionCodec.NONE_ID && size != compressedSize)
+            throw ProtobufException.misreportedSize();
+        
+        this.codecId = id;
+        this.size = size;
+        this.compressedSize = compressedSize;
+        return true;
+    }
+    
+    private int readByte() throws IOException
+    {
+        final int b = in.read();
+        if(b == -1)
+            throw ProtobufException.truncatedMessage();
+        
+        return b;
+    }
+    
+    private void skipCompressed() throws IOException
+    {
+        for(int remaining = compressedSize; remaining != 0;)
+        {
+            final long skipped = in.skip(remaining);
+            if(skipped > 0)
+                remaining -= (int)skipped;
+            else
+            {
+                // skip() returns 0 at the end of some streams
+                readByte();
+                remaining--;
+            }
+        }
+        
+        size = -1;
+    }
+    
+    /**
+     * Reads and decompresses the next frame.
+     * 
+     * @return false if the stream ended.
+     */
+    private boolean loadFrame() throws IOException
+    {
+        if(!readHeader())
+            return false;
+        
+        final int size = this.size;
+        if(block.length < size)
+            block = new byte[size];
+        
+        if(codecId == CompressionCodec.NONE_ID)
+            IOUtil.fillBufferFrom(in, block, 0, size);
+        else
+        {
+            if(compressed.length < compressedSize)
+                compressed = new byte[compressedSize];
+            
+            IOUtil.fillBufferFrom(in, compressed, 0, compressedSize);
+            decompressor(codecId).decompress(compressed, 0, compressedSize, 
+                    block, 0, size);
+        }
+        
+        position = 0;
+        limit = size;
+        this.size = -1;
+        return true;
+    }
+    
+    private CompressionCodec.Decompressor decompressor(int id) throws ProtobufException
+    {
+        CompressionCodec.Decompressor decompressor = decompressors[id];
+        if(decompressor == null)
+        {
+            final CompressionCodec codec = CompressionCodec.get(id);
+            if(codec == null)
+                throw new ProtobufException("Unknown compression codec id: " + id);
+            
+            decompressors[id] = decompressor = codec.newDecompressor();
+        }
+        
+        return decompressor;
+    }
+    
+    /**
+     * Releases the decompressors, without closing the underlying stream.
+     */
+    public void end()
+    {
+        for(int i = 0; i < decompressors.length; i++)
+        {
+            if(decompressors[i] != null)
+            {
+                decompressors[i].end();
+                decompressors[i] = null;
+            }
+        }
+    }
+    
+    /**
+     * Releases the decompressors and closes the underlying stream.
+     */
+    public void close() throws IOException
+    {
+        end();
+        in.close();
+    }
+
+}
@@ -0,0 +1,172 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses the bytes written into frames of (at most) {@code blockSize} bytes:
+ * [codec id (1 byte)][varint32 size][varint32 compressed size][compressed bytes].
+ * 
+ * The sizes in the frame header allow {@link CompressedInputStream} to skip frames 
+ * without decompressing them.  Blocks that do not compress are stored as is 
+ * (codec id {@link CompressionCodec#NONE_ID}).  A frame with a size of zero marks the end.
+ * 
+ * Used as the sink of a streaming {@link WriteSession} (e.g {@link ProtostuffOutput}), 
+ * the {@link LinkedBuffer} chunks are compressed as they fill; a chunk of at least 
+ * {@code blockSize} bytes is compressed without being copied.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class CompressedOutputStream extends OutputStream
+{
+    
+    final OutputStream out;
+    final CompressionCodec codec;
+    final CompressionCodec.Compressor compressor;
+    final byte[] block, compressed;
+    final byte[] header = new byte[11];
+    
+    private int position;
+    private boolean finished;
+    
+    public CompressedOutputStream(OutputStream out, CompressionCodec codec, int blockSize)
+    {
+        if(blockSize < 1)
+            throw new IllegalArgumentException("Invalid blockSize: " + blockSize);
+        
+        this.out = out;
+        this.codec = codec;
+        compressor = codec.newCompressor();
+        block = new byte[blockSize];
+        compressed = new byte[blockSize];
+    }
+    
+    public void write(int b) throws IOException
+    {
+        if(finished)
+            throw new IOException("Stream already finished.");
+        
+        block[position++] = (byte)b;
+        if(position == block.length)
+        {
+            writeFrame(block, 0, position);
+            position = 0;
+        }
+    }
+    
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if(finished)
+            throw new IOException("Stream already finished.");
+        
+        final byte[] block = this.block;
+        final int blockSize = block.length;
+        while(len != 0)
+        {
+            if(position == 0 && len >= blockSize)
+            {
+                // compress in place
+                writeFrame(b, off, blockSize);
+                off += blockSize;
+                len -= blockSize;
+                continue;
+            }
+            
+            final int n = Math.min(len, blockSize - position);
+            System.arraycopy(b, off, block, position, n);
+            off += n;
+            len -= n;
+            
+            if((position += n) == blockSize)
+            {
+                writeFrame(block, 0, blockSize);
+                position = 0;
+            }
+        }
+    }
+    
+    private void writeFrame(byte[] src, int off, int len) throws IOException
+    {
+        final int compressedSize = compressor.compress(src, off, len, compressed, 0);
+        
+        if(compressedSize == -1)
+        {
+            writeHeader(CompressionCodec.NONE_ID, len, len);
+            out.write(src, off, len);
+        }
+        else
+        {
+            writeHeader(codec.id, len, compressedSize);
+            out.write(compressed, 0, compressedSize);
+        }
+    }
+    
+    private void writeHeader(int id, int size, int compressedSize) throws IOException
+    {
+        final byte[] header = this.header;
+        header[0] = (byte)id;
+        ProtobufOutput.writeRawVarInt32(size, header, 1);
+        final int offset = 1 + ProtobufOutput.computeRawVarint32Size(size);
+        ProtobufOutput.writeRawVarInt32(compressedSize, header, offset);
+        out.write(header, 0, offset + ProtobufOutput.computeRawVarint32Size(compressedSize));
+    }
+    
+    /**
+     * Writes the buffered bytes as a frame (if any) and flushes the underlying stream.
+     */
+    public void flush() throws IOException
+    {
+        if(position != 0)
+        {
+            writeFrame(block, 0, position);
+            position = 0;
+        }
+        
+        out.flush();
+    }
+    
+    /**
+     * Writes the buffered bytes and the end frame, without closing the underlying stream.
+     * No more bytes can be written afterwards.
+     */
+    public void finish() throws IOException
+    {
+        if(finished)
+            return;
+        
+        if(position != 0)
+        {
+            writeFrame(block, 0, position);
+            position = 0;
+        }
+        
+        writeHeader(CompressionCodec.NONE_ID, 0, 0);
+        finished = true;
+        compressor.end();
+    }
+    
+    /**
+     * Finishes this stream and closes the underlying stream.
+     */
+    public void close() throws IOException
+    {
+        finish();
+        out.close();
+    }
+
+}
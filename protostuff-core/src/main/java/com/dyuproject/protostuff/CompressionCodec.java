@@ -0,0 +1,234 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A block compression codec used by {@link CompressedOutputStream} and 
+ * {@link CompressedInputStream}.
+ * 
+ * Every frame records the {@link #id} of the codec that compressed it, so the 
+ * reader resolves the codec via {@link #get(int)}.  {@link #DEFLATE} is built in; 
+ * other codecs (e.g LZ4, for which {@link #LZ4_ID} is reserved) can be plugged in via 
+ * {@link #register(CompressionCodec)} on both the writer and the reader side.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public abstract class CompressionCodec
+{
+    
+    /**
+     * Compresses blocks.  Not thread-safe (one per stream).
+     */
+    public interface Compressor
+    {
+        /**
+         * Compresses the {@code len} bytes of the {@code src} into the {@code dst}, 
+         * which has at least {@code len} bytes available.
+         * 
+         * @return the compressed size, or -1 if the block cannot be compressed to 
+         * less than {@code len} bytes (it will be stored as is).
+         */
+        public int compress(byte[] src, int srcOffset, int len, byte[] dst, int dstOffset);
+        
+        /**
+         * Releases the resources held.
+         */
+        public void end();
+    }
+    
+    /**
+     * Decompresses blocks.  Not thread-safe (one per stream).
+     */
+    public interface Decompressor
+    {
+        /**
+         * Decompresses the {@code srcLen} bytes of the {@code src} into exactly 
+         * {@code dstLen} bytes of the {@code dst}.
+         * 
+         * @throws IOException if the compressed block is corrupted.
+         */
+        public void decompress(byte[] src, int srcOffset, int srcLen, 
+                byte[] dst, int dstOffset, int dstLen) throws IOException;
+        
+        /**
+         * Releases the resources held.
+         */
+        public void end();
+    }
+    
+    /**
+     * The id of the frames stored as is (not compressed).
+     */
+    public static final int NONE_ID = 0;
+    
+    /**
+     * The id of the built-in {@link #DEFLATE} codec.
+     */
+    public static final int DEFLATE_ID = 1;
+    
+    /**
+     * Reserved for an LZ4 codec.
+     */
+    public static final int LZ4_ID = 2;
+    
+    private static final CompressionCodec[] CODECS = new CompressionCodec[256];
+    
+    /**
+     * Deflate (zlib) with {@link Deflater#BEST_SPEED}.
+     */
+    public static final CompressionCodec DEFLATE = deflate(Deflater.BEST_SPEED);
+    
+    static
+    {
+        CODECS[DEFLATE_ID] = DEFLATE;
+    }
+    
+    /**
+     * Returns a deflate codec with the given compression {@code level}.  The frames are 
+     * read back by the registered {@link #DEFLATE} codec, regardless of the level.
+     */
+    public static CompressionCodec deflate(final int level)
+    {
+        return new CompressionCodec(DEFLATE_ID, "deflate")
+        {
+            public Compressor newCompressor()
+            {
+                return new DeflateCompressor(level);
+            }
+            
+            public Decompressor newDecompressor()
+            {
+                return new InflateDecompressor();
+            }
+        };
+    }
+    
+    /**
+     * Registers the {@code codec} to read the frames tagged with its {@link #id}.
+     * 
+     * @throws IllegalArgumentException if the id is reserved or already registered.
+     */
+    public static synchronized void register(CompressionCodec codec)
+    {
+        if(codec.id == NONE_ID || codec.id == DEFLATE_ID)
+            throw new IllegalArgumentException("Reserved codec id: " + codec.id);
+        
+        final CompressionCodec existing = CODECS[codec.id];
+        if(existing != null && existing != codec)
+        {
+            throw new IllegalArgumentException("Codec id " + codec.id + 
+                    " already registered to " + existing.name);
+        }
+        
+        CODECS[codec.id] = codec;
+    }
+    
+    /**
+     * Returns the codec registered with the {@code id}, or null if none.
+     */
+    public static CompressionCodec get(int id)
+    {
+        return id > 0 && id < CODECS.length ? CODECS[id] : null;
+    }
+    
+    /**
+     * The id (1-255) written on every frame compressed by this codec.
+     */
+    public final int id;
+    
+    public final String name;
+    
+    protected CompressionCodec(int id, String name)
+    {
+        if(id < 1 || id > 255)
+            throw new IllegalArgumentException("The codec id must be from 1 to 255.");
+        
+        this.id = id;
+        this.name = name;
+    }
+    
+    public abstract Compressor newCompressor();
+    
+    public abstract Decompressor newDecompressor();
+    
+    public String toString()
+    {
+        return name;
+    }
+    
+    static final class DeflateCompressor implements Compressor
+    {
+        final Deflater deflater;
+        
+        DeflateCompressor(int level)
+        {
+            deflater = new Deflater(level);
+        }
+        
+        public int compress(byte[] src, int srcOffset, int len, byte[] dst, int dstOffset)
+        {
+            final Deflater deflater = this.deflater;
+            deflater.reset();
+            deflater.setInput(src, srcOffset, len);
+            deflater.finish();
+            
+            final int size = deflater.deflate(dst, dstOffset, len);
+            return deflater.finished() && size < len ? size : -1;
+        }
+        
+        public void end()
+        {
+            deflater.end();
+        }
+    }
+    
+    static final class InflateDecompressor implements Decompressor
+    {
+        final Inflater inflater = new Inflater();
+        
+        public void decompress(byte[] src, int srcOffset, int srcLen, 
+                byte[] dst, int dstOffset, int dstLen) throws IOException
+        {
+            final Inflater inflater = this.inflater;
+            inflater.reset();
+            inflater.setInput(src, srcOffset, srcLen);
+            
+            final int size;
+            try
+            {
+                size = inflater.inflate(dst, dstOffset, dstLen);
+            }
+            catch(DataFormatException e)
+            {
+                throw new ProtobufException("Corrupted deflate frame.", e);
+            }
+            
+            if(size != dstLen || !inflater.finished())
+                throw new ProtobufException("Corrupted deflate frame.");
+        }
+        
+        public void end()
+        {
+            inflater.end();
+        }
+    }
+
+}
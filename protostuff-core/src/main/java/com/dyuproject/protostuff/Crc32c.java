@@ -0,0 +1,150 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.lang.reflect.Constructor;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum used to frame messages.
+ * 
+ * {@link #newChecksum()} returns {@code java.util.zip.CRC32C} (intrinsified on jdk9+) 
+ * when available, otherwise this pure java (slicing-by-8) implementation, which 
+ * produces the same values.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class Crc32c implements Checksum
+{
+    
+    /**
+     * The reflected polynomial.
+     */
+    static final int POLY = 0x82F63B78;
+    
+    static final int[][] TABLES = new int[8][256];
+    static
+    {
+        for(int i = 0; i < 256; i++)
+        {
+            int crc = i;
+            for(int j = 0; j < 8; j++)
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : crc >>> 1;
+            
+            TABLES[0][i] = crc;
+        }
+        
+        for(int i = 0; i < 256; i++)
+        {
+            for(int t = 1; t < 8; t++)
+            {
+                final int prev = TABLES[t-1][i];
+                TABLES[t][i] = (prev >>> 8) ^ TABLES[0][prev & 0xFF];
+            }
+        }
+    }
+    
+    static final Constructor<? extends Checksum> JDK_CRC32C = getJdkCrc32c();
+    
+    static Constructor<? extends Checksum> getJdkCrc32c()
+    {
+        try
+        {
+            return Class.forName("java.util.zip.CRC32C").asSubclass(
+                    Checksum.class).getConstructor();
+        }
+        catch(Exception e)
+        {
+            // jdk < 9
+            return null;
+        }
+    }
+    
+    /**
+     * Returns a new CRC-32C {@link Checksum}, backed by the jdk's (hardware accelerated) 
+     * implementation if available.
+     */
+    public static Checksum newChecksum()
+    {
+        if(JDK_CRC32C != null)
+        {
+            try
+            {
+                return JDK_CRC32C.newInstance();
+            }
+            catch(Exception e)
+            {
+                // fall back
+            }
+        }
+        
+        return new Crc32c();
+    }
+    
+    /**
+     * Updates the {@code checksum} with the contents of the {@code node} and 
+     * the buffers next to it.
+     */
+    public static void update(Checksum checksum, LinkedBuffer node)
+    {
+        do
+        {
+            if(node.offset != node.start)
+                checksum.update(node.buffer, node.start, node.offset - node.start);
+        }
+        while((node=node.next) != null);
+    }
+    
+    private int crc = 0xFFFFFFFF;
+    
+    public void update(int b)
+    {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+    }
+    
+    public void update(byte[] b, int off, int len)
+    {
+        final int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3], 
+                t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+        int c = crc;
+        for(; len >= 8; len -= 8, off += 8)
+        {
+            final int lo = c ^ ((b[off] & 0xFF) | (b[off+1] & 0xFF) << 8 | 
+                    (b[off+2] & 0xFF) << 16 | (b[off+3] & 0xFF) << 24);
+            
+            c = t7[lo & 0xFF] ^ t6[(lo >>> 8) & 0xFF] ^ 
+                    t5[(lo >>> 16) & 0xFF] ^ t4[lo >>> 24] ^ 
+                    t3[b[off+4] & 0xFF] ^ t2[b[off+5] & 0xFF] ^ 
+                    t1[b[off+6] & 0xFF] ^ t0[b[off+7] & 0xFF];
+        }
+        
+        for(; len > 0; len--)
+            c = (c >>> 8) ^ t0[(c ^ b[off++]) & 0xFF];
+        
+        crc = c;
+    }
+    
+    public long getValue()
+    {
+        return ~crc & 0xFFFFFFFFL;
+    }
+    
+    public void reset()
+    {
+        crc = 0xFFFFFFFF;
+    }
+
+}
@@ -0,0 +1,307 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A push-style (non-blocking) decoder of length-delimited messages, 
+ * as written by {@code writeDelimitedTo}.
+ * 
+ * The bytes are offered in arbitrary chunks (e.g as they arrive from a non-blocking 
+ * channel) and every message is passed to the {@link Handler} as soon as its frame 
+ * is complete.  Frames that are entirely contained in a chunk are decoded in place; 
+ * only a frame split across chunks is copied to an internal buffer, which is 
+ * bounded by the {@code maxFrameSize}.
+ * 
+ * Created via {@link ProtostuffIOUtil#newDelimitedDecoder}, 
+ * {@link ProtobufIOUtil#newDelimitedDecoder} or {@link GraphIOUtil#newDelimitedDecoder}.
+ * 
+ * Not thread-safe.  Once an exception is thrown (malformed input or from the handler), 
+ * the position in the stream is lost and the decoder cannot be used anymore.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class DelimitedDecoder<T>
+{
+    
+    /**
+     * Receives the messages decoded by a {@link DelimitedDecoder}.
+     */
+    public interface Handler<T>
+    {
+        /**
+         * Called when the frame of a message is complete and the message is decoded.
+         */
+        public void onMessage(T message) throws IOException;
+    }
+    
+    final Schema<T> schema;
+    final Handler<T> handler;
+    final int maxFrameSize;
+    final boolean decodeNestedMessageAsGroup, graph;
+    
+    /** The delimited size being read. */
+    private int size, sizeShift;
+    
+    /** The size of the partial frame, or -1 if reading the delimited size. */
+    private int frameSize = -1, frameOffset;
+    
+    /** Holds the partial frame (lazily allocated). */
+    private byte[] frame;
+    
+    private boolean failed;
+    
+    DelimitedDecoder(Schema<T> schema, int maxFrameSize, Handler<T> handler, 
+            boolean decodeNestedMessageAsGroup, boolean graph)
+    {
+        if(maxFrameSize < 0)
+            throw new IllegalArgumentException("maxFrameSize cannot be negative.");
+        
+        this.schema = schema;
+        this.maxFrameSize = maxFrameSize;
+        this.handler = handler;
+        this.decodeNestedMessageAsGroup = decodeNestedMessageAsGroup;
+        this.graph = graph;
+    }
+    
+    /**
+     * Returns true if a frame (or its delimited size) was partially received.
+     * 
+     * If the stream ends while this is true, the last message was truncated.
+     */
+    public boolean hasPartialFrame()
+    {
+        return frameSize != -1 || sizeShift != 0;
+    }
+    
+    /**
+     * Returns the number of bytes buffered for the partial frame.
+     */
+    public int getBufferedSize()
+    {
+        return frameSize == -1 ? 0 : frameOffset;
+    }
+    
+    /**
+     * Decodes the messages whose frames are completed by the {@code data}.
+     * 
+     * @return the number of messages decoded.
+     */
+    public int offer(byte[] data) throws IOException
+    {
+        return offer(data, 0, data.length);
+    }
+    
+    /**
+     * Decodes the messages whose frames are completed by the bytes of the 
+     * {@code data} starting at {@code offset}.
+     * 
+     * @return the number of messages decoded.
+     */
+    public int offer(byte[] data, int offset, int length) throws IOException
+    {
+        if(failed)
+            throw new IllegalStateException("The decoder failed previously.");
+        
+        failed = true;
+        
+        final int limit = offset + length;
+        int count = 0;
+        while(offset != limit)
+        {
+            if(frameSize == -1)
+            {
+                if(!readSize(data[offset++]))
+                    continue;
+                
+                final int len = size;
+                size = 0;
+                
+                if(limit - offset >= len)
+                {
+                    // the frame is complete
+                    decode(data, offset, len);
+                    offset += len;
+                    count++;
+                    continue;
+                }
+                
+                startFrame(len);
+            }
+            
+            final int n = Math.min(frameSize - frameOffset, limit - offset);
+            System.arraycopy(data, offset, frame, frameOffset, n);
+            offset += n;
+            
+            if((frameOffset += n) == frameSize)
+            {
+                frameSize = -1;
+                decode(frame, 0, frameOffset);
+                count++;
+            }
+        }
+        
+        failed = false;
+        return count;
+    }
+    
+    /**
+     * Decodes the messages whose frames are completed by the remaining bytes of 
+     * the {@code data}, which are all consumed (its position is set to its limit).
+     * 
+     * Direct buffers are decoded in place (via {@link ByteBufferInput}) as well.
+     * 
+     * @return the number of messages decoded.
+     */
+    public int offer(ByteBuffer data) throws IOException
+    {
+        if(data.hasArray())
+        {
+            final int count = offer(data.array(), data.arrayOffset() + data.position(), 
+                    data.remaining());
+            data.position(data.limit());
+            return count;
+        }
+        
+        if(failed)
+            throw new IllegalStateException("The decoder failed previously.");
+        
+        failed = true;
+        
+        final int limit = data.limit();
+        int offset = data.position(), count = 0;
+        ByteBufferInput input = null;
+        while(offset != limit)
+        {
+            if(frameSize == -1)
+            {
+                if(!readSize(data.get(offset++)))
+                    continue;
+                
+                final int len = size;
+                size = 0;
+                
+                if(limit - offset >= len)
+                {
+                    // the frame is complete
+                    if(input == null)
+                        input = new ByteBufferInput(data, decodeNestedMessageAsGroup);
+                    
+                    decode(input.reset(offset, len));
+                    offset += len;
+                    count++;
+                    continue;
+                }
+                
+                startFrame(len);
+            }
+            
+            final int n = Math.min(frameSize - frameOffset, limit - offset);
+            final ByteBuffer src = data.duplicate();
+            src.position(offset);
+            src.get(frame, frameOffset, n);
+            offset += n;
+            
+            if((frameOffset += n) == frameSize)
+            {
+                frameSize = -1;
+                decode(frame, 0, frameOffset);
+                count++;
+            }
+        }
+        
+        data.position(limit);
+        failed = false;
+        return count;
+    }
+    
+    /**
+     * Reads a byte of the delimited size and returns true if the size is complete.
+     */
+    private boolean readSize(byte b) throws ProtobufException
+    {
+        size |= (b & 0x7f) << sizeShift;
+        if(b < 0)
+        {
+            if((sizeShift += 7) == 35)
+                throw ProtobufException.malformedVarint();
+            
+            return false;
+        }
+        
+        sizeShift = 0;
+        
+        if(size < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(size > maxFrameSize)
+        {
+            // size limit exceeded.
+            throw new ProtobufException("size limit exceeded. " + 
+                    size + " > " + maxFrameSize);
+        }
+        
+        return true;
+    }
+    
+    private void startFrame(int len)
+    {
+        if(frame == null || frame.length < len)
+            frame = new byte[len];
+        
+        frameSize = len;
+        frameOffset = 0;
+    }
+    
+    private void decode(byte[] data, int offset, int len) throws IOException
+    {
+        final T message = schema.newMessage();
+        final ByteArrayInput input = new ByteArrayInput(data, offset, len, 
+                decodeNestedMessageAsGroup);
+        // the chunks and the frame buffer are reused
+        input.copyUtf8Strings = true;
+        try
+        {
+            schema.mergeFrom(graph ? new GraphByteArrayInput(input) : input, message);
+        }
+        catch(ArrayIndexOutOfBoundsException e)
+        {
+            throw ProtobufException.truncatedMessage(e);
+        }
+        input.checkLastTagWas(0);
+        
+        handler.onMessage(message);
+    }
+    
+    private void decode(ByteBufferInput input) throws IOException
+    {
+        final T message = schema.newMessage();
+        try
+        {
+            schema.mergeFrom(graph ? new GraphByteBufferInput(input) : input, message);
+        }
+        catch(IndexOutOfBoundsException e)
+        {
+            throw ProtobufException.truncatedMessage(e);
+        }
+        input.checkLastTagWas(0);
+        
+        handler.onMessage(message);
+    }
+
+}
@@ -0,0 +1,137 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lazily reads the length-delimited messages (as written by {@code writeDelimitedTo} 
+ * or a {@link DelimitedWriter}) until the end of the stream.
+ * 
+ * A single buffer (as big as the biggest message that fits 
+ * {@link CodedInput#DEFAULT_BUFFER_SIZE}) is reused for all the messages; the bigger 
+ * ones are read directly from the stream.  The stream is not closed.
+ * 
+ * If checksummed, every frame (followed by its crc32c) is read fully and 
+ * verified before it is parsed.  Since the length prefix is not covered by the 
+ * crc, a frame larger than the {@code maxFrameSize} is rejected before anything 
+ * is allocated for it.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+final class DelimitedIterator<T> extends MessageIterator<T>
+{
+    
+    final InputStream in;
+    final boolean decodeNestedMessageAsGroup, graph, checksummed;
+    final int maxFrameSize;
+    
+    private byte[] buf;
+    private LimitedInputStream lin;
+    private int len;
+    
+    DelimitedIterator(InputStream in, Schema<T> schema, T reuse, 
+            boolean decodeNestedMessageAsGroup, boolean graph, boolean checksummed)
+    {
+        this(in, schema, reuse, decodeNestedMessageAsGroup, graph, checksummed, 
+                CodedInput.DEFAULT_SIZE_LIMIT);
+    }
+    
+    DelimitedIterator(InputStream in, Schema<T> schema, T reuse, 
+            boolean decodeNestedMessageAsGroup, boolean graph, boolean checksummed, 
+            int maxFrameSize)
+    {
+        super(schema, reuse);
+        
+        // the crc32c follows the frame
+        if(maxFrameSize < 0 || maxFrameSize > Integer.MAX_VALUE - 4)
+            throw new IllegalArgumentException("Invalid maxFrameSize: " + maxFrameSize);
+        
+        this.in = in;
+        this.decodeNestedMessageAsGroup = decodeNestedMessageAsGroup;
+        this.graph = graph;
+        this.checksummed = checksummed;
+        this.maxFrameSize = maxFrameSize;
+    }
+    
+    protected boolean advance() throws IOException
+    {
+        final int size = in.read();
+        if(size == -1)
+            return false;
+        
+        len = size < 0x80 ? size : CodedInput.readRawVarint32(in, size);
+        if(len < 0)
+            throw ProtobufException.negativeSize();
+        
+        return true;
+    }
+    
+    protected void merge(T message) throws IOException
+    {
+        final int len = this.len;
+        if(checksummed)
+        {
+            if(len > maxFrameSize)
+            {
+                // size limit exceeded.
+                throw new ProtobufException("size limit exceeded. " + 
+                        len + " > " + maxFrameSize);
+            }
+            
+            if(buf == null || buf.length < len + 4)
+                buf = new byte[len + 4];
+            
+            IOUtil.fillBufferFrom(in, buf, 0, len + 4);
+            IOUtil.verifyChecksum(buf, 0, len);
+            
+            if(len != 0)
+                IOUtil.mergeFrame(buf, len, message, schema, decodeNestedMessageAsGroup, graph);
+            
+            return;
+        }
+        
+        if(len == 0)
+        {
+            // empty message
+            return;
+        }
+        
+        if(len > CodedInput.DEFAULT_BUFFER_SIZE)
+        {
+            // message too big
+            if(lin == null)
+                lin = new LimitedInputStream(in);
+            
+            final CodedInput input = new CodedInput(lin.limit(len), 
+                    decodeNestedMessageAsGroup);
+            schema.mergeFrom(graph ? new GraphCodedInput(input) : input, message);
+            input.checkLastTagWas(0);
+            return;
+        }
+        
+        if(buf == null || buf.length < len)
+        {
+            // cannot reuse buffer, allocate a bigger buffer
+            buf = new byte[len];
+        }
+        
+        IOUtil.fillBufferFrom(in, buf, 0, len);
+        IOUtil.mergeFrame(buf, len, message, schema, decodeNestedMessageAsGroup, graph);
+    }
+
+}
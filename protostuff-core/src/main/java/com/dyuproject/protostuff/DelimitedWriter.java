@@ -0,0 +1,417 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Iterator;
+import java.util.zip.Checksum;
+
+/**
+ * A streaming writer of length-delimited messages (the same bytes as 
+ * {@code writeDelimitedTo}), which accepts the messages one by one.
+ * 
+ * The messages are appended to a single {@link LinkedBuffer} chain that is written 
+ * to the stream (or channel) once the buffered bytes reach the {@code flushThreshold}, 
+ * and then cleared for re-use.  This avoids materializing the messages in a list 
+ * (as {@code writeListTo} does) and issues one write per threshold instead of 
+ * one per message.
+ * 
+ * Created via {@link ProtostuffIOUtil#newDelimitedWriter}, 
+ * {@link ProtobufIOUtil#newDelimitedWriter} or {@link GraphIOUtil#newDelimitedWriter}.
+ * The output is read back with {@code mergeDelimitedFrom} or a {@link DelimitedDecoder}.
+ * 
+ * If checksummed, every frame is followed by the crc32c (fixed32) of the message, 
+ * computed over the buffers as they are (see {@code writeChecksummedTo}).  The output is 
+ * read back with {@code mergeChecksummedFrom} or {@code iterateChecksummedFrom}.
+ * 
+ * If indexed (see {@code newIndexedWriter}), the offset of every frame is recorded 
+ * and {@link #finish()} appends a footer (see {@link IndexedReader}) that allows 
+ * decoding any message directly by its position.
+ * 
+ * A channel must be in blocking mode since every write completes before returning.
+ * 
+ * Not thread-safe.  The remaining buffered messages are only written on {@link #flush()}, 
+ * which must be called after the last message.  The underlying stream is never closed.
+ * Once an exception is thrown (from the schema or the sink), the writer 
+ * cannot be used anymore.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class DelimitedWriter<T> implements Flushable
+{
+    
+    final Schema<T> schema;
+    final WriteSession session;
+    final Output output;
+    final int flushThreshold;
+    final boolean graph;
+    final Checksum checksum;
+    
+    final OutputStream out;
+    final GatheringByteChannel channel;
+    
+    private long writtenSize;
+    private int messageCount;
+    
+    private boolean failed, finished;
+    
+    /** The frame offsets (as varint deltas) if indexed, otherwise null. */
+    private byte[] index;
+    private int indexSize;
+    private long lastFrameOffset;
+    
+    DelimitedWriter(Schema<T> schema, LinkedBuffer buffer, int flushThreshold, 
+            boolean protostuff, boolean graph, boolean checksummed, 
+            OutputStream out, GatheringByteChannel channel)
+    {
+        this(schema, buffer, flushThreshold, protostuff, graph, checksummed, false, 
+                out, channel);
+    }
+    
+    DelimitedWriter(Schema<T> schema, LinkedBuffer buffer, int flushThreshold, 
+            boolean protostuff, boolean graph, boolean checksummed, boolean indexed, 
+            OutputStream out, GatheringByteChannel channel)
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        if(flushThreshold < 0)
+            throw new IllegalArgumentException("flushThreshold cannot be negative.");
+        
+        LinkedBuffer.checkBlocking(channel);
+        
+        this.schema = schema;
+        this.flushThreshold = flushThreshold;
+        this.graph = graph;
+        this.checksum = checksummed ? Crc32c.newChecksum() : null;
+        this.out = out;
+        this.channel = channel;
+        
+        if(indexed)
+            index = new byte[256];
+        
+        if(protostuff)
+        {
+            final ProtostuffOutput output = new ProtostuffOutput(buffer);
+            this.session = output;
+            this.output = output;
+        }
+        else
+        {
+            final ProtobufOutput output = new ProtobufOutput(buffer);
+            this.session = output;
+            this.output = output;
+        }
+    }
+    
+    /**
+     * Returns the number of bytes buffered (not yet written to the sink).
+     */
+    public int getBufferedSize()
+    {
+        return session.size;
+    }
+    
+    /**
+     * Returns the number of bytes written to the sink so far.
+     */
+    public long getWrittenSize()
+    {
+        return writtenSize;
+    }
+    
+    /**
+     * Returns the number of messages written (including the buffered ones).
+     */
+    public int getMessageCount()
+    {
+        return messageCount;
+    }
+    
+    /**
+     * Appends the {@code message} (prefixed with its length) to the buffer, 
+     * which is written to the sink if the {@code flushThreshold} is reached.
+     * 
+     * @return the size of the message
+     */
+    public int write(T message) throws IOException
+    {
+        if(failed)
+            throw new IllegalStateException("The writer failed previously.");
+        
+        if(finished)
+            throw new IllegalStateException("The writer is already finished.");
+        
+        failed = true;
+        
+        final WriteSession session = this.session;
+        
+        if(index != null)
+        {
+            final long frameOffset = writtenSize + session.size;
+            addIndexEntry(frameOffset - lastFrameOffset);
+            lastFrameOffset = frameOffset;
+        }
+        
+        if(session.tail.offset == session.tail.buffer.length)
+            session.tail = session.grow(session.tail);
+        
+        // reserve the 1-byte delim (the common case)
+        final LinkedBuffer lastBuffer = session.tail;
+        final int lastOffset = lastBuffer.offset++, lastSize = ++session.size;
+        
+        // every frame is self-contained
+        session.resetScope();
+        
+        schema.writeTo(graph ? new GraphProtostuffOutput((ProtostuffOutput)output) : 
+            output, message);
+        
+        final int msgSize = session.size - lastSize;
+        
+        final int crc = checksum == null ? 0 : checksum(lastBuffer, lastOffset + 1);
+        
+        if(msgSize < 128)
+        {
+            // fits
+            lastBuffer.buffer[lastOffset] = (byte)msgSize;
+        }
+        else
+        {
+            // split into two buffers and insert the delimiter between them
+            final LinkedBuffer view = new LinkedBuffer(lastBuffer.buffer, 
+                    lastOffset + 1, lastBuffer.offset);
+            
+            if(lastBuffer == session.tail)
+                session.tail = view;
+            else
+                view.next = lastBuffer.next;
+            
+            lastBuffer.offset = lastOffset;
+            
+            final byte[] delimited = new byte[
+                    ProtobufOutput.computeRawVarint32Size(msgSize)];
+            ProtobufOutput.writeRawVarInt32(msgSize, delimited, 0);
+            
+            // add the difference
+            session.size += (delimited.length - 1);
+            
+            new LinkedBuffer(delimited, 0, delimited.length, lastBuffer).next = view;
+        }
+        
+        if(checksum != null)
+            session.tail = session.sink.writeInt32LE(crc, session, session.tail);
+        
+        messageCount++;
+        
+        if(session.size >= flushThreshold)
+            writeBuffered();
+        
+        failed = false;
+        return msgSize;
+    }
+    
+    /**
+     * Writes all the messages of the {@code iterator}, without holding on to them.
+     * 
+     * @return the number of messages written
+     */
+    public int writeAll(Iterator<? extends T> iterator) throws IOException
+    {
+        int count = 0;
+        while(iterator.hasNext())
+        {
+            write(iterator.next());
+            count++;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Writes all the messages of the {@code iterable}.
+     * 
+     * @return the number of messages written
+     */
+    public int writeAll(Iterable<? extends T> iterable) throws IOException
+    {
+        return writeAll(iterable.iterator());
+    }
+    
+    /**
+     * Writes the buffered messages to the sink and flushes the stream (if any).
+     */
+    public void flush() throws IOException
+    {
+        if(failed)
+            throw new IllegalStateException("The writer failed previously.");
+        
+        failed = true;
+        
+        if(session.size != 0)
+            writeBuffered();
+        
+        if(out != null)
+            out.flush();
+        
+        failed = false;
+    }
+    
+    /**
+     * Writes the remaining buffered messages and (if indexed) the frame index footer, 
+     * then flushes the sink.  No more messages can be written afterwards.
+     */
+    public void finish() throws IOException
+    {
+        if(finished)
+            throw new IllegalStateException("The writer is already finished.");
+        
+        flush();
+        
+        if(index != null)
+        {
+            failed = true;
+            writeIndex();
+            if(out != null)
+                out.flush();
+            
+            failed = false;
+        }
+        
+        finished = true;
+    }
+    
+    /**
+     * Computes the crc32c of the message, which starts at the {@code offset} of the 
+     * {@code node} and ends at the tail.
+     */
+    private int checksum(LinkedBuffer node, int offset)
+    {
+        final Checksum checksum = this.checksum;
+        checksum.reset();
+        checksum.update(node.buffer, offset, node.offset - offset);
+        if(node.next != null)
+            Crc32c.update(checksum, node.next);
+        
+        return (int)checksum.getValue();
+    }
+    
+    private void writeBuffered() throws IOException
+    {
+        final int size = out != null ? LinkedBuffer.writeTo(out, session.head) : 
+            LinkedBuffer.writeTo(channel, session.head);
+        
+        assert size == session.size;
+        
+        writtenSize += size;
+        session.clear();
+    }
+    
+    private void addIndexEntry(long delta)
+    {
+        if(indexSize + 10 > index.length)
+        {
+            final byte[] newIndex = new byte[index.length << 1];
+            System.arraycopy(index, 0, newIndex, 0, indexSize);
+            index = newIndex;
+        }
+        
+        while((delta & ~0x7FL) != 0)
+        {
+            index[indexSize++] = (byte)(((int)delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        index[indexSize++] = (byte)delta;
+    }
+    
+    /**
+     * Writes the fixed-width frame offsets (decoded from the varint deltas) 
+     * followed by the trailer.
+     */
+    private void writeIndex() throws IOException
+    {
+        final long indexOffset = writtenSize;
+        final boolean wide = lastFrameOffset > 0xFFFFFFFFL;
+        final int width = wide ? 8 : 4;
+        
+        final byte[] chunk = new byte[4096];
+        int len = 0;
+        long frameOffset = 0;
+        for(int i = 0; i < indexSize;)
+        {
+            long delta = 0;
+            for(int shift = 0;; shift += 7)
+            {
+                final byte b = index[i++];
+                delta |= (long)(b & 0x7F) << shift;
+                if(b >= 0)
+                    break;
+            }
+            frameOffset += delta;
+            
+            if(len + width > chunk.length)
+            {
+                writeRaw(chunk, len);
+                len = 0;
+            }
+            
+            len = putFixed(frameOffset, width, chunk, len);
+        }
+        
+        if(len + IndexedReader.TRAILER_SIZE > chunk.length)
+        {
+            writeRaw(chunk, len);
+            len = 0;
+        }
+        
+        len = putFixed(indexOffset, 8, chunk, len);
+        len = putFixed(messageCount, 4, chunk, len);
+        len = putFixed((checksum == null ? 0 : IndexedReader.FLAG_CHECKSUMMED) | 
+                (wide ? IndexedReader.FLAG_WIDE_OFFSETS : 0), 4, chunk, len);
+        len = putFixed(IndexedReader.MAGIC, 4, chunk, len);
+        
+        writeRaw(chunk, len);
+        
+        index = null;
+    }
+    
+    private static int putFixed(long value, int width, byte[] buf, int offset)
+    {
+        for(int i = 0; i < width; i++, value >>>= 8)
+            buf[offset++] = (byte)value;
+        
+        return offset;
+    }
+    
+    private void writeRaw(byte[] buf, int len) throws IOException
+    {
+        if(out != null)
+            out.write(buf, 0, len);
+        else
+        {
+            LinkedBuffer.checkBlocking(channel);
+            final ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+            while(bb.hasRemaining())
+                channel.write(bb);
+        }
+        
+        writtenSize += len;
+    }
+
+}
@@ -27,7 +27,8 @@ import java.util.ArrayList;
  * @created Dec 10, 2010
  */
 public final class GraphByteArrayInput extends FilterInput<ByteArrayInput> 
-    implements GraphInput, Schema<Object>
+    implements GraphInput, Schema<Object>, Utf8String.Source, 
+    StringCache.Source, MessageScope
 {
 
     private final ArrayList<Object> references;
@@ -71,6 +72,31 @@ public final class GraphByteArrayInput extends FilterInput<ByteArrayInput>
         return messageReference;
     }
     
+    public Utf8String readUtf8String() throws IOException
+    {
+        return input.readUtf8String();
+    }
+    
+    public String readString(StringCache cache) throws IOException
+    {
+        return input.readString(cache);
+    }
+    
+    public Object getScoped(Object key)
+    {
+        return input.getScoped(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        input.setScoped(key, value);
+    }
+    
+    public void resetScope()
+    {
+        input.resetScope();
+    }
+    
     public <T> int readFieldNumber(Schema<T> schema) throws IOException
     {
         final int fieldNumber = input.readFieldNumber(schema);
@@ -16,9 +16,12 @@ package com.dyuproject.protostuff;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 
 /**
  * IO Utilities for graph objects (references and cyclic dependencies).
@@ -31,6 +34,83 @@ public final class GraphIOUtil
     
     private GraphIOUtil() {}
     
+    /**
+     * Creates a push-style {@link DelimitedDecoder} for protostuff (graph) messages written 
+     * via {@code writeDelimitedTo}, which passes every decoded message to the 
+     * {@code handler}.
+     * 
+     * A frame larger than {@code maxFrameSize} is rejected.
+     */
+    public static <T> DelimitedDecoder<T> newDelimitedDecoder(Schema<T> schema, 
+            int maxFrameSize, DelimitedDecoder.Handler<T> handler)
+    {
+        return new DelimitedDecoder<T>(schema, maxFrameSize, handler, true, true);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams graph messages (delimited) 
+     * into the {@link OutputStream}, writing the {@code buffer} once at least 
+     * {@code flushThreshold} bytes are buffered.
+     */
+    public static <T> DelimitedWriter<T> newDelimitedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, true, 
+                false, out, null);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams graph messages (delimited) 
+     * into the {@link GatheringByteChannel}, writing the {@code buffer} once at least 
+     * {@code flushThreshold} bytes are buffered.
+     * 
+     * The channel must be in blocking mode.
+     * 
+     * @throws java.nio.channels.IllegalBlockingModeException if the channel 
+     * is in non-blocking mode.
+     */
+    public static <T> DelimitedWriter<T> newDelimitedWriter(GatheringByteChannel channel, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, true, 
+                false, null, channel);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams graph messages as checksummed 
+     * frames (see {@link #writeChecksummedTo}) into the {@link OutputStream}, 
+     * writing the {@code buffer} once at least {@code flushThreshold} bytes are buffered.
+     */
+    public static <T> DelimitedWriter<T> newChecksummedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, true, 
+                true, out, null);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams graph messages into the 
+     * {@link OutputStream} and records the offset of every frame, which are appended 
+     * as a footer on {@link DelimitedWriter#finish()}.  The file written is read 
+     * (randomly) with {@link #newIndexedReader}.
+     */
+    public static <T> DelimitedWriter<T> newIndexedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold, boolean checksummed)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, true, 
+                checksummed, true, out, null);
+    }
+    
+    /**
+     * Memory-maps the {@code file} written by an indexed writer 
+     * (see {@link #newIndexedWriter}) for random access to its messages.
+     */
+    public static <T> IndexedReader<T> newIndexedReader(File file, Schema<T> schema) 
+            throws IOException
+    {
+        return new IndexedReader<T>(file, schema, true, true);
+    }
+    
     /**
      * Merges the {@code message} with the byte array using the given {@code schema}.
      */
@@ -44,10 +124,31 @@ public final class GraphIOUtil
      */
     public static <T> void mergeFrom(byte[] data, int offset, int length, T message, 
             Schema<T> schema)
+    {
+        mergeFrom(data, offset, length, message, schema, (StringCache)null);
+    }
+    
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema, 
+            StringCache stringCache)
+    {
+        mergeFrom(data, 0, data.length, message, schema, stringCache);
+    }
+    
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message, 
+            Schema<T> schema, StringCache stringCache)
     {
         try
         {
-            final ByteArrayInput input = new ByteArrayInput(data, offset, length, true);
+            final ByteArrayInput input = new ByteArrayInput(data, offset, length, true)
+                    .setStringCache(stringCache);
             final GraphByteArrayInput graphInput = new GraphByteArrayInput(input);
             schema.mergeFrom(graphInput, message);
             input.checkLastTagWas(0);
@@ -63,6 +164,39 @@ public final class GraphIOUtil
         }
     }
     
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} 
+     * (heap, direct or memory-mapped) using the given {@code schema}.
+     * 
+     * The buffer's position is not modified.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema)
+    {
+        if(data.hasArray())
+        {
+            mergeFrom(data.array(), data.arrayOffset() + data.position(), 
+                    data.remaining(), message, schema);
+            return;
+        }
+        
+        try
+        {
+            final ByteBufferInput input = new ByteBufferInput(data, true);
+            final GraphByteBufferInput graphInput = new GraphByteBufferInput(input);
+            schema.mergeFrom(graphInput, message);
+            input.checkLastTagWas(0);
+        }
+        catch(IndexOutOfBoundsException e)
+        {
+            throw new RuntimeException("Truncated.", ProtobufException.truncatedMessage(e));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Reading from a byte buffer threw an IOException (should " + 
+                    "never happen).",e);
+        }
+    }
+    
     /**
      * Merges the {@code message} from the {@link InputStream} using 
      * the given {@code schema}.
@@ -70,7 +204,18 @@ public final class GraphIOUtil
     public static <T> void mergeFrom(InputStream in, T message, Schema<T> schema) 
     throws IOException
     {
-        final CodedInput input = new CodedInput(in, true);
+        mergeFrom(in, message, schema, (StringCache)null);
+    }
+    
+    /**
+     * Merges the {@code message} from the {@link InputStream} using 
+     * the given {@code schema}, deduplicating the strings read via the 
+     * {@code stringCache}.
+     */
+    public static <T> void mergeFrom(InputStream in, T message, Schema<T> schema, 
+            StringCache stringCache) throws IOException
+    {
+        final CodedInput input = new CodedInput(in, true).setStringCache(stringCache);
         final GraphCodedInput graphInput = new GraphCodedInput(input);
         schema.mergeFrom(graphInput, message);
         input.checkLastTagWas(0);
@@ -179,6 +324,8 @@ public final class GraphIOUtil
             IOUtil.fillBufferFrom(in, buf, 0, len);
             final ByteArrayInput input = new ByteArrayInput(buf, 0, len, 
                     true);
+            // the buffer is reused
+            input.copyUtf8Strings = true;
             final GraphByteArrayInput graphInput = new GraphByteArrayInput(input);
             try
             {
@@ -247,6 +394,100 @@ public final class GraphIOUtil
         return len;
     }
     
+    /**
+     * Merges the {@code message} from a checksummed frame (see {@link #writeChecksummedTo}) 
+     * of the {@link InputStream}, using the {@code buffer} to read the frame (which must 
+     * fit its internal byte array).
+     * 
+     * The frame is verified before it is parsed; a corrupted frame throws a 
+     * {@link ProtobufException}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int mergeChecksummedFrom(InputStream in, T message, Schema<T> schema, 
+            LinkedBuffer buffer) throws IOException
+    {
+        return IOUtil.mergeChecksummedFrom(in, buffer.buffer, message, schema, true, true);
+    }
+    
+    /**
+     * Merges the {@code message} from the compressed frames written by 
+     * {@link #writeCompressedTo}, which are decompressed as the message is read.
+     * 
+     * The stream is read up to the end frame, so the next message (if any) can be 
+     * read from the same stream.
+     */
+    public static <T> void mergeCompressedFrom(InputStream in, T message, Schema<T> schema) 
+            throws IOException
+    {
+        final CompressedInputStream cin = new CompressedInputStream(in);
+        try
+        {
+            final CodedInput input = new CodedInput(cin, true);
+            schema.mergeFrom(new GraphCodedInput(input), message);
+            input.checkLastTagWas(0);
+        }
+        finally
+        {
+            cin.end();
+        }
+    }
+    
+    /**
+     * Lazily reads the graph messages (delimited) from the {@link InputStream} 
+     * until the end of the stream, one at a time.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     */
+    public static <T> MessageIterator<T> iterateDelimitedFrom(InputStream in, Schema<T> schema, 
+            T reuse)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, true, true, false);
+    }
+    
+    /**
+     * Lazily reads the graph messages from the checksummed frames 
+     * (see {@link #writeChecksummedTo}) of the {@link InputStream} until the end 
+     * of the stream, one at a time.  Every frame is verified before it is parsed.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     * 
+     * A frame larger than 64MB is rejected (see 
+     * {@link #iterateChecksummedFrom(InputStream, Schema, Object, int)}).
+     */
+    public static <T> MessageIterator<T> iterateChecksummedFrom(InputStream in, 
+            Schema<T> schema, T reuse)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, true, true, true);
+    }
+    
+    /**
+     * Lazily reads the messages from the checksummed frames, where a frame larger 
+     * than {@code maxFrameSize} is rejected (with a {@link ProtobufException}) 
+     * before it is read.
+     */
+    public static <T> MessageIterator<T> iterateChecksummedFrom(InputStream in, 
+            Schema<T> schema, T reuse, int maxFrameSize)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, true, true, true, 
+                maxFrameSize);
+    }
+    
+    /**
+     * Passes the graph messages (delimited) from the {@link InputStream} to the 
+     * {@code visitor}, one at a time, until the end of the stream or until the 
+     * visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitDelimitedFrom(InputStream in, Schema<T> schema, T reuse, 
+            MessageIterator.Visitor<? super T> visitor) throws IOException
+    {
+        return iterateDelimitedFrom(in, schema, reuse).visit(visitor);
+    }
+    
     /**
      * Serializes the {@code message} into a byte array using the given schema.
      * 
@@ -272,6 +513,25 @@ public final class GraphIOUtil
         return output.toByteArray();
     }
     
+    /**
+     * Serializes the {@code message} into a byte array using the given schema, 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the byte array containing the data.
+     */
+    public static <T> byte[] toByteArray(T message, Schema<T> schema, LinkedBufferPool pool)
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return toByteArray(message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
     /**
      * Writes the {@code message} into the {@link LinkedBuffer} using the given schema.
      * 
@@ -315,6 +575,40 @@ public final class GraphIOUtil
         return output.size;
     }
     
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBufferPool pool) throws IOException
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return writeTo(out, message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into a {@link ByteBuffer} (heap or direct) 
+     * using the given schema.
+     * 
+     * @return the size of the message
+     * @throws java.nio.BufferOverflowException if the message does not fit 
+     * in the remaining bytes of {@code out}.
+     */
+    public static <T> int writeTo(final ByteBuffer out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer) throws IOException
+    {
+        return writeTo(new ByteBufferOutputStream(out), message, schema, buffer);
+    }
+    
     /**
      * Serializes the {@code message}, prefixed with its length, into an 
      * {@link OutputStream}.
@@ -335,6 +629,70 @@ public final class GraphIOUtil
         return output.size;
     }
     
+    /**
+     * Serializes the {@code message}, prefixed with its length, into an {@link OutputStream} 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeDelimitedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBufferPool pool) throws IOException
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return writeDelimitedTo(out, message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} as a checksummed frame:
+     * [varint32 size][message][crc32c of the message (fixed32)].
+     * 
+     * The checksum is computed directly over the {@code buffer} chunks (no extra copy).
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeChecksummedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final ProtostuffOutput output = new ProtostuffOutput(buffer);
+        schema.writeTo(new GraphProtostuffOutput(output), message);
+        return IOUtil.writeChecksummedFrame(out, output);
+    }
+    
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} as compressed frames 
+     * (see {@link CompressedOutputStream}), followed by the end frame.
+     * 
+     * The {@link LinkedBuffer} chunks are compressed (in blocks of the {@code buffer}'s 
+     * size) as they fill, so the serialized message is never held as a whole.
+     * 
+     * @return the size of the message (uncompressed)
+     */
+    public static <T> int writeCompressedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer, 
+            final CompressionCodec codec) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final CompressedOutputStream cout = new CompressedOutputStream(out, codec, 
+                buffer.buffer.length);
+        final ProtostuffOutput output = new ProtostuffOutput(buffer, cout);
+        schema.writeTo(new GraphProtostuffOutput(output), message);
+        LinkedBuffer.writeTo(cout, buffer);
+        cout.finish();
+        return output.size;
+    }
+    
     /**
      * Used by the code generated messages that implement {@link java.io.Externalizable}.
      * Writes to the {@link DataOutput}.
@@ -403,6 +761,8 @@ public final class GraphIOUtil
         
         final ByteArrayInput input = new ByteArrayInput(buffer.buffer, 
                 buffer.offset, size, true);
+        // the buffer is reused
+        input.copyUtf8Strings = true;
         final GraphByteArrayInput graphInput = new GraphByteArrayInput(input);
         try
         {
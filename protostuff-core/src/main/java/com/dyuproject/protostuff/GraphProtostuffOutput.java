@@ -29,7 +29,8 @@ import java.util.Map;
  * @author David Yu
  * @created Dec 10, 2010
  */
-public final class GraphProtostuffOutput extends FilterOutput<ProtostuffOutput>
+public final class GraphProtostuffOutput extends FilterOutput<ProtostuffOutput> 
+        implements PackedOutput, MessageScope
 {
     
     private final IdentityMap references;
@@ -70,6 +71,46 @@ public final class GraphProtostuffOutput extends FilterOutput<ProtostuffOutput>
         }
     }
     
+    public void writePackedHeader(int fieldNumber, int packedSize) throws IOException
+    {
+        output.writePackedHeader(fieldNumber, packedSize);
+    }
+    
+    public void writePackedVarInt32(int value) throws IOException
+    {
+        output.writePackedVarInt32(value);
+    }
+    
+    public void writePackedVarInt64(long value) throws IOException
+    {
+        output.writePackedVarInt64(value);
+    }
+    
+    public void writePackedFixed32(int value) throws IOException
+    {
+        output.writePackedFixed32(value);
+    }
+    
+    public void writePackedFixed64(long value) throws IOException
+    {
+        output.writePackedFixed64(value);
+    }
+    
+    public Object getScoped(Object key)
+    {
+        return output.getScoped(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        output.setScoped(key, value);
+    }
+    
+    public void resetScope()
+    {
+        output.resetScope();
+    }
+    
     
     /**
      * A trimed-down version of IdentityHashMap w/c caters to the 
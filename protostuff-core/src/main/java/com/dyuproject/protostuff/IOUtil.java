@@ -18,6 +18,9 @@ import java.io.DataInput;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
 
 /**
  * Common io utils for the supported formats.
@@ -35,11 +38,22 @@ final class IOUtil
      */
     static <T> void mergeFrom(byte[] data, int offset, int length, T message, 
             Schema<T> schema, boolean decodeNestedMessageAsGroup)
+    {
+        mergeFrom(data, offset, length, message, schema, decodeNestedMessageAsGroup, null);
+    }
+    
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache} (if not null).
+     */
+    static <T> void mergeFrom(byte[] data, int offset, int length, T message, 
+            Schema<T> schema, boolean decodeNestedMessageAsGroup, 
+            StringCache stringCache)
     {
         try
         {
             final ByteArrayInput input = new ByteArrayInput(data, offset, length, 
-                    decodeNestedMessageAsGroup);
+                    decodeNestedMessageAsGroup).setStringCache(stringCache);
             schema.mergeFrom(input, message);
             input.checkLastTagWas(0);
         }
@@ -54,6 +68,41 @@ final class IOUtil
         }
     }
     
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} 
+     * using the given {@code schema}.
+     * 
+     * A heap buffer is read from its backing array while a direct (or memory-mapped) 
+     * buffer is read in place via {@link ByteBufferInput}.
+     */
+    static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema, 
+            boolean decodeNestedMessageAsGroup)
+    {
+        if(data.hasArray())
+        {
+            mergeFrom(data.array(), data.arrayOffset() + data.position(), 
+                    data.remaining(), message, schema, decodeNestedMessageAsGroup);
+            return;
+        }
+        
+        try
+        {
+            final ByteBufferInput input = new ByteBufferInput(data, 
+                    decodeNestedMessageAsGroup);
+            schema.mergeFrom(input, message);
+            input.checkLastTagWas(0);
+        }
+        catch(IndexOutOfBoundsException e)
+        {
+            throw new RuntimeException("Truncated.", ProtobufException.truncatedMessage(e));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Reading from a byte buffer threw an IOException (should " + 
+                    "never happen).",e);
+        }
+    }
+    
     /**
      * Merges the {@code message} from the {@link InputStream} with the supplied 
      * {@code buf} to use.
@@ -72,7 +121,18 @@ final class IOUtil
     static <T> void mergeFrom(InputStream in, T message, Schema<T> schema, 
             boolean decodeNestedMessageAsGroup) throws IOException
     {
-        final CodedInput input = new CodedInput(in, decodeNestedMessageAsGroup);
+        mergeFrom(in, message, schema, decodeNestedMessageAsGroup, null);
+    }
+    
+    /**
+     * Merges the {@code message} from the {@link InputStream} using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache} (if not null).
+     */
+    static <T> void mergeFrom(InputStream in, T message, Schema<T> schema, 
+            boolean decodeNestedMessageAsGroup, StringCache stringCache) throws IOException
+    {
+        final CodedInput input = new CodedInput(in, decodeNestedMessageAsGroup)
+                .setStringCache(stringCache);
         schema.mergeFrom(input, message);
         input.checkLastTagWas(0);
     }
@@ -107,6 +167,8 @@ final class IOUtil
             fillBufferFrom(in, buf, 0, len);
             final ByteArrayInput input = new ByteArrayInput(buf, 0, len, 
                     decodeNestedMessageAsGroup);
+            // the buffer is reused
+            input.copyUtf8Strings = true;
             try
             {
                 schema.mergeFrom(input, message);
@@ -230,6 +292,118 @@ final class IOUtil
                 throw ProtobufException.truncatedMessage();
         }
     }
+    
+    /**
+     * Writes the contents of the {@code session} as a checksummed frame:
+     * [varint32 size][payload][crc32c of the payload (fixed32)].
+     * 
+     * The checksum is computed over the buffers as they are (no copy).
+     * 
+     * @return the size of the payload.
+     */
+    static int writeChecksummedFrame(OutputStream out, WriteSession session) 
+            throws IOException
+    {
+        final Checksum checksum = Crc32c.newChecksum();
+        Crc32c.update(checksum, session.head);
+        
+        final int size = session.size;
+        ProtobufOutput.writeRawVarInt32Bytes(out, size);
+        LinkedBuffer.writeTo(out, session.head);
+        
+        final byte[] crc = new byte[4];
+        IntSerializer.writeInt32LE((int)checksum.getValue(), crc, 0);
+        out.write(crc, 0, 4);
+        
+        return size;
+    }
+    
+    /**
+     * Reads a checksummed frame (including the trailing crc32c) into the {@code buf} 
+     * and verifies it, before anything is parsed.
+     * 
+     * @return the size of the payload, or -1 if the stream ended before the frame.
+     */
+    static int readChecksummedFrame(InputStream in, byte[] buf) throws IOException
+    {
+        final int size = in.read();
+        if(size == -1)
+            return -1;
+        
+        final int len = size < 0x80 ? size : CodedInput.readRawVarint32(in, size);
+        
+        if(len < 0)
+            throw ProtobufException.negativeSize();
+        
+        if(len > buf.length - 4)
+        {
+            // size limit exceeded.
+            throw new ProtobufException("size limit exceeded. " + 
+                    len + " > " + (buf.length - 4));
+        }
+        
+        fillBufferFrom(in, buf, 0, len + 4);
+        verifyChecksum(buf, 0, len);
+        
+        return len;
+    }
+    
+    /**
+     * Verifies the crc32c (fixed32) that follows the {@code len} bytes of the payload.
+     */
+    static void verifyChecksum(byte[] buf, int offset, int len) throws ProtobufException
+    {
+        final Checksum checksum = Crc32c.newChecksum();
+        checksum.update(buf, offset, len);
+        
+        final int i = offset + len;
+        final int expected = (buf[i] & 0xFF) | (buf[i+1] & 0xFF) << 8 | 
+                (buf[i+2] & 0xFF) << 16 | (buf[i+3] & 0xFF) << 24;
+        
+        if(expected != (int)checksum.getValue())
+            throw ProtobufException.checksumMismatch();
+    }
+    
+    /**
+     * Merges the {@code message} from a checksummed frame read from the 
+     * {@link InputStream}, using the {@code buf} which must fit the frame.
+     * 
+     * @return the size of the payload.
+     */
+    static <T> int mergeChecksummedFrom(InputStream in, byte[] buf, T message, 
+            Schema<T> schema, boolean decodeNestedMessageAsGroup, boolean graph) 
+            throws IOException
+    {
+        final int len = readChecksummedFrame(in, buf);
+        if(len == -1)
+            throw ProtobufException.truncatedMessage();
+        
+        if(len != 0)
+            mergeFrame(buf, len, message, schema, decodeNestedMessageAsGroup, graph);
+        
+        return len;
+    }
+    
+    /**
+     * Merges the {@code message} from the (verified) frame in the reused {@code buf}.
+     */
+    static <T> void mergeFrame(byte[] buf, int len, T message, Schema<T> schema, 
+            boolean decodeNestedMessageAsGroup, boolean graph) throws IOException
+    {
+        final ByteArrayInput input = new ByteArrayInput(buf, 0, len, 
+                decodeNestedMessageAsGroup);
+        // the buffer is reused
+        input.copyUtf8Strings = true;
+        try
+        {
+            schema.mergeFrom(graph ? new GraphByteArrayInput(input) : input, message);
+        }
+        catch(ArrayIndexOutOfBoundsException e)
+        {
+            throw ProtobufException.truncatedMessage(e);
+        }
+        input.checkLastTagWas(0);
+    }
 
     /**
      * Fills the buffer based from the varint32 read from the input stream.
@@ -0,0 +1,251 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access to the messages of a file written by an indexed {@link DelimitedWriter} 
+ * (see {@code newIndexedWriter}), which is memory-mapped so that the n-th message 
+ * is decoded in place without reading the preceding ones.
+ * 
+ * The file is the delimited frames followed by the footer:
+ * <pre>
+ * [frame offset]{count} (fixed32, or fixed64 if the file exceeds 4GB)
+ * [index offset (fixed64)][count (fixed32)][flags (fixed32)][magic (fixed32)]
+ * </pre>
+ * All little-endian.  The footer is at the end of the file so the frames are 
+ * still readable by {@code mergeDelimitedFrom} (up to the footer).
+ * 
+ * The file is mapped in overlapping segments (mapped on first access) so that 
+ * the files bigger than 2GB are supported as well.  Reads are thread-safe.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class IndexedReader<T> implements Closeable
+{
+    
+    /** The last 4 bytes of an indexed file ("PSIX"). */
+    static final int MAGIC = 0x58495350;
+    
+    static final int TRAILER_SIZE = 20;
+    
+    static final int FLAG_CHECKSUMMED = 1, FLAG_WIDE_OFFSETS = 2;
+    
+    /**
+     * Every segment maps twice this size, so a frame starting in it is 
+     * fully mapped if it isn't bigger than this.
+     */
+    static final long SEGMENT_SIZE = 1L << 29;
+    
+    final Schema<T> schema;
+    final boolean decodeNestedMessageAsGroup, graph, checksummed;
+    
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int count, offsetWidth;
+    private final long indexOffset;
+    private final ByteBuffer index;
+    private final ByteBuffer[] segments;
+    
+    IndexedReader(File file, Schema<T> schema, boolean decodeNestedMessageAsGroup, 
+            boolean graph) throws IOException
+    {
+        this.schema = schema;
+        this.decodeNestedMessageAsGroup = decodeNestedMessageAsGroup;
+        this.graph = graph;
+        this.file = new RandomAccessFile(file, "r");
+        channel = this.file.getChannel();
+        
+        boolean opened = false;
+        try
+        {
+            final long fileSize = channel.size();
+            if(fileSize < TRAILER_SIZE)
+                throw new ProtobufException("Not an indexed file (too small).");
+            
+            final ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, 
+                    fileSize - TRAILER_SIZE, TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            
+            if(trailer.getInt(16) != MAGIC)
+                throw new ProtobufException("Not an indexed file (magic mismatch).");
+            
+            indexOffset = trailer.getLong(0);
+            count = trailer.getInt(8);
+            final int flags = trailer.getInt(12);
+            checksummed = 0 != (flags & FLAG_CHECKSUMMED);
+            offsetWidth = 0 != (flags & FLAG_WIDE_OFFSETS) ? 8 : 4;
+            
+            if(count < 0 || indexOffset < 0 || 
+                    indexOffset + (long)count * offsetWidth != fileSize - TRAILER_SIZE)
+            {
+                throw new ProtobufException("Corrupted index footer.");
+            }
+            
+            if((long)count * offsetWidth > Integer.MAX_VALUE)
+                throw new ProtobufException("Index too large to be mapped.");
+            
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 
+                    count * offsetWidth).order(ByteOrder.LITTLE_ENDIAN);
+            
+            segments = new ByteBuffer[(int)((indexOffset + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            opened = true;
+        }
+        finally
+        {
+            if(!opened)
+                this.file.close();
+        }
+    }
+    
+    /**
+     * Returns the number of messages in the file.
+     */
+    public int size()
+    {
+        return count;
+    }
+    
+    /**
+     * Returns the offset of the n-th frame in the file.
+     */
+    public long getOffset(int n)
+    {
+        if(n < 0 || n >= count)
+            throw new IndexOutOfBoundsException("Index: " + n + ", Size: " + count);
+        
+        return offsetWidth == 4 ? index.getInt(n << 2) & 0xFFFFFFFFL : index.getLong(n << 3);
+    }
+    
+    /**
+     * Decodes the n-th message (zero-based) into a new instance.
+     */
+    public T get(int n) throws IOException
+    {
+        final T message = schema.newMessage();
+        mergeFrom(n, message);
+        return message;
+    }
+    
+    /**
+     * Merges the {@code message} with the n-th message (zero-based) of the file.
+     */
+    public void mergeFrom(int n, T message) throws IOException
+    {
+        final long frameOffset = getOffset(n), 
+                frameEnd = n + 1 == count ? indexOffset : getOffset(n + 1);
+        
+        if(frameEnd < frameOffset || frameEnd > indexOffset)
+            throw new ProtobufException("Corrupted index entry: " + n);
+        
+        final long frameSize = frameEnd - frameOffset;
+        
+        final ByteBuffer buffer;
+        final int offset;
+        if(frameSize > SEGMENT_SIZE)
+        {
+            if(frameSize > Integer.MAX_VALUE)
+                throw ProtobufException.misreportedSize();
+            
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, frameOffset, frameSize);
+            offset = 0;
+        }
+        else
+        {
+            final int s = (int)(frameOffset / SEGMENT_SIZE);
+            buffer = segment(s);
+            offset = (int)(frameOffset - s * SEGMENT_SIZE);
+        }
+        
+        // the varint32 size
+        int len = 0, i = offset;
+        for(int shift = 0;; shift += 7)
+        {
+            if(shift == 35)
+                throw ProtobufException.malformedVarint();
+            
+            final byte b = buffer.get(i++);
+            len |= (b & 0x7F) << shift;
+            if(b >= 0)
+                break;
+        }
+        
+        if(len < 0)
+            throw ProtobufException.negativeSize();
+        
+        if((long)(i - offset) + len + (checksummed ? 4 : 0) != frameSize)
+            throw ProtobufException.misreportedSize();
+        
+        if(checksummed)
+        {
+            final byte[] buf = new byte[len + 4];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(i);
+            view.get(buf);
+            IOUtil.verifyChecksum(buf, 0, len);
+            
+            if(len != 0)
+                IOUtil.mergeFrame(buf, len, message, schema, decodeNestedMessageAsGroup, graph);
+            
+            return;
+        }
+        
+        if(len == 0)
+            return;
+        
+        final ByteBufferInput input = new ByteBufferInput(buffer, 
+                decodeNestedMessageAsGroup).reset(i, len);
+        try
+        {
+            schema.mergeFrom(graph ? new GraphByteBufferInput(input) : input, message);
+        }
+        catch(IndexOutOfBoundsException e)
+        {
+            throw ProtobufException.truncatedMessage(e);
+        }
+        input.checkLastTagWas(0);
+    }
+    
+    private ByteBuffer segment(int s) throws IOException
+    {
+        synchronized(segments)
+        {
+            ByteBuffer segment = segments[s];
+            if(segment == null)
+            {
+                final long position = s * SEGMENT_SIZE;
+                segments[s] = segment = channel.map(FileChannel.MapMode.READ_ONLY, 
+                        position, Math.min(SEGMENT_SIZE << 1, indexOffset - position));
+            }
+            return segment;
+        }
+    }
+    
+    /**
+     * Closes the file.  The mappings are released once garbage collected.
+     */
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+}
@@ -120,4 +120,9 @@ public class ProtobufException extends ProtostuffException {
       "Protocol message was too large.  May be malicious.  " +
       "Use CodedInput.setSizeLimit() to increase the size limit.");
   }
+
+  static ProtobufException checksumMismatch() {
+    return new ProtobufException(
+      "Protocol message frame did not match its crc32c checksum (corrupted).");
+  }
 }
@@ -16,9 +16,12 @@ package com.dyuproject.protostuff;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -87,6 +90,83 @@ public final class ProtobufIOUtil
         };
     }
     
+    /**
+     * Creates a push-style {@link DelimitedDecoder} for protobuf messages written 
+     * via {@code writeDelimitedTo}, which passes every decoded message to the 
+     * {@code handler}.
+     * 
+     * A frame larger than {@code maxFrameSize} is rejected.
+     */
+    public static <T> DelimitedDecoder<T> newDelimitedDecoder(Schema<T> schema, 
+            int maxFrameSize, DelimitedDecoder.Handler<T> handler)
+    {
+        return new DelimitedDecoder<T>(schema, maxFrameSize, handler, false, false);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protobuf messages (delimited) 
+     * into the {@link OutputStream}, writing the {@code buffer} once at least 
+     * {@code flushThreshold} bytes are buffered.
+     */
+    public static <T> DelimitedWriter<T> newDelimitedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, false, false, 
+                false, out, null);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protobuf messages (delimited) 
+     * into the {@link GatheringByteChannel}, writing the {@code buffer} once at least 
+     * {@code flushThreshold} bytes are buffered.
+     * 
+     * The channel must be in blocking mode.
+     * 
+     * @throws java.nio.channels.IllegalBlockingModeException if the channel 
+     * is in non-blocking mode.
+     */
+    public static <T> DelimitedWriter<T> newDelimitedWriter(GatheringByteChannel channel, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, false, false, 
+                false, null, channel);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protobuf messages as checksummed 
+     * frames (see {@link #writeChecksummedTo}) into the {@link OutputStream}, 
+     * writing the {@code buffer} once at least {@code flushThreshold} bytes are buffered.
+     */
+    public static <T> DelimitedWriter<T> newChecksummedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, false, false, 
+                true, out, null);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protobuf messages into the 
+     * {@link OutputStream} and records the offset of every frame, which are appended 
+     * as a footer on {@link DelimitedWriter#finish()}.  The file written is read 
+     * (randomly) with {@link #newIndexedReader}.
+     */
+    public static <T> DelimitedWriter<T> newIndexedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold, boolean checksummed)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, false, false, 
+                checksummed, true, out, null);
+    }
+    
+    /**
+     * Memory-maps the {@code file} written by an indexed writer 
+     * (see {@link #newIndexedWriter}) for random access to its messages.
+     */
+    public static <T> IndexedReader<T> newIndexedReader(File file, Schema<T> schema) 
+            throws IOException
+    {
+        return new IndexedReader<T>(file, schema, false, false);
+    }
+    
     /**
      * Merges the {@code message} with the byte array using the given {@code schema}.
      */
@@ -104,6 +184,37 @@ public final class ProtobufIOUtil
         IOUtil.mergeFrom(data, offset, length, message, schema, false);
     }
     
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema, 
+            StringCache stringCache)
+    {
+        IOUtil.mergeFrom(data, 0, data.length, message, schema, false, stringCache);
+    }
+    
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message, 
+            Schema<T> schema, StringCache stringCache)
+    {
+        IOUtil.mergeFrom(data, offset, length, message, schema, false, stringCache);
+    }
+    
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} 
+     * (heap, direct or memory-mapped) using the given {@code schema}.
+     * 
+     * The buffer's position is not modified.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema)
+    {
+        IOUtil.mergeFrom(data, message, schema, false);
+    }
+    
     /**
      * Merges the {@code message} from the {@link InputStream} using 
      * the given {@code schema}.
@@ -114,6 +225,17 @@ public final class ProtobufIOUtil
         IOUtil.mergeFrom(in, message, schema, false);
     }
     
+    /**
+     * Merges the {@code message} from the {@link InputStream} using 
+     * the given {@code schema}, deduplicating the strings read via the 
+     * {@code stringCache}.
+     */
+    public static <T> void mergeFrom(InputStream in, T message, Schema<T> schema, 
+            StringCache stringCache) throws IOException
+    {
+        IOUtil.mergeFrom(in, message, schema, false, stringCache);
+    }
+    
     /**
      * Merges the {@code message} from the {@link InputStream} using 
      * the given {@code schema}.
@@ -166,6 +288,45 @@ public final class ProtobufIOUtil
         return IOUtil.mergeDelimitedFrom(in, message, schema, false);
     }
     
+    /**
+     * Merges the {@code message} from a checksummed frame (see {@link #writeChecksummedTo}) 
+     * of the {@link InputStream}, using the {@code buffer} to read the frame (which must 
+     * fit its internal byte array).
+     * 
+     * The frame is verified before it is parsed; a corrupted frame throws a 
+     * {@link ProtobufException}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int mergeChecksummedFrom(InputStream in, T message, Schema<T> schema, 
+            LinkedBuffer buffer) throws IOException
+    {
+        return IOUtil.mergeChecksummedFrom(in, buffer.buffer, message, schema, false, false);
+    }
+    
+    /**
+     * Merges the {@code message} from the compressed frames written by 
+     * {@link #writeCompressedTo}, which are decompressed as the message is read.
+     * 
+     * The stream is read up to the end frame, so the next message (if any) can be 
+     * read from the same stream.
+     */
+    public static <T> void mergeCompressedFrom(InputStream in, T message, Schema<T> schema) 
+            throws IOException
+    {
+        final CompressedInputStream cin = new CompressedInputStream(in);
+        try
+        {
+            final CodedInput input = new CodedInput(cin, false);
+            schema.mergeFrom(input, message);
+            input.checkLastTagWas(0);
+        }
+        finally
+        {
+            cin.end();
+        }
+    }
+    
     /**
      * Serializes the {@code message} into a byte array using the given schema.
      * 
@@ -190,6 +351,55 @@ public final class ProtobufIOUtil
         return output.toByteArray();
     }
     
+    /**
+     * Serializes the {@code message} into a byte array using the given schema, 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the byte array containing the data.
+     */
+    public static <T> byte[] toByteArray(T message, Schema<T> schema, LinkedBufferPool pool)
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return toByteArray(message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into a byte array using the given schema, 
+     * computing its size first (via {@code sizeOutput}) so that the message 
+     * is written directly into an array of the exact size and the nested messages 
+     * are written with their length prefix up front.
+     * 
+     * @return the byte array containing the data.
+     */
+    public static <T> byte[] toByteArray(T message, Schema<T> schema, 
+            ProtobufSizeOutput sizeOutput)
+    {
+        final int size = sizeOutput.compute(message, schema);
+        final byte[] data = new byte[size];
+        final LinkedBuffer buffer = new LinkedBuffer(data, 0, 0);
+        final ProtobufOutput output = new ProtobufOutput(buffer, sizeOutput);
+        try
+        {
+            schema.writeTo(output, message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Serializing to a byte array threw an IOException " + 
+                    "(should never happen).", e);
+        }
+        
+        // a string near the end of the array might have needed more room for its 
+        // (reserved) length prefix, in which case the contents are spread out.
+        return buffer.next == null && output.size == size ? data : output.toByteArray();
+    }
+    
     /**
      * Writes the {@code message} into the {@link LinkedBuffer} using the given schema.
      * 
@@ -214,6 +424,34 @@ public final class ProtobufIOUtil
         return output.getSize();
     }
     
+    /**
+     * Writes the {@code message} into the {@link LinkedBuffer} using the given schema, 
+     * computing its size first (via {@code sizeOutput}) so that the nested messages 
+     * are written with their length prefix up front.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeTo(LinkedBuffer buffer, T message, Schema<T> schema, 
+            ProtobufSizeOutput sizeOutput)
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        sizeOutput.compute(message, schema);
+        final ProtobufOutput output = new ProtobufOutput(buffer, sizeOutput);
+        try
+        {
+            schema.writeTo(output, message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Serializing to a LinkedBuffer threw an IOException " + 
+                    "(should never happen).", e);
+        }
+        
+        return output.getSize();
+    }
+    
     /**
      * Serializes the {@code message} into an {@link OutputStream} using the given schema.
      * 
@@ -230,6 +468,45 @@ public final class ProtobufIOUtil
         return LinkedBuffer.writeTo(out, buffer);
     }
     
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBufferPool pool) throws IOException
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return writeTo(out, message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into a {@link ByteBuffer} (heap or direct) 
+     * using the given schema.
+     * 
+     * @return the size of the message
+     * @throws java.nio.BufferOverflowException if the message does not fit 
+     * in the remaining bytes of {@code out}.
+     */
+    public static <T> int writeTo(ByteBuffer out, T message, Schema<T> schema, 
+            LinkedBuffer buffer) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final ProtobufOutput output = new ProtobufOutput(buffer);
+        schema.writeTo(output, message);
+        return LinkedBuffer.writeTo(out, buffer);
+    }
+    
     /**
      * Serializes the {@code message}, prefixed with its length, into an 
      * {@link OutputStream}.
@@ -253,6 +530,70 @@ public final class ProtobufIOUtil
         return size;
     }
     
+    /**
+     * Serializes the {@code message}, prefixed with its length, into an {@link OutputStream} 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeDelimitedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBufferPool pool) throws IOException
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return writeDelimitedTo(out, message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} as a checksummed frame:
+     * [varint32 size][message][crc32c of the message (fixed32)].
+     * 
+     * The checksum is computed directly over the {@code buffer} chunks (no extra copy).
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeChecksummedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final ProtobufOutput output = new ProtobufOutput(buffer);
+        schema.writeTo(output, message);
+        return IOUtil.writeChecksummedFrame(out, output);
+    }
+    
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} as compressed frames 
+     * (see {@link CompressedOutputStream}), followed by the end frame.
+     * 
+     * The {@link LinkedBuffer} chunks are compressed (in blocks of the {@code buffer}'s 
+     * size) when the message is written out, without being copied to a single array.
+     * 
+     * @return the size of the message (uncompressed)
+     */
+    public static <T> int writeCompressedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer, 
+            final CompressionCodec codec) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final CompressedOutputStream cout = new CompressedOutputStream(out, codec, 
+                buffer.buffer.length);
+        final ProtobufOutput output = new ProtobufOutput(buffer);
+        schema.writeTo(output, message);
+        LinkedBuffer.writeTo(cout, buffer);
+        cout.finish();
+        return output.getSize();
+    }
+    
     /**
      * Used by the code generated messages that implement {@link java.io.Externalizable}.
      * Writes to the {@link DataOutput}.
@@ -344,6 +685,8 @@ public final class ProtobufIOUtil
                 }
                 IOUtil.fillBufferFrom(in, buf, 0, len);
                 final ByteArrayInput input = new ByteArrayInput(buf, 0, len, false);
+                // the buffer is reused
+                input.copyUtf8Strings = true;
                 try
                 {
                     schema.mergeFrom(input, message);
@@ -358,6 +701,61 @@ public final class ProtobufIOUtil
         return list;
     }
     
+    /**
+     * Lazily reads the protobuf messages (delimited) from the {@link InputStream} 
+     * until the end of the stream, one at a time.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     */
+    public static <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, false, false, false);
+    }
+    
+    /**
+     * Lazily reads the protobuf messages from the checksummed frames 
+     * (see {@link #writeChecksummedTo}) of the {@link InputStream} until the end 
+     * of the stream, one at a time.  Every frame is verified before it is parsed.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     * 
+     * A frame larger than 64MB is rejected (see 
+     * {@link #iterateChecksummedFrom(InputStream, Schema, Object, int)}).
+     */
+    public static <T> MessageIterator<T> iterateChecksummedFrom(InputStream in, 
+            Schema<T> schema, T reuse)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, false, false, true);
+    }
+    
+    /**
+     * Lazily reads the messages from the checksummed frames, where a frame larger 
+     * than {@code maxFrameSize} is rejected (with a {@link ProtobufException}) 
+     * before it is read.
+     */
+    public static <T> MessageIterator<T> iterateChecksummedFrom(InputStream in, 
+            Schema<T> schema, T reuse, int maxFrameSize)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, false, false, true, 
+                maxFrameSize);
+    }
+    
+    /**
+     * Passes the protobuf messages (delimited) from the {@link InputStream} to the 
+     * {@code visitor}, one at a time, until the end of the stream or until the 
+     * visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitListFrom(InputStream in, Schema<T> schema, T reuse, 
+            MessageIterator.Visitor<? super T> visitor) throws IOException
+    {
+        return iterateListFrom(in, schema, reuse).visit(visitor);
+    }
+    
     /**
      * Optimal/Optional mergeDelimitedFrom - If the message does not fit the buffer, 
      * no merge is done and this method will return false.
@@ -408,6 +806,8 @@ public final class ProtobufIOUtil
         
         final ByteArrayInput input = new ByteArrayInput(buffer.buffer, 
                 buffer.offset, size, false);
+        // the buffer is reused
+        input.copyUtf8Strings = true;
         try
         {
             schema.mergeFrom(input, message);
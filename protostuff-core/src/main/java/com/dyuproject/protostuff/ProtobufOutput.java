@@ -32,11 +32,14 @@ import java.io.OutputStream;
  * @author David Yu
  * @created May 18, 2010
  */
-public final class ProtobufOutput extends WriteSession implements Output
+public final class ProtobufOutput extends WriteSession implements Output, PackedOutput
 {
     
     public static final int LITTLE_ENDIAN_32_SIZE = 4, LITTLE_ENDIAN_64_SIZE = 8;
     
+    private ProtobufSizeOutput computedSize;
+    private int nestedIndex = 0;
+    
     public ProtobufOutput(LinkedBuffer buffer)
     {
         super(buffer);
@@ -47,15 +50,37 @@ public final class ProtobufOutput extends WriteSession implements Output
         super(buffer, nextBufferSize);
     }
     
+    /**
+     * The nested messages are written with the sizes from {@code computedSize} 
+     * (which must have computed the same message beforehand) so that their 
+     * length prefix is written up front.
+     */
+    public ProtobufOutput(LinkedBuffer buffer, ProtobufSizeOutput computedSize)
+    {
+        super(buffer);
+        this.computedSize = computedSize;
+    }
+    
     /**
      * Resets this output for re-use.
      */
     public ProtobufOutput clear()
     {
         super.clear();
+        nestedIndex = 0;
         return this;
     }
     
+    /**
+     * Resets this output for re-use, with the nested message sizes of the next 
+     * message to write (null to compute nothing up front).
+     */
+    public ProtobufOutput clear(ProtobufSizeOutput computedSize)
+    {
+        this.computedSize = computedSize;
+        return clear();
+    }
+    
     public void writeInt32(int fieldNumber, int value, boolean repeated) throws IOException
     {
         if(value < 0)
@@ -221,9 +246,44 @@ public final class ProtobufOutput extends WriteSession implements Output
                 tail);
     }
     
+    public void writePackedHeader(int fieldNumber, int packedSize) throws IOException
+    {
+        tail = writeTagAndRawVarInt32(
+                makeTag(fieldNumber, WIRETYPE_LENGTH_DELIMITED), 
+                packedSize, 
+                this, 
+                tail);
+    }
+    
+    public void writePackedVarInt32(int value) throws IOException
+    {
+        tail = writeRawVarInt32(value, this, tail);
+    }
+    
+    public void writePackedVarInt64(long value) throws IOException
+    {
+        tail = sink.writeVarInt64(value, this, tail);
+    }
+    
+    public void writePackedFixed32(int value) throws IOException
+    {
+        tail = sink.writeInt32LE(value, this, tail);
+    }
+    
+    public void writePackedFixed64(long value) throws IOException
+    {
+        tail = sink.writeInt64LE(value, this, tail);
+    }
+    
     public <T> void writeObject(final int fieldNumber, final T value, final Schema<T> schema, 
             final boolean repeated) throws IOException
     {
+        if(computedSize != null && nestedIndex < computedSize.getNestedCount())
+        {
+            writeObjectWithComputedSize(fieldNumber, value, schema);
+            return;
+        }
+        
         final LinkedBuffer lastBuffer;
         
         // write the tag
@@ -304,6 +364,31 @@ public final class ProtobufOutput extends WriteSession implements Output
         new LinkedBuffer(delimited, 0, delimited.length, lastBuffer).next = nextBuffer;
     }
     
+    /**
+     * Writes the length prefix from the computed size before the nested message.
+     */
+    private <T> void writeObjectWithComputedSize(final int fieldNumber, final T value, 
+            final Schema<T> schema) throws IOException
+    {
+        final int nestedSize = computedSize.getNestedSize(nestedIndex++);
+        
+        tail = writeTagAndRawVarInt32(
+                makeTag(fieldNumber, WIRETYPE_LENGTH_DELIMITED), 
+                nestedSize, 
+                this, 
+                tail);
+        
+        final int lastSize = size;
+        
+        schema.writeTo(this, value);
+        
+        if(size - lastSize != nestedSize)
+        {
+            throw new ProtobufException("The nested message size changed after it " + 
+                    "was computed: " + nestedSize + " != " + (size - lastSize));
+        }
+    }
+    
     /*
      * Write the nested message encoded as group.
      *
@@ -334,7 +419,7 @@ public final class ProtobufOutput extends WriteSession implements Output
         final int size = computeRawVarint32Size(value);
 
         if(lb.offset + size > lb.buffer.length)
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         
         final byte[] buffer = lb.buffer;
         int offset = lb.offset;
@@ -371,7 +456,7 @@ public final class ProtobufOutput extends WriteSession implements Output
         
         final int remaining = lb.buffer.length - lb.offset;
         // if all filled up, return a fresh buffer.
-        return remaining == 0 ? new LinkedBuffer(session.nextBufferSize, buffer) : 
+        return remaining == 0 ? session.grow(buffer) : 
             new LinkedBuffer(lb, buffer);
     }
     
@@ -399,8 +484,7 @@ public final class ProtobufOutput extends WriteSession implements Output
                 if(available == 0)
                 {
                     // buffer was actually full ... return a fresh buffer 
-                    return new LinkedBuffer(session.nextBufferSize, 
-                            new LinkedBuffer(value, offset, offset+valueLen, lb));
+                    return session.grow(new LinkedBuffer(value, offset, offset+valueLen, lb));
                 }
                 
                 // continue with the existing byte array of the previous buffer
@@ -414,7 +498,7 @@ public final class ProtobufOutput extends WriteSession implements Output
             lb.offset += available;
             
             // grow
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
             
             final int leftover = valueLen - available;
             
@@ -443,7 +527,7 @@ public final class ProtobufOutput extends WriteSession implements Output
         final int totalSize = tagSize + size;
 
         if(lb.offset + totalSize > lb.buffer.length)
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         
         final byte[] buffer = lb.buffer;
         int offset = lb.offset;
@@ -482,7 +566,7 @@ public final class ProtobufOutput extends WriteSession implements Output
         final int totalSize = tagSize + size;
         
         if(lb.offset + totalSize > lb.buffer.length)
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         
         final byte[] buffer = lb.buffer;
         int offset = lb.offset;
@@ -521,7 +605,7 @@ public final class ProtobufOutput extends WriteSession implements Output
         final int totalSize = tagSize + LITTLE_ENDIAN_32_SIZE;
         
         if(lb.offset + totalSize > lb.buffer.length)
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         
         final byte[] buffer = lb.buffer;
         int offset = lb.offset;
@@ -551,7 +635,7 @@ public final class ProtobufOutput extends WriteSession implements Output
         final int totalSize = tagSize + LITTLE_ENDIAN_64_SIZE;
 
         if(lb.offset + totalSize > lb.buffer.length)
-            lb = new LinkedBuffer(session.nextBufferSize, lb);
+            lb = session.grow(lb);
         
         final byte[] buffer = lb.buffer;
         int offset = lb.offset;
@@ -794,25 +878,12 @@ public final class ProtobufOutput extends WriteSession implements Output
      * negative.
      */
     public static int computeRawVarint32Size(final int value) {
-      if ((value & (0xffffffff <<  7)) == 0) return 1;
-      if ((value & (0xffffffff << 14)) == 0) return 2;
-      if ((value & (0xffffffff << 21)) == 0) return 3;
-      if ((value & (0xffffffff << 28)) == 0) return 4;
-      return 5;
+      return PackedFieldUtil.computeRawVarint32Size(value);
     }
     
     /** Compute the number of bytes that would be needed to encode a varint. */
     public static int computeRawVarint64Size(final long value) {
-      if ((value & (0xffffffffffffffffL <<  7)) == 0) return 1;
-      if ((value & (0xffffffffffffffffL << 14)) == 0) return 2;
-      if ((value & (0xffffffffffffffffL << 21)) == 0) return 3;
-      if ((value & (0xffffffffffffffffL << 28)) == 0) return 4;
-      if ((value & (0xffffffffffffffffL << 35)) == 0) return 5;
-      if ((value & (0xffffffffffffffffL << 42)) == 0) return 6;
-      if ((value & (0xffffffffffffffffL << 49)) == 0) return 7;
-      if ((value & (0xffffffffffffffffL << 56)) == 0) return 8;
-      if ((value & (0xffffffffffffffffL << 63)) == 0) return 9;
-      return 10;
+      return PackedFieldUtil.computeRawVarint64Size(value);
     }
     
     /**
@@ -826,8 +897,7 @@ public final class ProtobufOutput extends WriteSession implements Output
      *         Java has no explicit unsigned support.
      */
     public static int encodeZigZag32(final int n) {
-      // Note:  the right-shift must be arithmetic
-      return (n << 1) ^ (n >> 31);
+      return PackedFieldUtil.encodeZigZag32(n);
     }
     
     /**
@@ -841,7 +911,6 @@ public final class ProtobufOutput extends WriteSession implements Output
      *         Java has no explicit unsigned support.
      */
     public static long encodeZigZag64(final long n) {
-      // Note:  the right-shift must be arithmetic
-      return (n << 1) ^ (n >> 63);
+      return PackedFieldUtil.encodeZigZag64(n);
     }
 }
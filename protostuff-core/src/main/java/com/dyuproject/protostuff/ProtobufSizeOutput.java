@@ -0,0 +1,300 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import static com.dyuproject.protostuff.ProtobufOutput.LITTLE_ENDIAN_32_SIZE;
+import static com.dyuproject.protostuff.ProtobufOutput.LITTLE_ENDIAN_64_SIZE;
+import static com.dyuproject.protostuff.ProtobufOutput.computeRawVarint32Size;
+import static com.dyuproject.protostuff.ProtobufOutput.computeRawVarint64Size;
+import static com.dyuproject.protostuff.ProtobufOutput.encodeZigZag32;
+import static com.dyuproject.protostuff.ProtobufOutput.encodeZigZag64;
+import static com.dyuproject.protostuff.StringSerializer.computeUTF8Size;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_FIXED32;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_FIXED64;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_LENGTH_DELIMITED;
+import static com.dyuproject.protostuff.WireFormat.WIRETYPE_VARINT;
+import static com.dyuproject.protostuff.WireFormat.makeTag;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+
+/**
+ * Computes the protobuf-encoded size of a message in a single pass, recording 
+ * the size of every nested message in the order they are written.
+ * 
+ * A {@link ProtobufOutput} given these sizes writes the exact length prefix of 
+ * each nested message up front instead of shifting/re-linking its buffers after 
+ * the nested message is written.
+ * This requires the schema to write the same fields in the same order on both 
+ * passes, which rules out {@link Pipe}s (their input is consumed on the first pass).
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class ProtobufSizeOutput implements Output, PackedOutput, MessageScope
+{
+    
+    private int size = 0;
+    
+    private int[] nestedSizes;
+    private int nestedCount = 0;
+    
+    /**
+     * The state kept for the message being sized (lazily created), which matches 
+     * the state of the output that writes the message afterwards.
+     */
+    private IdentityHashMap<Object,Object> scoped;
+    
+    public ProtobufSizeOutput()
+    {
+        this(16);
+    }
+    
+    public ProtobufSizeOutput(int initialNestedCapacity)
+    {
+        nestedSizes = new int[initialNestedCapacity < 1 ? 1 : initialNestedCapacity];
+    }
+    
+    /**
+     * Resets this output for re-use.
+     */
+    public ProtobufSizeOutput clear()
+    {
+        size = 0;
+        nestedCount = 0;
+        resetScope();
+        return this;
+    }
+    
+    public Object getScoped(Object key)
+    {
+        return scoped == null ? null : scoped.get(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        if(scoped == null)
+            scoped = new IdentityHashMap<Object,Object>(4);
+        
+        scoped.put(key, value);
+    }
+    
+    public void resetScope()
+    {
+        if(scoped != null)
+            scoped.clear();
+    }
+    
+    /**
+     * Gets the computed size of the message.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Gets the number of nested messages.
+     */
+    public int getNestedCount()
+    {
+        return nestedCount;
+    }
+    
+    /**
+     * Gets the size of the nested message at the given {@code index} (the order 
+     * it was written).
+     */
+    public int getNestedSize(int index)
+    {
+        if(index >= nestedCount)
+            throw new IndexOutOfBoundsException(index + " >= " + nestedCount);
+        
+        return nestedSizes[index];
+    }
+    
+    /**
+     * Computes the size of the {@code message} after clearing this output.
+     * 
+     * @return the size of the message
+     */
+    public <T> int compute(T message, Schema<T> schema)
+    {
+        clear();
+        try
+        {
+            schema.writeTo(this, message);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Computing the size threw an IOException " + 
+                    "(should never happen).", e);
+        }
+        return size;
+    }
+    
+    private static int tagSize(int fieldNumber, int wireType)
+    {
+        return computeRawVarint32Size(makeTag(fieldNumber, wireType));
+    }
+    
+    public void writeInt32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + 
+                (value < 0 ? 10 : computeRawVarint32Size(value));
+    }
+    
+    public void writeUInt32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + computeRawVarint32Size(value);
+    }
+    
+    public void writeSInt32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + 
+                computeRawVarint32Size(encodeZigZag32(value));
+    }
+    
+    public void writeFixed32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_FIXED32) + LITTLE_ENDIAN_32_SIZE;
+    }
+    
+    public void writeSFixed32(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_FIXED32) + LITTLE_ENDIAN_32_SIZE;
+    }
+    
+    public void writeInt64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + computeRawVarint64Size(value);
+    }
+    
+    public void writeUInt64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + computeRawVarint64Size(value);
+    }
+    
+    public void writeSInt64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + 
+                computeRawVarint64Size(encodeZigZag64(value));
+    }
+    
+    public void writeFixed64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_FIXED64) + LITTLE_ENDIAN_64_SIZE;
+    }
+    
+    public void writeSFixed64(int fieldNumber, long value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_FIXED64) + LITTLE_ENDIAN_64_SIZE;
+    }
+    
+    public void writeFloat(int fieldNumber, float value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_FIXED32) + LITTLE_ENDIAN_32_SIZE;
+    }
+    
+    public void writeDouble(int fieldNumber, double value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_FIXED64) + LITTLE_ENDIAN_64_SIZE;
+    }
+    
+    public void writeBool(int fieldNumber, boolean value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_VARINT) + 1;
+    }
+    
+    public void writeEnum(int fieldNumber, int value, boolean repeated) throws IOException
+    {
+        writeInt32(fieldNumber, value, repeated);
+    }
+    
+    public void writeString(int fieldNumber, String value, boolean repeated) throws IOException
+    {
+        final int strSize = computeUTF8Size(value, 0, value.length());
+        size += tagSize(fieldNumber, WIRETYPE_LENGTH_DELIMITED) + 
+                computeRawVarint32Size(strSize) + strSize;
+    }
+    
+    public void writeBytes(int fieldNumber, ByteString value, boolean repeated) throws IOException
+    {
+        writeByteArray(fieldNumber, value.getBytes(), repeated);
+    }
+    
+    public void writeByteArray(int fieldNumber, byte[] value, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_LENGTH_DELIMITED) + 
+                computeRawVarint32Size(value.length) + value.length;
+    }
+    
+    public void writeByteRange(boolean utf8String, int fieldNumber, byte[] value, 
+            int offset, int length, boolean repeated) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_LENGTH_DELIMITED) + 
+                computeRawVarint32Size(length) + length;
+    }
+    
+    public <T> void writeObject(final int fieldNumber, final T value, final Schema<T> schema, 
+            final boolean repeated) throws IOException
+    {
+        // reserve the slot first so that the sizes are in the order of writing.
+        final int index = nestedCount++;
+        if(index == nestedSizes.length)
+        {
+            final int[] grown = new int[index * 2];
+            System.arraycopy(nestedSizes, 0, grown, 0, index);
+            nestedSizes = grown;
+        }
+        
+        final int last = size;
+        schema.writeTo(this, value);
+        
+        final int nestedSize = size - last;
+        nestedSizes[index] = nestedSize;
+        
+        size += tagSize(fieldNumber, WIRETYPE_LENGTH_DELIMITED) + 
+                computeRawVarint32Size(nestedSize);
+    }
+    
+    public void writePackedHeader(int fieldNumber, int packedSize) throws IOException
+    {
+        size += tagSize(fieldNumber, WIRETYPE_LENGTH_DELIMITED) + 
+                computeRawVarint32Size(packedSize);
+    }
+    
+    public void writePackedVarInt32(int value) throws IOException
+    {
+        size += computeRawVarint32Size(value);
+    }
+    
+    public void writePackedVarInt64(long value) throws IOException
+    {
+        size += computeRawVarint64Size(value);
+    }
+    
+    public void writePackedFixed32(int value) throws IOException
+    {
+        size += LITTLE_ENDIAN_32_SIZE;
+    }
+    
+    public void writePackedFixed64(long value) throws IOException
+    {
+        size += LITTLE_ENDIAN_64_SIZE;
+    }
+
+}
@@ -16,12 +16,21 @@ package com.dyuproject.protostuff;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Protostuff ser/deser util for messages/objects.
@@ -88,6 +97,83 @@ public final class ProtostuffIOUtil
         };
     }
     
+    /**
+     * Creates a push-style {@link DelimitedDecoder} for protostuff messages written 
+     * via {@code writeDelimitedTo}, which passes every decoded message to the 
+     * {@code handler}.
+     * 
+     * A frame larger than {@code maxFrameSize} is rejected.
+     */
+    public static <T> DelimitedDecoder<T> newDelimitedDecoder(Schema<T> schema, 
+            int maxFrameSize, DelimitedDecoder.Handler<T> handler)
+    {
+        return new DelimitedDecoder<T>(schema, maxFrameSize, handler, true, false);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protostuff messages (delimited) 
+     * into the {@link OutputStream}, writing the {@code buffer} once at least 
+     * {@code flushThreshold} bytes are buffered.
+     */
+    public static <T> DelimitedWriter<T> newDelimitedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, false, 
+                false, out, null);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protostuff messages (delimited) 
+     * into the {@link GatheringByteChannel}, writing the {@code buffer} once at least 
+     * {@code flushThreshold} bytes are buffered.
+     * 
+     * The channel must be in blocking mode.
+     * 
+     * @throws java.nio.channels.IllegalBlockingModeException if the channel 
+     * is in non-blocking mode.
+     */
+    public static <T> DelimitedWriter<T> newDelimitedWriter(GatheringByteChannel channel, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, false, 
+                false, null, channel);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protostuff messages as checksummed 
+     * frames (see {@link #writeChecksummedTo}) into the {@link OutputStream}, 
+     * writing the {@code buffer} once at least {@code flushThreshold} bytes are buffered.
+     */
+    public static <T> DelimitedWriter<T> newChecksummedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, false, 
+                true, out, null);
+    }
+    
+    /**
+     * Creates a {@link DelimitedWriter} that streams protostuff messages into the 
+     * {@link OutputStream} and records the offset of every frame, which are appended 
+     * as a footer on {@link DelimitedWriter#finish()}.  The file written is read 
+     * (randomly) with {@link #newIndexedReader}.
+     */
+    public static <T> DelimitedWriter<T> newIndexedWriter(OutputStream out, 
+            Schema<T> schema, LinkedBuffer buffer, int flushThreshold, boolean checksummed)
+    {
+        return new DelimitedWriter<T>(schema, buffer, flushThreshold, true, false, 
+                checksummed, true, out, null);
+    }
+    
+    /**
+     * Memory-maps the {@code file} written by an indexed writer 
+     * (see {@link #newIndexedWriter}) for random access to its messages.
+     */
+    public static <T> IndexedReader<T> newIndexedReader(File file, Schema<T> schema) 
+            throws IOException
+    {
+        return new IndexedReader<T>(file, schema, true, false);
+    }
+    
     /**
      * Merges the {@code message} with the byte array using the given {@code schema}.
      */
@@ -105,6 +191,37 @@ public final class ProtostuffIOUtil
         IOUtil.mergeFrom(data, offset, length, message, schema, true);
     }
     
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache}.
+     */
+    public static <T> void mergeFrom(byte[] data, T message, Schema<T> schema, 
+            StringCache stringCache)
+    {
+        IOUtil.mergeFrom(data, 0, data.length, message, schema, true, stringCache);
+    }
+    
+    /**
+     * Merges the {@code message} with the byte array using the given {@code schema}, 
+     * deduplicating the strings read via the {@code stringCache}.
+     */
+    public static <T> void mergeFrom(byte[] data, int offset, int length, T message, 
+            Schema<T> schema, StringCache stringCache)
+    {
+        IOUtil.mergeFrom(data, offset, length, message, schema, true, stringCache);
+    }
+    
+    /**
+     * Merges the {@code message} with the remaining bytes of the {@link ByteBuffer} 
+     * (heap, direct or memory-mapped) using the given {@code schema}.
+     * 
+     * The buffer's position is not modified.
+     */
+    public static <T> void mergeFrom(ByteBuffer data, T message, Schema<T> schema)
+    {
+        IOUtil.mergeFrom(data, message, schema, true);
+    }
+    
     /**
      * Merges the {@code message} from the {@link InputStream} using 
      * the given {@code schema}.
@@ -115,6 +232,17 @@ public final class ProtostuffIOUtil
         IOUtil.mergeFrom(in, message, schema, true);
     }
     
+    /**
+     * Merges the {@code message} from the {@link InputStream} using 
+     * the given {@code schema}, deduplicating the strings read via the 
+     * {@code stringCache}.
+     */
+    public static <T> void mergeFrom(InputStream in, T message, Schema<T> schema, 
+            StringCache stringCache) throws IOException
+    {
+        IOUtil.mergeFrom(in, message, schema, true, stringCache);
+    }
+    
     /**
      * Merges the {@code message} from the {@link InputStream} using 
      * the given {@code schema}.
@@ -167,6 +295,45 @@ public final class ProtostuffIOUtil
         return IOUtil.mergeDelimitedFrom(in, message, schema, true);
     }
     
+    /**
+     * Merges the {@code message} from a checksummed frame (see {@link #writeChecksummedTo}) 
+     * of the {@link InputStream}, using the {@code buffer} to read the frame (which must 
+     * fit its internal byte array).
+     * 
+     * The frame is verified before it is parsed; a corrupted frame throws a 
+     * {@link ProtobufException}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int mergeChecksummedFrom(InputStream in, T message, Schema<T> schema, 
+            LinkedBuffer buffer) throws IOException
+    {
+        return IOUtil.mergeChecksummedFrom(in, buffer.buffer, message, schema, true, false);
+    }
+    
+    /**
+     * Merges the {@code message} from the compressed frames written by 
+     * {@link #writeCompressedTo}, which are decompressed as the message is read.
+     * 
+     * The stream is read up to the end frame, so the next message (if any) can be 
+     * read from the same stream.
+     */
+    public static <T> void mergeCompressedFrom(InputStream in, T message, Schema<T> schema) 
+            throws IOException
+    {
+        final CompressedInputStream cin = new CompressedInputStream(in);
+        try
+        {
+            final CodedInput input = new CodedInput(cin, true);
+            schema.mergeFrom(input, message);
+            input.checkLastTagWas(0);
+        }
+        finally
+        {
+            cin.end();
+        }
+    }
+    
     /**
      * Serializes the {@code message} into a byte array using the given schema.
      * 
@@ -191,6 +358,25 @@ public final class ProtostuffIOUtil
         return output.toByteArray();
     }
     
+    /**
+     * Serializes the {@code message} into a byte array using the given schema, 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the byte array containing the data.
+     */
+    public static <T> byte[] toByteArray(T message, Schema<T> schema, LinkedBufferPool pool)
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return toByteArray(message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
     /**
      * Writes the {@code message} into the {@link LinkedBuffer} using the given schema.
      * 
@@ -232,6 +418,40 @@ public final class ProtostuffIOUtil
         return output.size;
     }
     
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBufferPool pool) throws IOException
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return writeTo(out, message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into a {@link ByteBuffer} (heap or direct) 
+     * using the given schema.
+     * 
+     * @return the size of the message
+     * @throws java.nio.BufferOverflowException if the message does not fit 
+     * in the remaining bytes of {@code out}.
+     */
+    public static <T> int writeTo(final ByteBuffer out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer) throws IOException
+    {
+        return writeTo(new ByteBufferOutputStream(out), message, schema, buffer);
+    }
+    
     /**
      * Serializes the {@code message}, prefixed with its length, into an 
      * {@link OutputStream}.
@@ -251,6 +471,70 @@ public final class ProtostuffIOUtil
         return output.size;
     }
     
+    /**
+     * Serializes the {@code message}, prefixed with its length, into an {@link OutputStream} 
+     * with a buffer acquired from (and released back to) the {@code pool}.
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeDelimitedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBufferPool pool) throws IOException
+    {
+        final LinkedBuffer buffer = pool.acquire();
+        try
+        {
+            return writeDelimitedTo(out, message, schema, buffer);
+        }
+        finally
+        {
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} as a checksummed frame:
+     * [varint32 size][message][crc32c of the message (fixed32)].
+     * 
+     * The checksum is computed directly over the {@code buffer} chunks (no extra copy).
+     * 
+     * @return the size of the message
+     */
+    public static <T> int writeChecksummedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final ProtostuffOutput output = new ProtostuffOutput(buffer);
+        schema.writeTo(output, message);
+        return IOUtil.writeChecksummedFrame(out, output);
+    }
+    
+    /**
+     * Serializes the {@code message} into an {@link OutputStream} as compressed frames 
+     * (see {@link CompressedOutputStream}), followed by the end frame.
+     * 
+     * The {@link LinkedBuffer} chunks are compressed (in blocks of the {@code buffer}'s 
+     * size) as they fill, so the serialized message is never held as a whole.
+     * 
+     * @return the size of the message (uncompressed)
+     */
+    public static <T> int writeCompressedTo(final OutputStream out, final T message, 
+            final Schema<T> schema, final LinkedBuffer buffer, 
+            final CompressionCodec codec) throws IOException
+    {
+        if(buffer.start != buffer.offset)
+            throw new IllegalArgumentException("Buffer previously used and had not been reset.");
+        
+        final CompressedOutputStream cout = new CompressedOutputStream(out, codec, 
+                buffer.buffer.length);
+        final ProtostuffOutput output = new ProtostuffOutput(buffer, cout);
+        schema.writeTo(output, message);
+        LinkedBuffer.writeTo(cout, buffer);
+        cout.finish();
+        return output.size;
+    }
+    
     /**
      * Used by the code generated messages that implement {@link java.io.Externalizable}.
      * Writes to the {@link DataOutput}.
@@ -289,6 +573,8 @@ public final class ProtostuffIOUtil
 
         for(T m : messages)
         {
+            // every message is self-contained
+            output.resetScope();
             schema.writeTo(output, m);
             output.sink.writeByte((byte)WireFormat.WIRETYPE_TAIL_DELIMITER, output, 
                     buffer);
@@ -299,6 +585,199 @@ public final class ProtostuffIOUtil
         return output.size;
     }
     
+    /**
+     * Serializes the {@code messages} (delimited) into an {@link OutputStream} 
+     * using the given schema, with the same output as 
+     * {@link #writeListTo(OutputStream, List, Schema, LinkedBuffer)}.
+     * 
+     * The list is split into chunks of {@code chunkSize} messages that are serialized 
+     * concurrently via the {@code executor} (e.g. a {@code ForkJoinPool}), each into 
+     * its own buffers acquired from the {@code pool} (preferably a striped one since 
+     * the buffers are released by the calling thread).  The chunks are then written 
+     * in order (each as soon as it is ready) straight from their buffers, without 
+     * copying them into a single one.  The first chunk is serialized by the calling 
+     * thread.
+     * 
+     * If a chunk fails (or the executor rejects one), the buffers of the other 
+     * chunks are released as soon as they complete, even after this method 
+     * has thrown.
+     * 
+     * The list must not be modified until this method returns.
+     * 
+     * @return the bytes written
+     */
+    public static <T> int writeListTo(final OutputStream out, final List<T> messages, 
+            final Schema<T> schema, final LinkedBufferPool pool, final Executor executor, 
+            final int chunkSize) throws IOException
+    {
+        if(chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1.");
+        
+        final int size = messages.size();
+        if(size == 0)
+            return 0;
+        
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        final ArrayList<ChunkTask> tasks = 
+            new ArrayList<ChunkTask>((size - 1) / chunkSize);
+        int i = 0;
+        try
+        {
+            for(int from = chunkSize; from < size; from += chunkSize)
+            {
+                final ChunkTask task = new ChunkTask(new ChunkWriter<T>(
+                        messages.subList(from, Math.min(from + chunkSize, size)), 
+                        schema, pool), pool, abandoned);
+                tasks.add(task);
+                executor.execute(task);
+            }
+            
+            ProtobufOutput.writeRawVarInt32Bytes(out, size);
+            int totalSize = ProtobufOutput.computeRawVarint32Size(size);
+            
+            totalSize += writeChunk(out, new ChunkWriter<T>(messages.subList(0, 
+                    Math.min(chunkSize, size)), schema, pool).call(), pool);
+            
+            while(i < tasks.size())
+                totalSize += writeChunk(out, tasks.get(i++).get(), pool);
+            
+            return totalSize;
+        }
+        catch(ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException)cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if(cause instanceof Error)
+                throw (Error)cause;
+            
+            throw new RuntimeException(cause);
+        }
+        catch(InterruptedException e)
+        {
+            // not consumed
+            i--;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the chunks.");
+        }
+        finally
+        {
+            if(i < tasks.size())
+            {
+                // the chunks still running release their buffers when done
+                abandoned.set(true);
+                
+                // cancel (or recycle) the chunks that were not written
+                for(; i < tasks.size(); i++)
+                {
+                    final ChunkTask task = tasks.get(i);
+                    if(!task.cancel(false) && task.isDone())
+                        task.release();
+                }
+            }
+        }
+    }
+    
+    private static int writeChunk(OutputStream out, ProtostuffOutput output, 
+            LinkedBufferPool pool) throws IOException
+    {
+        try
+        {
+            final int size = LinkedBuffer.writeTo(out, output.head);
+            assert size == output.size;
+            return size;
+        }
+        finally
+        {
+            pool.release(output.head);
+        }
+    }
+    
+    /**
+     * A chunk that releases its buffers once it completes, if its result was 
+     * abandoned by the writing thread (which includes a running chunk that was 
+     * cancelled).
+     */
+    static final class ChunkTask extends FutureTask<ProtostuffOutput>
+    {
+        final LinkedBufferPool pool;
+        final AtomicBoolean abandoned;
+        final AtomicBoolean released = new AtomicBoolean();
+        volatile ProtostuffOutput output;
+        
+        ChunkTask(Callable<ProtostuffOutput> writer, LinkedBufferPool pool, 
+                AtomicBoolean abandoned)
+        {
+            super(writer);
+            this.pool = pool;
+            this.abandoned = abandoned;
+        }
+        
+        protected void set(ProtostuffOutput output)
+        {
+            this.output = output;
+            super.set(output);
+            
+            if(abandoned.get())
+                release();
+        }
+        
+        /**
+         * Releases the buffers of the completed chunk (either by the writing 
+         * thread or the thread that completed it, whichever comes first).
+         */
+        void release()
+        {
+            final ProtostuffOutput output = this.output;
+            // null if the chunk failed (its buffers are already released)
+            if(output != null && released.compareAndSet(false, true))
+                pool.release(output.head);
+        }
+    }
+    
+    /**
+     * Serializes a chunk of the messages (each followed by the tail delimiter) 
+     * into buffers acquired from the pool.
+     */
+    static final class ChunkWriter<T> implements Callable<ProtostuffOutput>
+    {
+        final List<T> messages;
+        final Schema<T> schema;
+        final LinkedBufferPool pool;
+        
+        ChunkWriter(List<T> messages, Schema<T> schema, LinkedBufferPool pool)
+        {
+            this.messages = messages;
+            this.schema = schema;
+            this.pool = pool;
+        }
+        
+        public ProtostuffOutput call() throws IOException
+        {
+            final ProtostuffOutput output = new ProtostuffOutput(pool.acquire());
+            boolean success = false;
+            try
+            {
+                for(T m : messages)
+                {
+                    output.resetScope();
+                    schema.writeTo(output, m);
+                    output.tail = output.sink.writeByte(
+                            (byte)WireFormat.WIRETYPE_TAIL_DELIMITER, output, output.tail);
+                }
+                success = true;
+                return output;
+            }
+            finally
+            {
+                if(!success)
+                    pool.release(output.head);
+            }
+        }
+    }
+    
     /**
      * Parses the {@code messages} (delimited) from the {@link InputStream} 
      * using the given {@code schema}.
@@ -321,6 +800,7 @@ public final class ProtostuffIOUtil
         {
             final T message = schema.newMessage();
             list.add(message);
+            input.resetScope();
             schema.mergeFrom(input, message);
             input.checkLastTagWas(0);
         }
@@ -329,6 +809,122 @@ public final class ProtostuffIOUtil
 
         return list;
     }
+    
+    /**
+     * Lazily reads the {@code messages} (delimited) from the {@link InputStream}, 
+     * one at a time, instead of parsing them all into a list.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     */
+    public static <T> MessageIterator<T> iterateListFrom(final InputStream in, 
+            final Schema<T> schema, final T reuse)
+    {
+        return new MessageIterator<T>(schema, reuse)
+        {
+            CodedInput input;
+            int remaining = -1;
+            
+            protected boolean advance() throws IOException
+            {
+                if(remaining == -1)
+                {
+                    int size = in.read();
+                    if(size == -1)
+                    {
+                        remaining = 0;
+                        return false;
+                    }
+                    
+                    if(size > 0x7f)
+                        size = CodedInput.readRawVarint32(in, size);
+                    
+                    remaining = size;
+                    input = new CodedInput(in, true);
+                }
+                
+                if(remaining == 0)
+                    return false;
+                
+                remaining--;
+                return true;
+            }
+            
+            protected void merge(T message) throws IOException
+            {
+                input.resetScope();
+                schema.mergeFrom(input, message);
+                input.checkLastTagWas(0);
+            }
+        };
+    }
+    
+    /**
+     * Passes the {@code messages} (delimited) from the {@link InputStream} to the 
+     * {@code visitor}, one at a time, until the visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitListFrom(InputStream in, Schema<T> schema, T reuse, 
+            MessageIterator.Visitor<? super T> visitor) throws IOException
+    {
+        return iterateListFrom(in, schema, reuse).visit(visitor);
+    }
+    
+    /**
+     * Lazily reads the protostuff messages (delimited) from the {@link InputStream} 
+     * until the end of the stream, one at a time.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     */
+    public static <T> MessageIterator<T> iterateDelimitedFrom(InputStream in, Schema<T> schema, 
+            T reuse)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, true, false, false);
+    }
+    
+    /**
+     * Lazily reads the protostuff messages from the checksummed frames 
+     * (see {@link #writeChecksummedTo}) of the {@link InputStream} until the end 
+     * of the stream, one at a time.  Every frame is verified before it is parsed.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).
+     * 
+     * A frame larger than 64MB is rejected (see 
+     * {@link #iterateChecksummedFrom(InputStream, Schema, Object, int)}).
+     */
+    public static <T> MessageIterator<T> iterateChecksummedFrom(InputStream in, 
+            Schema<T> schema, T reuse)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, true, false, true);
+    }
+    
+    /**
+     * Lazily reads the messages from the checksummed frames, where a frame larger 
+     * than {@code maxFrameSize} is rejected (with a {@link ProtobufException}) 
+     * before it is read.
+     */
+    public static <T> MessageIterator<T> iterateChecksummedFrom(InputStream in, 
+            Schema<T> schema, T reuse, int maxFrameSize)
+    {
+        return new DelimitedIterator<T>(in, schema, reuse, true, false, true, 
+                maxFrameSize);
+    }
+    
+    /**
+     * Passes the protostuff messages (delimited) from the {@link InputStream} to the 
+     * {@code visitor}, one at a time, until the end of the stream or until the 
+     * visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitDelimitedFrom(InputStream in, Schema<T> schema, T reuse, 
+            MessageIterator.Visitor<? super T> visitor) throws IOException
+    {
+        return iterateDelimitedFrom(in, schema, reuse).visit(visitor);
+    }
 
     /**
      * Optimal/Optional mergeDelimitedFrom - If the message does not fit the buffer, 
@@ -380,6 +976,8 @@ public final class ProtostuffIOUtil
         
         final ByteArrayInput input = new ByteArrayInput(buffer.buffer, 
                 buffer.offset, size, true);
+        // the buffer is reused
+        input.copyUtf8Strings = true;
         try
         {
             schema.mergeFrom(input, message);
@@ -26,6 +26,7 @@ import static com.dyuproject.protostuff.WireFormat.makeTag;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Dual output for streaming or full buffering.
@@ -33,7 +34,7 @@ import java.io.OutputStream;
  * @author David Yu
  * @created Sep 19, 2010
  */
-public final class ProtostuffOutput extends WriteSession implements Output
+public final class ProtostuffOutput extends WriteSession implements Output, PackedOutput
 {
     
     public ProtostuffOutput(LinkedBuffer buffer)
@@ -46,6 +47,11 @@ public final class ProtostuffOutput extends WriteSession implements Output
         super(buffer, out);
     }
     
+    public ProtostuffOutput(LinkedBuffer buffer, ByteBuffer out)
+    {
+        super(buffer, out);
+    }
+    
     /**
      * Resets this output for re-use.
      */
@@ -378,4 +384,35 @@ public final class ProtostuffOutput extends WriteSession implements Output
                 tail);
     }
     
+    public void writePackedHeader(int fieldNumber, int packedSize) throws IOException
+    {
+        tail = sink.writeVarInt32(
+                packedSize, 
+                this, 
+                sink.writeVarInt32(
+                        makeTag(fieldNumber, WIRETYPE_LENGTH_DELIMITED), 
+                        this, 
+                        tail));
+    }
+    
+    public void writePackedVarInt32(int value) throws IOException
+    {
+        tail = sink.writeVarInt32(value, this, tail);
+    }
+    
+    public void writePackedVarInt64(long value) throws IOException
+    {
+        tail = sink.writeVarInt64(value, this, tail);
+    }
+    
+    public void writePackedFixed32(int value) throws IOException
+    {
+        tail = sink.writeInt32LE(value, this, tail);
+    }
+    
+    public void writePackedFixed64(long value) throws IOException
+    {
+        tail = sink.writeInt64LE(value, this, tail);
+    }
+    
 }
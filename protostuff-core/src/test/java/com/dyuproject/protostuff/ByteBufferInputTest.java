@@ -0,0 +1,182 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Test for reading messages from direct and memory-mapped {@link ByteBuffer}s 
+ * via {@link ByteBufferInput}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class ByteBufferInputTest extends StandardTest
+{
+    
+    /**
+     * Copies the data into a direct buffer whose position is not zero.
+     */
+    static ByteBuffer direct(byte[] data, int offset, int length)
+    {
+        ByteBuffer bb = ByteBuffer.allocateDirect(length + 7);
+        bb.position(3);
+        bb.put(data, offset, length);
+        bb.limit(bb.position());
+        bb.position(3);
+        return bb;
+    }
+
+    protected <T> void mergeFrom(byte[] data, int offset, int length, T message, Schema<T> schema)
+            throws IOException
+    {
+        final ByteBuffer bb = direct(data, offset, length);
+        ProtostuffIOUtil.mergeFrom(bb, message, schema);
+        
+        // position is not modified
+        assertEquals(3, bb.position());
+    }
+    
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        return ProtostuffIOUtil.toByteArray(message, schema, buf());
+    }
+    
+    public void testProtobuf() throws Exception
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] data = ProtobufIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        Foo parsed = new Foo();
+        ProtobufIOUtil.mergeFrom(direct(data, 0, data.length), parsed, parsed.cachedSchema());
+        SerializableObjects.assertEquals(foo, parsed);
+        
+        // heap buffer read from its backing array
+        parsed = new Foo();
+        ProtobufIOUtil.mergeFrom(ByteBuffer.wrap(data), parsed, parsed.cachedSchema());
+        SerializableObjects.assertEquals(foo, parsed);
+        
+        // heap buffer read via ByteBufferInput
+        parsed = new Foo();
+        ByteBufferInput input = new ByteBufferInput(ByteBuffer.wrap(data), false);
+        parsed.cachedSchema().mergeFrom(input, parsed);
+        input.checkLastTagWas(0);
+        SerializableObjects.assertEquals(foo, parsed);
+    }
+    
+    public void testPacked() throws Exception
+    {
+        PackedFieldTest.Numbers n = PackedFieldTest.filledNumbers();
+        byte[] data = ProtobufIOUtil.toByteArray(n, PackedFieldTest.PACKED, buf());
+        
+        PackedFieldTest.Numbers parsed = new PackedFieldTest.Numbers();
+        ProtobufIOUtil.mergeFrom(direct(data, 0, data.length), parsed, 
+                PackedFieldTest.UNPACKED);
+        PackedFieldTest.assertEquivalent(n, parsed);
+    }
+    
+    public void testGraph() throws Exception
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] data = GraphIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        Foo parsed = new Foo();
+        GraphIOUtil.mergeFrom(direct(data, 0, data.length), parsed, parsed.cachedSchema());
+        SerializableObjects.assertEquals(foo, parsed);
+        
+        ClubFounder founder = new ClubFounder();
+        founder.setName("some_glee_club_founder");
+        Club club = new Club();
+        club.setName("glee");
+        founder.setClub(club);
+        GraphTest.addPartnerStudentTo(club, "jake");
+        
+        // cyclic
+        Student john = new Student();
+        john.setName("john");
+        john.addClub(club);
+        club.addStudent(john);
+        
+        Student jane = new Student();
+        jane.setName("jane");
+        jane.addClub(club);
+        club.addStudent(jane);
+        
+        data = GraphIOUtil.toByteArray(founder, ClubFounder.getSchema(), buf());
+        
+        ClubFounder parsedFounder = new ClubFounder();
+        GraphIOUtil.mergeFrom(direct(data, 0, data.length), parsedFounder, 
+                ClubFounder.getSchema());
+        GraphTest.checkLinks(parsedFounder);
+    }
+    
+    public void testTruncated() throws Exception
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] data = ProtobufIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        try
+        {
+            ProtobufIOUtil.mergeFrom(direct(data, 0, data.length - 1), new Foo(), 
+                    foo.cachedSchema());
+            fail("Expected truncated message.");
+        }
+        catch(RuntimeException e)
+        {
+            assertTrue(e.getCause() instanceof ProtobufException);
+        }
+    }
+    
+    public void testMemoryMapped() throws Exception
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] data = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        File file = File.createTempFile("protostuff", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(data);
+        }
+        finally
+        {
+            out.close();
+        }
+        
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 
+                    0, data.length);
+            
+            Foo parsed = new Foo();
+            ProtostuffIOUtil.mergeFrom(mapped, parsed, parsed.cachedSchema());
+            SerializableObjects.assertEquals(foo, parsed);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * Test for serializing into heap/direct {@link ByteBuffer}s and for the 
+ * gathering write of a {@link LinkedBuffer}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class ByteBufferOutputTest extends AbstractTest
+{
+    
+    /**
+     * Accepts at most {@code maxWrite} bytes per write to exercise partial writes.
+     */
+    static final class ChunkedChannel implements GatheringByteChannel
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int maxWrite;
+        int gatheringWrites;
+        
+        ChunkedChannel(int maxWrite)
+        {
+            this.maxWrite = maxWrite;
+        }
+        
+        public boolean isOpen()
+        {
+            return true;
+        }
+        
+        public void close()
+        {
+            
+        }
+        
+        public int write(ByteBuffer src)
+        {
+            int len = Math.min(maxWrite, src.remaining());
+            for(int i = 0; i < len; i++)
+                out.write(src.get());
+            
+            return len;
+        }
+        
+        public long write(ByteBuffer[] srcs)
+        {
+            return write(srcs, 0, srcs.length);
+        }
+        
+        public long write(ByteBuffer[] srcs, int offset, int length)
+        {
+            gatheringWrites++;
+            long written = 0;
+            for(int i = offset, limit = offset + length; i < limit && written < maxWrite; i++)
+            {
+                ByteBuffer src = srcs[i];
+                while(src.hasRemaining() && written < maxWrite)
+                {
+                    out.write(src.get());
+                    written++;
+                }
+            }
+            return written;
+        }
+    }
+    
+    static byte[] toArray(ByteBuffer bb)
+    {
+        bb.flip();
+        byte[] data = new byte[bb.remaining()];
+        bb.get(data);
+        return data;
+    }
+    
+    public void testProtostuff() throws IOException
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] expected = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        ByteBuffer heap = ByteBuffer.allocate(expected.length);
+        assertEquals(expected.length, 
+                ProtostuffIOUtil.writeTo(heap, foo, foo.cachedSchema(), buf()));
+        assertTrue(Arrays.equals(expected, toArray(heap)));
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length + 10);
+        assertEquals(expected.length, 
+                ProtostuffIOUtil.writeTo(direct, foo, foo.cachedSchema(), buf()));
+        assertTrue(Arrays.equals(expected, toArray(direct)));
+    }
+    
+    public void testProtobuf() throws IOException
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] expected = ProtobufIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        assertEquals(expected.length, 
+                ProtobufIOUtil.writeTo(direct, foo, foo.cachedSchema(), buf()));
+        assertTrue(Arrays.equals(expected, toArray(direct)));
+    }
+    
+    public void testGraph() throws IOException
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] expected = GraphIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        assertEquals(expected.length, 
+                GraphIOUtil.writeTo(direct, foo, foo.cachedSchema(), buf()));
+        assertTrue(Arrays.equals(expected, toArray(direct)));
+    }
+    
+    public void testOverflow() throws IOException
+    {
+        Foo foo = SerializableObjects.foo;
+        byte[] expected = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length - 1);
+        try
+        {
+            ProtostuffIOUtil.writeTo(direct, foo, foo.cachedSchema(), buf());
+            fail("Expected BufferOverflowException.");
+        }
+        catch(BufferOverflowException e)
+        {
+            // expected
+        }
+    }
+    
+    public void testGatheringWrite() throws IOException
+    {
+        Foo foo = SerializableObjects.foo;
+        LinkedBuffer buffer = buf();
+        ProtostuffOutput output = new ProtostuffOutput(buffer);
+        for(int i = 0; i < 5; i++)
+            foo.cachedSchema().writeTo(output, foo);
+        
+        // the messages span more than one buffer
+        assertNotNull(buffer.next);
+        byte[] expected = output.toByteArray();
+        
+        ChunkedChannel channel = new ChunkedChannel(Integer.MAX_VALUE);
+        assertEquals(expected.length, LinkedBuffer.writeTo(channel, buffer));
+        assertEquals(1, channel.gatheringWrites);
+        assertTrue(Arrays.equals(expected, channel.out.toByteArray()));
+        
+        channel = new ChunkedChannel(7);
+        assertEquals(expected.length, LinkedBuffer.writeTo(channel, buffer));
+        assertTrue(channel.gatheringWrites > 1);
+        assertTrue(Arrays.equals(expected, channel.out.toByteArray()));
+        
+        channel = new ChunkedChannel(7);
+        assertEquals(0, LinkedBuffer.writeTo(channel, buf()));
+        assertEquals(0, channel.gatheringWrites);
+    }
+
+}
@@ -0,0 +1,283 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+/**
+ * Test for the crc32c checksummed frames.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class ChecksummedFrameTest extends AbstractTest
+{
+    
+    static byte[] writeChecksummed(Foo[] foos, int type) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for(Foo f : foos)
+        {
+            switch(type)
+            {
+                case 0:
+                    ProtostuffIOUtil.writeChecksummedTo(out, f, f.cachedSchema(), buf());
+                    break;
+                case 1:
+                    ProtobufIOUtil.writeChecksummedTo(out, f, f.cachedSchema(), buf());
+                    break;
+                default:
+                    GraphIOUtil.writeChecksummedTo(out, f, f.cachedSchema(), buf());
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    static int mergeChecksummedFrom(ByteArrayInputStream in, Foo foo, int type) 
+            throws IOException
+    {
+        final LinkedBuffer buffer = LinkedBuffer.allocate(16 * 1024);
+        switch(type)
+        {
+            case 0:
+                return ProtostuffIOUtil.mergeChecksummedFrom(in, foo, foo.cachedSchema(), 
+                        buffer);
+            case 1:
+                return ProtobufIOUtil.mergeChecksummedFrom(in, foo, foo.cachedSchema(), 
+                        buffer);
+            default:
+                return GraphIOUtil.mergeChecksummedFrom(in, foo, foo.cachedSchema(), 
+                        buffer);
+        }
+    }
+    
+    public void testCrc32c() throws Exception
+    {
+        final byte[] check = "123456789".getBytes("ASCII");
+        
+        Crc32c crc = new Crc32c();
+        crc.update(check, 0, check.length);
+        assertEquals(0xE3069283L, crc.getValue());
+        
+        final byte[] data = new byte[1000];
+        new Random(17).nextBytes(data);
+        for(int len = 0; len < 40; len++)
+        {
+            crc.reset();
+            crc.update(data, 3, len);
+            
+            Checksum byByte = new Crc32c();
+            for(int i = 0; i < len; i++)
+                byByte.update(data[3 + i]);
+            
+            Checksum jdk = Crc32c.newChecksum();
+            jdk.update(data, 3, len);
+            
+            assertEquals(byByte.getValue(), crc.getValue());
+            assertEquals(jdk.getValue(), crc.getValue());
+        }
+    }
+    
+    public void testRoundTrip() throws Exception
+    {
+        final Foo[] foos = DelimitedWriterTest.foos();
+        for(int type = 0; type < 3; type++)
+        {
+            final byte[] data = writeChecksummed(foos, type);
+            final byte[] delimited = DelimitedWriterTest.writeDelimited(foos, type);
+            // 4 bytes (crc32c) per frame
+            assertEquals(delimited.length + 4 * foos.length, data.length);
+            
+            final ByteArrayInputStream in = new ByteArrayInputStream(data);
+            for(Foo f : foos)
+            {
+                Foo parsed = new Foo();
+                mergeChecksummedFrom(in, parsed, type);
+                SerializableObjects.assertEquals(f, parsed);
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+    
+    public void testCorruptedFrame() throws Exception
+    {
+        final Foo[] foos = new Foo[]{ SerializableObjects.foo };
+        for(int type = 0; type < 3; type++)
+        {
+            final byte[] data = writeChecksummed(foos, type);
+            for(int i = 2; i < data.length; i += 7)
+            {
+                final byte[] corrupted = data.clone();
+                corrupted[i] ^= 0x10;
+                try
+                {
+                    mergeChecksummedFrom(new ByteArrayInputStream(corrupted), new Foo(), 
+                            type);
+                    fail("Expected checksum mismatch at " + i);
+                }
+                catch(ProtobufException e)
+                {
+                    // expected
+                }
+            }
+        }
+    }
+    
+    static MessageIterator<Foo> iterateChecksummedFrom(ByteArrayInputStream in, 
+            int type, int maxFrameSize)
+    {
+        switch(type)
+        {
+            case 0:
+                return ProtostuffIOUtil.iterateChecksummedFrom(in, Foo.getSchema(), 
+                        null, maxFrameSize);
+            case 1:
+                return ProtobufIOUtil.iterateChecksummedFrom(in, Foo.getSchema(), 
+                        null, maxFrameSize);
+            default:
+                return GraphIOUtil.iterateChecksummedFrom(in, Foo.getSchema(), 
+                        null, maxFrameSize);
+        }
+    }
+    
+    /**
+     * Returns the size of the varint length prefix of the first frame.
+     */
+    static int prefixSize(byte[] data) throws IOException
+    {
+        final ByteArrayInputStream in = new ByteArrayInputStream(data);
+        final int size = in.read();
+        return ProtobufOutput.computeRawVarint32Size(size < 0x80 ? size : 
+            CodedInput.readRawVarint32(in, size));
+    }
+    
+    public void testCorruptedLengthPrefix() throws Exception
+    {
+        final Foo[] foos = new Foo[]{ SerializableObjects.foo };
+        for(int type = 0; type < 3; type++)
+        {
+            final byte[] data = writeChecksummed(foos, type);
+            final int prefixSize = prefixSize(data);
+            
+            // the length prefix is not covered by the crc
+            for(int len : new int[]{Integer.MAX_VALUE, 1 << 30, -1})
+            {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ProtobufOutput.writeRawVarInt32Bytes(out, len);
+                out.write(data, prefixSize, data.length - prefixSize);
+                
+                final MessageIterator<Foo> iterator = iterateChecksummedFrom(
+                        new ByteArrayInputStream(out.toByteArray()), type, 
+                        CodedInput.DEFAULT_SIZE_LIMIT);
+                try
+                {
+                    iterator.nextMessage();
+                    fail("Expected a rejected frame of " + len + " bytes.");
+                }
+                catch(ProtobufException e)
+                {
+                    // expected
+                }
+            }
+        }
+    }
+    
+    public void testMaxFrameSize() throws Exception
+    {
+        final Foo[] foos = new Foo[]{ SerializableObjects.foo };
+        for(int type = 0; type < 3; type++)
+        {
+            final byte[] data = writeChecksummed(foos, type);
+            final int len = data.length - 4 - prefixSize(data);
+            
+            SerializableObjects.assertEquals(foos[0], iterateChecksummedFrom(
+                    new ByteArrayInputStream(data), type, len).nextMessage());
+            
+            try
+            {
+                iterateChecksummedFrom(new ByteArrayInputStream(data), type, 
+                        len - 1).nextMessage();
+                fail("Expected size limit exceeded.");
+            }
+            catch(ProtobufException e)
+            {
+                // expected
+            }
+        }
+        
+        try
+        {
+            iterateChecksummedFrom(new ByteArrayInputStream(new byte[0]), 0, 
+                    Integer.MAX_VALUE);
+            fail("Expected an invalid maxFrameSize.");
+        }
+        catch(IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+    
+    public void testWriterAndIterator() throws Exception
+    {
+        final Foo[] foos = DelimitedWriterTest.foos();
+        // bigger than the reused buffer of the delimited iterator
+        foos[7] = LinkedBufferPoolTest.newLargeFoo(new byte[5000]);
+        
+        for(int type = 0; type < 3; type++)
+        {
+            final byte[] expected = writeChecksummed(foos, type);
+            
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final DelimitedWriter<Foo> writer;
+            final MessageIterator<Foo> iterator;
+            final ByteArrayInputStream in = new ByteArrayInputStream(expected);
+            switch(type)
+            {
+                case 0:
+                    writer = ProtostuffIOUtil.newChecksummedWriter(out, Foo.getSchema(), 
+                            buf(), 1024);
+                    iterator = ProtostuffIOUtil.iterateChecksummedFrom(in, 
+                            Foo.getSchema(), null);
+                    break;
+                case 1:
+                    writer = ProtobufIOUtil.newChecksummedWriter(out, Foo.getSchema(), 
+                            buf(), 1024);
+                    iterator = ProtobufIOUtil.iterateChecksummedFrom(in, 
+                            Foo.getSchema(), null);
+                    break;
+                default:
+                    writer = GraphIOUtil.newChecksummedWriter(out, Foo.getSchema(), 
+                            buf(), 1024);
+                    iterator = GraphIOUtil.iterateChecksummedFrom(in, 
+                            Foo.getSchema(), null);
+            }
+            
+            writer.writeAll(Arrays.asList(foos));
+            writer.flush();
+            assertTrue(Arrays.equals(expected, out.toByteArray()));
+            
+            int i = 0;
+            while(iterator.hasNext())
+                SerializableObjects.assertEquals(foos[i++], iterator.next());
+            
+            assertEquals(foos.length, i);
+        }
+    }
+}
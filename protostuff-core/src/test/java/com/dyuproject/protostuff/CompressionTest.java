@@ -0,0 +1,213 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test for the compressed frames written/read via {@link CompressedOutputStream} and 
+ * {@link CompressedInputStream}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class CompressionTest extends AbstractTest
+{
+    
+    /**
+     * Deflate that counts the frames decompressed.
+     */
+    static final class CountingCodec extends CompressionCodec
+    {
+        int decompressed;
+        
+        CountingCodec()
+        {
+            super(200, "counting-deflate");
+        }
+        
+        public Compressor newCompressor()
+        {
+            return DEFLATE.newCompressor();
+        }
+        
+        public Decompressor newDecompressor()
+        {
+            final Decompressor decompressor = DEFLATE.newDecompressor();
+            return new Decompressor()
+            {
+                public void decompress(byte[] src, int srcOffset, int srcLen, 
+                        byte[] dst, int dstOffset, int dstLen) throws IOException
+                {
+                    decompressed++;
+                    decompressor.decompress(src, srcOffset, srcLen, dst, dstOffset, dstLen);
+                }
+                
+                public void end()
+                {
+                    decompressor.end();
+                }
+            };
+        }
+    }
+    
+    static final CountingCodec COUNTING = new CountingCodec();
+    static
+    {
+        CompressionCodec.register(COUNTING);
+    }
+    
+    static byte[] compressible(int len)
+    {
+        final byte[] data = new byte[len];
+        for(int i = 0; i < len; i++)
+            data[i] = (byte)(i % 10);
+        return data;
+    }
+    
+    static byte[] compress(byte[] data, CompressionCodec codec, int blockSize) 
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutputStream cout = new CompressedOutputStream(out, codec, blockSize);
+        cout.write(data, 0, 1);
+        cout.write(data, 1, data.length - 1);
+        cout.finish();
+        return out.toByteArray();
+    }
+    
+    public void testMessages() throws Exception
+    {
+        final Foo[] foos = new Foo[]{ SerializableObjects.foo, new Foo(), 
+                LinkedBufferPoolTest.newLargeFoo(compressible(5000)) };
+        for(int type = 0; type < 3; type++)
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int totalSize = 0;
+            for(Foo f : foos)
+            {
+                final LinkedBuffer buffer = LinkedBuffer.allocate(256);
+                switch(type)
+                {
+                    case 0:
+                        totalSize += ProtostuffIOUtil.writeCompressedTo(out, f, 
+                                f.cachedSchema(), buffer, CompressionCodec.DEFLATE);
+                        break;
+                    case 1:
+                        totalSize += ProtobufIOUtil.writeCompressedTo(out, f, 
+                                f.cachedSchema(), buffer, CompressionCodec.DEFLATE);
+                        break;
+                    default:
+                        totalSize += GraphIOUtil.writeCompressedTo(out, f, 
+                                f.cachedSchema(), buffer, CompressionCodec.DEFLATE);
+                }
+            }
+            
+            final byte[] data = out.toByteArray();
+            assertTrue(data.length < totalSize);
+            
+            final ByteArrayInputStream in = new ByteArrayInputStream(data);
+            for(Foo f : foos)
+            {
+                final Foo parsed = new Foo();
+                switch(type)
+                {
+                    case 0:
+                        ProtostuffIOUtil.mergeCompressedFrom(in, parsed, f.cachedSchema());
+                        break;
+                    case 1:
+                        ProtobufIOUtil.mergeCompressedFrom(in, parsed, f.cachedSchema());
+                        break;
+                    default:
+                        GraphIOUtil.mergeCompressedFrom(in, parsed, f.cachedSchema());
+                }
+                SerializableObjects.assertEquals(f, parsed);
+            }
+            
+            assertEquals(-1, in.read());
+        }
+    }
+    
+    public void testIncompressible() throws Exception
+    {
+        final byte[] data = new byte[3000];
+        new Random(5).nextBytes(data);
+        
+        final byte[] compressed = compress(data, CompressionCodec.DEFLATE, 1000);
+        // stored as is, with a header per frame
+        assertTrue(compressed.length > data.length);
+        assertEquals(CompressionCodec.NONE_ID, compressed[0]);
+        
+        final byte[] read = new byte[data.length];
+        final CompressedInputStream in = new CompressedInputStream(
+                new ByteArrayInputStream(compressed));
+        IOUtil.fillBufferFrom(in, read, 0, read.length);
+        assertEquals(-1, in.read());
+        assertTrue(in.isEnded());
+        assertTrue(Arrays.equals(data, read));
+    }
+    
+    public void testSkipWithoutDecompressing() throws Exception
+    {
+        final byte[] data = compressible(1000);
+        final byte[] compressed = compress(data, COUNTING, 100);
+        
+        COUNTING.decompressed = 0;
+        final CompressedInputStream in = new CompressedInputStream(
+                new ByteArrayInputStream(compressed));
+        
+        assertEquals(550, in.skip(550));
+        // only the frame partially skipped is decompressed
+        assertEquals(1, COUNTING.decompressed);
+        assertEquals(data[550], in.read());
+        
+        // the rest of the current frame
+        assertEquals(49, in.skipFrame());
+        // whole frames
+        assertEquals(100, in.skipFrame());
+        assertEquals(100, in.skipFrame());
+        assertEquals(1, COUNTING.decompressed);
+        
+        final byte[] rest = new byte[200];
+        IOUtil.fillBufferFrom(in, rest, 0, rest.length);
+        for(int i = 0; i < rest.length; i++)
+            assertEquals(data[800 + i], rest[i]);
+        assertEquals(-1, in.skipFrame());
+        assertEquals(-1, in.read());
+    }
+    
+    public void testCorruptedFrame() throws Exception
+    {
+        final byte[] compressed = compress(compressible(1000), CompressionCodec.DEFLATE, 
+                1000);
+        assertEquals(CompressionCodec.DEFLATE_ID, compressed[0]);
+        compressed[10] ^= 0x55;
+        
+        try
+        {
+            IOUtil.fillBufferFrom(new CompressedInputStream(
+                    new ByteArrayInputStream(compressed)), new byte[1000], 0, 1000);
+            fail("Expected corrupted frame.");
+        }
+        catch(ProtobufException e)
+        {
+            // expected
+        }
+    }
+}
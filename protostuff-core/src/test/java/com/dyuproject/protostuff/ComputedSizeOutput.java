@@ -17,6 +17,7 @@ package com.dyuproject.protostuff;
 import static com.dyuproject.protostuff.StringSerializer.computeUTF8Size;
 
 import java.io.IOException;
+import java.util.IdentityHashMap;
 
 /**
  * Computes the size of the data to be written.
@@ -26,7 +27,7 @@ import java.io.IOException;
  * @author David Yu
  * @created Nov 9, 2009
  */
-public final class ComputedSizeOutput implements Output
+public final class ComputedSizeOutput implements Output, MessageScope
 {
     
     /**
@@ -66,6 +67,12 @@ public final class ComputedSizeOutput implements Output
     private int size = 0;
     private final boolean encodeNestedMessageAsGroup;
     
+    /**
+     * The state kept for the message being sized (lazily created), which matches 
+     * the state of the output that writes the message afterwards.
+     */
+    private IdentityHashMap<Object,Object> scoped;
+    
     public ComputedSizeOutput()
     {
         this(false);
@@ -90,8 +97,28 @@ public final class ComputedSizeOutput implements Output
     ComputedSizeOutput reset()
     {
         size = 0;
+        resetScope();
         return this;
     }
+    
+    public Object getScoped(Object key)
+    {
+        return scoped == null ? null : scoped.get(key);
+    }
+    
+    public void setScoped(Object key, Object value)
+    {
+        if(scoped == null)
+            scoped = new IdentityHashMap<Object,Object>(4);
+        
+        scoped.put(key, value);
+    }
+    
+    public void resetScope()
+    {
+        if(scoped != null)
+            scoped.clear();
+    }
 
     public void writeInt32(int fieldNumber, int value, boolean repeated) throws IOException
     {
@@ -0,0 +1,260 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import static com.dyuproject.protostuff.SerializableObjects.bar;
+import static com.dyuproject.protostuff.SerializableObjects.foo;
+import static com.dyuproject.protostuff.SerializableObjects.negativeBar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Test for decoding delimited messages pushed in arbitrary chunks via 
+ * {@link DelimitedDecoder}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class DelimitedDecoderTest extends AbstractTest
+{
+    
+    static final class Collector<T> implements DelimitedDecoder.Handler<T>
+    {
+        final ArrayList<T> messages = new ArrayList<T>();
+        
+        public void onMessage(T message) throws IOException
+        {
+            messages.add(message);
+        }
+    }
+    
+    static Foo[] foos()
+    {
+        return new Foo[]{ foo, new Foo(), LinkedBufferPoolTest.newLargeFoo(
+                LinkedBufferPoolTest.largeBytes()), foo };
+    }
+    
+    static byte[] writeDelimited(Foo[] foos, boolean protobuf) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for(Foo f : foos)
+        {
+            if(protobuf)
+                ProtobufIOUtil.writeDelimitedTo(out, f, f.cachedSchema(), buf());
+            else
+                ProtostuffIOUtil.writeDelimitedTo(out, f, f.cachedSchema(), buf());
+        }
+        return out.toByteArray();
+    }
+    
+    static DelimitedDecoder<Foo> newDecoder(boolean protobuf, int maxFrameSize, 
+            Collector<Foo> collector)
+    {
+        return protobuf ? 
+                ProtobufIOUtil.newDelimitedDecoder(Foo.getSchema(), maxFrameSize, collector) : 
+                ProtostuffIOUtil.newDelimitedDecoder(Foo.getSchema(), maxFrameSize, collector);
+    }
+    
+    static void verify(Foo[] foos, Collector<Foo> collector)
+    {
+        assertEquals(foos.length, collector.messages.size());
+        for(int i = 0; i < foos.length; i++)
+            SerializableObjects.assertEquals(foos[i], collector.messages.get(i));
+    }
+    
+    public void testSingleChunk() throws Exception
+    {
+        for(boolean protobuf : new boolean[]{false, true})
+        {
+            Foo[] foos = foos();
+            byte[] data = writeDelimited(foos, protobuf);
+            
+            Collector<Foo> collector = new Collector<Foo>();
+            DelimitedDecoder<Foo> decoder = newDecoder(protobuf, data.length, collector);
+            
+            assertEquals(foos.length, decoder.offer(data));
+            assertFalse(decoder.hasPartialFrame());
+            verify(foos, collector);
+        }
+    }
+    
+    public void testByteByByte() throws Exception
+    {
+        for(boolean protobuf : new boolean[]{false, true})
+        {
+            Foo[] foos = foos();
+            byte[] data = writeDelimited(foos, protobuf);
+            
+            Collector<Foo> collector = new Collector<Foo>();
+            DelimitedDecoder<Foo> decoder = newDecoder(protobuf, data.length, collector);
+            
+            int count = 0;
+            for(int i = 0; i < data.length; i++)
+            {
+                count += decoder.offer(data, i, 1);
+                assertEquals(count, collector.messages.size());
+            }
+            
+            assertEquals(foos.length, count);
+            assertFalse(decoder.hasPartialFrame());
+            verify(foos, collector);
+        }
+    }
+    
+    public void testRandomChunks() throws Exception
+    {
+        Random random = new Random(7);
+        for(boolean protobuf : new boolean[]{false, true})
+        {
+            Foo[] foos = foos();
+            byte[] data = writeDelimited(foos, protobuf);
+            
+            for(int run = 0; run < 20; run++)
+            {
+                Collector<Foo> collector = new Collector<Foo>();
+                DelimitedDecoder<Foo> decoder = newDecoder(protobuf, data.length, collector);
+                
+                for(int offset = 0; offset < data.length;)
+                {
+                    int len = Math.min(data.length - offset, 1 + random.nextInt(300));
+                    // copied so that the decoder cannot rely on the previous chunks
+                    byte[] chunk = new byte[len];
+                    System.arraycopy(data, offset, chunk, 0, len);
+                    decoder.offer(chunk);
+                    offset += len;
+                }
+                
+                assertFalse(decoder.hasPartialFrame());
+                verify(foos, collector);
+            }
+        }
+    }
+    
+    public void testDirectByteBuffer() throws Exception
+    {
+        Random random = new Random(11);
+        for(boolean protobuf : new boolean[]{false, true})
+        {
+            Foo[] foos = foos();
+            byte[] data = writeDelimited(foos, protobuf);
+            
+            Collector<Foo> collector = new Collector<Foo>();
+            DelimitedDecoder<Foo> decoder = newDecoder(protobuf, data.length, collector);
+            
+            ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+            bb.put(data).flip();
+            while(bb.hasRemaining())
+            {
+                ByteBuffer chunk = bb.duplicate();
+                chunk.limit(Math.min(bb.limit(), bb.position() + 1 + random.nextInt(500)));
+                decoder.offer(chunk);
+                assertFalse(chunk.hasRemaining());
+                bb.position(chunk.position());
+            }
+            
+            assertFalse(decoder.hasPartialFrame());
+            verify(foos, collector);
+        }
+    }
+    
+    public void testGraph() throws Exception
+    {
+        Bar[] bars = new Bar[]{ bar, negativeBar };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for(Bar b : bars)
+            GraphIOUtil.writeDelimitedTo(out, b, b.cachedSchema(), buf());
+        
+        byte[] data = out.toByteArray();
+        Collector<Bar> collector = new Collector<Bar>();
+        DelimitedDecoder<Bar> decoder = GraphIOUtil.newDelimitedDecoder(
+                bar.cachedSchema(), data.length, collector);
+        
+        for(int i = 0; i < data.length; i++)
+            decoder.offer(data, i, 1);
+        
+        assertEquals(bars.length, collector.messages.size());
+        for(int i = 0; i < bars.length; i++)
+            SerializableObjects.assertEquals(bars[i], collector.messages.get(i));
+    }
+    
+    public void testPartialFrame() throws Exception
+    {
+        byte[] data = writeDelimited(new Foo[]{ foo }, false);
+        
+        Collector<Foo> collector = new Collector<Foo>();
+        DelimitedDecoder<Foo> decoder = newDecoder(false, data.length, collector);
+        
+        assertEquals(0, decoder.offer(data, 0, data.length - 1));
+        assertTrue(decoder.hasPartialFrame());
+        assertTrue(decoder.getBufferedSize() > 0);
+        
+        assertEquals(1, decoder.offer(data, data.length - 1, 1));
+        assertFalse(decoder.hasPartialFrame());
+        assertEquals(0, decoder.getBufferedSize());
+        verify(new Foo[]{ foo }, collector);
+    }
+    
+    public void testFrameSizeLimit() throws Exception
+    {
+        byte[] data = writeDelimited(new Foo[]{ foo }, false);
+        
+        Collector<Foo> collector = new Collector<Foo>();
+        DelimitedDecoder<Foo> decoder = newDecoder(false, 10, collector);
+        
+        try
+        {
+            decoder.offer(data, 0, 2);
+            fail("Expected ProtobufException.");
+        }
+        catch(ProtobufException e)
+        {
+            // expected
+        }
+        
+        assertTrue(collector.messages.isEmpty());
+        
+        try
+        {
+            decoder.offer(data, 2, data.length - 2);
+            fail("Expected IllegalStateException.");
+        }
+        catch(IllegalStateException e)
+        {
+            // expected
+        }
+    }
+    
+    public void testMalformedSize() throws Exception
+    {
+        Collector<Foo> collector = new Collector<Foo>();
+        DelimitedDecoder<Foo> decoder = newDecoder(false, 1024, collector);
+        
+        byte[] data = new byte[]{ -1, -1, -1, -1, -1, 1 };
+        try
+        {
+            decoder.offer(data);
+            fail("Expected ProtobufException.");
+        }
+        catch(ProtobufException e)
+        {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.util.Arrays;
+
+/**
+ * Test for streaming delimited messages via {@link DelimitedWriter}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class DelimitedWriterTest extends AbstractTest
+{
+    
+    /**
+     * Counts the writes to the stream.
+     */
+    static final class CountingOutputStream extends ByteArrayOutputStream
+    {
+        int writes;
+        
+        public void write(byte[] b, int off, int len)
+        {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+    
+    static final class BytesChannel implements GatheringByteChannel
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        public int write(ByteBuffer src)
+        {
+            final int len = src.remaining();
+            final byte[] b = new byte[len];
+            src.get(b);
+            out.write(b, 0, len);
+            return len;
+        }
+        
+        public long write(ByteBuffer[] srcs, int offset, int length)
+        {
+            long total = 0;
+            for(int i = offset; i < offset + length; i++)
+                total += write(srcs[i]);
+            return total;
+        }
+        
+        public long write(ByteBuffer[] srcs)
+        {
+            return write(srcs, 0, srcs.length);
+        }
+        
+        public boolean isOpen()
+        {
+            return true;
+        }
+        
+        public void close()
+        {
+            
+        }
+    }
+    
+    static Foo[] foos()
+    {
+        final Foo[] foos = new Foo[50];
+        for(int i = 0; i < foos.length; i++)
+        {
+            foos[i] = i % 10 == 3 ? LinkedBufferPoolTest.newLargeFoo(
+                    LinkedBufferPoolTest.largeBytes()) : i % 2 == 0 ? 
+                    SerializableObjects.foo : new Foo();
+        }
+        return foos;
+    }
+    
+    static byte[] writeDelimited(Foo[] foos, int type) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for(Foo f : foos)
+        {
+            switch(type)
+            {
+                case 0:
+                    ProtostuffIOUtil.writeDelimitedTo(out, f, f.cachedSchema(), buf());
+                    break;
+                case 1:
+                    ProtobufIOUtil.writeDelimitedTo(out, f, f.cachedSchema(), buf());
+                    break;
+                default:
+                    GraphIOUtil.writeDelimitedTo(out, f, f.cachedSchema(), buf());
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    static DelimitedWriter<Foo> newWriter(int type, CountingOutputStream out, 
+            int flushThreshold)
+    {
+        switch(type)
+        {
+            case 0:
+                return ProtostuffIOUtil.newDelimitedWriter(out, Foo.getSchema(), 
+                        buf(), flushThreshold);
+            case 1:
+                return ProtobufIOUtil.newDelimitedWriter(out, Foo.getSchema(), 
+                        buf(), flushThreshold);
+            default:
+                return GraphIOUtil.newDelimitedWriter(out, Foo.getSchema(), 
+                        buf(), flushThreshold);
+        }
+    }
+    
+    public void testSameBytesAsWriteDelimitedTo() throws Exception
+    {
+        final Foo[] foos = foos();
+        for(int type = 0; type < 3; type++)
+        {
+            final byte[] expected = writeDelimited(foos, type);
+            for(int flushThreshold : new int[]{0, 1, 100, 4096, Integer.MAX_VALUE})
+            {
+                CountingOutputStream out = new CountingOutputStream();
+                DelimitedWriter<Foo> writer = newWriter(type, out, flushThreshold);
+                
+                assertEquals(foos.length, writer.writeAll(Arrays.asList(foos)));
+                writer.flush();
+                
+                assertEquals(0, writer.getBufferedSize());
+                assertEquals(expected.length, writer.getWrittenSize());
+                assertEquals(foos.length, writer.getMessageCount());
+                assertTrue(Arrays.equals(expected, out.toByteArray()));
+            }
+        }
+    }
+    
+    public void testFlushThreshold() throws Exception
+    {
+        final Foo[] foos = foos();
+        final byte[] expected = writeDelimited(foos, 0);
+        
+        CountingOutputStream out = new CountingOutputStream();
+        DelimitedWriter<Foo> writer = newWriter(0, out, 4096);
+        for(Foo f : foos)
+        {
+            writer.write(f);
+            // only flushed after the threshold is reached
+            assertTrue(writer.getBufferedSize() < 4096);
+            assertEquals(writer.getWrittenSize(), out.size());
+        }
+        writer.flush();
+        
+        assertTrue(Arrays.equals(expected, out.toByteArray()));
+        
+        // far fewer writes than one per message
+        CountingOutputStream unbuffered = new CountingOutputStream();
+        DelimitedWriter<Foo> perMessage = newWriter(0, unbuffered, 0);
+        perMessage.writeAll(Arrays.asList(foos));
+        perMessage.flush();
+        
+        assertTrue(out.writes < unbuffered.writes);
+    }
+    
+    public void testReadBack() throws Exception
+    {
+        final Foo[] foos = foos();
+        
+        CountingOutputStream out = new CountingOutputStream();
+        DelimitedWriter<Foo> writer = newWriter(1, out, 1024);
+        writer.writeAll(Arrays.asList(foos));
+        writer.flush();
+        
+        DelimitedDecoderTest.Collector<Foo> collector = 
+                new DelimitedDecoderTest.Collector<Foo>();
+        assertEquals(foos.length, ProtobufIOUtil.newDelimitedDecoder(Foo.getSchema(), 
+                Integer.MAX_VALUE, collector).offer(out.toByteArray()));
+        
+        for(int i = 0; i < foos.length; i++)
+            SerializableObjects.assertEquals(foos[i], collector.messages.get(i));
+    }
+    
+    public void testChannel() throws Exception
+    {
+        final Foo[] foos = foos();
+        final byte[] expected = writeDelimited(foos, 0);
+        
+        BytesChannel channel = new BytesChannel();
+        DelimitedWriter<Foo> writer = ProtostuffIOUtil.newDelimitedWriter(channel, 
+                Foo.getSchema(), buf(), 512);
+        writer.writeAll(Arrays.asList(foos).iterator());
+        writer.flush();
+        
+        assertTrue(Arrays.equals(expected, channel.out.toByteArray()));
+    }
+    
+    public void testNonBlockingChannel() throws Exception
+    {
+        final Pipe pipe = Pipe.open();
+        try
+        {
+            pipe.sink().configureBlocking(false);
+            try
+            {
+                ProtostuffIOUtil.newDelimitedWriter(pipe.sink(), Foo.getSchema(), 
+                        buf(), 512);
+                fail("Expected IllegalBlockingModeException.");
+            }
+            catch(IllegalBlockingModeException e)
+            {
+                // expected
+            }
+            
+            final LinkedBuffer buffer = buf();
+            ProtostuffIOUtil.writeTo(buffer, SerializableObjects.foo, Foo.getSchema());
+            try
+            {
+                LinkedBuffer.writeTo(pipe.sink(), buffer);
+                fail("Expected IllegalBlockingModeException.");
+            }
+            catch(IllegalBlockingModeException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+    
+    public void testIterateDelimitedFrom() throws Exception
+    {
+        final Foo[] foos = foos();
+        // bigger than the reused buffer
+        foos[7] = LinkedBufferPoolTest.newLargeFoo(new byte[5000]);
+        
+        for(int type = 0; type < 3; type++)
+        {
+            final ByteArrayInputStream in = new ByteArrayInputStream(
+                    writeDelimited(foos, type));
+            final MessageIterator<Foo> iterator;
+            switch(type)
+            {
+                case 0:
+                    iterator = ProtostuffIOUtil.iterateDelimitedFrom(in, Foo.getSchema(), 
+                            null);
+                    break;
+                case 1:
+                    iterator = ProtobufIOUtil.iterateListFrom(in, Foo.getSchema(), null);
+                    break;
+                default:
+                    iterator = GraphIOUtil.iterateDelimitedFrom(in, Foo.getSchema(), null);
+            }
+            
+            int i = 0;
+            while(iterator.hasNext())
+                SerializableObjects.assertEquals(foos[i++], iterator.next());
+            
+            assertEquals(foos.length, i);
+            assertEquals(foos.length, iterator.getIndex());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test for the indexed {@link DelimitedWriter} and the {@link IndexedReader}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class IndexedFileTest extends AbstractTest
+{
+    
+    static File writeIndexed(Foo[] foos, int type, boolean checksummed) throws IOException
+    {
+        final File file = File.createTempFile("protostuff-indexed", ".bin");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            final DelimitedWriter<Foo> writer;
+            switch(type)
+            {
+                case 0:
+                    writer = ProtostuffIOUtil.newIndexedWriter(out, Foo.getSchema(), 
+                            buf(), 1024, checksummed);
+                    break;
+                case 1:
+                    writer = ProtobufIOUtil.newIndexedWriter(out, Foo.getSchema(), 
+                            buf(), 1024, checksummed);
+                    break;
+                default:
+                    writer = GraphIOUtil.newIndexedWriter(out, Foo.getSchema(), 
+                            buf(), 1024, checksummed);
+            }
+            
+            writer.writeAll(Arrays.asList(foos));
+            writer.finish();
+            
+            assertEquals(file.length(), writer.getWrittenSize());
+            try
+            {
+                writer.write(new Foo());
+                fail("Expected IllegalStateException.");
+            }
+            catch(IllegalStateException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+    
+    static IndexedReader<Foo> newReader(File file, int type) throws IOException
+    {
+        switch(type)
+        {
+            case 0:
+                return ProtostuffIOUtil.newIndexedReader(file, Foo.getSchema());
+            case 1:
+                return ProtobufIOUtil.newIndexedReader(file, Foo.getSchema());
+            default:
+                return GraphIOUtil.newIndexedReader(file, Foo.getSchema());
+        }
+    }
+    
+    static byte[] readFully(File file) throws IOException
+    {
+        final byte[] data = new byte[(int)file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try
+        {
+            IOUtil.fillBufferFrom(in, data, 0, data.length);
+        }
+        finally
+        {
+            in.close();
+        }
+        return data;
+    }
+    
+    public void testRandomAccess() throws Exception
+    {
+        final Foo[] foos = DelimitedWriterTest.foos();
+        final Random random = new Random(19);
+        for(int type = 0; type < 3; type++)
+        {
+            for(int c = 0; c < 2; c++)
+            {
+                final boolean checksummed = c == 1;
+                final File file = writeIndexed(foos, type, checksummed);
+                
+                // the frames are unchanged, followed by the footer
+                final byte[] frames = checksummed ? 
+                        ChecksummedFrameTest.writeChecksummed(foos, type) : 
+                            DelimitedWriterTest.writeDelimited(foos, type);
+                final byte[] data = readFully(file);
+                assertEquals(frames.length + 4 * foos.length + 20, data.length);
+                for(int i = 0; i < frames.length; i++)
+                    assertEquals(frames[i], data[i]);
+                
+                final IndexedReader<Foo> reader = newReader(file, type);
+                try
+                {
+                    assertEquals(foos.length, reader.size());
+                    assertEquals(0, reader.getOffset(0));
+                    
+                    for(int i = foos.length; i-- > 0;)
+                        SerializableObjects.assertEquals(foos[i], reader.get(i));
+                    
+                    for(int k = 0; k < 100; k++)
+                    {
+                        final int i = random.nextInt(foos.length);
+                        final Foo foo = new Foo();
+                        reader.mergeFrom(i, foo);
+                        SerializableObjects.assertEquals(foos[i], foo);
+                    }
+                    
+                    try
+                    {
+                        reader.get(foos.length);
+                        fail("Expected IndexOutOfBoundsException.");
+                    }
+                    catch(IndexOutOfBoundsException e)
+                    {
+                        // expected
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+        }
+    }
+    
+    public void testEmpty() throws Exception
+    {
+        for(int type = 0; type < 3; type++)
+        {
+            final File file = writeIndexed(new Foo[0], type, false);
+            assertEquals(20, file.length());
+            
+            final IndexedReader<Foo> reader = newReader(file, type);
+            assertEquals(0, reader.size());
+            reader.close();
+        }
+    }
+    
+    public void testNotIndexed() throws Exception
+    {
+        final File file = File.createTempFile("protostuff-delimited", ".bin");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(DelimitedWriterTest.writeDelimited(DelimitedWriterTest.foos(), 0));
+        out.close();
+        
+        try
+        {
+            newReader(file, 0);
+            fail("Expected ProtobufException.");
+        }
+        catch(ProtobufException e)
+        {
+            // expected
+        }
+    }
+}
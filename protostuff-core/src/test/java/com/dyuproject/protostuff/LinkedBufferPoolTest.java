@@ -0,0 +1,224 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dyuproject.protostuff.Foo.EnumSample;
+
+/**
+ * Test for recycling buffers via {@link LinkedBufferPool}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class LinkedBufferPoolTest extends AbstractTest
+{
+    
+    static Foo newLargeFoo(byte[] largeBytes)
+    {
+        Bar[] bars = new Bar[20];
+        for(int i = 0; i < bars.length; i++)
+            bars[i] = i % 2 == 0 ? SerializableObjects.bar : SerializableObjects.negativeBar;
+        
+        return SerializableObjects.newFoo(
+                new Integer[]{90210,-90210, 0}, 
+                new String[]{"ab", "cd"}, 
+                bars,
+                new EnumSample[]{EnumSample.TYPE0, EnumSample.TYPE2}, 
+                new ByteString[]{ByteString.wrap(largeBytes), ByteString.copyFromUtf8("gh")}, 
+                new Boolean[]{true, false}, 
+                new Float[]{1234.4321f, -1234.4321f, 0f}, 
+                new Double[]{12345678.87654321d, -12345678.87654321d, 0d}, 
+                new Long[]{7060504030201l, -7060504030201l, 0l});
+    }
+    
+    static byte[] largeBytes()
+    {
+        byte[] data = new byte[2000];
+        for(int i = 0; i < data.length; i++)
+            data[i] = (byte)i;
+        return data;
+    }
+    
+    public void testThreadLocal() throws Exception
+    {
+        LinkedBufferPool pool = LinkedBufferPool.newThreadLocalPool(512, 1 << 16);
+        
+        byte[] large = largeBytes();
+        Foo foo = newLargeFoo(large);
+        byte[] expected = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        assertTrue(Arrays.equals(expected, 
+                ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), pool)));
+        
+        // the head and at least one appended buffer
+        long misses = pool.getMissCount();
+        assertTrue(misses > 1);
+        assertEquals(0, pool.getHitCount());
+        
+        assertTrue(Arrays.equals(expected, 
+                ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), pool)));
+        
+        // everything recycled
+        assertEquals(misses, pool.getMissCount());
+        assertEquals(misses, pool.getHitCount());
+        
+        // wrapped arrays are never recycled
+        assertTrue(Arrays.equals(largeBytes(), large));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtobufIOUtil.writeDelimitedTo(out, foo, foo.cachedSchema(), pool);
+        ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        ProtobufIOUtil.writeDelimitedTo(expectedOut, foo, foo.cachedSchema(), buf());
+        assertTrue(Arrays.equals(expectedOut.toByteArray(), out.toByteArray()));
+        
+        assertTrue(Arrays.equals(GraphIOUtil.toByteArray(foo, foo.cachedSchema(), buf()), 
+                GraphIOUtil.toByteArray(foo, foo.cachedSchema(), pool)));
+        
+        assertEquals(misses, pool.getMissCount());
+    }
+    
+    public void testRetentionCap() throws Exception
+    {
+        LinkedBufferPool pool = LinkedBufferPool.newThreadLocalPool(512, 512);
+        
+        Foo foo = newLargeFoo(largeBytes());
+        ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), pool);
+        long misses = pool.getMissCount();
+        assertTrue(misses > 1);
+        
+        // only one buffer was retained
+        ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), pool);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(misses * 2 - 1, pool.getMissCount());
+    }
+    
+    public void testSmallerThanNextBufferSize() throws Exception
+    {
+        LinkedBufferPool pool = LinkedBufferPool.newThreadLocalPool(256, 1 << 16);
+        
+        Foo foo = newLargeFoo(largeBytes());
+        byte[] expected = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        assertTrue(Arrays.equals(expected, 
+                ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), pool)));
+        assertTrue(Arrays.equals(expected, 
+                ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), pool)));
+        
+        // only the head is recycled
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+    }
+    
+    public void testNoRetention() throws Exception
+    {
+        LinkedBufferPool pool = LinkedBufferPool.newStripedPool(256, 4, 0);
+        
+        LinkedBuffer buffer = pool.acquire();
+        pool.release(buffer);
+        pool.acquire();
+        
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+    
+    public void testNoStats() throws Exception
+    {
+        LinkedBufferPool pool = LinkedBufferPool.newStripedPool(256, 4, 1 << 16, 
+                false);
+        
+        LinkedBuffer buffer = pool.acquire();
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire());
+        
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+    
+    public void testClearReleasesAppendedBuffers() throws Exception
+    {
+        LinkedBufferPool pool = LinkedBufferPool.newThreadLocalPool(512, 1 << 16);
+        
+        Foo foo = newLargeFoo(largeBytes());
+        byte[] expected = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        
+        LinkedBuffer head = pool.acquire();
+        ProtostuffOutput output = new ProtostuffOutput(head);
+        foo.cachedSchema().writeTo(output, foo);
+        assertTrue(Arrays.equals(expected, output.toByteArray()));
+        
+        // the head and at least one appended buffer
+        long misses = pool.getMissCount();
+        assertTrue(misses > 1);
+        assertEquals(0, pool.getHitCount());
+        
+        // the appended buffers are recycled on the next write
+        output.clear();
+        foo.cachedSchema().writeTo(output, foo);
+        assertTrue(Arrays.equals(expected, output.toByteArray()));
+        
+        assertEquals(misses, pool.getMissCount());
+        assertEquals(misses - 1, pool.getHitCount());
+        
+        output.clear();
+        pool.release(head);
+    }
+    
+    public void testStriped() throws Exception
+    {
+        final LinkedBufferPool pool = LinkedBufferPool.newStripedPool(512, 2, 1 << 16);
+        final Foo foo = newLargeFoo(largeBytes());
+        final byte[] expected = ProtostuffIOUtil.toByteArray(foo, foo.cachedSchema(), buf());
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for(int j = 0; j < 200; j++)
+                        {
+                            if(!Arrays.equals(expected, ProtostuffIOUtil.toByteArray(
+                                    foo, foo.cachedSchema(), pool)))
+                            {
+                                throw new IllegalStateException("Corrupt output.");
+                            }
+                        }
+                    }
+                    catch(Throwable e)
+                    {
+                        error.set(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        
+        for(Thread t : threads)
+            t.join();
+        
+        assertNull(error.get());
+        assertTrue(pool.getHitCount() > pool.getMissCount());
+    }
+
+}
@@ -0,0 +1,330 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for writing repeated scalar fields packed and reading them back in 
+ * both packed and unpacked forms.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class PackedFieldTest extends AbstractTest
+{
+    
+    static final class Numbers
+    {
+        List<Integer> int32;
+        List<Integer> sint32;
+        List<Long> int64;
+        List<Long> fixed64;
+        List<Float> floats;
+        List<Double> doubles;
+        List<Boolean> bools;
+        int id;
+    }
+    
+    static class NumbersSchema implements Schema<Numbers>
+    {
+        final boolean packed;
+        
+        NumbersSchema(boolean packed)
+        {
+            this.packed = packed;
+        }
+
+        public String getFieldName(int number)
+        {
+            return Integer.toString(number);
+        }
+
+        public int getFieldNumber(String name)
+        {
+            return Integer.parseInt(name);
+        }
+
+        public boolean isInitialized(Numbers message)
+        {
+            return true;
+        }
+
+        public Numbers newMessage()
+        {
+            return new Numbers();
+        }
+
+        public String messageName()
+        {
+            return Numbers.class.getSimpleName();
+        }
+
+        public String messageFullName()
+        {
+            return Numbers.class.getName();
+        }
+
+        public Class<? super Numbers> typeClass()
+        {
+            return Numbers.class;
+        }
+
+        public void mergeFrom(Input input, Numbers message) throws IOException
+        {
+            for(int number = input.readFieldNumber(this);; 
+                    number = input.readFieldNumber(this))
+            {
+                switch(number)
+                {
+                    case 0:
+                        return;
+                    case 1:
+                        if(message.int32 == null)
+                            message.int32 = new ArrayList<Integer>();
+                        message.int32.add(input.readInt32());
+                        break;
+                    case 2:
+                        if(message.sint32 == null)
+                            message.sint32 = new ArrayList<Integer>();
+                        message.sint32.add(input.readSInt32());
+                        break;
+                    case 3:
+                        if(message.int64 == null)
+                            message.int64 = new ArrayList<Long>();
+                        message.int64.add(input.readInt64());
+                        break;
+                    case 4:
+                        if(message.fixed64 == null)
+                            message.fixed64 = new ArrayList<Long>();
+                        message.fixed64.add(input.readFixed64());
+                        break;
+                    case 5:
+                        if(message.floats == null)
+                            message.floats = new ArrayList<Float>();
+                        message.floats.add(input.readFloat());
+                        break;
+                    case 6:
+                        if(message.doubles == null)
+                            message.doubles = new ArrayList<Double>();
+                        message.doubles.add(input.readDouble());
+                        break;
+                    case 7:
+                        if(message.bools == null)
+                            message.bools = new ArrayList<Boolean>();
+                        message.bools.add(input.readBool());
+                        break;
+                    case 8:
+                        message.id = input.readInt32();
+                        break;
+                    default:
+                        input.handleUnknownField(number, this);
+                }
+            }
+        }
+
+        public void writeTo(Output output, Numbers message) throws IOException
+        {
+            if(packed)
+            {
+                PackedFieldUtil.writeInt32(output, 1, message.int32);
+                PackedFieldUtil.writeSInt32(output, 2, message.sint32);
+                PackedFieldUtil.writeInt64(output, 3, message.int64);
+                PackedFieldUtil.writeFixed64(output, 4, message.fixed64);
+                PackedFieldUtil.writeFloat(output, 5, message.floats);
+                PackedFieldUtil.writeDouble(output, 6, message.doubles);
+                PackedFieldUtil.writeBool(output, 7, message.bools);
+            }
+            else
+            {
+                for(Integer v : message.int32)
+                    output.writeInt32(1, v, true);
+                for(Integer v : message.sint32)
+                    output.writeSInt32(2, v, true);
+                for(Long v : message.int64)
+                    output.writeInt64(3, v, true);
+                for(Long v : message.fixed64)
+                    output.writeFixed64(4, v, true);
+                for(Float v : message.floats)
+                    output.writeFloat(5, v, true);
+                for(Double v : message.doubles)
+                    output.writeDouble(6, v, true);
+                for(Boolean v : message.bools)
+                    output.writeBool(7, v, true);
+            }
+            
+            output.writeInt32(8, message.id, false);
+        }
+    }
+    
+    static final NumbersSchema PACKED = new NumbersSchema(true), 
+            UNPACKED = new NumbersSchema(false);
+    
+    static Numbers filledNumbers()
+    {
+        Numbers n = new Numbers();
+        n.int32 = Arrays.asList(0, 1, -1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        n.sint32 = Arrays.asList(0, 1, -1, -300, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        n.int64 = Arrays.asList(0L, 1L, -1L, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE);
+        n.fixed64 = Arrays.asList(0L, -1L, Long.MAX_VALUE);
+        n.floats = Arrays.asList(0f, 1.5f, -3.25f, Float.MAX_VALUE);
+        n.doubles = Arrays.asList(0d, 1.5d, -3.25d, Double.MIN_VALUE);
+        n.bools = Arrays.asList(true, false, true, true);
+        n.id = 12345;
+        return n;
+    }
+    
+    static void assertEquivalent(Numbers expected, Numbers actual)
+    {
+        assertEquals(expected.int32, actual.int32);
+        assertEquals(expected.sint32, actual.sint32);
+        assertEquals(expected.int64, actual.int64);
+        assertEquals(expected.fixed64, actual.fixed64);
+        assertEquals(expected.floats, actual.floats);
+        assertEquals(expected.doubles, actual.doubles);
+        assertEquals(expected.bools, actual.bools);
+        assertEquals(expected.id, actual.id);
+    }
+    
+    public void testProtobuf() throws IOException
+    {
+        Numbers n = filledNumbers();
+        
+        byte[] packed = ProtobufIOUtil.toByteArray(n, PACKED, buf());
+        byte[] unpacked = ProtobufIOUtil.toByteArray(n, UNPACKED, buf());
+        assertTrue(packed.length < unpacked.length);
+        
+        for(byte[] data : new byte[][]{packed, unpacked})
+        {
+            Numbers fromBytes = new Numbers();
+            ProtobufIOUtil.mergeFrom(data, fromBytes, PACKED);
+            assertEquivalent(n, fromBytes);
+            
+            Numbers fromStream = new Numbers();
+            ProtobufIOUtil.mergeFrom(new ByteArrayInputStream(data), fromStream, 
+                    PACKED);
+            assertEquivalent(n, fromStream);
+        }
+    }
+    
+    public void testProtostuff() throws IOException
+    {
+        Numbers n = filledNumbers();
+        
+        byte[] packed = ProtostuffIOUtil.toByteArray(n, PACKED, buf());
+        byte[] unpacked = ProtostuffIOUtil.toByteArray(n, UNPACKED, buf());
+        assertTrue(packed.length < unpacked.length);
+        
+        for(byte[] data : new byte[][]{packed, unpacked})
+        {
+            Numbers fromBytes = new Numbers();
+            ProtostuffIOUtil.mergeFrom(data, fromBytes, PACKED);
+            assertEquivalent(n, fromBytes);
+            
+            Numbers fromStream = new Numbers();
+            ProtostuffIOUtil.mergeFrom(new ByteArrayInputStream(data), fromStream, 
+                    PACKED);
+            assertEquivalent(n, fromStream);
+        }
+    }
+    
+    public void testGraph() throws IOException
+    {
+        Numbers n = filledNumbers();
+        
+        byte[] packed = GraphIOUtil.toByteArray(n, PACKED, buf());
+        byte[] unpacked = GraphIOUtil.toByteArray(n, UNPACKED, buf());
+        assertTrue(packed.length < unpacked.length);
+        
+        for(byte[] data : new byte[][]{packed, unpacked})
+        {
+            Numbers fromBytes = new Numbers();
+            GraphIOUtil.mergeFrom(data, fromBytes, PACKED);
+            assertEquivalent(n, fromBytes);
+            
+            Numbers fromStream = new Numbers();
+            GraphIOUtil.mergeFrom(new ByteArrayInputStream(data), fromStream, 
+                    PACKED);
+            assertEquivalent(n, fromStream);
+        }
+    }
+    
+    public void testProtostuffStreamed() throws IOException
+    {
+        Numbers n = filledNumbers();
+        
+        byte[] expected = ProtostuffIOUtil.toByteArray(n, PACKED, buf());
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtostuffIOUtil.writeTo(out, n, PACKED, buf());
+        assertTrue(Arrays.equals(expected, out.toByteArray()));
+    }
+    
+    public void testEmptyAndNullElements() throws IOException
+    {
+        Numbers n = filledNumbers();
+        n.int32 = new ArrayList<Integer>();
+        n.bools = Arrays.asList(null, true, null);
+        
+        byte[] data = ProtobufIOUtil.toByteArray(n, PACKED, buf());
+        
+        Numbers parsed = new Numbers();
+        ProtobufIOUtil.mergeFrom(data, parsed, PACKED);
+        
+        assertNull(parsed.int32);
+        assertEquals(Arrays.asList(true), parsed.bools);
+        assertEquals(n.doubles, parsed.doubles);
+        assertEquals(n.id, parsed.id);
+    }
+    
+    public void testUnknownPackedFieldIsSkipped() throws IOException
+    {
+        Numbers n = filledNumbers();
+        byte[] data = ProtobufIOUtil.toByteArray(n, PACKED, buf());
+        
+        // only reads the trailing id, everything else is unknown
+        Schema<Numbers> idOnly = new NumbersSchema(true)
+        {
+            public void mergeFrom(Input input, Numbers message) throws IOException
+            {
+                for(int number = input.readFieldNumber(this);; 
+                        number = input.readFieldNumber(this))
+                {
+                    if(number == 0)
+                        return;
+                    if(number == 8)
+                        message.id = input.readInt32();
+                    else
+                        input.handleUnknownField(number, this);
+                }
+            }
+        };
+        
+        Numbers parsed = new Numbers();
+        ProtobufIOUtil.mergeFrom(data, parsed, idOnly);
+        assertEquals(n.id, parsed.id);
+        
+        parsed = new Numbers();
+        ProtobufIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, idOnly);
+        assertEquals(n.id, parsed.id);
+    }
+
+}
@@ -0,0 +1,110 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test for writing protobuf messages whose nested message sizes are computed 
+ * beforehand by {@link ProtobufSizeOutput}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class ProtobufComputedSizeTest extends StandardTest
+{
+    
+    final ProtobufSizeOutput sizeOutput = new ProtobufSizeOutput(1);
+
+    protected <T> void mergeFrom(byte[] data, int offset, int length, T message, Schema<T> schema)
+            throws IOException
+    {
+        ProtobufIOUtil.mergeFrom(data, offset, length, message, schema);
+    }
+    
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        final byte[] data = ProtobufIOUtil.toByteArray(message, schema, sizeOutput);
+        
+        // same as the default (shifting) path
+        assertTrue(Arrays.equals(ProtobufIOUtil.toByteArray(message, schema, buf()), data));
+        
+        final LinkedBuffer buffer = buf();
+        assertEquals(data.length, 
+                ProtobufIOUtil.writeTo(buffer, message, schema, sizeOutput));
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            LinkedBuffer.writeTo(out, buffer);
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+        
+        return data;
+    }
+    
+    public void testNestedSizes() throws Exception
+    {
+        Foo foo = SerializableObjects.foo;
+        int size = sizeOutput.compute(foo, foo.cachedSchema());
+        
+        assertEquals(ProtobufIOUtil.toByteArray(foo, foo.cachedSchema(), buf()).length, size);
+        // the bars and their nested baz
+        assertTrue(sizeOutput.getNestedCount() > 2);
+        
+        // re-use
+        assertEquals(size, sizeOutput.compute(foo, foo.cachedSchema()));
+    }
+    
+    public void testFallbackWithoutSizes() throws Exception
+    {
+        Foo foo = SerializableObjects.foo;
+        ProtobufSizeOutput empty = new ProtobufSizeOutput();
+        
+        // nothing computed, the nested messages are written the default way
+        ProtobufOutput output = new ProtobufOutput(buf(), empty);
+        foo.cachedSchema().writeTo(output, foo);
+        
+        assertTrue(Arrays.equals(ProtobufIOUtil.toByteArray(foo, foo.cachedSchema(), buf()), 
+                output.toByteArray()));
+    }
+    
+    public void testSizeMismatch() throws Exception
+    {
+        Bar bar = new Bar();
+        bar.setSomeBaz(new Baz(1, "baz", 2L));
+        
+        sizeOutput.compute(bar, bar.cachedSchema());
+        bar.getSomeBaz().setName("longer baz");
+        
+        try
+        {
+            bar.cachedSchema().writeTo(new ProtobufOutput(buf(), sizeOutput), bar);
+            fail("Expected ProtobufException.");
+        }
+        catch(ProtobufException e)
+        {
+            // expected
+        }
+    }
+
+}
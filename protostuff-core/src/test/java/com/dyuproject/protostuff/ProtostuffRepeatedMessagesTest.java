@@ -14,10 +14,21 @@
 
 package com.dyuproject.protostuff;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Testcase for ser/deser of multiple messages using protostuff
@@ -32,11 +43,282 @@ public class ProtostuffRepeatedMessagesTest extends RepeatedMessagesTest
     {
         return ProtostuffIOUtil.parseListFrom(in, schema);
     }
+    
+    protected <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse) throws IOException
+    {
+        return ProtostuffIOUtil.iterateListFrom(in, schema, reuse);
+    }
 
     protected <T> void writeListTo(OutputStream out, List<T> messages, Schema<T> schema)
             throws IOException
     {
         ProtostuffIOUtil.writeListTo(out, messages, schema, buf());
     }
+    
+    public void testParallelWriteListTo() throws Exception
+    {
+        final LinkedBufferPool pool = LinkedBufferPool.newStripedPool(512, 4, 64 * 1024);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            for(int size : new int[]{0, 1, 7, 50, 301})
+            {
+                final ArrayList<Foo> foos = new ArrayList<Foo>(size);
+                for(int i = 0; i < size; i++)
+                {
+                    foos.add(i % 10 == 3 ? LinkedBufferPoolTest.newLargeFoo(
+                            LinkedBufferPoolTest.largeBytes()) : i % 2 == 0 ? 
+                            SerializableObjects.foo : new Foo());
+                }
+                
+                final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                final int expectedSize = ProtostuffIOUtil.writeListTo(expected, foos, 
+                        Foo.getSchema(), buf());
+                
+                for(int chunkSize : new int[]{1, 3, 64, 1000})
+                {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    assertEquals(expectedSize, ProtostuffIOUtil.writeListTo(out, foos, 
+                            Foo.getSchema(), pool, executor, chunkSize));
+                    
+                    final byte[] data = out.toByteArray();
+                    assertTrue(Arrays.equals(expected.toByteArray(), data));
+                    
+                    final List<Foo> parsed = ProtostuffIOUtil.parseListFrom(
+                            new ByteArrayInputStream(data), Foo.getSchema());
+                    assertEquals(foos.size(), parsed.size());
+                    for(int i = 0; i < size; i++)
+                        SerializableObjects.assertEquals(foos.get(i), parsed.get(i));
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+    
+    public void testParallelWriteListToFailure() throws Exception
+    {
+        final LinkedBufferPool pool = LinkedBufferPool.newStripedPool(512, 4, 64 * 1024);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            final ArrayList<Foo> foos = new ArrayList<Foo>();
+            for(int i = 0; i < 20; i++)
+                foos.add(SerializableObjects.foo);
+            
+            // the chunk containing the null fails
+            foos.set(13, null);
+            try
+            {
+                ProtostuffIOUtil.writeListTo(new ByteArrayOutputStream(), foos, 
+                        Foo.getSchema(), pool, executor, 4);
+                fail("Expected NullPointerException.");
+            }
+            catch(NullPointerException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+    
+    public void testParallelWriteListToRejected() throws Exception
+    {
+        final CountingPool pool = new CountingPool();
+        final Executor executor = new Executor()
+        {
+            int count;
+            public void execute(Runnable command)
+            {
+                if(count++ == 2)
+                    throw new RejectedExecutionException();
+                
+                command.run();
+            }
+        };
+        
+        final ArrayList<Foo> foos = new ArrayList<Foo>();
+        for(int i = 0; i < 20; i++)
+            foos.add(SerializableObjects.foo);
+        
+        try
+        {
+            ProtostuffIOUtil.writeListTo(new ByteArrayOutputStream(), foos, 
+                    Foo.getSchema(), pool, executor, 4);
+            fail("Expected RejectedExecutionException.");
+        }
+        catch(RejectedExecutionException e)
+        {
+            // expected
+        }
+        
+        // the chunks submitted before the rejection
+        assertTrue(pool.getMissCount() != 0);
+        assertEquals(0, pool.outstanding());
+    }
+    
+    public void testParallelWriteListToAbandonsRunningChunk() throws Exception
+    {
+        final CountingPool pool = new CountingPool();
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        final CountDownLatch started = new CountDownLatch(1), 
+                proceed = new CountDownLatch(1);
+        final Foo blocker = new Foo();
+        final Schema<Foo> schema = new BlockingSchema(Foo.getSchema(), blocker, 
+                started, proceed);
+        
+        final ArrayList<Foo> foos = new ArrayList<Foo>();
+        for(int i = 0; i < 8; i++)
+            foos.add(SerializableObjects.foo);
+        
+        // fails on the calling thread while the second chunk is running
+        foos.set(0, null);
+        foos.set(4, blocker);
+        try
+        {
+            try
+            {
+                ProtostuffIOUtil.writeListTo(new ByteArrayOutputStream(), foos, 
+                        schema, pool, executor, 4);
+                fail("Expected NullPointerException.");
+            }
+            catch(NullPointerException e)
+            {
+                // expected
+            }
+            
+            assertEquals(1, pool.outstanding());
+        }
+        finally
+        {
+            proceed.countDown();
+            executor.shutdown();
+        }
+        
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, pool.outstanding());
+    }
+    
+    /**
+     * Allocates every buffer and counts the ones released.
+     */
+    static final class CountingPool extends LinkedBufferPool
+    {
+        final AtomicInteger released = new AtomicInteger();
+        
+        CountingPool()
+        {
+            super(512, 0);
+        }
+        
+        int outstanding()
+        {
+            return (int)getMissCount() - released.get();
+        }
+        
+        LinkedBuffer poll()
+        {
+            return null;
+        }
+        
+        void recycle(LinkedBuffer head)
+        {
+            for(; head != null; head = head.next)
+            {
+                if(head.pool == this)
+                    released.incrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Blocks on the {@code blocker} message until allowed to proceed, and fails 
+     * on a null message once the blocker was reached.
+     */
+    static final class BlockingSchema implements Schema<Foo>
+    {
+        final Schema<Foo> schema;
+        final Foo blocker;
+        final CountDownLatch started, proceed;
+        
+        BlockingSchema(Schema<Foo> schema, Foo blocker, CountDownLatch started, 
+                CountDownLatch proceed)
+        {
+            this.schema = schema;
+            this.blocker = blocker;
+            this.started = started;
+            this.proceed = proceed;
+        }
+        
+        public String getFieldName(int number)
+        {
+            return schema.getFieldName(number);
+        }
+        
+        public int getFieldNumber(String name)
+        {
+            return schema.getFieldNumber(name);
+        }
+        
+        public boolean isInitialized(Foo message)
+        {
+            return schema.isInitialized(message);
+        }
+        
+        public Foo newMessage()
+        {
+            return schema.newMessage();
+        }
+        
+        public String messageName()
+        {
+            return schema.messageName();
+        }
+        
+        public String messageFullName()
+        {
+            return schema.messageFullName();
+        }
+        
+        public Class<? super Foo> typeClass()
+        {
+            return schema.typeClass();
+        }
+        
+        public void mergeFrom(Input input, Foo message) throws IOException
+        {
+            schema.mergeFrom(input, message);
+        }
+        
+        public void writeTo(Output output, Foo message) throws IOException
+        {
+            try
+            {
+                if(message == null)
+                {
+                    started.await();
+                    throw new NullPointerException();
+                }
+                
+                if(message == blocker)
+                {
+                    started.countDown();
+                    proceed.await();
+                }
+            }
+            catch(InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+            
+            schema.writeTo(output, message);
+        }
+    }
 
 }
@@ -37,6 +37,15 @@ public abstract class RepeatedMessagesTest extends AbstractTest
     protected abstract <T> List<T> parseListFrom(InputStream in, Schema<T> schema)
     throws IOException;
     
+    /**
+     * Returns null if the format has no lazy (iterator) variant.
+     */
+    protected <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse) throws IOException
+    {
+        return null;
+    }
+    
     public void testBar() throws Exception
     {
         ArrayList<Bar> bars = new ArrayList<Bar>();
@@ -219,4 +228,65 @@ public abstract class RepeatedMessagesTest extends AbstractTest
             SerializableObjects.assertEquals(foos.get(i++), f);
     }
 
+    public void testIterateListFrom() throws Exception
+    {
+        ArrayList<Foo> foos = new ArrayList<Foo>();
+        foos.add(SerializableObjects.foo);
+        foos.add(new Foo());
+        foos.add(SerializableObjects.foo);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeListTo(out, foos, SerializableObjects.foo.cachedSchema());
+        byte[] data = out.toByteArray();
+        
+        MessageIterator<Foo> iterator = iterateListFrom(new ByteArrayInputStream(data), 
+                SerializableObjects.foo.cachedSchema(), null);
+        if(iterator == null)
+            return;
+        
+        int i = 0;
+        while(iterator.hasNext())
+            SerializableObjects.assertEquals(foos.get(i++), iterator.next());
+        
+        assertTrue(i == foos.size());
+        assertFalse(iterator.hasNext());
+    }
+    
+    public void testVisitListFromWithReuse() throws Exception
+    {
+        final ArrayList<Bar> bars = new ArrayList<Bar>();
+        bars.add(SerializableObjects.bar);
+        bars.add(SerializableObjects.bar);
+        bars.add(SerializableObjects.bar);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeListTo(out, bars, SerializableObjects.bar.cachedSchema());
+        byte[] data = out.toByteArray();
+        
+        final Bar reuse = new Bar();
+        MessageIterator<Bar> iterator = iterateListFrom(new ByteArrayInputStream(data), 
+                SerializableObjects.bar.cachedSchema(), reuse);
+        if(iterator == null)
+            return;
+        
+        final int[] visited = new int[1];
+        int count = iterator.visit(new MessageIterator.Visitor<Bar>()
+        {
+            public boolean visit(Bar message, int index) throws IOException
+            {
+                assertTrue(message == reuse);
+                assertTrue(index == visited[0]++);
+                SerializableObjects.assertEquals(bars.get(index), message);
+                // stop after the 2nd
+                return index == 0;
+            }
+        });
+        
+        assertTrue(count == 2);
+        assertTrue(iterator.hasNext());
+        
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+    
 }
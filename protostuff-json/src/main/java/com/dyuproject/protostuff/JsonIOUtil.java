@@ -667,4 +667,127 @@ public final class JsonIOUtil
         }
         return list;
     }
+    
+    /**
+     * Lazily reads the {@code messages} from the stream using the given {@code schema}, 
+     * one at a time, instead of parsing them all into a list.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).  The parser is closed once the last message 
+     * is read, or when the iterator is closed.
+     */
+    public static <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            boolean numeric, T reuse) throws IOException
+    {
+        final IOContext context = new IOContext(DEFAULT_JSON_FACTORY._getBufferRecycler(), 
+                in, false);
+        final JsonParser parser = newJsonParser(in, context.allocReadIOBuffer(), 0, 0, 
+                true, context);
+        return newListIterator(parser, schema, numeric, reuse, true);
+    }
+    
+    /**
+     * Lazily reads the {@code messages} from the parser using the given {@code schema}, 
+     * one at a time, instead of parsing them all into a list.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).  The parser is not closed.
+     */
+    public static <T> MessageIterator<T> iterateListFrom(JsonParser parser, 
+            Schema<T> schema, boolean numeric, T reuse)
+    {
+        return newListIterator(parser, schema, numeric, reuse, false);
+    }
+    
+    /**
+     * Passes the {@code messages} from the stream to the {@code visitor}, one at a time, 
+     * until the visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitListFrom(InputStream in, Schema<T> schema, 
+            boolean numeric, T reuse, MessageIterator.Visitor<? super T> visitor) 
+            throws IOException
+    {
+        final MessageIterator<T> iterator = iterateListFrom(in, schema, numeric, reuse);
+        try
+        {
+            return iterator.visit(visitor);
+        }
+        finally
+        {
+            iterator.close();
+        }
+    }
+    
+    /**
+     * Passes the {@code messages} from the parser to the {@code visitor}, one at a time, 
+     * until the visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitListFrom(JsonParser parser, Schema<T> schema, 
+            boolean numeric, T reuse, MessageIterator.Visitor<? super T> visitor) 
+            throws IOException
+    {
+        return newListIterator(parser, schema, numeric, reuse, false).visit(visitor);
+    }
+    
+    static <T> MessageIterator<T> newListIterator(final JsonParser parser, 
+            final Schema<T> schema, final boolean numeric, final T reuse, 
+            final boolean closeParser)
+    {
+        return new MessageIterator<T>(schema, reuse)
+        {
+            final JsonInput input = new JsonInput(parser, numeric);
+            boolean started;
+            
+            protected boolean advance() throws IOException
+            {
+                if(!started)
+                {
+                    started = true;
+                    if(parser.nextToken() != JsonToken.START_ARRAY)
+                    {
+                        throw new JsonInputException("Expected token: [ but was " + 
+                                parser.getCurrentToken() + " on message: " + 
+                                schema.messageFullName());
+                    }
+                }
+                
+                final JsonToken t = parser.nextToken();
+                if(t == JsonToken.END_ARRAY)
+                    return false;
+                
+                if(t != JsonToken.START_OBJECT)
+                {
+                    throw new JsonInputException("Expected token: { but was " + 
+                            parser.getCurrentToken() + " on message " + 
+                            schema.messageFullName());
+                }
+                
+                return true;
+            }
+            
+            protected void merge(T message) throws IOException
+            {
+                schema.mergeFrom(input, message);
+                
+                if(parser.getCurrentToken() != JsonToken.END_OBJECT)
+                {
+                    throw new JsonInputException("Expected token: } but was " + 
+                            parser.getCurrentToken() + " on message " + 
+                            schema.messageFullName());
+                }
+                
+                input.reset();
+            }
+            
+            protected void release() throws IOException
+            {
+                if(closeParser)
+                    parser.close();
+            }
+        };
+    }
 }
@@ -16,6 +16,7 @@ package com.dyuproject.protostuff;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -125,6 +126,19 @@ public final class JsonXIOUtil
         LinkedBuffer.writeTo(out, buffer);
     }
     
+    /**
+     * Serializes the {@code message} into a {@link ByteBuffer} (heap or direct) 
+     * via {@link JsonXOutput} using the given {@code schema}.
+     * 
+     * @throws java.nio.BufferOverflowException if the message does not fit 
+     * in the remaining bytes of {@code out}.
+     */
+    public static <T> void writeTo(ByteBuffer out, T message, Schema<T> schema, boolean numeric, 
+            LinkedBuffer buffer) throws IOException
+    {
+        writeTo(new ByteBufferOutputStream(out), message, schema, numeric, buffer);
+    }
+    
     /**
      * Serializes the {@code messages} into the {@link LinkedBuffer} using the given schema.
      */
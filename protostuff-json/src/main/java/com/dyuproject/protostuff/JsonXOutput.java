@@ -16,6 +16,7 @@ package com.dyuproject.protostuff;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * An optimized json output which is efficient in writing numeric keys and 
@@ -102,6 +103,14 @@ public final class JsonXOutput extends WriteSession implements Output, StatefulO
         this.schema = schema;
     }
     
+    public JsonXOutput(LinkedBuffer head, ByteBuffer out, boolean numeric, 
+            Schema<?> schema)
+    {
+        super(head, out);
+        this.numeric = numeric;
+        this.schema = schema;
+    }
+    
     /**
      * Resets this output for re-use.
      */
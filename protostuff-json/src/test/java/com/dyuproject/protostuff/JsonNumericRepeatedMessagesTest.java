@@ -32,6 +32,12 @@ public class JsonNumericRepeatedMessagesTest extends RepeatedMessagesTest
     {
         return JsonIOUtil.parseListFrom(in, schema, true);
     }
+    
+    protected <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse) throws IOException
+    {
+        return JsonIOUtil.iterateListFrom(in, schema, true, reuse);
+    }
 
     protected <T> void writeListTo(OutputStream out, List<T> messages, Schema<T> schema) 
     throws IOException
@@ -162,6 +162,16 @@ public abstract class Field<T> extends AnnotationContainer implements Comparable
     {
         return packable;
     }
+    
+    /**
+     * Returns true if this is a repeated scalar field with the option 
+     * {@code [packed=true]}.
+     */
+    public boolean isPacked()
+    {
+        return packable && isRepeated() && 
+                Boolean.TRUE.equals(extraOptions.get("packed"));
+    }
 
     /**
      * @return the defaultValue
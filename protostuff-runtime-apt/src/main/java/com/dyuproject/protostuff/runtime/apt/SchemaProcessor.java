@@ -0,0 +1,641 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import com.dyuproject.protostuff.Dedup;
+import com.dyuproject.protostuff.Tag;
+
+/**
+ * Generates the schema factory ({@code GeneratedSchemas.Factory}) of every class 
+ * that has {@link Tag}-annotated fields, which the runtime then uses instead of 
+ * reflecting over the class on its first use.
+ * 
+ * The fields are numbered exactly like {@code RuntimeSchema.createFrom} does.  
+ * The scalar/string/bytes fields that are accessible from the class' package are 
+ * read and written directly; the other fields (collections, maps, enums, pojos, 
+ * private/final fields, etc) are created by the runtime field factories, so the 
+ * generated schema is wire-identical to the runtime one.
+ * 
+ * The classes that cannot be instantiated by the generated code (non-static inner, 
+ * private or generic classes) are skipped and left to the runtime.
+ * 
+ * The processor is discovered by javac when this jar is on the compile classpath.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+@SupportedAnnotationTypes("com.dyuproject.protostuff.Tag")
+public final class SchemaProcessor extends AbstractProcessor
+{
+    
+    /**
+     * Must match {@code GeneratedSchemas.SUFFIX}.
+     */
+    static final String SUFFIX = "$$Schema";
+    
+    static final String RUNTIME_PACKAGE = "com.dyuproject.protostuff.runtime";
+    
+    /**
+     * The field types that are read and written directly.
+     */
+    enum Scalar
+    {
+        BOOL("BOOL", "Bool", "booleanValue", ""), 
+        BYTE("UINT32", "UInt32", "byteValue", "(byte)"), 
+        CHAR("UINT32", "UInt32", "charValue", "(char)"), 
+        SHORT("UINT32", "UInt32", "shortValue", "(short)"), 
+        INT32("INT32", "Int32", "intValue", ""), 
+        INT64("INT64", "Int64", "longValue", ""), 
+        FLOAT("FLOAT", "Float", "floatValue", ""), 
+        DOUBLE("DOUBLE", "Double", "doubleValue", ""), 
+        STRING("STRING", "String", null, null), 
+        BYTES("BYTES", "Bytes", null, null), 
+        BYTE_ARRAY("BYTES", "ByteArray", null, null);
+        
+        final String fieldType, method, unbox, cast;
+        
+        private Scalar(String fieldType, String method, String unbox, String cast)
+        {
+            this.fieldType = fieldType;
+            this.method = method;
+            this.unbox = unbox;
+            this.cast = cast;
+        }
+        
+        boolean isObject()
+        {
+            return unbox == null;
+        }
+    }
+    
+    /**
+     * A mapped field of the class.
+     */
+    static final class MappedField
+    {
+        final VariableElement element;
+        final int number;
+        final String name;
+        final int groupFilter;
+        
+        /**
+         * Null if the field is created by the runtime.
+         */
+        Scalar scalar;
+        /**
+         * True if the scalar is a primitive (not boxed).
+         */
+        boolean primitive;
+        
+        MappedField(VariableElement element, int number, String name, int groupFilter)
+        {
+            this.element = element;
+            this.number = number;
+            this.name = name;
+            this.groupFilter = groupFilter;
+        }
+    }
+    
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    public boolean process(Set<? extends TypeElement> annotations, 
+            RoundEnvironment roundEnv)
+    {
+        final LinkedHashSet<TypeElement> classes = new LinkedHashSet<TypeElement>();
+        for(TypeElement annotation : annotations)
+        {
+            for(Element e : roundEnv.getElementsAnnotatedWith(annotation))
+            {
+                if(e.getKind() == ElementKind.FIELD)
+                    classes.add((TypeElement)e.getEnclosingElement());
+            }
+        }
+        
+        for(TypeElement type : classes)
+        {
+            if(isSupported(type))
+                generate(type);
+        }
+        
+        // the annotation is not claimed
+        return false;
+    }
+    
+    boolean isSupported(TypeElement type)
+    {
+        final String reason;
+        if(type.getKind() != ElementKind.CLASS || 
+                type.getModifiers().contains(Modifier.ABSTRACT))
+        {
+            reason = "not a concrete class";
+        }
+        else if(!type.getTypeParameters().isEmpty())
+            reason = "generic class";
+        else if(!isAccessible(type))
+            reason = "not accessible from its package";
+        else
+            return true;
+        
+        processingEnv.getMessager().printMessage(Kind.NOTE, "No schema generated (" + 
+                reason + "), the runtime schema will be used.", type);
+        return false;
+    }
+    
+    static boolean isAccessible(TypeElement type)
+    {
+        for(Element e = type; e.getKind() != ElementKind.PACKAGE; 
+                e = e.getEnclosingElement())
+        {
+            final TypeElement t = (TypeElement)e;
+            if(t.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+            
+            if(t.getNestingKind() == NestingKind.LOCAL || 
+                    t.getNestingKind() == NestingKind.ANONYMOUS)
+            {
+                return false;
+            }
+            
+            if(t.getNestingKind() == NestingKind.MEMBER && 
+                    !t.getModifiers().contains(Modifier.STATIC))
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    TypeElement getSuperclass(TypeElement type)
+    {
+        final TypeMirror superclass = type.getSuperclass();
+        if(superclass.getKind() != TypeKind.DECLARED)
+            return null;
+        
+        final TypeElement e = (TypeElement)((DeclaredType)superclass).asElement();
+        return "java.lang.Object".equals(e.getQualifiedName().toString()) ? null : e;
+    }
+    
+    /**
+     * Same as {@code RuntimeSchema.fill}.
+     */
+    void fill(Map<String,VariableElement> fieldMap, TypeElement type)
+    {
+        final TypeElement superclass = getSuperclass(type);
+        if(superclass != null)
+            fill(fieldMap, superclass);
+        
+        for(VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements()))
+        {
+            final Set<Modifier> mod = f.getModifiers();
+            if(!mod.contains(Modifier.STATIC) && !mod.contains(Modifier.TRANSIENT))
+                fieldMap.put(f.getSimpleName().toString(), f);
+        }
+    }
+    
+    /**
+     * Maps the fields like {@code RuntimeSchema.createFrom} does, or returns null 
+     * (after reporting an error) if the runtime would fail.
+     */
+    List<MappedField> mapFields(TypeElement type)
+    {
+        final LinkedHashMap<String,VariableElement> fieldMap = 
+                new LinkedHashMap<String,VariableElement>();
+        fill(fieldMap, type);
+        
+        final ArrayList<MappedField> fields = new ArrayList<MappedField>(fieldMap.size());
+        final HashSet<Integer> numbers = new HashSet<Integer>();
+        int i = 0;
+        boolean annotated = false;
+        for(VariableElement f : fieldMap.values())
+        {
+            if(f.getAnnotation(Deprecated.class) != null)
+            {
+                // preserve its field number for backward-forward compat
+                i++;
+                continue;
+            }
+            
+            final Tag tag = f.getAnnotation(Tag.class);
+            final MappedField field;
+            if(tag == null)
+            {
+                if(annotated)
+                {
+                    error("When using annotation-based mapping, all fields must be " + 
+                            "annotated with @" + Tag.class.getSimpleName(), f);
+                    return null;
+                }
+                
+                field = new MappedField(f, ++i, f.getSimpleName().toString(), 0);
+            }
+            else
+            {
+                if(!annotated && !fields.isEmpty())
+                {
+                    error("When using annotation-based mapping, all fields must be " + 
+                            "annotated with @" + Tag.class.getSimpleName(), f);
+                    return null;
+                }
+                annotated = true;
+                
+                if(tag.value() < 1)
+                {
+                    error("Invalid field number: " + tag.value(), f);
+                    return null;
+                }
+                
+                field = new MappedField(f, tag.value(), tag.alias().length() == 0 ? 
+                        f.getSimpleName().toString() : tag.alias(), tag.groupFilter());
+            }
+            
+            if(!numbers.add(field.number))
+            {
+                error("Another field has the same number: " + field.number, f);
+                return null;
+            }
+            
+            resolveScalar(field, type);
+            fields.add(field);
+        }
+        
+        if(fields.isEmpty())
+        {
+            error("Not able to map any fields.  All fields are either " + 
+                    "transient/static.", type);
+            return null;
+        }
+        
+        return fields;
+    }
+    
+    /**
+     * Sets the scalar type of the field if it can be accessed directly from the 
+     * generated class.
+     */
+    void resolveScalar(MappedField field, TypeElement type)
+    {
+        final VariableElement f = field.element;
+        final Set<Modifier> mod = f.getModifiers();
+        if(mod.contains(Modifier.FINAL) || mod.contains(Modifier.PRIVATE) || 
+                f.getAnnotation(Dedup.class) != null)
+        {
+            return;
+        }
+        
+        final TypeElement declaringClass = (TypeElement)f.getEnclosingElement();
+        if(!mod.contains(Modifier.PUBLIC) && 
+                !getPackage(declaringClass).equals(getPackage(type)))
+        {
+            return;
+        }
+        
+        // a field with the same name in a subclass hides it from the generated code
+        final String name = f.getSimpleName().toString();
+        for(TypeElement c = type; c != declaringClass; c = getSuperclass(c))
+        {
+            for(VariableElement other : ElementFilter.fieldsIn(c.getEnclosedElements()))
+            {
+                if(other.getSimpleName().toString().equals(name))
+                    return;
+            }
+        }
+        
+        final TypeMirror t = f.asType();
+        switch(t.getKind())
+        {
+            case BOOLEAN:
+                field.scalar = Scalar.BOOL;
+                break;
+            case BYTE:
+                field.scalar = Scalar.BYTE;
+                break;
+            case CHAR:
+                field.scalar = Scalar.CHAR;
+                break;
+            case SHORT:
+                field.scalar = Scalar.SHORT;
+                break;
+            case INT:
+                field.scalar = Scalar.INT32;
+                break;
+            case LONG:
+                field.scalar = Scalar.INT64;
+                break;
+            case FLOAT:
+                field.scalar = Scalar.FLOAT;
+                break;
+            case DOUBLE:
+                field.scalar = Scalar.DOUBLE;
+                break;
+            case ARRAY:
+                if(((ArrayType)t).getComponentType().getKind() == TypeKind.BYTE)
+                    field.scalar = Scalar.BYTE_ARRAY;
+                return;
+            case DECLARED:
+                field.scalar = getBoxedScalar(((TypeElement)((DeclaredType)t).asElement())
+                        .getQualifiedName().toString());
+                return;
+            default:
+                return;
+        }
+        
+        field.primitive = true;
+    }
+    
+    static Scalar getBoxedScalar(String className)
+    {
+        if("java.lang.String".equals(className))
+            return Scalar.STRING;
+        if("com.dyuproject.protostuff.ByteString".equals(className))
+            return Scalar.BYTES;
+        if("java.lang.Boolean".equals(className))
+            return Scalar.BOOL;
+        if("java.lang.Byte".equals(className))
+            return Scalar.BYTE;
+        if("java.lang.Character".equals(className))
+            return Scalar.CHAR;
+        if("java.lang.Short".equals(className))
+            return Scalar.SHORT;
+        if("java.lang.Integer".equals(className))
+            return Scalar.INT32;
+        if("java.lang.Long".equals(className))
+            return Scalar.INT64;
+        if("java.lang.Float".equals(className))
+            return Scalar.FLOAT;
+        if("java.lang.Double".equals(className))
+            return Scalar.DOUBLE;
+        
+        return null;
+    }
+    
+    String getPackage(TypeElement type)
+    {
+        final PackageElement p = processingEnv.getElementUtils().getPackageOf(type);
+        return p.isUnnamed() ? "" : p.getQualifiedName().toString();
+    }
+    
+    /**
+     * Returns true if the generated code can call the no-args constructor.
+     */
+    static boolean hasAccessibleConstructor(TypeElement type)
+    {
+        for(ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements()))
+        {
+            if(c.getParameters().isEmpty())
+                return !c.getModifiers().contains(Modifier.PRIVATE);
+        }
+        
+        return false;
+    }
+    
+    void error(String msg, Element e)
+    {
+        processingEnv.getMessager().printMessage(Kind.ERROR, msg, e);
+    }
+    
+    void generate(TypeElement type)
+    {
+        final List<MappedField> fields = mapFields(type);
+        if(fields == null)
+            return;
+        
+        final String packageName = getPackage(type);
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(
+                type).toString();
+        final String factoryName = binaryName + SUFFIX;
+        final String simpleName = factoryName.substring(packageName.length() == 0 ? 
+                0 : packageName.length() + 1);
+        final String typeName = type.getQualifiedName().toString();
+        
+        final StringBuilder sb = new StringBuilder();
+        sb.append("// Generated by protostuff-runtime-apt from ").append(
+                typeName).append(".  DO NOT EDIT.\n\n");
+        if(packageName.length() != 0)
+            sb.append("package ").append(packageName).append(";\n\n");
+        
+        sb.append("public final class ").append(simpleName).append(" implements ")
+            .append(RUNTIME_PACKAGE).append(".GeneratedSchemas.Factory<")
+            .append(typeName).append(">\n{\n\n");
+        
+        sb.append("    public Class<").append(typeName).append("> typeClass()\n    {\n")
+            .append("        return ").append(typeName).append(".class;\n    }\n\n");
+        
+        sb.append("    public ").append(RUNTIME_PACKAGE).append(".RuntimeSchema<")
+            .append(typeName).append("> newSchema(\n            ")
+            .append(RUNTIME_PACKAGE).append(".IdStrategy strategy)\n    {\n");
+        
+        final String fieldClass = RUNTIME_PACKAGE + ".MappedSchema.Field<" + typeName + ">";
+        sb.append("        final java.util.ArrayList<").append(fieldClass)
+            .append("> fields = \n            new java.util.ArrayList<")
+            .append(fieldClass).append(">(").append(fields.size()).append(");\n");
+        
+        // the reflected fields are resolved once for all the runtime fields
+        for(MappedField field : fields)
+        {
+            if(field.scalar == null)
+            {
+                sb.append("        final java.util.Map<String,java.lang.reflect.Field> ")
+                    .append("instanceFields = \n            ").append(RUNTIME_PACKAGE)
+                    .append(".RuntimeSchema.findInstanceFields(").append(typeName)
+                    .append(".class);\n");
+                break;
+            }
+        }
+        
+        int lastFieldNumber = 0;
+        for(MappedField field : fields)
+        {
+            lastFieldNumber = Math.max(lastFieldNumber, field.number);
+            if(field.scalar == null)
+                appendRuntimeField(sb, field, typeName);
+            else
+                appendScalarField(sb, field, typeName, fieldClass);
+        }
+        
+        sb.append("\n        return new ").append(RUNTIME_PACKAGE).append(".RuntimeSchema<")
+            .append(typeName).append(">(").append(typeName).append(".class, fields, ")
+            .append(lastFieldNumber).append(", \n                ");
+        if(hasAccessibleConstructor(type))
+        {
+            sb.append(RUNTIME_PACKAGE).append(".RuntimeEnv.ALWAYS_USE_SUN_REFLECTION_FACTORY ? \n")
+                .append("                ").append(RUNTIME_PACKAGE)
+                .append(".RuntimeEnv.newInstantiator(").append(typeName).append(".class) : \n")
+                .append("                new ").append(RUNTIME_PACKAGE)
+                .append(".RuntimeEnv.Instantiator<").append(typeName).append(">()\n")
+                .append("        {\n")
+                .append("            public ").append(typeName).append(" newInstance()\n")
+                .append("            {\n")
+                .append("                return new ").append(typeName).append("();\n")
+                .append("            }\n")
+                .append("        });\n");
+        }
+        else
+        {
+            sb.append(RUNTIME_PACKAGE).append(".RuntimeEnv.newInstantiator(")
+                .append(typeName).append(".class));\n");
+        }
+        
+        sb.append("    }\n\n}\n");
+        
+        try
+        {
+            final Writer writer = processingEnv.getFiler().createSourceFile(
+                    factoryName, type).openWriter();
+            try
+            {
+                writer.write(sb.toString());
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch(IOException e)
+        {
+            error("Could not generate " + factoryName + ": " + e.getMessage(), type);
+        }
+    }
+    
+    static void appendString(StringBuilder sb, String value)
+    {
+        sb.append('"');
+        for(int i = 0, len = value.length(); i < len; i++)
+        {
+            final char c = value.charAt(i);
+            if(c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if(c < 0x20 || c > 0x7e)
+                sb.append(String.format("\\u%04x", (int)c));
+            else
+                sb.append(c);
+        }
+        sb.append('"');
+    }
+    
+    static void appendRuntimeField(StringBuilder sb, MappedField field, String typeName)
+    {
+        sb.append("        fields.add(").append(RUNTIME_PACKAGE)
+            .append(".RuntimeSchema.createField(\n                ")
+            .append(typeName).append(".class, instanceFields, ");
+        appendString(sb, field.element.getSimpleName().toString());
+        sb.append(", ").append(field.number).append(", ");
+        appendString(sb, field.name);
+        sb.append(", strategy));\n");
+    }
+    
+    static void appendScalarField(StringBuilder sb, MappedField field, String typeName, 
+            String fieldClass)
+    {
+        final Scalar scalar = field.scalar;
+        final String access = "message." + field.element.getSimpleName();
+        final String read = "input.read" + scalar.method + "()";
+        final int number = field.number;
+        
+        sb.append("        fields.add(new ").append(fieldClass).append("(\n")
+            .append("                com.dyuproject.protostuff.WireFormat.FieldType.")
+            .append(scalar.fieldType).append(", ").append(number).append(", ");
+        appendString(sb, field.name);
+        sb.append(", false, ").append(field.groupFilter).append(")\n        {\n");
+        
+        // mergeFrom
+        sb.append("            protected void mergeFrom(com.dyuproject.protostuff.Input input, \n")
+            .append("                    ").append(typeName)
+            .append(" message) throws java.io.IOException\n            {\n")
+            .append("                ").append(access).append(" = ");
+        if(scalar.isObject() || field.primitive)
+            sb.append(scalar.isObject() ? "" : scalar.cast).append(read);
+        else
+        {
+            sb.append(field.element.asType().toString()).append(".valueOf(")
+                .append(scalar.cast).append(read).append(")");
+        }
+        sb.append(";\n            }\n");
+        
+        // writeTo
+        sb.append("            protected void writeTo(com.dyuproject.protostuff.Output output, \n")
+            .append("                    ").append(typeName)
+            .append(" message) throws java.io.IOException\n            {\n");
+        if(field.primitive)
+        {
+            sb.append("                output.write").append(scalar.method).append("(")
+                .append(number).append(", ").append(access).append(", false);\n");
+        }
+        else
+        {
+            sb.append("                final ").append(field.element.asType().toString())
+                .append(" value = ").append(access).append(";\n")
+                .append("                if(value != null)\n")
+                .append("                    output.write").append(scalar.method).append("(")
+                .append(number).append(", value");
+            if(!scalar.isObject())
+                sb.append('.').append(scalar.unbox).append("()");
+            sb.append(", false);\n");
+        }
+        sb.append("            }\n");
+        
+        // transfer
+        sb.append("            protected void transfer(com.dyuproject.protostuff.Pipe pipe, \n")
+            .append("                    com.dyuproject.protostuff.Input input, \n")
+            .append("                    com.dyuproject.protostuff.Output output, \n")
+            .append("                    boolean repeated) throws java.io.IOException\n")
+            .append("            {\n");
+        if(scalar.isObject())
+        {
+            sb.append("                input.transferByteRangeTo(output, ")
+                .append(scalar == Scalar.STRING).append(", ").append(number)
+                .append(", repeated);\n");
+        }
+        else
+        {
+            sb.append("                output.write").append(scalar.method).append("(")
+                .append(number).append(", ").append(read).append(", repeated);\n");
+        }
+        sb.append("            }\n        });\n");
+    }
+
+}
@@ -0,0 +1,355 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime.apt;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.GeneratedSchemas;
+import com.dyuproject.protostuff.runtime.IdStrategy;
+import com.dyuproject.protostuff.runtime.RuntimeEnv;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+
+/**
+ * Compiles annotated pojos with the {@link SchemaProcessor} and verifies that the 
+ * generated schemas are wire-identical to the runtime ones.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class SchemaProcessorTest extends TestCase
+{
+    
+    static final String POJO = 
+        "package apt.sample;\n" + 
+        "import java.util.*;\n" + 
+        "import com.dyuproject.protostuff.*;\n" + 
+        "public class Pojo\n" + 
+        "{\n" + 
+        "    public enum Color { RED, GREEN }\n" + 
+        "    public static class Registered\n" + 
+        "    {\n" + 
+        "        @Tag(1) int id;\n" + 
+        "    }\n" + 
+        "    public static class Inner\n" + 
+        "    {\n" + 
+        "        @Tag(1) int id;\n" + 
+        "        @Tag(2) String name;\n" + 
+        "    }\n" + 
+        "    @Tag(1) boolean a;\n" + 
+        "    @Tag(2) byte b;\n" + 
+        "    @Tag(3) char c;\n" + 
+        "    @Tag(4) short d;\n" + 
+        "    @Tag(5) int e;\n" + 
+        "    @Tag(6) long f;\n" + 
+        "    @Tag(7) float g;\n" + 
+        "    @Tag(8) double h;\n" + 
+        "    @Tag(9) Boolean boxedA;\n" + 
+        "    @Tag(10) Byte boxedB;\n" + 
+        "    @Tag(11) Character boxedC;\n" + 
+        "    @Tag(12) Short boxedD;\n" + 
+        "    @Tag(13) Integer boxedE;\n" + 
+        "    @Tag(14) Long boxedF;\n" + 
+        "    @Tag(15) Float boxedG;\n" + 
+        "    @Tag(16) Double boxedH;\n" + 
+        "    @Tag(17) String str;\n" + 
+        "    @Tag(18) ByteString bytes;\n" + 
+        "    @Tag(19) byte[] byteArray;\n" + 
+        "    @Tag(value = 20, alias = \"renamed\") String aliased;\n" + 
+        "    @Tag(21) @Dedup String dedup;\n" + 
+        "    @Tag(22) private int hidden;\n" + 
+        "    @Tag(23) List<String> list;\n" + 
+        "    @Tag(24) Color color;\n" + 
+        "    @Tag(25) Inner inner;\n" + 
+        "    @Tag(26) Map<String,Inner> map;\n" + 
+        "    @Tag(27) Integer nullInteger;\n" + 
+        "    @Tag(28) @Deprecated int old;\n" + 
+        "    @Tag(50000) String sparse;\n" + 
+        "    public static Pojo newFilled()\n" + 
+        "    {\n" + 
+        "        Pojo p = new Pojo();\n" + 
+        "        p.a = true; p.b = -2; p.c = 'c'; p.d = -4; p.e = -5; p.f = Long.MIN_VALUE;\n" + 
+        "        p.g = 7.5f; p.h = -8.5; p.boxedA = Boolean.TRUE; p.boxedB = (byte)10;\n" + 
+        "        p.boxedC = 'C'; p.boxedD = (short)12; p.boxedE = 13; p.boxedF = 14L;\n" + 
+        "        p.boxedG = 15f; p.boxedH = 16d; p.str = \"str\";\n" + 
+        "        p.bytes = ByteString.copyFromUtf8(\"bytes\");\n" + 
+        "        p.byteArray = new byte[]{1, 2, 3}; p.aliased = \"aliased\"; p.dedup = \"dedup\";\n" + 
+        "        p.hidden = 22; p.list = Arrays.asList(\"x\", \"y\"); p.color = Color.GREEN;\n" + 
+        "        p.inner = new Inner(); p.inner.id = 1; p.inner.name = \"inner\";\n" + 
+        "        p.map = new HashMap<String,Inner>(); p.map.put(\"k\", p.inner);\n" + 
+        "        p.old = 28; p.sparse = \"sparse\";\n" + 
+        "        return p;\n" + 
+        "    }\n" + 
+        "}\n";
+    
+    static final String UNTAGGED_MIX = 
+        "package apt.sample;\n" + 
+        "public class Mixed\n" + 
+        "{\n" + 
+        "    @com.dyuproject.protostuff.Tag(1) int a;\n" + 
+        "    int b;\n" + 
+        "}\n";
+    
+    static final String NON_STATIC_INNER = 
+        "package apt.sample;\n" + 
+        "public class Outer\n" + 
+        "{\n" + 
+        "    public class Inner\n" + 
+        "    {\n" + 
+        "        @com.dyuproject.protostuff.Tag(1) int a;\n" + 
+        "    }\n" + 
+        "}\n";
+    
+    static final class Source extends SimpleJavaFileObject
+    {
+        final String code;
+        
+        Source(String className, String code)
+        {
+            super(URI.create("string:///" + className.replace('.', '/') + 
+                    Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+        
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return code;
+        }
+    }
+    
+    final ArrayList<File> tempDirs = new ArrayList<File>();
+    
+    File newTempDir() throws IOException
+    {
+        File dir = File.createTempFile("protostuff-apt", "");
+        if(!dir.delete() || !dir.mkdir())
+            throw new IOException("Could not create " + dir);
+        
+        tempDirs.add(dir);
+        return dir;
+    }
+    
+    static void delete(File file)
+    {
+        final File[] files = file.listFiles();
+        if(files != null)
+        {
+            for(File f : files)
+                delete(f);
+        }
+        file.delete();
+    }
+    
+    protected void tearDown() throws Exception
+    {
+        for(File dir : tempDirs)
+            delete(dir);
+        
+        tempDirs.clear();
+        super.tearDown();
+    }
+    
+    /**
+     * Compiles the sources with the processor and returns the diagnostics.
+     */
+    static List<Diagnostic<? extends JavaFileObject>> compile(File outputDir, 
+            Source ... sources)
+    {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = 
+                new DiagnosticCollector<JavaFileObject>();
+        
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, null, 
+                diagnostics, Arrays.asList("-d", outputDir.getPath(), 
+                        "-s", outputDir.getPath(), 
+                        "-classpath", System.getProperty("java.class.path")), 
+                null, Arrays.asList(sources));
+        task.setProcessors(Collections.singletonList(new SchemaProcessor()));
+        task.call();
+        
+        return diagnostics.getDiagnostics();
+    }
+    
+    static boolean hasError(List<Diagnostic<? extends JavaFileObject>> diagnostics)
+    {
+        for(Diagnostic<? extends JavaFileObject> d : diagnostics)
+        {
+            if(d.getKind() == Diagnostic.Kind.ERROR)
+                return true;
+        }
+        
+        return false;
+    }
+    
+    static byte[] toProtostuff(Object message, Schema<Object> schema)
+    {
+        return ProtostuffIOUtil.toByteArray(message, schema, LinkedBuffer.allocate(512));
+    }
+    
+    @SuppressWarnings("unchecked")
+    public void testWireIdentical() throws Exception
+    {
+        if(ToolProvider.getSystemJavaCompiler() == null)
+            return;
+        
+        final File dir = newTempDir();
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(dir, 
+                new Source("apt.sample.Pojo", POJO));
+        assertFalse(diagnostics.toString(), hasError(diagnostics));
+        
+        final ClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, 
+                getClass().getClassLoader());
+        final Class<Object> pojoClass = (Class<Object>)loader.loadClass("apt.sample.Pojo");
+        
+        final GeneratedSchemas.Factory<Object> factory = 
+                GeneratedSchemas.getFactory(pojoClass);
+        assertNotNull(factory);
+        assertEquals("apt.sample.Pojo" + GeneratedSchemas.SUFFIX, 
+                factory.getClass().getName());
+        
+        // the nested pojo also has its schema generated
+        assertNotNull(GeneratedSchemas.getFactory(loader.loadClass("apt.sample.Pojo$Inner")));
+        
+        final RuntimeSchema<Object> generated = factory.newSchema(RuntimeEnv.ID_STRATEGY);
+        final RuntimeSchema<Object> runtime = RuntimeSchema.createFrom(pojoClass, 
+                RuntimeEnv.ID_STRATEGY);
+        
+        assertEquals(runtime.getFieldCount(), generated.getFieldCount());
+        for(int i = 1; i <= 50000; i++)
+            assertEquals(runtime.getFieldName(i), generated.getFieldName(i));
+        
+        final Object message = pojoClass.getMethod("newFilled").invoke(null);
+        final byte[] expected = toProtostuff(message, runtime);
+        assertTrue(Arrays.equals(expected, toProtostuff(message, generated)));
+        
+        final Object empty = generated.newMessage();
+        assertTrue(Arrays.equals(toProtostuff(empty, runtime), toProtostuff(empty, generated)));
+        
+        // read with the generated schema, write with the runtime one.
+        final Object parsed = generated.newMessage();
+        ProtostuffIOUtil.mergeFrom(expected, parsed, generated);
+        assertTrue(Arrays.equals(expected, toProtostuff(parsed, runtime)));
+        
+        // pipe
+        final byte[] protobuf = ProtobufIOUtil.toByteArray(message, runtime, 
+                LinkedBuffer.allocate(512));
+        assertTrue(Arrays.equals(protobuf, ProtobufIOUtil.toByteArray(
+                ProtostuffIOUtil.newPipe(expected), generated.getPipeSchema(), 
+                LinkedBuffer.allocate(512))));
+        
+        assertTrue(Arrays.equals(expected, toProtostuff(message, 
+                RuntimeSchema.getSchema(pojoClass))));
+        
+        // the runtime consults the registry
+        final Class<Object> registeredClass = (Class<Object>)loader.loadClass(
+                "apt.sample.Pojo$Registered");
+        final GeneratedSchemas.Factory<Object> registeredFactory = 
+                GeneratedSchemas.getFactory(registeredClass);
+        final int[] created = new int[1];
+        GeneratedSchemas.register(new GeneratedSchemas.Factory<Object>()
+        {
+            public Class<Object> typeClass()
+            {
+                return registeredClass;
+            }
+            public RuntimeSchema<Object> newSchema(IdStrategy strategy)
+            {
+                created[0]++;
+                return registeredFactory.newSchema(strategy);
+            }
+        });
+        
+        assertNotNull(RuntimeSchema.getSchema(registeredClass));
+        assertEquals(1, created[0]);
+    }
+    
+    static final class NotGenerated
+    {
+        int id;
+    }
+    
+    public void testMissingFactoryCached() throws Exception
+    {
+        assertNull(GeneratedSchemas.getFactory(NotGenerated.class));
+        // cached
+        assertNull(GeneratedSchemas.getFactory(NotGenerated.class));
+        
+        // a registered factory replaces the cached miss
+        final GeneratedSchemas.Factory<NotGenerated> factory = 
+                new GeneratedSchemas.Factory<NotGenerated>()
+        {
+            public Class<NotGenerated> typeClass()
+            {
+                return NotGenerated.class;
+            }
+            public RuntimeSchema<NotGenerated> newSchema(IdStrategy strategy)
+            {
+                return RuntimeSchema.createFrom(NotGenerated.class, strategy);
+            }
+        };
+        assertTrue(GeneratedSchemas.register(factory));
+        assertSame(factory, GeneratedSchemas.getFactory(NotGenerated.class));
+    }
+    
+    public void testMixedAnnotationsFail() throws Exception
+    {
+        if(ToolProvider.getSystemJavaCompiler() == null)
+            return;
+        
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(
+                newTempDir(), new Source("apt.sample.Mixed", UNTAGGED_MIX));
+        assertTrue(hasError(diagnostics));
+    }
+    
+    public void testNonStaticInnerSkipped() throws Exception
+    {
+        if(ToolProvider.getSystemJavaCompiler() == null)
+            return;
+        
+        final File dir = newTempDir();
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(dir, 
+                new Source("apt.sample.Outer", NON_STATIC_INNER));
+        assertFalse(diagnostics.toString(), hasError(diagnostics));
+        
+        final ArrayList<String> generated = new ArrayList<String>();
+        for(File f : new File(dir, "apt/sample").listFiles())
+        {
+            if(f.getName().endsWith(GeneratedSchemas.SUFFIX + ".java"))
+                generated.add(f.getName());
+        }
+        assertTrue(generated.toString(), generated.isEmpty());
+    }
+
+}
@@ -18,6 +18,7 @@ import static com.dyuproject.protostuff.runtime.RuntimeEnv.COLLECTION_SCHEMA_ON_
 import static com.dyuproject.protostuff.runtime.RuntimeEnv.MORPH_NON_FINAL_POJOS;
 //import static com.dyuproject.protostuff.runtime.RuntimeEnv.USE_SUN_MISC_UNSAFE;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Modifier;
@@ -33,6 +34,10 @@ import java.util.Map;
 import com.dyuproject.protostuff.ByteString;
 import com.dyuproject.protostuff.Message;
 import com.dyuproject.protostuff.Morph;
+import com.dyuproject.protostuff.Output;
+import com.dyuproject.protostuff.PackedFieldUtil;
+import com.dyuproject.protostuff.Tag;
+import com.dyuproject.protostuff.Utf8String;
 import com.dyuproject.protostuff.runtime.MappedSchema.Field;
 
 /**
@@ -65,7 +70,13 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
         ID_POLYMORPHIC_COLLECTION = 28, 
         ID_POLYMORPHIC_MAP = 29, 
         ID_DELEGATE = 30, 
+        // written ahead of ID_COLLECTION/ID_MAP by the polymorphic collections/maps
+        ID_SIZE_HINT = 31, 
+        // the index of a class name written earlier in the message (in place of 
+        // ID_POJO/ID_THROWABLE) when the class name dictionary is enabled
+        ID_POJO_REF = 32, 
         ID_THROWABLE = 52, 
+        ID_THROWABLE_REF = 53, 
         
         // pojo fields limited to 126 if not explicitly using @Tag annotations
         ID_POJO = 127;
@@ -91,7 +102,10 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
         STR_POLYMORPHIC_COLLECTION = "B", 
         STR_POLYMOPRHIC_MAP = "C", 
         STR_DELEGATE = "D", 
+        STR_SIZE_HINT = "E", 
+        STR_POJO_REF = "F", 
         STR_THROWABLE = "Z", 
+        STR_THROWABLE_REF = "Y", 
         
         // pojo fields limited to 126 if not explicitly using @Tag annotations
         STR_POJO = "_";
@@ -114,6 +128,7 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
     static final RuntimeFieldFactory<Long> INT64;
     static final RuntimeFieldFactory<Short> SHORT;
     static final RuntimeFieldFactory<String> STRING;
+    static final RuntimeFieldFactory<Utf8String> UTF8_STRING;
     
     static final RuntimeFieldFactory<Integer> ENUM;
     static final RuntimeFieldFactory<Object> OBJECT;
@@ -142,6 +157,7 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
             INT64 = RuntimeUnsafeFieldFactory.INT64;
             SHORT = RuntimeUnsafeFieldFactory.SHORT;
             STRING = RuntimeUnsafeFieldFactory.STRING;
+            UTF8_STRING = RuntimeUnsafeFieldFactory.UTF8_STRING;
             
             ENUM = RuntimeUnsafeFieldFactory.ENUM;
             OBJECT = RuntimeUnsafeFieldFactory.OBJECT;
@@ -164,6 +180,7 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
             INT64 = RuntimeReflectionFieldFactory.INT64;
             SHORT = RuntimeReflectionFieldFactory.SHORT;
             STRING = RuntimeReflectionFieldFactory.STRING;
+            UTF8_STRING = RuntimeReflectionFieldFactory.UTF8_STRING;
             
             ENUM = RuntimeReflectionFieldFactory.ENUM;
             OBJECT = RuntimeReflectionFieldFactory.OBJECT;
@@ -194,6 +211,8 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
         __inlineValues.put(Byte.TYPE.getName(), BYTE);
         __inlineValues.put(Byte.class.getName(), BYTE);
         __inlineValues.put(String.class.getName(), STRING);
+        // same id as java.lang.String (read as a String when the field is polymorphic)
+        __inlineValues.put(Utf8String.class.getName(), UTF8_STRING);
         __inlineValues.put(ByteString.class.getName(), BYTES);
         __inlineValues.put(byte[].class.getName(), BYTE_ARRAY);
         __inlineValues.put(BigInteger.class.getName(), BIGINTEGER);
@@ -345,6 +364,39 @@ public abstract class RuntimeFieldFactory<V> implements Delegate<V>
         return d;
     }
     
+    /**
+     * Returns true if the field is annotated with {@code @Tag(packed=true)} and 
+     * its scalar values can be packed.
+     */
+    static boolean isPacked(java.lang.reflect.Field f, Delegate<?> inline)
+    {
+        final Tag tag = f.getAnnotation(Tag.class);
+        if(tag == null || !tag.packed())
+            return false;
+        
+        return inline == INT32 || 
+                inline == INT64 || 
+                inline == FLOAT || 
+                inline == DOUBLE || 
+                inline == BOOL;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static void writePacked(Output output, int number, Delegate<?> inline, 
+            Collection<?> values) throws IOException
+    {
+        if(inline == INT32)
+            PackedFieldUtil.writeInt32(output, number, (Collection<Integer>)values);
+        else if(inline == INT64)
+            PackedFieldUtil.writeInt64(output, number, (Collection<Long>)values);
+        else if(inline == FLOAT)
+            PackedFieldUtil.writeFloat(output, number, (Collection<Float>)values);
+        else if(inline == DOUBLE)
+            PackedFieldUtil.writeDouble(output, number, (Collection<Double>)values);
+        else
+            PackedFieldUtil.writeBool(output, number, (Collection<Boolean>)values);
+    }
+    
     /**
      * Returns the factory for inline (scalar) values.
      */
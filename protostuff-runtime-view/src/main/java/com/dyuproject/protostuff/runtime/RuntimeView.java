@@ -54,7 +54,13 @@ public final class RuntimeView
             Predicate.Factory pf, 
             String ... args)
     {
-        return vf.create(ms.typeClass, ms.fields, ms.fieldsByNumber, 
+        if(vf instanceof FieldMapFactory)
+        {
+            return ((FieldMapFactory)vf).create(ms.typeClass, ms.fields, ms.fieldMap, 
+                    ms.fieldsByName, instantiator, pf, args);
+        }
+        
+        return vf.create(ms.typeClass, ms.fields, ms.fieldMap.toArrayByNumber(), 
                 ms.fieldsByName, instantiator, pf, args);
     }
     
@@ -75,6 +81,27 @@ public final class RuntimeView
                 String[] args);
     }
     
+    /**
+     * A factory that looks up the fields via the {@link FieldMap} of the 
+     * schema, instead of an array sized after the last field number.
+     */
+    public interface FieldMapFactory extends Factory
+    {
+        /**
+         * Creates a view schema based from the given metadata.
+         * 
+         * @param pf is optional, depending on the view factory used.
+         * @param args is optional, depending on the view factory used.
+         */
+        public <T> Schema<T> create(Class<T> typeClass, 
+                Field<T>[] fields, 
+                FieldMap<T> fieldMap, 
+                Map<String,Field<T>> fieldsByName, 
+                Instantiator<T> instantiator, 
+                Predicate.Factory pf, 
+                String[] args);
+    }
+    
     /**
      * The base schema used by the built-in factories.
      */
@@ -144,7 +171,7 @@ public final class RuntimeView
      * ahead-of-time filter (which is usually done at application startup).
      * </pre>
      */
-    public enum Factories implements Factory
+    public enum Factories implements FieldMapFactory
     {
         /**
          * Filters the fields to include based on a {@link Predicate}.
@@ -156,7 +183,7 @@ public final class RuntimeView
             public <T> Schema<T> create(
                     Class<T> typeClass,
                     final Field<T>[] fields,
-                    final Field<T>[] fieldsByNumber,
+                    final FieldMap<T> fieldMap,
                     final Map<String, Field<T>> fieldsByName,
                     Instantiator<T> instantiator, 
                     Predicate.Factory pf, 
@@ -180,8 +207,7 @@ public final class RuntimeView
                         for (int number = input.readFieldNumber(this); number != 0; 
                                 number = input.readFieldNumber(this))
                         {
-                            final Field<T> field = number < fieldsByNumber.length ? 
-                                    fieldsByNumber[number] : null;
+                            final Field<T> field = fieldMap.getFieldByNumber(number);
 
                             if(field == null || !predicate.apply(field, message))
                                 input.handleUnknownField(number, this);
@@ -194,8 +220,7 @@ public final class RuntimeView
                     {
                         // only called during writes
                         // the predicate already applied on writeTo (the method below)
-                        final Field<T> field = number < fieldsByNumber.length ? 
-                                fieldsByNumber[number] : null;
+                        final Field<T> field = fieldMap.getFieldByNumber(number);
                                 
                         return field == null ? null : field.name;
                     }
@@ -223,7 +248,7 @@ public final class RuntimeView
             public <T> Schema<T> create(
                     Class<T> typeClass,
                     Field<T>[] flds,
-                    final Field<T>[] fieldsByNumber,
+                    final FieldMap<T> fieldMap,
                     Map<String, Field<T>> byName,
                     Instantiator<T> instantiator, 
                     Predicate.Factory factory, 
@@ -235,10 +260,10 @@ public final class RuntimeView
                 
                 @SuppressWarnings("unchecked")
                 Field<T>[] fields = (Field<T>[])new Field<?>[fieldsByName.size()];
-                for(int i = 1, j = 0; i < fieldsByNumber.length; i++)
+                int j = 0;
+                for(Field<T> field : fieldMap.getFields())
                 {
-                    Field<T> field = fieldsByNumber[i];
-                    if(field != null && fieldsByName.containsKey(field.name))
+                    if(fieldsByName.containsKey(field.name))
                         fields[j++] = field;
                 }
                 
@@ -255,8 +280,7 @@ public final class RuntimeView
                         for (int number = input.readFieldNumber(this); number != 0; 
                                 number = input.readFieldNumber(this))
                         {
-                            final Field<T> field = number < fieldsByNumber.length ? 
-                                    fieldsByNumber[number] : null;
+                            final Field<T> field = fieldMap.getFieldByNumber(number);
 
                             if(field == null || !fieldsByName.containsKey(field.name))
                                 input.handleUnknownField(number, this);
@@ -268,8 +292,7 @@ public final class RuntimeView
                     public String getFieldName(int number)
                     {
                         // only called during writes
-                        final Field<T> field = number < fieldsByNumber.length ? 
-                                fieldsByNumber[number] : null;
+                        final Field<T> field = fieldMap.getFieldByNumber(number);
                                 
                         return field == null ? null : field.name;
                     }
@@ -295,7 +318,7 @@ public final class RuntimeView
             public <T> Schema<T> create(
                     Class<T> typeClass,
                     final Field<T>[] fields,
-                    final Field<T>[] fieldsByNumber,
+                    final FieldMap<T> fieldMap,
                     Map<String, Field<T>> byName,
                     Instantiator<T> instantiator, 
                     Predicate.Factory pf, 
@@ -317,8 +340,7 @@ public final class RuntimeView
                         for (int number = input.readFieldNumber(this); number != 0; 
                                 number = input.readFieldNumber(this))
                         {
-                            final Field<T> field = number < fieldsByNumber.length ? 
-                                    fieldsByNumber[number] : null;
+                            final Field<T> field = fieldMap.getFieldByNumber(number);
 
                             if(field == null || !fieldsByName.containsKey(field.name))
                                 input.handleUnknownField(number, this);
@@ -331,8 +353,7 @@ public final class RuntimeView
                     {
                         // only called during writes
                         // already filtered on writeTo (the method below)
-                        final Field<T> field = number < fieldsByNumber.length ? 
-                                fieldsByNumber[number] : null;
+                        final Field<T> field = fieldMap.getFieldByNumber(number);
                                 
                         return field == null ? null : field.name;
                     }
@@ -361,7 +382,7 @@ public final class RuntimeView
             public <T> Schema<T> create(
                     Class<T> typeClass,
                     Field<T>[] flds,
-                    final Field<T>[] fieldsByNumber,
+                    final FieldMap<T> fieldMap,
                     Map<String, Field<T>> byName,
                     Instantiator<T> instantiator, 
                     Predicate.Factory factory, 
@@ -370,14 +391,14 @@ public final class RuntimeView
                 final HashMap<String,Field<T>> fieldsByName = 
                         new HashMap<String,Field<T>>();
                 
-                int maxFieldNumber = includeAndAddTo(fieldsByName, typeClass, byName, args);
+                includeAndAddTo(fieldsByName, typeClass, byName, args);
                 
                 @SuppressWarnings("unchecked")
                 Field<T>[] fields = (Field<T>[])new Field<?>[fieldsByName.size()];
-                for(int i = 1, j = 0; i <= maxFieldNumber; i++)
+                int j = 0;
+                for(Field<T> field : fieldMap.getFields())
                 {
-                    Field<T> field = fieldsByNumber[i];
-                    if(field != null && fieldsByName.containsKey(field.name))
+                    if(fieldsByName.containsKey(field.name))
                         fields[j++] = field;
                 }
                 
@@ -394,8 +415,7 @@ public final class RuntimeView
                         for (int number = input.readFieldNumber(this); number != 0; 
                                 number = input.readFieldNumber(this))
                         {
-                            final Field<T> field = number < fieldsByNumber.length ? 
-                                    fieldsByNumber[number] : null;
+                            final Field<T> field = fieldMap.getFieldByNumber(number);
 
                             if(field == null || !fieldsByName.containsKey(field.name))
                                 input.handleUnknownField(number, this);
@@ -407,8 +427,7 @@ public final class RuntimeView
                     public String getFieldName(int number)
                     {
                         // only called during writes
-                        final Field<T> field = number < fieldsByNumber.length ? 
-                                fieldsByNumber[number] : null;
+                        final Field<T> field = fieldMap.getFieldByNumber(number);
                                 
                         return field == null ? null : field.name;
                     }
@@ -434,7 +453,7 @@ public final class RuntimeView
             public <T> Schema<T> create(
                     Class<T> typeClass,
                     final Field<T>[] fields,
-                    final Field<T>[] fieldsByNumber,
+                    final FieldMap<T> fieldMap,
                     Map<String, Field<T>> byName,
                     Instantiator<T> instantiator, 
                     Predicate.Factory pf, 
@@ -458,8 +477,7 @@ public final class RuntimeView
                         for (int number = input.readFieldNumber(this); number != 0; 
                                 number = input.readFieldNumber(this))
                         {
-                            final Field<T> field = number < fieldsByNumber.length ? 
-                                    fieldsByNumber[number] : null;
+                            final Field<T> field = fieldMap.getFieldByNumber(number);
 
                             if(field == null || !fieldsByName.containsKey(field.name))
                                 input.handleUnknownField(number, this);
@@ -472,8 +490,7 @@ public final class RuntimeView
                     {
                         // only called during writes
                         // already filtered on writeTo (the method below)
-                        final Field<T> field = number < fieldsByNumber.length ? 
-                                fieldsByNumber[number] : null;
+                        final Field<T> field = fieldMap.getFieldByNumber(number);
                                 
                         return field == null ? null : field.name;
                     }
@@ -492,6 +509,18 @@ public final class RuntimeView
             }
         }
         ;
+        
+        public <T> Schema<T> create(Class<T> typeClass, 
+                Field<T>[] fields, 
+                Field<T>[] fieldsByNumber, 
+                Map<String,Field<T>> fieldsByName, 
+                Instantiator<T> instantiator, 
+                Predicate.Factory pf, 
+                String[] args)
+        {
+            return create(typeClass, fields, FieldMap.create(fieldsByNumber), 
+                    fieldsByName, instantiator, pf, args);
+        }
     }
     
     static <T> HashMap<String,Field<T>> copyAndExclude(Class<T> typeClass, 
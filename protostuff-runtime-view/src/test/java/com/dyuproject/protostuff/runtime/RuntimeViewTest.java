@@ -14,9 +14,13 @@
 
 package com.dyuproject.protostuff.runtime;
 
+import java.util.Map;
+
 import com.dyuproject.protostuff.AbstractTest;
 import com.dyuproject.protostuff.ProtostuffIOUtil;
 import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.MappedSchema.Field;
+import com.dyuproject.protostuff.runtime.RuntimeEnv.Instantiator;
 
 /**
  * Tests for {@link RuntimeView}.
@@ -234,5 +238,30 @@ public class RuntimeViewTest extends AbstractTest
         assertEquals(TIMESTAMP_LEN, len(GT(STR_FN_NAME)));
         assertEquals(TIMESTAMP_LEN, len(RANGE(STR_FN_TIMESTAMP, STR_FN_TIMESTAMP)));
     }
+    
+    public void testFieldsByNumberFactory()
+    {
+        // a factory that only implements the array-based create
+        final RuntimeView.Factory vf = new RuntimeView.Factory()
+        {
+            public <T> Schema<T> create(Class<T> typeClass, 
+                    Field<T>[] fields, 
+                    Field<T>[] fieldsByNumber, 
+                    Map<String,Field<T>> fieldsByName, 
+                    Instantiator<T> instantiator, 
+                    Predicate.Factory pf, 
+                    String[] args)
+            {
+                assertEquals(FN_TIMESTAMP + 1, fieldsByNumber.length);
+                for(Field<T> f : fields)
+                    assertSame(f, fieldsByNumber[f.number]);
+                
+                return RuntimeView.Factories.INCLUDE.create(typeClass, fields, 
+                        fieldsByNumber, fieldsByName, instantiator, pf, args);
+            }
+        };
+        
+        assertEquals(NAME_LEN, len(RuntimeView.createFrom(rs(), vf, null, "name")));
+    }
 
 }
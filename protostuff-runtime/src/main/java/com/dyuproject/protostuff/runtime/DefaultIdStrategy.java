@@ -10,8 +10,11 @@ import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_INT64;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_SHORT;
 
 import java.io.IOException;
+
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -19,6 +22,7 @@ import com.dyuproject.protostuff.CollectionSchema;
 import com.dyuproject.protostuff.Input;
 import com.dyuproject.protostuff.MapSchema;
 import com.dyuproject.protostuff.Message;
+import com.dyuproject.protostuff.MessageScope;
 import com.dyuproject.protostuff.Output;
 import com.dyuproject.protostuff.Pipe;
 import com.dyuproject.protostuff.ProtostuffException;
@@ -29,6 +33,17 @@ import com.dyuproject.protostuff.Schema;
  * Does not need any registration in the user-code (works out-of-the-box).
  * The size of serialized representation may be not very efficient.   
  * 
+ * With the class-name dictionary enabled, only the first occurrence of a 
+ * polymorphic pojo's class name is written (as is) for a given {@link Output}.  
+ * Later occurrences write the index of the name as a varint, on a separate 
+ * field number ({@link RuntimeFieldFactory#ID_POJO_REF}/
+ * {@link RuntimeFieldFactory#ID_THROWABLE_REF}).  The dictionary is scoped to 
+ * the message being written (every message of a delimited stream is 
+ * self-contained) and is kept by the {@link Output} (and {@link Input}) if it 
+ * is a {@link MessageScope}.  Other outputs always write the names in full.
+ * The readers must have the dictionary enabled too, in order to resolve the 
+ * references (otherwise they fail fast).
+ * 
  * @author Leo Romanoff
  * @author David Yu
  *
@@ -39,6 +54,14 @@ public final class DefaultIdStrategy extends IdStrategy
     final ConcurrentHashMap<String, HasSchema<?>> pojoMapping = 
             new ConcurrentHashMap<String, HasSchema<?>>();
     
+    /**
+     * Caches the entries of {@link #pojoMapping} by class (identity), which 
+     * avoids hashing the class name on every lookup.  The entries are never 
+     * replaced once set, so this cache is never stale.
+     */
+    final ConcurrentHashMap<Class<?>, HasSchema<?>> pojoClassMapping = 
+            new ConcurrentHashMap<Class<?>, HasSchema<?>>();
+    
     final ConcurrentHashMap<String,EnumIO<?>> enumMapping = 
             new ConcurrentHashMap<String,EnumIO<?>>();
     
@@ -51,14 +74,33 @@ public final class DefaultIdStrategy extends IdStrategy
     final ConcurrentHashMap<String, Delegate<?>> delegateMapping = 
             new ConcurrentHashMap<String, Delegate<?>>();
     
+
+    /**
+     * If true, the class names of polymorphic pojos are written only once 
+     * per message, and referenced by index thereafter.
+     */
+    public final boolean classNameDictionary;
+    
     public DefaultIdStrategy()
     {
-        super(null, 0);
+        this(null, 0, false);
+    }
+    
+    public DefaultIdStrategy(boolean classNameDictionary)
+    {
+        this(null, 0, classNameDictionary);
     }
     
     public DefaultIdStrategy(IdStrategy primaryGroup, int groupId)
+    {
+        this(primaryGroup, groupId, false);
+    }
+    
+    public DefaultIdStrategy(IdStrategy primaryGroup, int groupId, 
+            boolean classNameDictionary)
     {
         super(primaryGroup, groupId);
+        this.classNameDictionary = classNameDictionary;
     }
     
     /**
@@ -179,9 +221,17 @@ public final class DefaultIdStrategy extends IdStrategy
     @SuppressWarnings("unchecked")
     public <T> HasSchema<T> getSchemaWrapper(Class<T> typeClass, boolean create)
     {
-        HasSchema<T> hs = (HasSchema<T>)pojoMapping.get(typeClass.getName());
-        if(hs == null && create)
+        // identity lookup (Class does not override equals/hashCode)
+        HasSchema<T> hs = (HasSchema<T>)pojoClassMapping.get(typeClass);
+        if(hs != null)
+            return hs;
+        
+        hs = (HasSchema<T>)pojoMapping.get(typeClass.getName());
+        if(hs == null)
         {
+            if(!create)
+                return null;
+            
             hs = new Lazy<T>(typeClass, this);
             final HasSchema<T> last = (HasSchema<T>)pojoMapping.putIfAbsent(
                     typeClass.getName(), hs);
@@ -189,9 +239,25 @@ public final class DefaultIdStrategy extends IdStrategy
                 hs = last;
         }
         
+        // a class with the same name from another classloader keeps resolving 
+        // by name (and is not retained by this strategy)
+        if(isWrapperOf(hs, typeClass))
+            pojoClassMapping.putIfAbsent(typeClass, hs);
+        
         return hs;
     }
     
+    static boolean isWrapperOf(HasSchema<?> hs, Class<?> typeClass)
+    {
+        if(hs instanceof Lazy<?>)
+            return ((Lazy<?>)hs).typeClass == typeClass;
+        
+        if(hs instanceof Mapped<?>)
+            return ((Mapped<?>)hs).baseClass == typeClass;
+        
+        return ((Registered<?>)hs).schema.typeClass() == typeClass;
+    }
+    
     private EnumIO<? extends Enum<?>> getEnumIO(String className, boolean load)
     {
         EnumIO<?> eio = enumMapping.get(className);
@@ -426,7 +492,7 @@ public final class DefaultIdStrategy extends IdStrategy
     protected <T> Schema<T> writePojoIdTo(Output output, int fieldNumber, Class<T> clazz) 
             throws IOException
     {
-        output.writeString(fieldNumber, clazz.getName(), false);
+        writePojoNameTo(output, fieldNumber, clazz.getName());
         
         // it is important to return the schema initialized (if it hasn't been).
         return getSchemaWrapper(clazz, true).getSchema();
@@ -435,7 +501,7 @@ public final class DefaultIdStrategy extends IdStrategy
     protected <T> HasSchema<T> transferPojoId(Input input, Output output, 
             int fieldNumber) throws IOException
     {
-        final String className = input.readString();
+        final String className = readPojoNameFrom(input, fieldNumber);
         
         final HasSchema<T> wrapper = getSchemaWrapper(className, 
                 RuntimeEnv.AUTO_LOAD_POLYMORPHIC_CLASSES);
@@ -445,7 +511,7 @@ public final class DefaultIdStrategy extends IdStrategy
                     className);
         }
         
-        output.writeString(fieldNumber, className, false);
+        writePojoNameTo(output, nameNumber(fieldNumber), className);
         
         return wrapper;
     }
@@ -453,7 +519,7 @@ public final class DefaultIdStrategy extends IdStrategy
     protected <T> HasSchema<T> resolvePojoFrom(Input input, int fieldNumber) 
             throws IOException
     {
-        final String className = input.readString();
+        final String className = readPojoNameFrom(input, fieldNumber);
         
         final HasSchema<T> wrapper = getSchemaWrapper(className, 
                 RuntimeEnv.AUTO_LOAD_POLYMORPHIC_CLASSES);
@@ -466,11 +532,106 @@ public final class DefaultIdStrategy extends IdStrategy
     protected <T> Schema<T> writeMessageIdTo(Output output, int fieldNumber, Message<T> message)
             throws IOException
     {
-        output.writeString(fieldNumber, message.getClass().getName(), false);
+        writePojoNameTo(output, fieldNumber, message.getClass().getName());
         
         return message.cachedSchema();
     }
     
+    /**
+     * Returns the field number of the back-reference to a class name written on 
+     * {@code fieldNumber}, or 0 if there is none.
+     */
+    static int refNumber(int fieldNumber)
+    {
+        switch(fieldNumber)
+        {
+            case RuntimeFieldFactory.ID_POJO:
+                return RuntimeFieldFactory.ID_POJO_REF;
+            case RuntimeFieldFactory.ID_THROWABLE:
+                return RuntimeFieldFactory.ID_THROWABLE_REF;
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * Returns the field number of the class name that the back-reference 
+     * {@code fieldNumber} refers to (or {@code fieldNumber} itself if it is not 
+     * a back-reference).
+     */
+    static int nameNumber(int fieldNumber)
+    {
+        switch(fieldNumber)
+        {
+            case RuntimeFieldFactory.ID_POJO_REF:
+                return RuntimeFieldFactory.ID_POJO;
+            case RuntimeFieldFactory.ID_THROWABLE_REF:
+                return RuntimeFieldFactory.ID_THROWABLE;
+            default:
+                return fieldNumber;
+        }
+    }
+    
+    /**
+     * Writes the class name (or the index of the name on its back-reference 
+     * field if the dictionary is enabled and the name was already written in the 
+     * current message of the {@code output}).
+     */
+    private void writePojoNameTo(Output output, int fieldNumber, String className) 
+            throws IOException
+    {
+        final int refNumber;
+        if(!classNameDictionary || !(output instanceof MessageScope) || 
+                0 == (refNumber = refNumber(fieldNumber)))
+        {
+            output.writeString(fieldNumber, className, false);
+            return;
+        }
+        
+        final HashMap<String,Integer> written = 
+                ClassNameDictionary.written((MessageScope)output);
+        final Integer index = written.get(className);
+        if(index != null)
+        {
+            output.writeUInt32(refNumber, index.intValue(), false);
+            return;
+        }
+        
+        written.put(className, Integer.valueOf(written.size()));
+        output.writeString(fieldNumber, className, false);
+    }
+    
+    /**
+     * Reads the class name (or resolves the back-reference from the names 
+     * previously read in the current message of the {@code input}).
+     */
+    private String readPojoNameFrom(Input input, int fieldNumber) 
+            throws IOException
+    {
+        final boolean scoped = classNameDictionary && input instanceof MessageScope;
+        if(fieldNumber == nameNumber(fieldNumber))
+        {
+            final String className = input.readString();
+            if(scoped && refNumber(fieldNumber) != 0)
+                ClassNameDictionary.read((MessageScope)input).add(className);
+            
+            return className;
+        }
+        
+        final int index = input.readUInt32();
+        if(!scoped)
+        {
+            throw new ProtostuffException("class name reference " + index + 
+                    " requires the class name dictionary to be enabled.");
+        }
+        
+        final ArrayList<String> read = ClassNameDictionary.read((MessageScope)input);
+        if(index < 0 || index >= read.size())
+            throw new ProtostuffException("unknown class name reference: " + index);
+        
+        return read.get(index);
+    }
+    
     protected void writeArrayIdTo(Output output, Class<?> componentType) 
             throws IOException
     {
@@ -737,4 +898,39 @@ public final class DefaultIdStrategy extends IdStrategy
             return pipeSchema;
         }
     }
+    
+    /**
+     * The class names written to (and read from) the current message, kept by 
+     * the {@link MessageScope} of the output (and input).
+     */
+    static final class ClassNameDictionary
+    {
+        
+        /**
+         * The keys of the names written (mapped to their index) and of the 
+         * names read (in order).
+         */
+        static final Object WRITTEN = new Object(), READ = new Object();
+        
+        @SuppressWarnings("unchecked")
+        static HashMap<String,Integer> written(MessageScope scope)
+        {
+            HashMap<String,Integer> written = 
+                    (HashMap<String,Integer>)scope.getScoped(WRITTEN);
+            if(written == null)
+                scope.setScoped(WRITTEN, written = new HashMap<String,Integer>());
+            
+            return written;
+        }
+        
+        @SuppressWarnings("unchecked")
+        static ArrayList<String> read(MessageScope scope)
+        {
+            ArrayList<String> read = (ArrayList<String>)scope.getScoped(READ);
+            if(read == null)
+                scope.setScoped(READ, read = new ArrayList<String>());
+            
+            return read;
+        }
+    }
 }
@@ -15,7 +15,9 @@
 package com.dyuproject.protostuff.runtime;
 
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POJO;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POJO_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POJO;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POJO_REF;
 
 import java.io.IOException;
 
@@ -44,12 +46,31 @@ public abstract class DerivativeSchema implements Schema<Object>
 
     public String getFieldName(int number)
     {
-        return number == ID_POJO ? STR_POJO : null;
+        switch(number)
+        {
+            case ID_POJO:
+                return STR_POJO;
+            case ID_POJO_REF:
+                return STR_POJO_REF;
+            default:
+                return null;
+        }
     }
 
     public int getFieldNumber(String name)
     {
-        return name.length() == 1 && name.charAt(0) == '_' ? ID_POJO : 0;
+        if(name.length() != 1)
+            return 0;
+        
+        switch(name.charAt(0))
+        {
+            case '_':
+                return ID_POJO;
+            case 'F':
+                return ID_POJO_REF;
+            default:
+                return 0;
+        }
     }
 
     public boolean isInitialized(Object owner)
@@ -85,11 +106,11 @@ public abstract class DerivativeSchema implements Schema<Object>
     public void mergeFrom(Input input, final Object owner) throws IOException
     {
         final int first = input.readFieldNumber(this);
-        if(first != ID_POJO)
+        if(first != ID_POJO && first != ID_POJO_REF)
             throw new ProtostuffException("order not preserved.");
         
         doMergeFrom(input, 
-                strategy.resolvePojoFrom(input, ID_POJO).getSchema(), 
+                strategy.resolvePojoFrom(input, first).getSchema(), 
                 owner);
     }
     
@@ -121,11 +142,11 @@ public abstract class DerivativeSchema implements Schema<Object>
         public void transfer(Pipe pipe, Input input, Output output) throws IOException
         {
             final int first = input.readFieldNumber(DerivativeSchema.this);
-            if(first != ID_POJO)
+            if(first != ID_POJO && first != ID_POJO_REF)
                 throw new ProtostuffException("order not preserved.");
             
             final Pipe.Schema<Object> pipeSchema = strategy.transferPojoId(
-                    input, output, ID_POJO).getPipeSchema();
+                    input, output, first).getPipeSchema();
             
             if(output instanceof StatefulOutput)
             {
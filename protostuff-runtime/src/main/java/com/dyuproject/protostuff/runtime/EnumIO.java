@@ -14,24 +14,35 @@
 
 package com.dyuproject.protostuff.runtime;
 
+import static com.dyuproject.protostuff.StringSerializer.STRING;
 import static com.dyuproject.protostuff.runtime.RuntimeEnv.ENUMS_BY_NAME;
+import static com.dyuproject.protostuff.runtime.RuntimeEnv.ENUM_LITE_NUMBERS;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Map;
 
 import com.dyuproject.protostuff.CollectionSchema;
+import com.dyuproject.protostuff.EnumLite;
 import com.dyuproject.protostuff.Input;
 import com.dyuproject.protostuff.MapSchema;
 import com.dyuproject.protostuff.Output;
 import com.dyuproject.protostuff.Pipe;
+import com.dyuproject.protostuff.ProtostuffException;
+import com.dyuproject.protostuff.StringCache;
 
 /**
  * Determines how enums are serialized/deserialized. 
  * Default is BY_NUMBER. 
  * To enable BY_NAME, set the property "protostuff.runtime.enums_by_name=true".
+ * 
+ * The constants are looked up from tables built once per enum class, so reading 
+ * an enum neither clones {@link Class#getEnumConstants()} nor (BY_NAME, when 
+ * the input supports {@link StringCache.Source}) decodes a string.
  *
  * @author David Yu
  * @created Oct 20, 2010
@@ -130,6 +141,8 @@ public abstract class EnumIO<E extends Enum<E>>
     {
         if(ENUMS_BY_NAME)
             output.writeString(number, e.name(), repeated);
+        else if(ENUM_LITE_NUMBERS && e instanceof EnumLite<?>)
+            output.writeEnum(number, ((EnumLite<?>)e).getNumber(), repeated);
         else
             output.writeEnum(number, e.ordinal(), repeated);
     }
@@ -251,35 +264,222 @@ public abstract class EnumIO<E extends Enum<E>>
     
     /**
      * Reads the enum by its name.
-     *
+     * 
+     * The name is matched against the UTF-8 bytes of the constants' names 
+     * (see {@link NameTable}), which yields the constant's own name instance.
      */
     public static final class ByName<E extends Enum<E>> extends EnumIO<E>
     {
+        final NameTable names;
+        final HashMap<String,E> constants;
+        
         public ByName(Class<E> enumClass)
         {
             super(enumClass);
+            final E[] values = enumClass.getEnumConstants();
+            names = new NameTable(values);
+            constants = new HashMap<String,E>(values.length * 2);
+            for(E e : values)
+                constants.put(e.name(), e);
         }
         
         public E readFrom(Input input) throws IOException
         {
-            return Enum.valueOf(enumClass, input.readString());
+            final String name = StringCache.readString(input, names);
+            final E e = constants.get(name);
+            // unknown name (throws IllegalArgumentException)
+            return e != null ? e : Enum.valueOf(enumClass, name);
         }
     }
     
     /**
-     * Reads the enum by its number.
-     *
+     * Reads the enum by its number (the ordinal, or the {@link EnumLite#getNumber()} 
+     * if {@link RuntimeEnv#ENUM_LITE_NUMBERS} is enabled).
+     * 
+     * The ordinals index the cached constants directly.  The EnumLite numbers are 
+     * indexed directly if they are dense enough, otherwise they are binary-searched.
      */
     public static final class ByNumber<E extends Enum<E>> extends EnumIO<E>
     {
+        /** Indexed by ordinal, or by number if dense. */
+        final E[] constants;
+        /** The sorted numbers (and the respective constants) if sparse, otherwise null. */
+        final int[] numbers;
+        final E[] sparse;
+        final boolean enumLite;
+        
         public ByNumber(Class<E> enumClass)
+        {
+            this(enumClass, ENUM_LITE_NUMBERS);
+        }
+        
+        @SuppressWarnings("unchecked")
+        ByNumber(Class<E> enumClass, boolean enumLiteNumbers)
         {
             super(enumClass);
-        } 
+            final E[] values = enumClass.getEnumConstants();
+            enumLite = enumLiteNumbers && EnumLite.class.isAssignableFrom(enumClass);
+            if(!enumLite)
+            {
+                constants = values;
+                numbers = null;
+                sparse = null;
+                return;
+            }
+            
+            int min = 0, max = -1;
+            final int[] sorted = new int[values.length];
+            for(int i = 0; i < values.length; i++)
+            {
+                final int number = ((EnumLite<?>)values[i]).getNumber();
+                sorted[i] = number;
+                if(i == 0 || number < min)
+                    min = number;
+                if(i == 0 || number > max)
+                    max = number;
+            }
+            Arrays.sort(sorted);
+            for(int i = 1; i < sorted.length; i++)
+            {
+                if(sorted[i] == sorted[i-1])
+                {
+                    throw new RuntimeException("Duplicate enum number " + sorted[i] + 
+                            " on " + enumClass.getName());
+                }
+            }
+            
+            if(min >= 0 && max < 2 * values.length + 16)
+            {
+                constants = (E[])java.lang.reflect.Array.newInstance(enumClass, max + 1);
+                for(E e : values)
+                    constants[((EnumLite<?>)e).getNumber()] = e;
+                
+                numbers = null;
+                sparse = null;
+            }
+            else
+            {
+                constants = null;
+                numbers = sorted;
+                sparse = (E[])java.lang.reflect.Array.newInstance(enumClass, values.length);
+                for(E e : values)
+                    sparse[Arrays.binarySearch(sorted, ((EnumLite<?>)e).getNumber())] = e;
+            }
+        }
         
         public E readFrom(Input input) throws IOException
         {
-            return enumClass.getEnumConstants()[input.readEnum()];
+            final int number = input.readEnum();
+            if(!enumLite)
+                return constants[number];
+            
+            final E e;
+            if(numbers == null)
+                e = number >= 0 && number < constants.length ? constants[number] : null;
+            else
+            {
+                final int i = Arrays.binarySearch(numbers, number);
+                e = i < 0 ? null : sparse[i];
+            }
+            
+            if(e == null)
+            {
+                throw new ProtostuffException("Unknown enum number " + number + 
+                        " on " + enumClass.getName());
+            }
+            
+            return e;
+        }
+    }
+    
+    /**
+     * A (read-only) {@link StringCache} of the names of an enum's constants, 
+     * keyed by their UTF-8 bytes.  A name that matches returns the constant's 
+     * own {@link Enum#name()} without decoding; an unknown name is decoded.
+     * 
+     * An open-addressing table with at least twice as many slots as the names.
+     */
+    static final class NameTable extends StringCache
+    {
+        final byte[][] utf8;
+        final String[] names;
+        final int[] hashes;
+        final int mask;
+        
+        NameTable(Enum<?>[] values)
+        {
+            int size = 2;
+            while(size < values.length * 2)
+                size <<= 1;
+            
+            utf8 = new byte[size][];
+            names = new String[size];
+            hashes = new int[size];
+            mask = size - 1;
+            
+            for(Enum<?> e : values)
+            {
+                final byte[] bytes = STRING.ser(e.name());
+                final int hash = hash(bytes, 0, bytes.length);
+                int i = (hash ^ (hash >>> 16)) & mask;
+                while(names[i] != null)
+                    i = (i + 1) & mask;
+                
+                utf8[i] = bytes;
+                names[i] = e.name();
+                hashes[i] = hash;
+            }
+        }
+        
+        static int hash(byte[] utf8, int offset, int length)
+        {
+            int hash = length;
+            for(int i = offset, limit = offset + length; i < limit; i++)
+                hash = hash * 31 + utf8[i];
+            
+            return hash;
+        }
+        
+        public String get(byte[] utf8, int offset, int length)
+        {
+            final int hash = hash(utf8, offset, length);
+            for(int i = (hash ^ (hash >>> 16)) & mask; names[i] != null; i = (i + 1) & mask)
+            {
+                if(hashes[i] == hash && matches(this.utf8[i], utf8, offset, length))
+                    return names[i];
+            }
+            
+            return STRING.deser(utf8, offset, length);
+        }
+        
+        static boolean matches(byte[] name, byte[] utf8, int offset, int length)
+        {
+            if(name.length != length)
+                return false;
+            
+            for(int i = 0; i < length; i++)
+            {
+                if(name[i] != utf8[offset + i])
+                    return false;
+            }
+            
+            return true;
+        }
+        
+        /**
+         * Not tracked (always 0).
+         */
+        public long getHitCount()
+        {
+            return 0;
+        }
+        
+        /**
+         * Not tracked (always 0).
+         */
+        public long getMissCount()
+        {
+            return 0;
         }
     }
 
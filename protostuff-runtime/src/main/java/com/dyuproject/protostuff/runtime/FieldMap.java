@@ -0,0 +1,236 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.dyuproject.protostuff.runtime.MappedSchema.Field;
+
+/**
+ * Looks up the fields of a {@link MappedSchema} by number.
+ * 
+ * When the field numbers are compact, the fields are indexed by an array.  
+ * When they are sparse (e.g a single {@code @Tag(50000)}), they are stored in an 
+ * open-addressed hash table sized after the field count instead of the last 
+ * field number.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public abstract class FieldMap<T>
+{
+    
+    /**
+     * The field numbers below this are always indexed by an array.
+     */
+    public static final int MIN_SPARSE_FIELD_NUMBER = 64;
+    
+    /**
+     * If the last field number exceeds the field count by this factor, the 
+     * fields are hashed.
+     */
+    public static final int MAX_DENSE_FACTOR = 4;
+    
+    static final Comparator<Field<?>> NUMBER_ORDER = new Comparator<Field<?>>()
+    {
+        public int compare(Field<?> f1, Field<?> f2)
+        {
+            return f1.number < f2.number ? -1 : (f1.number == f2.number ? 0 : 1);
+        }
+    };
+    
+    /**
+     * Creates the field map that fits the numbers of the {@code fields}.
+     * 
+     * @throws IllegalStateException if 2 fields have the same number.
+     */
+    public static <T> FieldMap<T> create(Collection<Field<T>> fields, 
+            int lastFieldNumber)
+    {
+        final ArrayList<Field<T>> sorted = new ArrayList<Field<T>>(fields);
+        Collections.sort(sorted, NUMBER_ORDER);
+        
+        Field<T> prev = null;
+        for(Field<T> f : sorted)
+        {
+            if(prev != null && prev.number == f.number)
+            {
+                throw new IllegalStateException(prev + " and " + f + 
+                        " cannot have the same number.");
+            }
+            prev = f;
+        }
+        
+        if(prev != null && prev.number > lastFieldNumber)
+            lastFieldNumber = prev.number;
+        
+        if(lastFieldNumber < MIN_SPARSE_FIELD_NUMBER || 
+                lastFieldNumber <= MAX_DENSE_FACTOR * sorted.size())
+        {
+            return new Dense<T>(sorted, lastFieldNumber);
+        }
+        
+        return new Sparse<T>(sorted);
+    }
+    
+    /**
+     * Creates the field map from the fields indexed by number (the empty 
+     * slots being null).
+     * 
+     * @throws IllegalStateException if 2 fields have the same number.
+     */
+    public static <T> FieldMap<T> create(Field<T>[] fieldsByNumber)
+    {
+        final ArrayList<Field<T>> fields = new ArrayList<Field<T>>();
+        for(Field<T> f : fieldsByNumber)
+        {
+            if(f != null)
+                fields.add(f);
+        }
+        
+        return create(fields, fieldsByNumber.length - 1);
+    }
+    
+    final List<Field<T>> fields;
+    
+    FieldMap(List<Field<T>> fields)
+    {
+        this.fields = Collections.unmodifiableList(fields);
+    }
+    
+    /**
+     * Returns the field with the given {@code number}, or null if there is none.
+     */
+    public abstract Field<T> getFieldByNumber(int number);
+    
+    /**
+     * Returns the fields, sorted by number.
+     */
+    public final List<Field<T>> getFields()
+    {
+        return fields;
+    }
+    
+    /**
+     * Returns the total number of fields.
+     */
+    public final int getFieldCount()
+    {
+        return fields.size();
+    }
+    
+    /**
+     * Returns a new array of the fields indexed by number, sized after the 
+     * last field number.
+     */
+    @SuppressWarnings("unchecked")
+    public final Field<T>[] toArrayByNumber()
+    {
+        final Field<T>[] fieldsByNumber = (Field<T>[])new Field<?>[
+                fields.isEmpty() ? 1 : fields.get(fields.size() - 1).number + 1];
+        for(Field<T> f : fields)
+            fieldsByNumber[f.number] = f;
+        
+        return fieldsByNumber;
+    }
+    
+    /**
+     * The fields indexed by number.
+     */
+    static final class Dense<T> extends FieldMap<T>
+    {
+        
+        final Field<T>[] fieldsByNumber;
+        
+        @SuppressWarnings("unchecked")
+        Dense(List<Field<T>> fields, int lastFieldNumber)
+        {
+            super(fields);
+            
+            fieldsByNumber = (Field<T>[])new Field<?>[lastFieldNumber + 1];
+            for(Field<T> f : fields)
+                fieldsByNumber[f.number] = f;
+        }
+
+        public Field<T> getFieldByNumber(int number)
+        {
+            return number < fieldsByNumber.length ? fieldsByNumber[number] : null;
+        }
+    }
+    
+    /**
+     * The fields hashed by number, with linear probing.
+     */
+    static final class Sparse<T> extends FieldMap<T>
+    {
+        
+        /**
+         * The field numbers (0 being an empty slot since field numbers start at 1).
+         */
+        final int[] numbers;
+        final Field<T>[] values;
+        final int mask, shift;
+        
+        @SuppressWarnings("unchecked")
+        Sparse(List<Field<T>> fields)
+        {
+            super(fields);
+            
+            // at most half full
+            int bits = 2;
+            while((1 << bits) < 2 * fields.size())
+                bits++;
+            
+            numbers = new int[1 << bits];
+            values = (Field<T>[])new Field<?>[1 << bits];
+            mask = numbers.length - 1;
+            shift = 32 - bits;
+            
+            for(Field<T> f : fields)
+            {
+                int i = indexOf(f.number);
+                while(numbers[i] != 0)
+                    i = (i + 1) & mask;
+                
+                numbers[i] = f.number;
+                values[i] = f;
+            }
+        }
+        
+        int indexOf(int number)
+        {
+            // fibonacci hashing spreads the sequential numbers
+            return (number * 0x9E3779B9) >>> shift;
+        }
+
+        public Field<T> getFieldByNumber(int number)
+        {
+            for(int i = indexOf(number);; i = (i + 1) & mask)
+            {
+                final int n = numbers[i];
+                if(n == number)
+                    return values[i];
+                
+                if(n == 0)
+                    return null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the pojo schemas generated at compile time (by the 
+ * protostuff-runtime-apt annotation processor), which the {@link IdStrategy} 
+ * consults before reflecting over a pojo.
+ * 
+ * A generated schema factory is named after the binary name of its pojo 
+ * plus {@link #SUFFIX} (e.g {@code com.example.Foo$$Schema}) and is discovered 
+ * on the first use of the pojo.  Factories can also be {@link #register registered} 
+ * explicitly (on application startup).
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class GeneratedSchemas
+{
+    
+    /**
+     * The suffix appended to the binary name of the pojo to get the name of 
+     * its generated schema factory.
+     */
+    public static final String SUFFIX = "$$Schema";
+    
+    /**
+     * Creates the schema of a pojo, with the same fields (and field numbers) as 
+     * {@link RuntimeSchema#createFrom(Class, IdStrategy)}.
+     */
+    public interface Factory<T>
+    {
+        
+        /**
+         * Returns the pojo class of the schemas created.
+         */
+        public Class<T> typeClass();
+        
+        /**
+         * Creates a new schema whose (non-inlined) fields are bound to the 
+         * {@code strategy}.
+         */
+        public RuntimeSchema<T> newSchema(IdStrategy strategy);
+    }
+    
+    private static final ConcurrentHashMap<Class<?>, Factory<?>> __factories = 
+        new ConcurrentHashMap<Class<?>, Factory<?>>();
+    
+    /**
+     * Cached for the pojos without a generated factory, so that the lookup 
+     * ({@link Class#forName}) is only done once per pojo.
+     */
+    static final Factory<Object> MISSING = new Factory<Object>()
+    {
+        public Class<Object> typeClass()
+        {
+            return Object.class;
+        }
+        
+        public RuntimeSchema<Object> newSchema(IdStrategy strategy)
+        {
+            throw new UnsupportedOperationException();
+        }
+    };
+    
+    private GeneratedSchemas() {}
+    
+    /**
+     * Registers the {@code factory} (which overrides the discovered one).
+     * 
+     * Returns true if no factory was registered yet for its type.
+     */
+    public static <T> boolean register(Factory<T> factory)
+    {
+        final Factory<?> last = __factories.put(factory.typeClass(), factory);
+        return last == null || last == MISSING;
+    }
+    
+    /**
+     * Returns the factory registered or generated for the {@code typeClass}, 
+     * or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Factory<T> getFactory(Class<T> typeClass)
+    {
+        Factory<T> factory = (Factory<T>)__factories.get(typeClass);
+        if(factory != null)
+            return factory == MISSING ? null : factory;
+        
+        if(!RuntimeEnv.USE_GENERATED_SCHEMAS)
+            return null;
+        
+        final Class<?> factoryClass;
+        try
+        {
+            factoryClass = Class.forName(typeClass.getName() + SUFFIX, true, 
+                    typeClass.getClassLoader());
+        }
+        catch(ClassNotFoundException e)
+        {
+            return missing(typeClass);
+        }
+        
+        if(!Factory.class.isAssignableFrom(factoryClass))
+            return missing(typeClass);
+        
+        try
+        {
+            factory = (Factory<T>)factoryClass.newInstance();
+        }
+        catch(Exception e)
+        {
+            throw new RuntimeException("Could not instantiate " + factoryClass, e);
+        }
+        
+        if(factory.typeClass() != typeClass)
+            return missing(typeClass);
+        
+        final Factory<T> existing = (Factory<T>)__factories.putIfAbsent(typeClass, 
+                factory);
+        
+        return existing == null ? factory : (existing == MISSING ? null : existing);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> Factory<T> missing(Class<T> typeClass)
+    {
+        // a factory registered meanwhile wins
+        final Factory<T> existing = (Factory<T>)__factories.putIfAbsent(typeClass, 
+                MISSING);
+        
+        return existing == null || existing == MISSING ? null : existing;
+    }
+    
+    /**
+     * Returns a new schema from the factory of the {@code typeClass}, or null 
+     * if there is none.
+     */
+    public static <T> RuntimeSchema<T> newSchema(Class<T> typeClass, IdStrategy strategy)
+    {
+        final Factory<T> factory = getFactory(typeClass);
+        return factory == null ? null : factory.newSchema(strategy);
+    }
+
+}
@@ -125,6 +125,11 @@ public abstract class IdStrategy
             
             return s;
         }
+        
+        // use the schema generated at compile time if available
+        final RuntimeSchema<T> generated = GeneratedSchemas.newSchema(typeClass, this);
+        if(generated != null)
+            return generated;
 
         return RuntimeSchema.createFrom(typeClass, this);
     }
@@ -15,6 +15,7 @@
 package com.dyuproject.protostuff.runtime;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,11 +38,17 @@ public abstract class MappedSchema<T> implements Schema<T>
 {
     
     protected final Class<T> typeClass;
-    protected final Field<T>[] fields, fieldsByNumber;
+    protected final Field<T>[] fields;
+    /**
+     * The fields indexed by number if the numbers are dense, otherwise null (the 
+     * {@link #fieldMap} hashes them instead of allocating an array sized after 
+     * the last field number).
+     */
+    protected final Field<T>[] fieldsByNumber;
+    protected final FieldMap<T> fieldMap;
     protected final Map<String,Field<T>> fieldsByName;
     protected final Pipe.Schema<T> pipeSchema;
     
-    @SuppressWarnings("unchecked")
     public MappedSchema(Class<T> typeClass, Field<T>[] fields, int lastFieldNumber)
     {
         if(fields.length==0)
@@ -50,7 +57,6 @@ public abstract class MappedSchema<T> implements Schema<T>
         this.typeClass = typeClass;
         this.fields = fields;
         fieldsByName = new HashMap<String,Field<T>>();
-        fieldsByNumber = (Field<T>[])new Field<?>[lastFieldNumber + 1];
         for(Field<T> f : fields)
         {
             Field<T> last = this.fieldsByName.put(f.name, f);
@@ -59,17 +65,13 @@ public abstract class MappedSchema<T> implements Schema<T>
                 throw new IllegalStateException(last + " and " + f + 
                         " cannot have the same name.");
             }
-            if(fieldsByNumber[f.number]!=null)
-            {
-                throw new IllegalStateException(fieldsByNumber[f.number] + " and " + f + 
-                        " cannot have the same number.");
-            }
-            
-            fieldsByNumber[f.number] = f;
             //f.owner = this;
         }
         
-        pipeSchema = new RuntimePipeSchema<T>(this, fieldsByNumber);
+        fieldMap = FieldMap.create(Arrays.asList(fields), lastFieldNumber);
+        fieldsByNumber = denseFieldsOf(fieldMap);
+        
+        pipeSchema = new RuntimePipeSchema<T>(this, fieldMap);
     }
     
     @SuppressWarnings("unchecked")
@@ -81,7 +83,6 @@ public abstract class MappedSchema<T> implements Schema<T>
         
         this.typeClass = typeClass;
         fieldsByName = new HashMap<String,Field<T>>();
-        fieldsByNumber = (Field<T>[])new Field<?>[lastFieldNumber + 1];
         for(Field<T> f : fields)
         {
             Field<T> last = this.fieldsByName.put(f.name, f);
@@ -90,24 +91,17 @@ public abstract class MappedSchema<T> implements Schema<T>
                 throw new IllegalStateException(last + " and " + f + 
                         " cannot have the same name.");
             }
-            if(fieldsByNumber[f.number]!=null)
-            {
-                throw new IllegalStateException(fieldsByNumber[f.number] + " and " + f + 
-                        " cannot have the same number.");
-            }
-            
-            fieldsByNumber[f.number] = f;
             //f.owner = this;
         }
         
-        this.fields = (Field<T>[])new Field<?>[fields.size()];
-        for(int i = 1, j = 0; i < fieldsByNumber.length; i++)
-        {
-            if(fieldsByNumber[i] != null)
-                this.fields[j++] = fieldsByNumber[i];
-        }
+        fieldMap = FieldMap.create(fields, lastFieldNumber);
+        fieldsByNumber = denseFieldsOf(fieldMap);
         
-        pipeSchema = new RuntimePipeSchema<T>(this, fieldsByNumber);
+        // sorted by number
+        this.fields = fieldMap.getFields().toArray(
+                (Field<T>[])new Field<?>[fields.size()]);
+        
+        pipeSchema = new RuntimePipeSchema<T>(this, fieldMap);
     }
     
     @SuppressWarnings("unchecked")
@@ -120,28 +114,15 @@ public abstract class MappedSchema<T> implements Schema<T>
         this.typeClass = typeClass;
         this.fieldsByName = fieldsByName;
         Collection<Field<T>> fields = fieldsByName.values();
-        fieldsByNumber = (Field<T>[])new Field<?>[lastFieldNumber + 1];
         
-        for(Field<T> f : fields)
-        {
-            if(fieldsByNumber[f.number]!=null)
-            {
-                throw new IllegalStateException(fieldsByNumber[f.number] + " and " + f + 
-                        " cannot have the same number.");
-            }
-            
-            fieldsByNumber[f.number] = f;
-            //f.owner = this;
-        }
+        fieldMap = FieldMap.create(fields, lastFieldNumber);
+        fieldsByNumber = denseFieldsOf(fieldMap);
         
-        this.fields = (Field<T>[])new Field<?>[fields.size()];
-        for(int i = 1, j = 0; i < fieldsByNumber.length; i++)
-        {
-            if(fieldsByNumber[i] != null)
-                this.fields[j++] = fieldsByNumber[i];
-        }
+        // sorted by number
+        this.fields = fieldMap.getFields().toArray(
+                (Field<T>[])new Field<?>[fields.size()]);
         
-        pipeSchema = new RuntimePipeSchema<T>(this, fieldsByNumber);
+        pipeSchema = new RuntimePipeSchema<T>(this, fieldMap);
     }
     
     /**
@@ -167,12 +148,28 @@ public abstract class MappedSchema<T> implements Schema<T>
         return typeClass.getName();
     }
     
+    static <T> Field<T>[] denseFieldsOf(FieldMap<T> fieldMap)
+    {
+        return fieldMap instanceof FieldMap.Dense<?> ? 
+                ((FieldMap.Dense<T>)fieldMap).fieldsByNumber : null;
+    }
+    
+    /**
+     * Returns the fields indexed by number ({@link #fieldsByNumber} if the numbers 
+     * are dense, otherwise a new array sized after the last field number).
+     */
+    protected Field<T>[] getFieldsByNumber()
+    {
+        return fieldsByNumber != null ? fieldsByNumber : fieldMap.toArrayByNumber();
+    }
+    
     public String getFieldName(int number)
     {
         // only called on writes
-        final Field<T> field = number < fieldsByNumber.length ? 
-                fieldsByNumber[number] : null;
-                
+        final Field<T> field = fieldsByNumber == null ? 
+                fieldMap.getFieldByNumber(number) : 
+                (number < fieldsByNumber.length ? fieldsByNumber[number] : null);
+        
         return field == null ? null : field.name;
     }
     
@@ -182,13 +179,16 @@ public abstract class MappedSchema<T> implements Schema<T>
         return field == null ? 0 : field.number;
     }
     
-    public final void mergeFrom(Input input, T message) throws IOException
+    public void mergeFrom(Input input, T message) throws IOException
     {
+        final Field<T>[] fieldsByNumber = this.fieldsByNumber;
         for (int number = input.readFieldNumber(this); number != 0; 
                 number = input.readFieldNumber(this))
         {
-            final Field<T> field = number < fieldsByNumber.length ? 
-                    fieldsByNumber[number] : null;
+            // the dense schemas index the array directly
+            final Field<T> field = fieldsByNumber == null ? 
+                    fieldMap.getFieldByNumber(number) : 
+                    (number < fieldsByNumber.length ? fieldsByNumber[number] : null);
 
             if(field == null)
                 input.handleUnknownField(number, this);
@@ -197,7 +197,7 @@ public abstract class MappedSchema<T> implements Schema<T>
         }
     }
     
-    public final void writeTo(Output output, T message) throws IOException
+    public void writeTo(Output output, T message) throws IOException
     {
         for(Field<T> f : fields)
             f.writeTo(output, message);
@@ -240,6 +240,20 @@ public abstract class MappedSchema<T> implements Schema<T>
         {
             this(type, number, name, false, tag);
         }
+        
+        /**
+         * Used by the generated schemas, which resolve the {@link Tag#groupFilter()} 
+         * at compile time.
+         */
+        public Field(FieldType type, int number, String name, boolean repeated, 
+                int groupFilter)
+        {
+            this.type = type;
+            this.number = number;
+            this.name = name;
+            this.repeated = repeated;
+            this.groupFilter = groupFilter;
+        }
 
         /**
          * Writes the value of a field to the {@code output}.
@@ -42,6 +42,7 @@ import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_FLOAT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_INT32;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_INT64;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POJO;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POJO_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_SHORT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.INT32;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.INT64;
@@ -54,6 +55,7 @@ import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_FLOAT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_INT32;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_INT64;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POJO;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POJO_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_SHORT;
 
 import java.io.IOException;
@@ -98,6 +100,8 @@ public abstract class NumberSchema extends PolymorphicSchema
             // AtomicInteger and AtomicLong
             case ID_POJO:
                 return STR_POJO;
+            case ID_POJO_REF:
+                return STR_POJO_REF;
             default:
                 return null;
         }
@@ -112,6 +116,8 @@ public abstract class NumberSchema extends PolymorphicSchema
         {
             case '_':
                 return 127;
+            case 'F':
+                return 32;
             case 'b':
                 return 2;
             case 'd':
@@ -212,7 +218,7 @@ public abstract class NumberSchema extends PolymorphicSchema
     {
         final int number = input.readFieldNumber(schema);
         
-        if(number == ID_POJO)
+        if(number == ID_POJO || number == ID_POJO_REF)
         {
             // AtomicInteger/AtomicLong
             final Schema<Object> derivedSchema = strategy.resolvePojoFrom(
@@ -277,7 +283,7 @@ public abstract class NumberSchema extends PolymorphicSchema
             Input input, Output output, IdStrategy strategy) throws IOException
     {
         final int number = input.readFieldNumber(pipeSchema.wrappedSchema);
-        if(number == ID_POJO)
+        if(number == ID_POJO || number == ID_POJO_REF)
         {
             // AtomicInteger/AtomicLong
             final Pipe.Schema<Object> derivedPipeSchema = strategy.transferPojoId(
@@ -50,11 +50,13 @@ import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_INT64;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_MAP;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_OBJECT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POJO;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POJO_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POLYMORPHIC_COLLECTION;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_POLYMORPHIC_MAP;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_SHORT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_STRING;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_THROWABLE;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_THROWABLE_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.INT32;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.INT64;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.SHORT;
@@ -85,11 +87,13 @@ import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_INT64;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_MAP;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_OBJECT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POJO;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POJO_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POLYMOPRHIC_MAP;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_POLYMORPHIC_COLLECTION;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_SHORT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_STRING;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_THROWABLE;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_THROWABLE_REF;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
@@ -134,6 +138,8 @@ public abstract class ObjectSchema extends PolymorphicSchema
                 return STR_DELEGATE;
             case ID_THROWABLE:
                 return STR_THROWABLE;
+            case ID_THROWABLE_REF:
+                return STR_THROWABLE_REF;
             case ID_BOOL:
                 return STR_BOOL;
             case ID_BYTE:
@@ -189,6 +195,8 @@ public abstract class ObjectSchema extends PolymorphicSchema
                 return STR_MAP;
             case ID_POJO:
                 return STR_POJO;
+            case ID_POJO_REF:
+                return STR_POJO_REF;
             default:
                 return null;
         }
@@ -207,8 +215,12 @@ public abstract class ObjectSchema extends PolymorphicSchema
                 return 29;
             case 'D':
                 return 30;
+            case 'Y':
+                return 53;
             case 'Z':
                 return 52;
+            case 'F':
+                return 32;
             case '_':
                 return 127;
             case 'a':
@@ -609,9 +621,11 @@ public abstract class ObjectSchema extends PolymorphicSchema
                 break;
             }
             case ID_THROWABLE:
+            case ID_THROWABLE_REF:
                 return PolymorphicThrowableSchema.readObjectFrom(input, schema, owner, 
                         strategy, number);
             case ID_POJO:
+            case ID_POJO_REF:
             {
                 final Schema<Object> derivedSchema = strategy.resolvePojoFrom(
                         input, number).getSchema();
@@ -1013,11 +1027,13 @@ public abstract class ObjectSchema extends PolymorphicSchema
             }
             
             case ID_THROWABLE:
+            case ID_THROWABLE_REF:
                 PolymorphicThrowableSchema.transferObject(pipeSchema, pipe, input, 
                         output, strategy, number);
                 return;
                 
             case ID_POJO:
+            case ID_POJO_REF:
                 final Pipe.Schema<Object> derivedPipeSchema = strategy.transferPojoId(
                         input, output, number).getPipeSchema();
                 
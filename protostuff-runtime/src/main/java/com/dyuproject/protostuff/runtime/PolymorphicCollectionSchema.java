@@ -32,9 +32,11 @@ package com.dyuproject.protostuff.runtime;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_COLLECTION;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_ENUM;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_ENUM_SET;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_SIZE_HINT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_COLLECTION;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_ENUM;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_ENUM_SET;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_SIZE_HINT;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
@@ -45,6 +47,7 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.dyuproject.protostuff.CollectionSchema;
 import com.dyuproject.protostuff.GraphInput;
 import com.dyuproject.protostuff.Input;
 import com.dyuproject.protostuff.Output;
@@ -344,6 +347,7 @@ public abstract class PolymorphicCollectionSchema extends PolymorphicSchema
             case ID_ENUM_SET: return STR_ENUM_SET;
             case ID_ENUM: return STR_ENUM;
             case ID_COLLECTION: return STR_COLLECTION;
+            case ID_SIZE_HINT: return STR_SIZE_HINT;
             default: return null;
         }
     }
@@ -379,6 +383,7 @@ public abstract class PolymorphicCollectionSchema extends PolymorphicSchema
             case 'v': return ID_ENUM_SET;
             case 'x': return ID_ENUM;
             case 'y': return ID_COLLECTION;
+            case 'E': return ID_SIZE_HINT;
             default: return 0;
         }
     }
@@ -516,6 +521,9 @@ public abstract class PolymorphicCollectionSchema extends PolymorphicSchema
         }
         else
         {
+            if(RuntimeEnv.COLLECTION_SIZE_HINTS)
+                writeSizeHintTo(output, ((Collection<?>)value).size());
+            
             strategy.writeCollectionIdTo(output, ID_COLLECTION, value.getClass());
         }
         
@@ -755,13 +763,31 @@ public abstract class PolymorphicCollectionSchema extends PolymorphicSchema
         output.writeObject(1, type, strategy.CLASS_SCHEMA, false);
     }
 
+    /**
+     * Writes the size of the collection (or map) ahead of its id, so that the reader 
+     * can create it presized.  Small sizes are not written.
+     */
+    static void writeSizeHintTo(Output output, int size) throws IOException
+    {
+        if(size >= CollectionSchema.MIN_SIZE_HINT)
+            output.writeUInt32(ID_SIZE_HINT, size, false);
+    }
+
     @SuppressWarnings("unchecked")
     static Object readObjectFrom(Input input,  Schema<?> schema, Object owner, 
             IdStrategy strategy) throws IOException // TODO pass in type (Class<?>)
     {
         final boolean graph = input instanceof GraphInput;
         Object ret = null;
-        final int number = input.readFieldNumber(schema);
+        int number = input.readFieldNumber(schema), sizeHint = 0;
+        if(number == ID_SIZE_HINT)
+        {
+            // only written ahead of the collection id
+            sizeHint = input.readUInt32();
+            if(ID_COLLECTION != (number = input.readFieldNumber(schema)))
+                throw new ProtostuffException("Corrupt input.");
+        }
+        
         switch(number)
         {
             case ID_EMPTY_SET:
@@ -1053,8 +1079,8 @@ public abstract class PolymorphicCollectionSchema extends PolymorphicSchema
                 
             case ID_COLLECTION:
             {
-                final Collection<Object> collection = strategy.resolveCollectionFrom(
-                        input).newMessage();
+                final Collection<Object> collection = CollectionSchema.newMessage(
+                        strategy.resolveCollectionFrom(input), sizeHint);
                 
                 if(graph)
                 {
@@ -1197,7 +1223,14 @@ public abstract class PolymorphicCollectionSchema extends PolymorphicSchema
     static void transferObject(Pipe.Schema<Object> pipeSchema, Pipe pipe, 
             Input input, Output output, IdStrategy strategy) throws IOException
     {
-        final int number = input.readFieldNumber(pipeSchema.wrappedSchema);
+        int number = input.readFieldNumber(pipeSchema.wrappedSchema);
+        if(number == ID_SIZE_HINT)
+        {
+            output.writeUInt32(number, input.readUInt32(), false);
+            if(ID_COLLECTION != (number = input.readFieldNumber(pipeSchema.wrappedSchema)))
+                throw new ProtostuffException("Corrupt input.");
+        }
+        
         switch(number)
         {
             case ID_EMPTY_SET:
@@ -31,8 +31,10 @@ package com.dyuproject.protostuff.runtime;
 
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_ENUM_MAP;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_MAP;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_SIZE_HINT;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_ENUM_MAP;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_MAP;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_SIZE_HINT;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
@@ -44,6 +46,7 @@ import java.util.Map;
 
 import com.dyuproject.protostuff.GraphInput;
 import com.dyuproject.protostuff.Input;
+import com.dyuproject.protostuff.MapSchema;
 import com.dyuproject.protostuff.Output;
 import com.dyuproject.protostuff.Pipe;
 import com.dyuproject.protostuff.ProtostuffException;
@@ -207,6 +210,7 @@ public abstract class PolymorphicMapSchema extends PolymorphicSchema
             case ID_CHECKED_SORTED_MAP: return STR_CHECKED_SORTED_MAP;
             case ID_ENUM_MAP: return STR_ENUM_MAP;
             case ID_MAP: return STR_MAP;
+            case ID_SIZE_HINT: return STR_SIZE_HINT;
             default: return null;
         }
     }
@@ -228,6 +232,7 @@ public abstract class PolymorphicMapSchema extends PolymorphicSchema
             case 'h': return 8;
             case 'w': return ID_ENUM_MAP;
             case 'z': return ID_MAP;
+            case 'E': return ID_SIZE_HINT;
             default: return 0;
         }
     }
@@ -339,6 +344,12 @@ public abstract class PolymorphicMapSchema extends PolymorphicSchema
         }
         else
         {
+            if(RuntimeEnv.COLLECTION_SIZE_HINTS)
+            {
+                PolymorphicCollectionSchema.writeSizeHintTo(output, 
+                        ((Map<?,?>)value).size());
+            }
+            
             strategy.writeMapIdTo(output, ID_MAP, clazz);
         }
         
@@ -499,7 +510,15 @@ public abstract class PolymorphicMapSchema extends PolymorphicSchema
     {
         final boolean graph = input instanceof GraphInput;
         Object ret = null;
-        final int number = input.readFieldNumber(schema);
+        int number = input.readFieldNumber(schema), sizeHint = 0;
+        if(number == ID_SIZE_HINT)
+        {
+            // only written ahead of the map id
+            sizeHint = input.readUInt32();
+            if(ID_MAP != (number = input.readFieldNumber(schema)))
+                throw new ProtostuffException("Corrupt input.");
+        }
+        
         switch(number)
         {
             case ID_EMPTY_MAP:
@@ -576,8 +595,8 @@ public abstract class PolymorphicMapSchema extends PolymorphicSchema
             } 
             case ID_MAP:
             {
-                final Map<Object,Object> map = 
-                    strategy.resolveMapFrom(input).newMessage();
+                final Map<Object,Object> map = MapSchema.newMessage(
+                        strategy.resolveMapFrom(input), sizeHint);
                 
                 if(input instanceof GraphInput)
                 {
@@ -821,7 +840,14 @@ public abstract class PolymorphicMapSchema extends PolymorphicSchema
     static void transferObject(Pipe.Schema<Object> pipeSchema, Pipe pipe, 
             Input input, Output output, IdStrategy strategy) throws IOException
     {
-        final int number = input.readFieldNumber(pipeSchema.wrappedSchema);
+        int number = input.readFieldNumber(pipeSchema.wrappedSchema);
+        if(number == ID_SIZE_HINT)
+        {
+            output.writeUInt32(number, input.readUInt32(), false);
+            if(ID_MAP != (number = input.readFieldNumber(pipeSchema.wrappedSchema)))
+                throw new ProtostuffException("Corrupt input.");
+        }
+        
         switch(number)
         {
             case ID_EMPTY_MAP:
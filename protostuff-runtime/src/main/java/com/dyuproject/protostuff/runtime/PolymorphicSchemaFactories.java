@@ -56,6 +56,97 @@ public enum PolymorphicSchemaFactories implements PolymorphicSchema.Factory
             };
         }
     }, 
+    BOOL_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.BoolArray(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
+    CHAR_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.CharArray(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
+    SHORT_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.ShortArray(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
+    INT32_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.Int32Array(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
+    INT64_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.Int64Array(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
+    FLOAT_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.FloatArray(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
+    DOUBLE_ARRAY
+    {
+        public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
+        {
+            return new PrimitiveArraySchema.DoubleArray(strategy)
+            {
+                protected void setValue(Object value, Object owner)
+                {
+                    handler.setValue(value, owner);
+                }
+            };
+        }
+    }, 
     NUMBER
     {
         public PolymorphicSchema newSchema(IdStrategy strategy, final Handler handler)
@@ -150,10 +241,42 @@ public enum PolymorphicSchemaFactories implements PolymorphicSchema.Factory
     ;
     
 
+    /**
+     * Returns the factory for one-dimensional arrays of primitives (other than 
+     * byte[] which is inline), or null if not applicable or disabled via 
+     * {@link RuntimeEnv#PRIMITIVE_ARRAY_SCHEMAS}.
+     */
+    static PolymorphicSchema.Factory getPrimitiveArrayFactory(Class<?> clazz)
+    {
+        if(!RuntimeEnv.PRIMITIVE_ARRAY_SCHEMAS)
+            return null;
+        
+        final Class<?> componentType = clazz.getComponentType();
+        if(int.class == componentType)
+            return INT32_ARRAY;
+        if(long.class == componentType)
+            return INT64_ARRAY;
+        if(double.class == componentType)
+            return DOUBLE_ARRAY;
+        if(float.class == componentType)
+            return FLOAT_ARRAY;
+        if(boolean.class == componentType)
+            return BOOL_ARRAY;
+        if(short.class == componentType)
+            return SHORT_ARRAY;
+        if(char.class == componentType)
+            return CHAR_ARRAY;
+        
+        return null;
+    }
+
     public static PolymorphicSchema.Factory getFactoryFromField(Class<?> clazz)
     {
         if(clazz.isArray())
-            return ARRAY;
+        {
+            final PolymorphicSchema.Factory factory = getPrimitiveArrayFactory(clazz);
+            return factory != null ? factory : ARRAY;
+        }
         
         if(Number.class == clazz)
             return NUMBER;
@@ -180,7 +303,10 @@ public enum PolymorphicSchemaFactories implements PolymorphicSchema.Factory
             Class<?> clazz)
     {
         if(clazz.isArray())
-            return ARRAY;
+        {
+            final PolymorphicSchema.Factory factory = getPrimitiveArrayFactory(clazz);
+            return factory != null ? factory : ARRAY;
+        }
         
         if(Number.class == clazz)
             return NUMBER;
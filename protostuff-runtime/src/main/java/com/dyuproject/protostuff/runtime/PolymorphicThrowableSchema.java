@@ -30,7 +30,9 @@
 package com.dyuproject.protostuff.runtime;
 
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_THROWABLE;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_THROWABLE_REF;
 import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_THROWABLE;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.STR_THROWABLE_REF;
 
 import java.io.IOException;
 
@@ -71,12 +73,31 @@ public abstract class PolymorphicThrowableSchema extends PolymorphicSchema
     
     static String name(int number)
     {
-        return number == ID_THROWABLE ? STR_THROWABLE : null;
+        switch(number)
+        {
+            case ID_THROWABLE:
+                return STR_THROWABLE;
+            case ID_THROWABLE_REF:
+                return STR_THROWABLE_REF;
+            default:
+                return null;
+        }
     }
     
     static int number(String name)
     {
-        return name.length() == 1 && name.charAt(0) == 'Z' ? ID_THROWABLE : 0;
+        if(name.length() != 1)
+            return 0;
+        
+        switch(name.charAt(0))
+        {
+            case 'Z':
+                return ID_THROWABLE;
+            case 'Y':
+                return ID_THROWABLE_REF;
+            default:
+                return 0;
+        }
     }
     
     protected final Pipe.Schema<Object> pipeSchema = new Pipe.Schema<Object>(this)
@@ -189,7 +210,7 @@ public abstract class PolymorphicThrowableSchema extends PolymorphicSchema
             IdStrategy strategy) throws IOException
     {
         final int number = input.readFieldNumber(schema);
-        if(number != ID_THROWABLE)
+        if(number != ID_THROWABLE && number != ID_THROWABLE_REF)
             throw new ProtostuffException("Corrupt input.");
         
         return readObjectFrom(input, schema, owner, strategy, number);
@@ -253,7 +274,7 @@ public abstract class PolymorphicThrowableSchema extends PolymorphicSchema
             Input input, Output output, IdStrategy strategy) throws IOException
     {
         final int number = input.readFieldNumber(pipeSchema.wrappedSchema);
-        if(number != ID_THROWABLE)
+        if(number != ID_THROWABLE && number != ID_THROWABLE_REF)
             throw new ProtostuffException("Corrupt input.");
         
         transferObject(pipeSchema, pipe, input, output, strategy, number);
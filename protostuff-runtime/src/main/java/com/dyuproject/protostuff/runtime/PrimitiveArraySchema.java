@@ -0,0 +1,361 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff.runtime;
+
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_ARRAY;
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_ARRAY_MAPPED;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+
+import com.dyuproject.protostuff.GraphInput;
+import com.dyuproject.protostuff.Input;
+import com.dyuproject.protostuff.Output;
+import com.dyuproject.protostuff.PackedFieldUtil;
+import com.dyuproject.protostuff.Pipe;
+import com.dyuproject.protostuff.ProtostuffException;
+import com.dyuproject.protostuff.runtime.ObjectSchema.ArrayWrapper;
+
+/**
+ * Used when a field is a one-dimensional array of a primitive component type 
+ * (e.g int[], double[]).  The elements are read and written without boxing.
+ * 
+ * The length is written first, followed by the elements as a repeated field 
+ * (packed on formats that support it).
+ * 
+ * The format used by {@link ArraySchema} (component type id, length, dimensions 
+ * and boxed elements) is still accepted when reading.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public abstract class PrimitiveArraySchema extends PolymorphicSchema
+{
+    
+    static final int ID_ARRAY_DATA = 1;
+    static final int ID_ARRAY_LEN = ArraySchema.ID_ARRAY_LEN;
+    
+    static final String STR_ARRAY_DATA = "v";
+    
+    protected final Pipe.Schema<Object> pipeSchema = new Pipe.Schema<Object>(this)
+    {
+        protected void transfer(Pipe pipe, Input input, Output output) throws IOException
+        {
+            final int number = input.readFieldNumber(wrappedSchema);
+            switch(number)
+            {
+                case ID_ARRAY_LEN:
+                    break;
+                    
+                case ID_ARRAY:
+                    ObjectSchema.transferArray(pipe, input, output, number, this, 
+                            false, strategy);
+                    return;
+                    
+                case ID_ARRAY_MAPPED:
+                    ObjectSchema.transferArray(pipe, input, output, number, this, 
+                            true, strategy);
+                    return;
+                    
+                default:
+                    throw new ProtostuffException("Corrupt input.");
+            }
+            
+            // buffered (without boxing) so that the elements are packed the same way
+            final int len = input.readUInt32();
+            output.writeUInt32(ID_ARRAY_LEN, len, false);
+            writeArrayTo(output, readArrayFrom(input, len));
+            
+            if(input.readFieldNumber(wrappedSchema) != 0)
+                throw new ProtostuffException("Corrupt input.");
+        }
+    };
+    
+    public PrimitiveArraySchema(IdStrategy strategy)
+    {
+        super(strategy);
+    }
+    
+    public Pipe.Schema<Object> getPipeSchema()
+    {
+        return pipeSchema;
+    }
+    
+    public String getFieldName(int number)
+    {
+        return number == ID_ARRAY_DATA ? STR_ARRAY_DATA : ArraySchema.name(number);
+    }
+
+    public int getFieldNumber(String name)
+    {
+        return name.length() == 1 && name.charAt(0) == 'v' ? ID_ARRAY_DATA : 
+            ArraySchema.number(name);
+    }
+
+    public String messageFullName()
+    {
+        return Array.class.getName();
+    }
+
+    public String messageName()
+    {
+        return Array.class.getSimpleName();
+    }
+    
+    public void mergeFrom(Input input, Object owner) throws IOException
+    {
+        final int number = input.readFieldNumber(this);
+        final Object array;
+        switch(number)
+        {
+            case ID_ARRAY_LEN:
+                array = readArrayFrom(input, input.readUInt32());
+                if(input.readFieldNumber(this) != 0)
+                    throw new ProtostuffException("Corrupt input.");
+                
+                if(input instanceof GraphInput)
+                {
+                    // update the actual reference.
+                    ((GraphInput)input).updateLast(array, owner);
+                }
+                break;
+                
+            case ID_ARRAY:
+                array = readBoxedArrayFrom(input, owner, false);
+                break;
+                
+            case ID_ARRAY_MAPPED:
+                array = readBoxedArrayFrom(input, owner, true);
+                break;
+            
+            default:
+                throw new ProtostuffException("Corrupt input.");
+        }
+        
+        setValue(array, owner);
+    }
+    
+    public void writeTo(Output output, Object value) throws IOException
+    {
+        output.writeUInt32(ID_ARRAY_LEN, Array.getLength(value), false);
+        writeArrayTo(output, value);
+    }
+    
+    /**
+     * Reads an array written by {@link ArraySchema}.
+     */
+    private Object readBoxedArrayFrom(Input input, Object owner, boolean mapped) 
+            throws IOException
+    {
+        final ArrayWrapper mArrayWrapper = ObjectSchema.newArrayWrapper(input, 
+                this, mapped, strategy);
+        
+        if(input instanceof GraphInput)
+        {
+            // update the actual reference.
+            ((GraphInput)input).updateLast(mArrayWrapper.array, owner);
+        }
+        
+        strategy.COLLECTION_SCHEMA.mergeFrom(input, mArrayWrapper);
+        
+        return mArrayWrapper.array;
+    }
+    
+    /**
+     * Creates the array and reads its {@code len} elements.
+     */
+    protected abstract Object readArrayFrom(Input input, int len) throws IOException;
+    
+    /**
+     * Writes the elements of the array.
+     */
+    protected abstract void writeArrayTo(Output output, Object value) throws IOException;
+    
+    final void checkElement(Input input) throws IOException
+    {
+        if(input.readFieldNumber(this) != ID_ARRAY_DATA)
+            throw new ProtostuffException("Corrupt input.");
+    }
+    
+    public static abstract class BoolArray extends PrimitiveArraySchema
+    {
+        public BoolArray(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final boolean[] array = new boolean[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = input.readBool();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeBool(output, ID_ARRAY_DATA, (boolean[])value);
+        }
+    }
+    
+    public static abstract class CharArray extends PrimitiveArraySchema
+    {
+        public CharArray(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final char[] array = new char[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = (char)input.readUInt32();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeUInt32(output, ID_ARRAY_DATA, (char[])value);
+        }
+    }
+    
+    public static abstract class ShortArray extends PrimitiveArraySchema
+    {
+        public ShortArray(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final short[] array = new short[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = (short)input.readUInt32();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeUInt32(output, ID_ARRAY_DATA, (short[])value);
+        }
+    }
+    
+    public static abstract class Int32Array extends PrimitiveArraySchema
+    {
+        public Int32Array(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final int[] array = new int[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = input.readInt32();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeInt32(output, ID_ARRAY_DATA, (int[])value);
+        }
+    }
+    
+    public static abstract class Int64Array extends PrimitiveArraySchema
+    {
+        public Int64Array(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final long[] array = new long[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = input.readInt64();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeInt64(output, ID_ARRAY_DATA, (long[])value);
+        }
+    }
+    
+    public static abstract class FloatArray extends PrimitiveArraySchema
+    {
+        public FloatArray(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final float[] array = new float[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = input.readFloat();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeFloat(output, ID_ARRAY_DATA, (float[])value);
+        }
+    }
+    
+    public static abstract class DoubleArray extends PrimitiveArraySchema
+    {
+        public DoubleArray(IdStrategy strategy)
+        {
+            super(strategy);
+        }
+        
+        protected Object readArrayFrom(Input input, int len) throws IOException
+        {
+            final double[] array = new double[len];
+            for(int i = 0; i < len; i++)
+            {
+                checkElement(input);
+                array[i] = input.readDouble();
+            }
+            return array;
+        }
+        
+        protected void writeArrayTo(Output output, Object value) throws IOException
+        {
+            PackedFieldUtil.writeDouble(output, ID_ARRAY_DATA, (double[])value);
+        }
+    }
+
+}
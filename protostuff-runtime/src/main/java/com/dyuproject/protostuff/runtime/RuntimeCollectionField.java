@@ -46,8 +46,14 @@ abstract class RuntimeCollectionField<T,V> extends Field<T>
             MessageFactory messageFactory)
     {
         super(type, number, name, false, tag);
-        schema = new CollectionSchema<V>(messageFactory)
+        schema = new CollectionSchema<V>(messageFactory, 
+                RuntimeEnv.COLLECTION_SIZE_HINTS)
         {
+            public void writeTo(Output output, Collection<V> message) throws IOException
+            {
+                if(!RuntimeCollectionField.this.writePackedTo(output, message))
+                    super.writeTo(output, message);
+            }
             protected void addValueFrom(Input input, Collection<V> collection) 
             throws IOException
             {
@@ -76,5 +82,15 @@ abstract class RuntimeCollectionField<T,V> extends Field<T>
     
     protected abstract void transferValue(Pipe pipe, Input input, Output output, 
             int number, boolean repeated) throws IOException;
+    
+    /**
+     * Writes the values using the packed encoding.  Returns false if this is not 
+     * a packed field, in which case the values are written one by one.
+     */
+    protected boolean writePackedTo(Output output, Collection<V> values) 
+            throws IOException
+    {
+        return false;
+    }
 
 }
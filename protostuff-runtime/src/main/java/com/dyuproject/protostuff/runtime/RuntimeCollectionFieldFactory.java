@@ -86,6 +86,7 @@ final class RuntimeCollectionFieldFactory
             final java.lang.reflect.Field f, MessageFactory messageFactory, 
             final Delegate<Object> inline)
     {
+        final boolean packed = RuntimeFieldFactory.isPacked(f, inline);
         return new RuntimeCollectionField<T,Object>(
                 inline.getFieldType(), 
                 number, name, f.getAnnotation(Tag.class), 
@@ -151,6 +152,15 @@ final class RuntimeCollectionFieldFactory
             {
                 inline.transfer(pipe, input, output, number, repeated);
             }
+            protected boolean writePackedTo(Output output, 
+                    Collection<Object> values) throws IOException
+            {
+                if(!packed)
+                    return false;
+                
+                RuntimeFieldFactory.writePacked(output, 1, inline, values);
+                return true;
+            }
         };
     }
     
@@ -19,6 +19,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Properties;
 
+import com.dyuproject.protostuff.Dedup;
+import com.dyuproject.protostuff.StringCache;
+
 /**
  * The runtime environment.
  *
@@ -33,6 +36,27 @@ public final class RuntimeEnv
      */
     public static final boolean ENUMS_BY_NAME;
     
+    /**
+     * Disabled by default.  If true, the enums that implement 
+     * {@link com.dyuproject.protostuff.EnumLite} are serialized with their 
+     * {@code getNumber()} (like the code-generated enums) instead of their ordinal.
+     * Does not apply when {@link #ENUMS_BY_NAME} is enabled.
+     * 
+     * The data written with this enabled is not readable when disabled (and vice versa).
+     */
+    public static final boolean ENUM_LITE_NUMBERS;
+    
+    /**
+     * Disabled by default.  If true, the collections (and the polymorphic maps) with 
+     * at least {@link com.dyuproject.protostuff.CollectionSchema#MIN_SIZE_HINT} 
+     * elements are written with their size ahead of the elements so that the 
+     * reader can presize them instead of growing them while reading.
+     * 
+     * The data written with this enabled is not readable by older versions 
+     * (the readers with this disabled can still read it).
+     */
+    public static final boolean COLLECTION_SIZE_HINTS;
+    
     /**
      * Enabled by default.  For security purposes, you probably would want to 
      * register all known classes and disable this option.
@@ -103,12 +127,60 @@ public final class RuntimeEnv
      */
     public static final boolean COLLECTION_SCHEMA_ON_REPEATED_FIELDS;
     
+    /**
+     * Disabled by default.  If true, fields declared as one-dimensional primitive 
+     * arrays (e.g int[], double[]) are serialized with their length followed by the 
+     * unboxed elements (packed on protobuf/protostuff).  Data written with this 
+     * disabled is still readable when enabled, but not the other way around.
+     * 
+     * To migrate, enable this on the readers first, then on the writers once 
+     * all the readers are upgraded.
+     */
+    public static final boolean PRIMITIVE_ARRAY_SCHEMAS;
+    
+    /**
+     * Disabled by default.  If true, the default {@link IdStrategy} writes the 
+     * class name of a polymorphic pojo only once per output and uses a 
+     * back-reference for the later occurrences (see {@link DefaultIdStrategy}).
+     * 
+     * The readers need this enabled too in order to resolve the back-references 
+     * (the ones that do not fail fast).
+     */
+    public static final boolean CLASS_NAME_DICTIONARY;
+    
     /**
      * If true, sun.misc.Unsafe is used to access the fields of the objects instead of 
      * plain java reflections.  Enabled by default if running on a sun jre.
      */
     public static final boolean USE_SUN_MISC_UNSAFE;
     
+    /**
+     * Disabled by default.  If true, the runtime schemas are instances of a 
+     * {@link RuntimeSchema} subclass generated (as bytecode) per pojo, which 
+     * reads and writes the primitive and string fields of the pojo directly 
+     * (see {@link RuntimeSchemaGenerator}).  The other fields still go through 
+     * the field factory ({@link #USE_SUN_MISC_UNSAFE} applies).  Requires a jvm 
+     * that supports hidden classes (15+).
+     */
+    public static final boolean USE_BYTECODE_SCHEMAS;
+    
+    /**
+     * Enabled by default.  If true, the pojo schemas generated at compile time 
+     * (see {@link GeneratedSchemas}) are used instead of reflecting over the 
+     * pojos on their first use.
+     */
+    public static final boolean USE_GENERATED_SCHEMAS;
+    
+    /**
+     * The {@link StringCache} shared by the string fields annotated with {@link Dedup}.
+     * Its number of entries ({@code protostuff.runtime.string_cache_size}) defaults to 
+     * 4096 and the strings larger than {@code protostuff.runtime.string_cache_max_length} 
+     * bytes (default 64) are not cached.  Its hit/miss counts are only recorded if 
+     * {@code protostuff.runtime.string_cache_stats} is true (disabled by default 
+     * since every reading thread would update them).
+     */
+    public static final StringCache STRING_CACHE;
+    
     
     /**
      * If true, the constructor will always be obtained from 
@@ -161,6 +233,12 @@ public final class RuntimeEnv
         ENUMS_BY_NAME = Boolean.parseBoolean(props.getProperty(
                 "protostuff.runtime.enums_by_name", "false"));
         
+        ENUM_LITE_NUMBERS = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.enum_lite_numbers", "false"));
+        
+        COLLECTION_SIZE_HINTS = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.collection_size_hints", "false"));
+        
         AUTO_LOAD_POLYMORPHIC_CLASSES = Boolean.parseBoolean(props.getProperty(
                 "protostuff.runtime.auto_load_polymorphic_classes", "true"));
         
@@ -176,10 +254,30 @@ public final class RuntimeEnv
         COLLECTION_SCHEMA_ON_REPEATED_FIELDS = Boolean.parseBoolean(props.getProperty(
                 "protostuff.runtime.collection_schema_on_repeated_fields", "false"));
         
+        PRIMITIVE_ARRAY_SCHEMAS = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.primitive_array_schemas", "false"));
+        
+        CLASS_NAME_DICTIONARY = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.class_name_dictionary", "false"));
+        
         // must be on a sun jre
         USE_SUN_MISC_UNSAFE = OBJECT_CONSTRUCTOR != null && Boolean.parseBoolean(
                 props.getProperty("protostuff.runtime.use_sun_misc_unsafe", "true"));
         
+        USE_BYTECODE_SCHEMAS = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.use_bytecode_schemas", "false"));
+        
+        USE_GENERATED_SCHEMAS = Boolean.parseBoolean(props.getProperty(
+                "protostuff.runtime.use_generated_schemas", "true"));
+        
+        STRING_CACHE = StringCache.newBoundedCache(
+                Integer.parseInt(props.getProperty(
+                        "protostuff.runtime.string_cache_size", "4096")), 
+                Integer.parseInt(props.getProperty(
+                        "protostuff.runtime.string_cache_max_length", "64")), 
+                Boolean.parseBoolean(props.getProperty(
+                        "protostuff.runtime.string_cache_stats", "false")));
+        
         ALWAYS_USE_SUN_REFLECTION_FACTORY = OBJECT_CONSTRUCTOR != null && 
                 Boolean.parseBoolean(props.getProperty(
                         "protostuff.runtime.always_use_sun_reflection_factory", "false"));
@@ -187,7 +285,7 @@ public final class RuntimeEnv
         String factoryProp = props.getProperty(
                 "protostuff.runtime.id_strategy_factory");
         if(factoryProp == null)
-            ID_STRATEGY = new DefaultIdStrategy();
+            ID_STRATEGY = new DefaultIdStrategy(CLASS_NAME_DICTIONARY);
         else
         {
             final IdStrategy.Factory factory;
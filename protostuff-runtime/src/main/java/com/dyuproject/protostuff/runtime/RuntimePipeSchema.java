@@ -31,13 +31,21 @@ import com.dyuproject.protostuff.runtime.MappedSchema.Field;
 public final class RuntimePipeSchema<T> extends Pipe.Schema<T>
 {
     
-    final Field<T>[] fieldsByNumber;
+    final FieldMap<T> fieldMap;
     
+    /**
+     * Creates the pipe schema from the fields indexed by number.
+     */
     public RuntimePipeSchema(Schema<T> schema, Field<T>[] fieldsByNumber)
+    {
+        this(schema, FieldMap.create(fieldsByNumber));
+    }
+    
+    public RuntimePipeSchema(Schema<T> schema, FieldMap<T> fieldMap)
     {
         super(schema);
         
-        this.fieldsByNumber = fieldsByNumber;
+        this.fieldMap = fieldMap;
     }
 
     protected void transfer(Pipe pipe, Input input, Output output) throws IOException
@@ -45,8 +53,7 @@ public final class RuntimePipeSchema<T> extends Pipe.Schema<T>
         for(int number = input.readFieldNumber(wrappedSchema); number != 0; 
                 number = input.readFieldNumber(wrappedSchema))
         {
-            final Field<T> field = number < fieldsByNumber.length ? 
-                    fieldsByNumber[number] : null;
+            final Field<T> field = fieldMap.getFieldByNumber(number);
             
             if(field == null)
                 input.handleUnknownField(number, wrappedSchema);
@@ -39,13 +39,16 @@ import java.math.BigInteger;
 import java.util.Date;
 
 import com.dyuproject.protostuff.ByteString;
+import com.dyuproject.protostuff.Dedup;
 import com.dyuproject.protostuff.GraphInput;
 import com.dyuproject.protostuff.Input;
 import com.dyuproject.protostuff.Morph;
 import com.dyuproject.protostuff.Output;
 import com.dyuproject.protostuff.Pipe;
 import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.StringCache;
 import com.dyuproject.protostuff.Tag;
+import com.dyuproject.protostuff.Utf8String;
 import com.dyuproject.protostuff.WireFormat.FieldType;
 import com.dyuproject.protostuff.runtime.MappedSchema.Field;
 
@@ -726,6 +729,8 @@ public final class RuntimeReflectionFieldFactory
         public <T> Field<T> create(int number, java.lang.String name, 
                 final java.lang.reflect.Field f, IdStrategy strategy)
         {
+            final StringCache cache = f.getAnnotation(Dedup.class) == null ? null : 
+                RuntimeEnv.STRING_CACHE;
             return new Field<T>(FieldType.STRING, number, name, 
                     f.getAnnotation(Tag.class))
             {
@@ -736,7 +741,8 @@ public final class RuntimeReflectionFieldFactory
                 {
                     try
                     {
-                        f.set(message, input.readString());
+                        f.set(message, cache == null ? input.readString() : 
+                            StringCache.readString(input, cache));
                     }
                     catch(IllegalArgumentException e)
                     {
@@ -795,6 +801,80 @@ public final class RuntimeReflectionFieldFactory
         }
     };
     
+    public static final RuntimeFieldFactory<Utf8String> UTF8_STRING = new RuntimeFieldFactory<Utf8String>(ID_STRING)
+    {
+        public <T> Field<T> create(int number, java.lang.String name, 
+                final java.lang.reflect.Field f, IdStrategy strategy)
+        {
+            return new Field<T>(FieldType.STRING, number, name, 
+                    f.getAnnotation(Tag.class))
+            {
+                {
+                    f.setAccessible(true);
+                }                    
+                public void mergeFrom(Input input, T message) throws IOException
+                {
+                    try
+                    {
+                        f.set(message, Utf8String.readFrom(input));
+                    }
+                    catch(IllegalArgumentException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    catch(IllegalAccessException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+                public void writeTo(Output output, T message) throws IOException
+                {
+                    try
+                    {
+                        Utf8String value = (Utf8String)f.get(message);
+                        if(value!=null)
+                            Utf8String.writeTo(output, value, number, false);
+                    }
+                    catch(IllegalArgumentException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    catch(IllegalAccessException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+                public void transfer(Pipe pipe, Input input, Output output, 
+                        boolean repeated) throws IOException
+                {
+                    input.transferByteRangeTo(output, true, number, repeated);
+                }
+            };
+        }
+        public void transfer(Pipe pipe, Input input, Output output, int number, 
+                boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, true, number, repeated);
+        }
+        public Utf8String readFrom(Input input) throws IOException
+        {
+            return Utf8String.readFrom(input);
+        }
+        public void writeTo(Output output, int number, Utf8String value, boolean repeated) 
+        throws IOException
+        {
+            Utf8String.writeTo(output, value, number, repeated);
+        }
+        public FieldType getFieldType()
+        {
+            return FieldType.STRING;
+        }
+        public Class<?> typeClass()
+        {
+            return Utf8String.class;
+        }
+    };
+    
     public static final RuntimeFieldFactory<ByteString> BYTES = new RuntimeFieldFactory<ByteString>(ID_BYTES)
     {
         public <T> Field<T> create(int number, java.lang.String name, 
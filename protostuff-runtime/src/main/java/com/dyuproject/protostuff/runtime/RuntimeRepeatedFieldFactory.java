@@ -53,6 +53,7 @@ final class RuntimeRepeatedFieldFactory
             final java.lang.reflect.Field f, final MessageFactory messageFactory, 
             final Delegate<Object> inline)
     {
+        final boolean packed = RuntimeFieldFactory.isPacked(f, inline);
         return new Field<T>(inline.getFieldType(), number, name, true, 
                 f.getAnnotation(Tag.class))
         {
@@ -103,6 +104,13 @@ final class RuntimeRepeatedFieldFactory
                 
                 if(collection != null && !collection.isEmpty())
                 {
+                    if(packed)
+                    {
+                        RuntimeFieldFactory.writePacked(output, number, inline, 
+                                collection);
+                        return;
+                    }
+                    
                     for(Object o : collection)
                     {
                         if(o != null)
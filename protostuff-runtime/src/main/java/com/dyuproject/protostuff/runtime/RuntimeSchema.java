@@ -16,6 +16,7 @@ package com.dyuproject.protostuff.runtime;
 
 import static com.dyuproject.protostuff.runtime.RuntimeEnv.ID_STRATEGY;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -23,10 +24,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.dyuproject.protostuff.Input;
 import com.dyuproject.protostuff.Message;
+import com.dyuproject.protostuff.Output;
 import com.dyuproject.protostuff.Pipe;
 import com.dyuproject.protostuff.Schema;
 import com.dyuproject.protostuff.Tag;
@@ -36,11 +40,14 @@ import com.dyuproject.protostuff.runtime.RuntimeEnv.Instantiator;
 /**
  * A schema that can be generated and cached at runtime for objects that have no schema.
  * This is particularly useful for pojos from 3rd party libraries. 
+ * 
+ * Not final because of the subclasses generated per pojo if 
+ * {@link RuntimeEnv#USE_BYTECODE_SCHEMAS} is enabled.
  *
  * @author David Yu
  * @created Nov 9, 2009
  */
-public final class RuntimeSchema<T> extends MappedSchema<T>
+public class RuntimeSchema<T> extends MappedSchema<T>
 {
     
     private static final Set<String> NO_EXCLUSIONS = Collections.emptySet();
@@ -183,6 +190,8 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
         
         final Map<String,java.lang.reflect.Field> fieldMap = findInstanceFields(typeClass);
         final ArrayList<Field<T>> fields = new ArrayList<Field<T>>(fieldMap.size());
+        final ArrayList<java.lang.reflect.Field> reflectedFields = 
+            new ArrayList<java.lang.reflect.Field>(fieldMap.size());
         int i = 0;
         int maxFieldMapping = 0;
         boolean annotated = false;
@@ -236,6 +245,7 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
                 final Field<T> field = RuntimeFieldFactory.getFieldFactory(
                         f.getType(), strategy).create(fieldMapping, name, f, strategy);
                 fields.add(field);
+                reflectedFields.add(f);
                 
                 maxFieldMapping = Math.max(maxFieldMapping, fieldMapping);
             }
@@ -246,8 +256,7 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
                     typeClass + ".  All fields are either transient/static.");
         }
         
-        return new RuntimeSchema<T>(typeClass, fields, maxFieldMapping, 
-                RuntimeEnv.newInstantiator(typeClass));
+        return newSchema(typeClass, fields, reflectedFields, maxFieldMapping, strategy);
     }
     
     /**
@@ -265,6 +274,8 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
         }
         
         final ArrayList<Field<T>> fields = new ArrayList<Field<T>>(declaredFields.size());
+        final ArrayList<java.lang.reflect.Field> reflectedFields = 
+            new ArrayList<java.lang.reflect.Field>(declaredFields.size());
         int i = 0;
         for(Map.Entry<String, String> entry : declaredFields.entrySet())
         {
@@ -284,6 +295,7 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
                 final Field<T> field = RuntimeFieldFactory.getFieldFactory(
                         f.getType(), strategy).create(++i, entry.getValue(), f, strategy);
                 fields.add(field);
+                reflectedFields.add(f);
             }
         }
         if(fields.isEmpty())
@@ -291,11 +303,58 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
             throw new RuntimeException("Not able to map any fields from " + 
                     typeClass + ".  All fields are either transient/static.");
         }
-        return new RuntimeSchema<T>(typeClass, fields, i, 
-                RuntimeEnv.newInstantiator(typeClass));
+        return newSchema(typeClass, fields, reflectedFields, i, strategy);
+    }
+    
+    /**
+     * Creates the schema of the {@code fields} (created from the 
+     * {@code reflectedFields} of the same index), whose class is generated 
+     * if {@link RuntimeEnv#USE_BYTECODE_SCHEMAS} is enabled and supported.
+     */
+    static <T> RuntimeSchema<T> newSchema(Class<T> typeClass, List<Field<T>> fields, 
+            List<java.lang.reflect.Field> reflectedFields, int lastFieldNumber, 
+            IdStrategy strategy)
+    {
+        final Instantiator<T> instantiator = RuntimeEnv.newInstantiator(typeClass);
+        if(RuntimeEnv.USE_BYTECODE_SCHEMAS)
+        {
+            final RuntimeSchema<T> schema = RuntimeSchemaGenerator.newSchema(typeClass, 
+                    fields, reflectedFields, lastFieldNumber, instantiator, strategy);
+            if(schema != null)
+                return schema;
+        }
+        
+        return new RuntimeSchema<T>(typeClass, fields, lastFieldNumber, instantiator);
     }
 
-    static Map<String,java.lang.reflect.Field> findInstanceFields(Class<?> typeClass)
+    /**
+     * Creates the runtime field for the instance field {@code fieldName} of 
+     * {@code typeClass} (or of its super classes), exactly like 
+     * {@link #createFrom(Class, IdStrategy)} would.
+     * 
+     * Used by the generated schemas for the fields they do not access directly, 
+     * with the {@code instanceFields} resolved once via {@link #findInstanceFields}.
+     */
+    public static <T> Field<T> createField(Class<T> typeClass, 
+            Map<String,java.lang.reflect.Field> instanceFields, String fieldName, 
+            int number, String name, IdStrategy strategy)
+    {
+        final java.lang.reflect.Field f = instanceFields.get(fieldName);
+        if(f == null)
+        {
+            throw new IllegalArgumentException(fieldName + " is not a field of " + 
+                    typeClass);
+        }
+        
+        return RuntimeFieldFactory.getFieldFactory(
+                f.getType(), strategy).create(number, name, f, strategy);
+    }
+    
+    /**
+     * Returns the non-static, non-transient fields of {@code typeClass} and its 
+     * super classes, keyed by name (a subclass field hides the super class one).
+     */
+    public static Map<String,java.lang.reflect.Field> findInstanceFields(Class<?> typeClass)
     {
         LinkedHashMap<String,java.lang.reflect.Field> fieldMap = 
             new LinkedHashMap<String,java.lang.reflect.Field>();
@@ -344,6 +403,28 @@ public final class RuntimeSchema<T> extends MappedSchema<T>
     {
         return instantiator.newInstance();
     }
+    
+    /**
+     * Reads the value of the {@code field} into the {@code message}.
+     * 
+     * For the generated subclasses, which are not in this package.
+     */
+    protected static <T> void mergeFieldFrom(Field<T> field, Input input, T message) 
+            throws IOException
+    {
+        field.mergeFrom(input, message);
+    }
+    
+    /**
+     * Writes the value of the {@code field} of the {@code message}.
+     * 
+     * For the generated subclasses, which are not in this package.
+     */
+    protected static <T> void writeFieldTo(Field<T> field, Output output, T message) 
+            throws IOException
+    {
+        field.writeTo(output, message);
+    }
 
     /**
      * Invoked only when applications are having pipe io operations.
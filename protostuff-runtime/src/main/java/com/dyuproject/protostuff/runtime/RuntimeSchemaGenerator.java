@@ -0,0 +1,752 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.WeakHashMap;
+
+import com.dyuproject.protostuff.Dedup;
+import com.dyuproject.protostuff.runtime.MappedSchema.Field;
+import com.dyuproject.protostuff.runtime.RuntimeEnv.Instantiator;
+
+/**
+ * Generates a {@link RuntimeSchema} subclass per pojo, whose {@code mergeFrom} 
+ * is an unrolled switch on the field number and whose {@code writeTo} writes 
+ * the fields one after the other.
+ * 
+ * The primitive and string fields declared by the pojo itself are read and 
+ * written directly (getfield/putfield).  The other fields (final, inherited, 
+ * {@link Dedup}, delegates, messages, collections, etc) are delegated to their 
+ * runtime field (created by the field factory, i.e via sun.misc.Unsafe by default), 
+ * since putfield on a final field is only allowed in the constructors of the 
+ * declaring class.
+ * 
+ * The class is defined as a hidden nestmate of the pojo 
+ * (via {@code MethodHandles.Lookup.defineHiddenClass}), which gives it access 
+ * to the private fields.  On jvms without hidden classes (before 15), or when 
+ * the package of the pojo is not open to this module (which excludes the unnamed 
+ * module of another classloader), no class is generated and a plain 
+ * {@link RuntimeSchema} is used.
+ * 
+ * The class file version is 49 (java 5), which does not need stack map frames.
+ * 
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+final class RuntimeSchemaGenerator
+{
+    
+    static final String CLASS_SUFFIX = "$$RuntimeSchema";
+    
+    static final String SCHEMA = RuntimeSchema.class.getName().replace('.', '/');
+    static final String MAPPED_SCHEMA = MappedSchema.class.getName().replace('.', '/');
+    static final String FIELD = Field.class.getName().replace('.', '/');
+    static final String INPUT = "com/dyuproject/protostuff/Input";
+    static final String OUTPUT = "com/dyuproject/protostuff/Output";
+    
+    static final String INIT_DESC = "(Ljava/lang/Class;Ljava/util/Collection;I" + 
+            "L" + Instantiator.class.getName().replace('.', '/') + ";)V";
+    
+    static final String MERGE_DESC = "(L" + INPUT + ";Ljava/lang/Object;)V", 
+            WRITE_DESC = "(L" + OUTPUT + ";Ljava/lang/Object;)V";
+    
+    /**
+     * The field descriptors of the directly accessed types (L is for strings).
+     */
+    static final String KINDS = "ZBCSIJFDL";
+    
+    static final int KIND_LONG = 5, KIND_DOUBLE = 7, KIND_STRING = 8;
+    
+    /**
+     * The methods that read/write the kinds (byte, char and short are uint32 like 
+     * their runtime fields).
+     */
+    static final String[] READ_METHODS = new String[]{
+        "readBool", "readUInt32", "readUInt32", "readUInt32", "readInt32", 
+        "readInt64", "readFloat", "readDouble", "readString"
+    };
+    
+    static final String[] WRITE_METHODS = new String[]{
+        "writeBool", "writeUInt32", "writeUInt32", "writeUInt32", "writeInt32", 
+        "writeInt64", "writeFloat", "writeDouble", "writeString"
+    };
+    
+    /**
+     * The value descriptors of the read/write methods.
+     */
+    static final String[] WIRE_DESCS = new String[]{
+        "Z", "I", "I", "I", "I", "J", "F", "D", "Ljava/lang/String;"
+    };
+    
+    // opcodes
+    static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13, 
+            ALOAD = 0x19, ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, 
+            ALOAD_3 = 0x2d, ILOAD_3 = 0x1d, ISTORE_3 = 0x3e, ASTORE_3 = 0x4e, 
+            AALOAD = 0x32, I2B = 0x91, I2C = 0x92, I2S = 0x93, IFEQ = 0x99, 
+            GOTO = 0xa7, LOOKUPSWITCH = 0xab, RETURN = 0xb1, GETFIELD = 0xb4, 
+            PUTFIELD = 0xb5, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, 
+            INVOKEINTERFACE = 0xb9, CHECKCAST = 0xc0, IFNULL = 0xc6;
+    
+    private static final Object LOOKUP, HIDDEN_CLASS_OPTIONS;
+    private static final Method PRIVATE_LOOKUP_IN, DEFINE_HIDDEN_CLASS, LOOKUP_CLASS;
+    
+    static
+    {
+        Object lookup = null, options = null;
+        Method privateLookupIn = null, defineHiddenClass = null, lookupClass = null;
+        try
+        {
+            final Class<?> methodHandles = Class.forName(
+                    "java.lang.invoke.MethodHandles");
+            final Class<?> lookupType = Class.forName(
+                    "java.lang.invoke.MethodHandles$Lookup");
+            final Class<?> optionType = Class.forName(
+                    "java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            
+            lookup = methodHandles.getMethod("lookup").invoke(null);
+            options = Array.newInstance(optionType, 1);
+            Array.set(options, 0, optionType.getField("NESTMATE").get(null));
+            
+            privateLookupIn = methodHandles.getMethod("privateLookupIn", 
+                    Class.class, lookupType);
+            lookupClass = lookupType.getMethod("lookupClass");
+            defineHiddenClass = lookupType.getMethod("defineHiddenClass", 
+                    byte[].class, Boolean.TYPE, options.getClass());
+        }
+        catch(Exception e)
+        {
+            // no hidden classes (jdk < 15)
+            defineHiddenClass = null;
+        }
+        
+        LOOKUP = lookup;
+        HIDDEN_CLASS_OPTIONS = options;
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        LOOKUP_CLASS = lookupClass;
+        DEFINE_HIDDEN_CLASS = defineHiddenClass;
+    }
+    
+    /**
+     * The generated classes per pojo (weak keys).  The values are held strongly 
+     * so that a class is generated only once, like the schemas cached by the 
+     * {@link IdStrategy}.
+     */
+    private static final WeakHashMap<Class<?>, Generated> __generated = 
+            new WeakHashMap<Class<?>, Generated>();
+    
+    private RuntimeSchemaGenerator() {}
+    
+    /**
+     * Returns true if the jvm supports the generated schemas.
+     */
+    static boolean isSupported()
+    {
+        return DEFINE_HIDDEN_CLASS != null;
+    }
+    
+    /**
+     * Returns true if the generated class reads/writes the field directly.
+     */
+    static boolean isDirect(java.lang.reflect.Field f, Class<?> typeClass, 
+            IdStrategy strategy)
+    {
+        if(f.getDeclaringClass() != typeClass || Modifier.isFinal(f.getModifiers()))
+            return false;
+        
+        final Class<?> type = f.getType();
+        if(strategy.isDelegateRegistered(type))
+            return false;
+        
+        return type.isPrimitive() || 
+                (type == String.class && f.getAnnotation(Dedup.class) == null);
+    }
+    
+    /**
+     * Returns a new schema whose class is generated for the {@code fields} 
+     * (created from the {@code reflectedFields} of the same index), or null if 
+     * the class could not be generated or if none of the fields are accessed 
+     * directly.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> RuntimeSchema<T> newSchema(Class<T> typeClass, List<Field<T>> fields, 
+            List<java.lang.reflect.Field> reflectedFields, int lastFieldNumber, 
+            Instantiator<T> instantiator, IdStrategy strategy)
+    {
+        if(DEFINE_HIDDEN_CLASS == null)
+            return null;
+        
+        // the order of MappedSchema.fields
+        final ArrayList<Field<T>> sorted = new ArrayList<Field<T>>(fields);
+        Collections.sort(sorted, FieldMap.NUMBER_ORDER);
+        
+        final int size = sorted.size();
+        final int[] numbers = new int[size];
+        final java.lang.reflect.Field[] direct = new java.lang.reflect.Field[size];
+        final StringBuilder layout = new StringBuilder();
+        boolean hasDirect = false;
+        for(int i = 0; i < size; i++)
+        {
+            final Field<T> field = sorted.get(i);
+            if(i != 0 && numbers[i - 1] == field.number)
+                return null;
+            
+            numbers[i] = field.number;
+            layout.append(field.number);
+            
+            final java.lang.reflect.Field f = reflectedFields.get(fields.indexOf(field));
+            if(isDirect(f, typeClass, strategy))
+            {
+                direct[i] = f;
+                hasDirect = true;
+                layout.append(':').append(f.getName());
+            }
+            layout.append(',');
+        }
+        
+        if(!hasDirect)
+            return null;
+        
+        final Constructor<?> constructor;
+        synchronized(__generated)
+        {
+            Generated g = __generated.get(typeClass);
+            if(g == null)
+            {
+                g = new Generated();
+                __generated.put(typeClass, g);
+            }
+            
+            final String key = layout.toString();
+            if(g.constructors.containsKey(key))
+                constructor = g.constructors.get(key);
+            else
+            {
+                constructor = generate(typeClass, numbers, direct);
+                // null if not generated
+                g.constructors.put(key, constructor);
+            }
+        }
+        
+        if(constructor == null)
+            return null;
+        
+        try
+        {
+            return (RuntimeSchema<T>)constructor.newInstance(typeClass, fields, 
+                    Integer.valueOf(lastFieldNumber), instantiator);
+        }
+        catch(InvocationTargetException e)
+        {
+            final Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            
+            throw new RuntimeException(cause);
+        }
+        catch(Exception e)
+        {
+            return null;
+        }
+    }
+    
+    static Constructor<?> generate(Class<?> typeClass, int[] numbers, 
+            java.lang.reflect.Field[] direct)
+    {
+        try
+        {
+            final byte[] classBytes = toClassBytes(typeClass, numbers, direct);
+            
+            final Object lookup = PRIVATE_LOOKUP_IN.invoke(null, typeClass, LOOKUP);
+            final Object hiddenLookup = DEFINE_HIDDEN_CLASS.invoke(lookup, 
+                    classBytes, Boolean.TRUE, HIDDEN_CLASS_OPTIONS);
+            final Class<?> hiddenClass = (Class<?>)LOOKUP_CLASS.invoke(hiddenLookup);
+            
+            return hiddenClass.getConstructor(Class.class, java.util.Collection.class, 
+                    Integer.TYPE, Instantiator.class);
+        }
+        catch(Exception e)
+        {
+            // not open (or an inaccessible type)
+            return null;
+        }
+        catch(LinkageError e)
+        {
+            // RuntimeSchema is not visible from the classloader of the pojo
+            return null;
+        }
+    }
+    
+    static int kindOf(Class<?> type)
+    {
+        if(!type.isPrimitive())
+            return KIND_STRING;
+        
+        if(type == Boolean.TYPE)
+            return 0;
+        if(type == Byte.TYPE)
+            return 1;
+        if(type == Character.TYPE)
+            return 2;
+        if(type == Short.TYPE)
+            return 3;
+        if(type == Integer.TYPE)
+            return 4;
+        if(type == Long.TYPE)
+            return 5;
+        if(type == Float.TYPE)
+            return 6;
+        
+        return 7;
+    }
+    
+    /**
+     * Generates the class file of the schema of {@code typeClass}, whose fields 
+     * (sorted by number) are accessed directly if their {@code direct} 
+     * element is not null.
+     */
+    static byte[] toClassBytes(Class<?> typeClass, int[] numbers, 
+            java.lang.reflect.Field[] direct) throws IOException
+    {
+        final ConstantPool cp = new ConstantPool();
+        final String owner = typeClass.getName().replace('.', '/');
+        
+        final int thisClass = cp.classRef(owner + CLASS_SUFFIX);
+        final int superClass = cp.classRef(SCHEMA);
+        final int ownerClass = cp.classRef(owner);
+        final int fieldsRef = cp.fieldRef(MAPPED_SCHEMA, "fields", "[L" + FIELD + ";");
+        final int readFieldNumber = cp.interfaceMethodRef(INPUT, "readFieldNumber", 
+                "(Lcom/dyuproject/protostuff/Schema;)I");
+        final int handleUnknownField = cp.interfaceMethodRef(INPUT, 
+                "handleUnknownField", "(ILcom/dyuproject/protostuff/Schema;)V");
+        final int mergeFieldFrom = cp.methodRef(SCHEMA, "mergeFieldFrom", 
+                "(L" + FIELD + ";L" + INPUT + ";Ljava/lang/Object;)V");
+        final int writeFieldTo = cp.methodRef(SCHEMA, "writeFieldTo", 
+                "(L" + FIELD + ";L" + OUTPUT + ";Ljava/lang/Object;)V");
+        
+        final int[] fieldRefs = new int[direct.length];
+        for(int i = 0; i < direct.length; i++)
+        {
+            if(direct[i] != null)
+            {
+                final int kind = kindOf(direct[i].getType());
+                fieldRefs[i] = cp.fieldRef(owner, direct[i].getName(), 
+                        kind == KIND_STRING ? WIRE_DESCS[kind] : 
+                            String.valueOf(KINDS.charAt(kind)));
+            }
+        }
+        
+        final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+        final DataOutputStream methods = new DataOutputStream(methodBytes);
+        
+        // constructor
+        final CodeBuffer init = new CodeBuffer();
+        init.u1(ALOAD_0);
+        init.u1(ALOAD_1);
+        init.u1(ALOAD_2);
+        init.u1(ILOAD_3);
+        init.u1(ALOAD);
+        init.u1(4);
+        init.u1(INVOKESPECIAL);
+        init.u2(cp.methodRef(SCHEMA, "<init>", INIT_DESC));
+        init.u1(RETURN);
+        writeMethod(methods, cp, "<init>", INIT_DESC, 5, 5, init);
+        
+        // mergeFrom
+        final CodeBuffer merge = new CodeBuffer();
+        merge.u1(ALOAD_1);
+        merge.u1(ALOAD_0);
+        merge.invokeInterface(readFieldNumber, 2);
+        merge.u1(ISTORE_3);
+        
+        final int loop = merge.size();
+        merge.u1(ILOAD_3);
+        final int ifEnd = merge.size();
+        merge.u1(IFEQ);
+        merge.u2(0);
+        
+        merge.u1(ILOAD_3);
+        final int lookupSwitch = merge.size();
+        merge.u1(LOOKUPSWITCH);
+        while(merge.size() % 4 != 0)
+            merge.u1(0);
+        final int defaultPos = merge.size();
+        merge.u4(0);
+        merge.u4(numbers.length);
+        final int pairsPos = merge.size();
+        for(int i = 0; i < numbers.length; i++)
+        {
+            merge.u4(numbers[i]);
+            merge.u4(0);
+        }
+        
+        final int[] gotoNext = new int[numbers.length];
+        for(int i = 0; i < numbers.length; i++)
+        {
+            merge.patch4(pairsPos + 8 * i + 4, merge.size() - lookupSwitch);
+            
+            final java.lang.reflect.Field f = direct[i];
+            if(f == null)
+            {
+                // this.fields[i].mergeFrom(input, message)
+                merge.u1(ALOAD_0);
+                merge.u1(GETFIELD);
+                merge.u2(fieldsRef);
+                merge.pushInt(cp, i);
+                merge.u1(AALOAD);
+                merge.u1(ALOAD_1);
+                merge.u1(ALOAD_2);
+                merge.u1(INVOKESTATIC);
+                merge.u2(mergeFieldFrom);
+            }
+            else
+            {
+                // ((Pojo)message).f = input.readX();
+                final int kind = kindOf(f.getType());
+                merge.u1(ALOAD_2);
+                merge.u1(CHECKCAST);
+                merge.u2(ownerClass);
+                merge.u1(ALOAD_1);
+                merge.invokeInterface(cp.interfaceMethodRef(INPUT, READ_METHODS[kind], 
+                        "()" + WIRE_DESCS[kind]), 1);
+                if(kind == 1)
+                    merge.u1(I2B);
+                else if(kind == 2)
+                    merge.u1(I2C);
+                else if(kind == 3)
+                    merge.u1(I2S);
+                merge.u1(PUTFIELD);
+                merge.u2(fieldRefs[i]);
+            }
+            
+            gotoNext[i] = merge.size();
+            merge.u1(GOTO);
+            merge.u2(0);
+        }
+        
+        // input.handleUnknownField(number, this)
+        merge.patch4(defaultPos, merge.size() - lookupSwitch);
+        merge.u1(ALOAD_1);
+        merge.u1(ILOAD_3);
+        merge.u1(ALOAD_0);
+        merge.invokeInterface(handleUnknownField, 3);
+        
+        final int next = merge.size();
+        for(int i = 0; i < gotoNext.length; i++)
+            merge.patch2(gotoNext[i] + 1, next - gotoNext[i]);
+        merge.u1(ALOAD_1);
+        merge.u1(ALOAD_0);
+        merge.invokeInterface(readFieldNumber, 2);
+        merge.u1(ISTORE_3);
+        final int gotoLoop = merge.size();
+        merge.u1(GOTO);
+        merge.u2(loop - gotoLoop);
+        
+        merge.patch2(ifEnd + 1, merge.size() - ifEnd);
+        merge.u1(RETURN);
+        writeMethod(methods, cp, "mergeFrom", MERGE_DESC, 4, 4, merge);
+        
+        // writeTo
+        final CodeBuffer write = new CodeBuffer();
+        for(int i = 0; i < numbers.length; i++)
+        {
+            final java.lang.reflect.Field f = direct[i];
+            if(f == null)
+            {
+                // this.fields[i].writeTo(output, message)
+                write.u1(ALOAD_0);
+                write.u1(GETFIELD);
+                write.u2(fieldsRef);
+                write.pushInt(cp, i);
+                write.u1(AALOAD);
+                write.u1(ALOAD_1);
+                write.u1(ALOAD_2);
+                write.u1(INVOKESTATIC);
+                write.u2(writeFieldTo);
+                continue;
+            }
+            
+            final int kind = kindOf(f.getType());
+            final int writeMethod = cp.interfaceMethodRef(OUTPUT, WRITE_METHODS[kind], 
+                    "(I" + WIRE_DESCS[kind] + "Z)V");
+            if(kind == KIND_STRING)
+            {
+                // String value = ((Pojo)message).f;
+                // if(value != null) output.writeString(number, value, false);
+                write.u1(ALOAD_2);
+                write.u1(CHECKCAST);
+                write.u2(ownerClass);
+                write.u1(GETFIELD);
+                write.u2(fieldRefs[i]);
+                write.u1(ASTORE_3);
+                write.u1(ALOAD_3);
+                final int ifNull = write.size();
+                write.u1(IFNULL);
+                write.u2(0);
+                write.u1(ALOAD_1);
+                write.pushInt(cp, numbers[i]);
+                write.u1(ALOAD_3);
+                write.u1(ICONST_0);
+                write.invokeInterface(writeMethod, 4);
+                write.patch2(ifNull + 1, write.size() - ifNull);
+            }
+            else
+            {
+                // output.writeX(number, ((Pojo)message).f, false);
+                write.u1(ALOAD_1);
+                write.pushInt(cp, numbers[i]);
+                write.u1(ALOAD_2);
+                write.u1(CHECKCAST);
+                write.u2(ownerClass);
+                write.u1(GETFIELD);
+                write.u2(fieldRefs[i]);
+                write.u1(ICONST_0);
+                write.invokeInterface(writeMethod, 
+                        kind == KIND_LONG || kind == KIND_DOUBLE ? 5 : 4);
+            }
+        }
+        write.u1(RETURN);
+        writeMethod(methods, cp, "writeTo", WRITE_DESC, 5, 4, write);
+        
+        final ByteArrayOutputStream classBytes = new ByteArrayOutputStream(
+                cp.bytes.size() + methodBytes.size() + 32);
+        final DataOutputStream out = new DataOutputStream(classBytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0); // minor
+        out.writeShort(49); // major
+        out.writeShort(cp.count);
+        cp.bytes.writeTo(out);
+        out.writeShort(Modifier.PUBLIC | Modifier.FINAL | 0x0020); // ACC_SUPER
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(3); // methods
+        methodBytes.writeTo(out);
+        out.writeShort(0); // attributes
+        out.flush();
+        
+        return classBytes.toByteArray();
+    }
+    
+    static void writeMethod(DataOutputStream out, ConstantPool cp, String name, 
+            String desc, int maxStack, int maxLocals, CodeBuffer code)
+            throws IOException
+    {
+        out.writeShort(Modifier.PUBLIC);
+        out.writeShort(cp.utf8(name));
+        out.writeShort(cp.utf8(desc));
+        out.writeShort(1); // attributes
+        out.writeShort(cp.utf8("Code"));
+        out.writeInt(12 + code.size());
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.size());
+        out.write(code.bytes, 0, code.size());
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+    
+    static final class Generated
+    {
+        /**
+         * The constructor of the generated class per field layout (numbers and 
+         * directly accessed fields), or null if it could not be generated.
+         */
+        final HashMap<String,Constructor<?>> constructors = 
+                new HashMap<String,Constructor<?>>();
+    }
+    
+    static final class CodeBuffer
+    {
+        byte[] bytes = new byte[256];
+        int size;
+        
+        int size()
+        {
+            return size;
+        }
+        
+        void u1(int value)
+        {
+            if(size == bytes.length)
+            {
+                final byte[] b = new byte[size * 2];
+                System.arraycopy(bytes, 0, b, 0, size);
+                bytes = b;
+            }
+            bytes[size++] = (byte)value;
+        }
+        
+        void u2(int value)
+        {
+            u1(value >>> 8);
+            u1(value);
+        }
+        
+        void u4(int value)
+        {
+            u1(value >>> 24);
+            u1(value >>> 16);
+            u1(value >>> 8);
+            u1(value);
+        }
+        
+        void patch2(int offset, int value)
+        {
+            bytes[offset] = (byte)(value >>> 8);
+            bytes[offset + 1] = (byte)value;
+        }
+        
+        void patch4(int offset, int value)
+        {
+            patch2(offset, value >>> 16);
+            patch2(offset + 2, value);
+        }
+        
+        void pushInt(ConstantPool cp, int value) throws IOException
+        {
+            if(value >= -1 && value <= 5)
+                u1(ICONST_0 + value);
+            else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            {
+                u1(BIPUSH);
+                u1(value);
+            }
+            else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            {
+                u1(SIPUSH);
+                u2(value);
+            }
+            else
+            {
+                u1(LDC_W);
+                u2(cp.integer(value));
+            }
+        }
+        
+        void invokeInterface(int methodRef, int argSlots)
+        {
+            u1(INVOKEINTERFACE);
+            u2(methodRef);
+            u1(argSlots);
+            u1(0);
+        }
+    }
+    
+    static final class ConstantPool
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final HashMap<String,Integer> entries = new HashMap<String,Integer>();
+        int count = 1;
+        
+        private int add(String key)
+        {
+            entries.put(key, Integer.valueOf(count));
+            return count++;
+        }
+        
+        int utf8(String value) throws IOException
+        {
+            final Integer existing = entries.get("U" + value);
+            if(existing != null)
+                return existing.intValue();
+            
+            out.writeByte(1);
+            out.writeUTF(value);
+            return add("U" + value);
+        }
+        
+        int integer(int value) throws IOException
+        {
+            final Integer existing = entries.get("I" + value);
+            if(existing != null)
+                return existing.intValue();
+            
+            out.writeByte(3);
+            out.writeInt(value);
+            return add("I" + value);
+        }
+        
+        int classRef(String internalName) throws IOException
+        {
+            final Integer existing = entries.get("C" + internalName);
+            if(existing != null)
+                return existing.intValue();
+            
+            final int name = utf8(internalName);
+            out.writeByte(7);
+            out.writeShort(name);
+            return add("C" + internalName);
+        }
+        
+        int nameAndType(String name, String desc) throws IOException
+        {
+            final String key = "N" + name + ' ' + desc;
+            final Integer existing = entries.get(key);
+            if(existing != null)
+                return existing.intValue();
+            
+            final int n = utf8(name), d = utf8(desc);
+            out.writeByte(12);
+            out.writeShort(n);
+            out.writeShort(d);
+            return add(key);
+        }
+        
+        int fieldRef(String owner, String name, String desc) throws IOException
+        {
+            return memberRef(9, owner, name, desc);
+        }
+        
+        int methodRef(String owner, String name, String desc) throws IOException
+        {
+            return memberRef(10, owner, name, desc);
+        }
+        
+        int interfaceMethodRef(String owner, String name, String desc)
+                throws IOException
+        {
+            return memberRef(11, owner, name, desc);
+        }
+        
+        private int memberRef(int tag, String owner, String name, String desc)
+                throws IOException
+        {
+            final String key = String.valueOf(tag) + owner + '.' + name + ' ' + desc;
+            final Integer existing = entries.get(key);
+            if(existing != null)
+                return existing.intValue();
+            
+            final int c = classRef(owner), nt = nameAndType(name, desc);
+            out.writeByte(tag);
+            out.writeShort(c);
+            out.writeShort(nt);
+            return add(key);
+        }
+    }
+    
+}
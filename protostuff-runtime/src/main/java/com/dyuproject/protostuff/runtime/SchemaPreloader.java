@@ -0,0 +1,609 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.dyuproject.protostuff.ByteString;
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * Eagerly builds (and optionally warms up) the runtime schemas of the pojos an 
+ * application needs, so that their first use does not pay for the reflection and 
+ * the lazy initialization in the {@link IdStrategy}.
+ * 
+ * The schemas of the pojos referenced by the fields (including the element/key/value 
+ * types of collections, maps and arrays) are preloaded as well.  Each level of 
+ * references is preloaded in parallel if an {@link Executor} is given.
+ * 
+ * The {@link Result results} report the time spent on each pojo, which shows what 
+ * slows down the startup.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public final class SchemaPreloader
+{
+    
+    /**
+     * A synthetic encode/decode round used to warm up a schema (e.g serialize the 
+     * message with {@code ProtostuffIOUtil} and merge it back).
+     */
+    public interface Round
+    {
+        public <T> void run(Schema<T> schema, T message) throws IOException;
+    }
+    
+    /**
+     * The outcome of preloading a pojo.
+     */
+    public static final class Result
+    {
+        
+        public final Class<?> typeClass;
+        
+        /**
+         * The time spent to get the schema (nanoseconds).
+         */
+        public final long initNanos;
+        
+        /**
+         * The time spent on the warm-up rounds (nanoseconds).
+         */
+        public final long warmupNanos;
+        
+        /**
+         * Not null if the schema could not be created or warmed up.
+         */
+        public final Throwable error;
+        
+        Result(Class<?> typeClass, long initNanos, long warmupNanos, Throwable error)
+        {
+            this.typeClass = typeClass;
+            this.initNanos = initNanos;
+            this.warmupNanos = warmupNanos;
+            this.error = error;
+        }
+        
+        public String toString()
+        {
+            return typeClass.getName() + " init: " + (initNanos / 1000) + 
+                    "us, warmup: " + (warmupNanos / 1000) + "us" + 
+                    (error == null ? "" : ", error: " + error);
+        }
+    }
+    
+    private SchemaPreloader() {}
+    
+    /**
+     * Preloads the schemas of the {@code classes} (and the pojos they reference) 
+     * on the caller thread with the default {@link RuntimeEnv#ID_STRATEGY}.
+     */
+    public static List<Result> preload(Collection<? extends Class<?>> classes) 
+    throws InterruptedException
+    {
+        return preload(classes, RuntimeEnv.ID_STRATEGY, null, null, 0);
+    }
+    
+    /**
+     * Preloads the schemas of the {@code classes} (and the pojos they reference).
+     * 
+     * @param executor runs the preloading in parallel (if not null).
+     * @param round is run {@code rounds} times on every schema preloaded (if not 
+     * null), with a sample message where the fields are set (see 
+     * {@link #newSample(Class, IdStrategy)}).
+     * 
+     * @return the results, in preload order (the {@code classes} first).  The 
+     * failures are reported in their result and do not stop the preloading.
+     */
+    public static List<Result> preload(Collection<? extends Class<?>> classes, 
+            IdStrategy strategy, Executor executor, Round round, int rounds) 
+            throws InterruptedException
+    {
+        final HashSet<Class<?>> seen = new HashSet<Class<?>>();
+        final ArrayList<Result> results = new ArrayList<Result>();
+        
+        ArrayList<Class<?>> level = new ArrayList<Class<?>>();
+        for(Class<?> typeClass : classes)
+        {
+            if(seen.add(typeClass))
+                level.add(typeClass);
+        }
+        
+        while(!level.isEmpty())
+        {
+            final int size = level.size();
+            final ArrayList<Task> tasks = new ArrayList<Task>(size);
+            final ArrayList<FutureTask<Result>> futures = 
+                    new ArrayList<FutureTask<Result>>(size);
+            
+            for(Class<?> typeClass : level)
+            {
+                final Task task = new Task(typeClass, strategy, round, rounds);
+                final FutureTask<Result> future = new FutureTask<Result>(task);
+                tasks.add(task);
+                futures.add(future);
+                
+                if(executor == null)
+                    future.run();
+                else
+                    executor.execute(future);
+            }
+            
+            final ArrayList<Class<?>> next = new ArrayList<Class<?>>();
+            for(int i = 0; i < size; i++)
+            {
+                try
+                {
+                    results.add(futures.get(i).get());
+                }
+                catch(ExecutionException e)
+                {
+                    // the task does not throw
+                    throw new RuntimeException(e.getCause());
+                }
+                
+                for(Class<?> dependency : tasks.get(i).dependencies)
+                {
+                    if(seen.add(dependency))
+                        next.add(dependency);
+                }
+            }
+            
+            level = next;
+        }
+        
+        return results;
+    }
+    
+    static final class Task implements Callable<Result>
+    {
+        
+        final Class<?> typeClass;
+        final IdStrategy strategy;
+        final Round round;
+        final int rounds;
+        
+        /**
+         * The pojos referenced by the fields (available after the call).
+         */
+        final ArrayList<Class<?>> dependencies = new ArrayList<Class<?>>();
+        
+        Task(Class<?> typeClass, IdStrategy strategy, Round round, int rounds)
+        {
+            this.typeClass = typeClass;
+            this.strategy = strategy;
+            this.round = round;
+            this.rounds = rounds;
+        }
+        
+        public Result call()
+        {
+            return preload(typeClass);
+        }
+        
+        <T> Result preload(Class<T> typeClass)
+        {
+            final long start = System.nanoTime();
+            final Schema<T> schema;
+            try
+            {
+                schema = RuntimeSchema.getSchema(typeClass, strategy);
+            }
+            catch(Throwable e)
+            {
+                return new Result(typeClass, System.nanoTime() - start, 0, e);
+            }
+            
+            final long initNanos = System.nanoTime() - start;
+            
+            for(java.lang.reflect.Field f : 
+                RuntimeSchema.findInstanceFields(typeClass).values())
+            {
+                addPojosTo(dependencies, f.getGenericType());
+            }
+            
+            if(round == null || rounds < 1)
+                return new Result(typeClass, initNanos, 0, null);
+            
+            final long warmupStart = System.nanoTime();
+            try
+            {
+                final T sample = newSample(schema, strategy);
+                for(int i = 0; i < rounds; i++)
+                    round.run(schema, sample);
+            }
+            catch(Throwable e)
+            {
+                return new Result(typeClass, initNanos, System.nanoTime() - warmupStart, 
+                        e);
+            }
+            
+            return new Result(typeClass, initNanos, System.nanoTime() - warmupStart, 
+                    null);
+        }
+    }
+    
+    /**
+     * Returns a message of the {@code typeClass} where the fields are set to 
+     * sample values, so that a warm-up round goes through the serialization of 
+     * every field instead of an empty message.
+     * 
+     * The scalars get a non-default value, and the arrays, collections and maps 
+     * get one element.  The pojos referenced are filled the same way, except the 
+     * ones already being filled (cycles are left null).  The fields that 
+     * cannot be set are skipped.
+     */
+    public static <T> T newSample(Class<T> typeClass, IdStrategy strategy)
+    {
+        return newSample(RuntimeSchema.getSchema(typeClass, strategy), strategy);
+    }
+    
+    static <T> T newSample(Schema<T> schema, IdStrategy strategy)
+    {
+        final T message = schema.newMessage();
+        fill(message, schema.typeClass(), strategy, new HashSet<Class<?>>());
+        return message;
+    }
+    
+    static void fill(Object message, Class<?> typeClass, IdStrategy strategy, 
+            HashSet<Class<?>> path)
+    {
+        path.add(typeClass);
+        for(java.lang.reflect.Field f : 
+            RuntimeSchema.findInstanceFields(typeClass).values())
+        {
+            try
+            {
+                final Object value = sampleOf(f.getGenericType(), strategy, path);
+                if(value != null)
+                {
+                    f.setAccessible(true);
+                    f.set(message, value);
+                }
+            }
+            catch(Exception e)
+            {
+                // skip
+            }
+        }
+        path.remove(typeClass);
+    }
+    
+    /**
+     * Returns a sample value of the (generic) {@code type}, or null if there is 
+     * none.
+     */
+    @SuppressWarnings("unchecked")
+    static Object sampleOf(Type type, IdStrategy strategy, HashSet<Class<?>> path) 
+    throws Exception
+    {
+        if(type instanceof ParameterizedType)
+        {
+            final ParameterizedType pt = (ParameterizedType)type;
+            final Class<?> c = (Class<?>)pt.getRawType();
+            final Type[] args = pt.getActualTypeArguments();
+            if(Collection.class.isAssignableFrom(c) && args.length == 1)
+            {
+                final Collection<Object> collection = (Collection<Object>)newInstance(c, 
+                        SortedSet.class.isAssignableFrom(c) ? TreeSet.class : 
+                            (Set.class.isAssignableFrom(c) ? HashSet.class : 
+                                ArrayList.class));
+                final Object element = sampleOf(args[0], strategy, path);
+                if(collection != null && element != null)
+                    collection.add(element);
+                
+                return collection;
+            }
+            
+            if(Map.class.isAssignableFrom(c) && args.length == 2)
+            {
+                final Map<Object,Object> map = (Map<Object,Object>)newInstance(c, 
+                        SortedMap.class.isAssignableFrom(c) ? TreeMap.class : 
+                            HashMap.class);
+                final Object key = sampleOf(args[0], strategy, path), 
+                        value = sampleOf(args[1], strategy, path);
+                if(map != null && key != null && value != null)
+                    map.put(key, value);
+                
+                return map;
+            }
+            
+            return sampleOf(c, strategy, path);
+        }
+        
+        if(type instanceof GenericArrayType)
+        {
+            final Type componentType = ((GenericArrayType)type).getGenericComponentType();
+            final Object element = sampleOf(componentType, strategy, path);
+            if(element == null)
+                return null;
+            
+            final Object array = Array.newInstance(element.getClass(), 1);
+            Array.set(array, 0, element);
+            return array;
+        }
+        
+        if(!(type instanceof Class<?>))
+            return null;
+        
+        final Class<?> c = (Class<?>)type;
+        if(c.isArray())
+        {
+            final Object element = sampleOf(c.getComponentType(), strategy, path);
+            if(element == null)
+                return null;
+            
+            final Object array = Array.newInstance(c.getComponentType(), 1);
+            Array.set(array, 0, element);
+            return array;
+        }
+        
+        if(c == boolean.class || c == Boolean.class)
+            return Boolean.TRUE;
+        if(c == byte.class || c == Byte.class)
+            return Byte.valueOf((byte)1);
+        if(c == char.class || c == Character.class)
+            return Character.valueOf('a');
+        if(c == short.class || c == Short.class)
+            return Short.valueOf((short)1);
+        if(c == int.class || c == Integer.class)
+            return Integer.valueOf(1);
+        if(c == long.class || c == Long.class)
+            return Long.valueOf(1);
+        if(c == float.class || c == Float.class)
+            return Float.valueOf(1);
+        if(c == double.class || c == Double.class)
+            return Double.valueOf(1);
+        if(c == String.class)
+            return "sample";
+        if(c == ByteString.class)
+            return ByteString.copyFromUtf8("sample");
+        if(c == BigDecimal.class)
+            return BigDecimal.ONE;
+        if(c == BigInteger.class)
+            return BigInteger.ONE;
+        if(c == Date.class)
+            return new Date(0);
+        if(c.isEnum())
+        {
+            final Object[] constants = c.getEnumConstants();
+            return constants.length == 0 ? null : constants[0];
+        }
+        
+        if(!isPojo(c) || path.contains(c))
+            return null;
+        
+        final Object pojo = RuntimeSchema.getSchema(c, strategy).newMessage();
+        fill(pojo, c, strategy, path);
+        return pojo;
+    }
+    
+    /**
+     * Returns a new instance of the {@code c} (or of {@code defaultImpl} if it is 
+     * an interface/abstract), or null if it has no accessible no-arg constructor.
+     */
+    static Object newInstance(Class<?> c, Class<?> defaultImpl)
+    {
+        final Class<?> impl = c.isInterface() || Modifier.isAbstract(c.getModifiers()) ? 
+                defaultImpl : c;
+        if(!c.isAssignableFrom(impl))
+            return null;
+        
+        try
+        {
+            return impl.newInstance();
+        }
+        catch(Exception e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Adds the pojos found in the (generic) {@code type} of a field.
+     */
+    static void addPojosTo(Collection<Class<?>> pojos, Type type)
+    {
+        if(type instanceof Class<?>)
+        {
+            Class<?> c = (Class<?>)type;
+            while(c.isArray())
+                c = c.getComponentType();
+            
+            if(isPojo(c))
+                pojos.add(c);
+        }
+        else if(type instanceof ParameterizedType)
+        {
+            final ParameterizedType pt = (ParameterizedType)type;
+            addPojosTo(pojos, pt.getRawType());
+            for(Type arg : pt.getActualTypeArguments())
+                addPojosTo(pojos, arg);
+        }
+        else if(type instanceof GenericArrayType)
+            addPojosTo(pojos, ((GenericArrayType)type).getGenericComponentType());
+        else if(type instanceof WildcardType)
+        {
+            for(Type bound : ((WildcardType)type).getUpperBounds())
+                addPojosTo(pojos, bound);
+        }
+    }
+    
+    /**
+     * Returns true if the runtime would create a {@link RuntimeSchema} for the 
+     * {@code typeClass} (a concrete class with instance fields, which is neither 
+     * part of the jdk nor a scalar).
+     */
+    static boolean isPojo(Class<?> typeClass)
+    {
+        if(typeClass.isPrimitive() || typeClass.isArray() || typeClass.isInterface() || 
+                typeClass.isEnum() || typeClass.isAnonymousClass() || 
+                typeClass.isLocalClass() || typeClass.isSynthetic() || 
+                Modifier.isAbstract(typeClass.getModifiers()))
+        {
+            return false;
+        }
+        
+        if(typeClass.isMemberClass() && !Modifier.isStatic(typeClass.getModifiers()))
+            return false;
+        
+        final String name = typeClass.getName();
+        if(name.startsWith("java.") || name.startsWith("javax.") || 
+                name.endsWith(GeneratedSchemas.SUFFIX))
+        {
+            return false;
+        }
+        
+        // ByteString, Utf8String, etc are scalars
+        return RuntimeFieldFactory.getInline(typeClass) == null && 
+                !RuntimeSchema.findInstanceFields(typeClass).isEmpty();
+    }
+    
+    /**
+     * Finds the pojos of the package {@code packageName} (and its sub-packages) 
+     * from the directories and jars of the {@code loader}'s classpath.
+     * 
+     * The classes are loaded without being initialized.  The ones that cannot be 
+     * loaded are skipped.
+     */
+    public static List<Class<?>> findClasses(String packageName, ClassLoader loader) 
+    throws IOException
+    {
+        final String path = packageName.replace('.', '/');
+        final TreeSet<String> classNames = new TreeSet<String>();
+        for(Enumeration<URL> e = loader.getResources(path); e.hasMoreElements();)
+        {
+            final URL url = e.nextElement();
+            if("file".equals(url.getProtocol()))
+            {
+                addClassNamesTo(classNames, new File(URLDecoder.decode(url.getPath(), 
+                        "UTF-8")), packageName);
+            }
+            else if("jar".equals(url.getProtocol()))
+            {
+                final JarURLConnection connection = (JarURLConnection)url.openConnection();
+                connection.setUseCaches(false);
+                final JarFile jar = connection.getJarFile();
+                try
+                {
+                    addClassNamesTo(classNames, jar, path + "/");
+                }
+                finally
+                {
+                    jar.close();
+                }
+            }
+        }
+        
+        final ArrayList<Class<?>> classes = new ArrayList<Class<?>>();
+        for(String className : classNames)
+        {
+            final Class<?> typeClass;
+            try
+            {
+                typeClass = Class.forName(className, false, loader);
+            }
+            catch(ClassNotFoundException e)
+            {
+                continue;
+            }
+            catch(LinkageError e)
+            {
+                continue;
+            }
+            
+            try
+            {
+                // the declared fields of a class are only resolved here, which 
+                // fails if the class of a field is missing
+                if(isPojo(typeClass))
+                    classes.add(typeClass);
+            }
+            catch(LinkageError e)
+            {
+                // skip
+            }
+        }
+        
+        return classes;
+    }
+    
+    static void addClassNamesTo(Collection<String> classNames, File dir, 
+            String packageName)
+    {
+        final File[] files = dir.listFiles();
+        if(files == null)
+            return;
+        
+        for(File f : files)
+        {
+            final String name = f.getName();
+            if(f.isDirectory())
+                addClassNamesTo(classNames, f, packageName + "." + name);
+            else if(name.endsWith(".class"))
+            {
+                classNames.add(packageName + "." + 
+                        name.substring(0, name.length() - 6));
+            }
+        }
+    }
+    
+    static void addClassNamesTo(Collection<String> classNames, JarFile jar, 
+            String prefix)
+    {
+        for(Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();)
+        {
+            final String name = e.nextElement().getName();
+            if(name.startsWith(prefix) && name.endsWith(".class"))
+            {
+                classNames.add(name.substring(0, name.length() - 6).replace(
+                        '/', '.'));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,468 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.DelimitedWriter;
+import com.dyuproject.protostuff.GraphIOUtil;
+import com.dyuproject.protostuff.IndexedReader;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.MessageIterator;
+import com.dyuproject.protostuff.Pipe;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtobufSizeOutput;
+import com.dyuproject.protostuff.ProtostuffException;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.ProtostuffOutput;
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * Test for the class-name dictionary of {@link DefaultIdStrategy}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class ClassNameDictionaryTest extends AbstractTest
+{
+    
+    public static final class SomeRatherLongNamedEvent
+    {
+        int id;
+        String name;
+        
+        SomeRatherLongNamedEvent() {}
+        
+        SomeRatherLongNamedEvent(int id, String name)
+        {
+            this.id = id;
+            this.name = name;
+        }
+        
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof SomeRatherLongNamedEvent))
+                return false;
+            
+            SomeRatherLongNamedEvent other = (SomeRatherLongNamedEvent)obj;
+            return id == other.id && (name == null ? other.name == null : 
+                name.equals(other.name));
+        }
+        
+        public int hashCode()
+        {
+            return id;
+        }
+    }
+    
+    public static final class AnotherRatherLongNamedEvent
+    {
+        long timestamp;
+        Object payload;
+        
+        AnotherRatherLongNamedEvent() {}
+        
+        AnotherRatherLongNamedEvent(long timestamp, Object payload)
+        {
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+        
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof AnotherRatherLongNamedEvent))
+                return false;
+            
+            AnotherRatherLongNamedEvent other = (AnotherRatherLongNamedEvent)obj;
+            return timestamp == other.timestamp && (payload == null ? 
+                    other.payload == null : payload.equals(other.payload));
+        }
+        
+        public int hashCode()
+        {
+            return (int)timestamp;
+        }
+    }
+    
+    public static final class Events
+    {
+        Object first;
+        List<Object> items;
+    }
+    
+    static Events filledEvents()
+    {
+        Events e = new Events();
+        e.first = new SomeRatherLongNamedEvent(0, "first");
+        e.items = new ArrayList<Object>();
+        for(int i = 1; i <= 10; i++)
+        {
+            e.items.add(new SomeRatherLongNamedEvent(i, "e" + i));
+            e.items.add(new AnotherRatherLongNamedEvent(i, 
+                    new SomeRatherLongNamedEvent(-i, null)));
+        }
+        return e;
+    }
+    
+    /**
+     * The other event comes first, so that the back-references of this stream 
+     * point to different names than the ones of {@link #filledEvents()}.
+     */
+    static Events otherEvents()
+    {
+        Events e = new Events();
+        e.first = new AnotherRatherLongNamedEvent(0, "first");
+        e.items = new ArrayList<Object>();
+        for(int i = 1; i <= 5; i++)
+        {
+            e.items.add(new AnotherRatherLongNamedEvent(i, null));
+            e.items.add(new SomeRatherLongNamedEvent(i, "o" + i));
+        }
+        return e;
+    }
+    
+    static void assertEquivalent(Events e, Events parsed)
+    {
+        assertEquals(e.first, parsed.first);
+        assertEquals(e.items, parsed.items);
+    }
+    
+    static Schema<Events> schema(boolean classNameDictionary)
+    {
+        return RuntimeSchema.createFrom(Events.class, 
+                new DefaultIdStrategy(classNameDictionary));
+    }
+    
+    static int count(String str, String part)
+    {
+        int count = 0;
+        for(int i = str.indexOf(part); i != -1; i = str.indexOf(part, i + 1))
+            count++;
+        
+        return count;
+    }
+    
+    public void testProtostuff() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents();
+        
+        byte[] data = ProtostuffIOUtil.toByteArray(e, schema, buf());
+        
+        String str = new String(data, "ISO-8859-1");
+        assertEquals(1, count(str, SomeRatherLongNamedEvent.class.getName()));
+        assertEquals(1, count(str, AnotherRatherLongNamedEvent.class.getName()));
+        
+        Events parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, parsed, schema);
+        assertEquivalent(e, parsed);
+        
+        parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, schema);
+        assertEquivalent(e, parsed);
+    }
+    
+    public void testProtobuf() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents();
+        
+        byte[] data = ProtobufIOUtil.toByteArray(e, schema, buf());
+        
+        // the sizing pass writes the same names (and back-references)
+        assertTrue(Arrays.equals(data, ProtobufIOUtil.toByteArray(e, 
+                schema, new ProtobufSizeOutput())));
+        
+        Events parsed = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, parsed, schema);
+        assertEquivalent(e, parsed);
+    }
+    
+    public void testGraph() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents();
+        e.items.add(e.first);
+        
+        byte[] data = GraphIOUtil.toByteArray(e, schema, buf());
+        
+        Events parsed = schema.newMessage();
+        GraphIOUtil.mergeFrom(data, parsed, schema);
+        assertEquivalent(e, parsed);
+        assertTrue(parsed.first == parsed.items.get(parsed.items.size() - 1));
+    }
+    
+    public void testPipe() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents();
+        
+        byte[] protostuff = ProtostuffIOUtil.toByteArray(e, schema, buf());
+        byte[] protobuf = ProtobufIOUtil.toByteArray(e, schema, buf());
+        
+        Pipe.Schema<Events> pipeSchema = 
+            ((RuntimeSchema<Events>)schema).getPipeSchema();
+        
+        assertTrue(Arrays.equals(protobuf, ProtobufIOUtil.toByteArray(
+                ProtostuffIOUtil.newPipe(protostuff), pipeSchema, buf())));
+        
+        assertTrue(Arrays.equals(protostuff, ProtostuffIOUtil.toByteArray(
+                ProtobufIOUtil.newPipe(protobuf), pipeSchema, buf())));
+        
+        // plain names are piped into the dictionary form
+        byte[] plain = ProtostuffIOUtil.toByteArray(e, schema(false), buf());
+        assertTrue(Arrays.equals(protostuff, ProtostuffIOUtil.toByteArray(
+                ProtostuffIOUtil.newPipe(plain), pipeSchema, buf())));
+    }
+    
+    public void testSmallerThanPlainNames() throws IOException
+    {
+        Events e = filledEvents();
+        
+        byte[] plain = ProtostuffIOUtil.toByteArray(e, schema(false), buf());
+        byte[] data = ProtostuffIOUtil.toByteArray(e, schema(true), buf());
+        
+        assertTrue(data.length < plain.length / 2);
+    }
+    
+    public void testReadPlainNames() throws IOException
+    {
+        Events e = filledEvents();
+        
+        byte[] plain = ProtostuffIOUtil.toByteArray(e, schema(false), buf());
+        
+        Schema<Events> schema = schema(true);
+        Events parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(plain, parsed, schema);
+        assertEquivalent(e, parsed);
+    }
+    
+    public void testListScope() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        ArrayList<Events> list = new ArrayList<Events>();
+        list.add(filledEvents());
+        list.add(filledEvents());
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtostuffIOUtil.writeListTo(out, list, schema, buf());
+        byte[] data = out.toByteArray();
+        
+        // the names are written once per message (each is self-contained)
+        assertEquals(2, count(new String(data, "ISO-8859-1"), 
+                SomeRatherLongNamedEvent.class.getName()));
+        
+        List<Events> parsed = ProtostuffIOUtil.parseListFrom(
+                new ByteArrayInputStream(data), schema);
+        assertEquals(2, parsed.size());
+        assertEquivalent(list.get(0), parsed.get(0));
+        assertEquivalent(list.get(1), parsed.get(1));
+    }
+    
+    public void testClearStartsNewScope() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents();
+        
+        ProtostuffOutput output = new ProtostuffOutput(buf());
+        schema.writeTo(output, e);
+        byte[] first = output.toByteArray();
+        
+        output.clear();
+        schema.writeTo(output, e);
+        byte[] second = output.toByteArray();
+        
+        assertTrue(Arrays.equals(first, second));
+        
+        Events parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(second, parsed, schema);
+        assertEquivalent(e, parsed);
+    }
+    
+    public void testDelimitedWriterFrames() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents();
+        
+        // the writer reuses its output for every frame
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DelimitedWriter<Events> writer = ProtostuffIOUtil.newDelimitedWriter(out, 
+                schema, buf(), 1 << 16);
+        writer.write(e);
+        writer.write(e);
+        writer.finish();
+        byte[] data = out.toByteArray();
+        
+        assertEquals(2, count(new String(data, "ISO-8859-1"), 
+                SomeRatherLongNamedEvent.class.getName()));
+        
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        for(int i = 0; i < 2; i++)
+        {
+            Events parsed = schema.newMessage();
+            ProtostuffIOUtil.mergeDelimitedFrom(in, parsed, schema);
+            assertEquivalent(e, parsed);
+        }
+        assertEquals(-1, in.read());
+    }
+    
+    public void testIndexedRandomAccess() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents(), other = otherEvents();
+        
+        File file = File.createTempFile("class-names", ".idx");
+        try
+        {
+            FileOutputStream out = new FileOutputStream(file);
+            try
+            {
+                DelimitedWriter<Events> writer = ProtostuffIOUtil.newIndexedWriter(
+                        out, schema, buf(), 1 << 16, false);
+                writer.write(e);
+                writer.write(other);
+                writer.write(e);
+                writer.finish();
+            }
+            finally
+            {
+                out.close();
+            }
+            
+            IndexedReader<Events> reader = ProtostuffIOUtil.newIndexedReader(file, 
+                    schema);
+            try
+            {
+                assertEquivalent(e, reader.get(2));
+                assertEquivalent(other, reader.get(1));
+                assertEquivalent(e, reader.get(0));
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+    
+    public void testInterleavedStreams() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        Events e = filledEvents(), other = otherEvents();
+        
+        // two writers used alternately on the same thread
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream(), 
+                out2 = new ByteArrayOutputStream();
+        DelimitedWriter<Events> writer1 = ProtostuffIOUtil.newDelimitedWriter(out1, 
+                schema, buf(), 1 << 16);
+        DelimitedWriter<Events> writer2 = ProtostuffIOUtil.newDelimitedWriter(out2, 
+                schema, buf(), 1 << 16);
+        for(int i = 0; i < 3; i++)
+        {
+            writer1.write(e);
+            writer2.write(other);
+        }
+        writer1.finish();
+        writer2.finish();
+        
+        ByteArrayInputStream in1 = new ByteArrayInputStream(out1.toByteArray()), 
+                in2 = new ByteArrayInputStream(out2.toByteArray());
+        for(int i = 0; i < 3; i++)
+        {
+            Events parsed = schema.newMessage();
+            ProtostuffIOUtil.mergeDelimitedFrom(in1, parsed, schema);
+            assertEquivalent(e, parsed);
+            
+            parsed = schema.newMessage();
+            ProtostuffIOUtil.mergeDelimitedFrom(in2, parsed, schema);
+            assertEquivalent(other, parsed);
+        }
+        
+        // two lists read alternately on the same thread (each reuses its input)
+        ByteArrayOutputStream list1 = new ByteArrayOutputStream(), 
+                list2 = new ByteArrayOutputStream();
+        ProtostuffIOUtil.writeListTo(list1, Arrays.asList(e, e, e), schema, buf());
+        ProtostuffIOUtil.writeListTo(list2, Arrays.asList(other, other, other), 
+                schema, buf());
+        
+        MessageIterator<Events> it1 = ProtostuffIOUtil.iterateListFrom(
+                new ByteArrayInputStream(list1.toByteArray()), schema, null);
+        MessageIterator<Events> it2 = ProtostuffIOUtil.iterateListFrom(
+                new ByteArrayInputStream(list2.toByteArray()), schema, null);
+        for(int i = 0; i < 3; i++)
+        {
+            assertEquivalent(e, it1.next());
+            assertEquivalent(other, it2.next());
+        }
+        assertFalse(it1.hasNext());
+        assertFalse(it2.hasNext());
+    }
+    
+    public void testUnknownReference() throws IOException
+    {
+        Schema<Events> schema = schema(true);
+        
+        // both messages share the output, so the second one only has references
+        LinkedBuffer buffer = buf();
+        ProtostuffOutput output = new ProtostuffOutput(buffer);
+        schema.writeTo(output, filledEvents());
+        int firstSize = output.getSize();
+        schema.writeTo(output, filledEvents());
+        byte[] data = output.toByteArray();
+        
+        Events parsed = schema.newMessage();
+        try
+        {
+            ProtostuffIOUtil.mergeFrom(new ByteArrayInputStream(data, firstSize, 
+                    data.length - firstSize), parsed, schema);
+            fail("Expected unknown class name reference.");
+        }
+        catch(ProtostuffException e)
+        {
+            // expected
+        }
+    }
+    
+    public void testReaderWithoutDictionaryFailsFast() throws IOException
+    {
+        byte[] data = ProtostuffIOUtil.toByteArray(filledEvents(), schema(true), 
+                buf());
+        
+        Schema<Events> schema = schema(false);
+        Events parsed = schema.newMessage();
+        try
+        {
+            ProtostuffIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, 
+                    schema);
+            fail("Expected the class name reference to not be resolved.");
+        }
+        catch(ProtostuffException e)
+        {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.ByteArrayInput;
+import com.dyuproject.protostuff.ByteBufferInput;
+import com.dyuproject.protostuff.CodedInput;
+import com.dyuproject.protostuff.EnumLite;
+import com.dyuproject.protostuff.Input;
+import com.dyuproject.protostuff.ProtostuffException;
+import com.dyuproject.protostuff.ProtostuffOutput;
+
+/**
+ * Test for the table-driven enum lookups of {@link EnumIO}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class EnumIOTest extends AbstractTest
+{
+    
+    enum Color
+    {
+        RED, GREEN, BLUE, CAF\u00C9
+    }
+    
+    enum Dense implements EnumLite<Dense>
+    {
+        ONE(1), TWO(2), FIVE(5);
+        
+        final int number;
+        
+        Dense(int number)
+        {
+            this.number = number;
+        }
+        
+        public int getNumber()
+        {
+            return number;
+        }
+    }
+    
+    enum Sparse implements EnumLite<Sparse>
+    {
+        NEGATIVE(-7), ZERO(0), BIG(100000), BIGGER(Integer.MAX_VALUE);
+        
+        final int number;
+        
+        Sparse(int number)
+        {
+            this.number = number;
+        }
+        
+        public int getNumber()
+        {
+            return number;
+        }
+    }
+    
+    static byte[] writeNames(Enum<?>[] values) throws IOException
+    {
+        final ProtostuffOutput output = new ProtostuffOutput(buf());
+        for(Enum<?> e : values)
+            output.writeString(1, e.name(), true);
+        
+        return output.toByteArray();
+    }
+    
+    static byte[] writeNumbers(int[] numbers) throws IOException
+    {
+        final ProtostuffOutput output = new ProtostuffOutput(buf());
+        for(int n : numbers)
+            output.writeEnum(1, n, true);
+        
+        return output.toByteArray();
+    }
+    
+    static Input[] newInputs(byte[] data)
+    {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        return new Input[]{
+                new ByteArrayInput(data, true), 
+                new CodedInput(new ByteArrayInputStream(data), true), 
+                new ByteBufferInput(ByteBuffer.wrap(data), true), 
+                new ByteBufferInput(direct, true)
+        };
+    }
+    
+    static <E extends Enum<E>> void verify(EnumIO<E> eio, Enum<?>[] expected, byte[] data) 
+            throws IOException
+    {
+        for(Input input : newInputs(data))
+        {
+            for(Enum<?> e : expected)
+            {
+                assertEquals(1, input.readFieldNumber(null));
+                assertSame(e, eio.readFrom(input));
+            }
+        }
+    }
+    
+    public void testByName() throws Exception
+    {
+        final Color[] values = new Color[]{ Color.BLUE, Color.CAF\u00C9, Color.RED, 
+                Color.GREEN, Color.BLUE };
+        
+        final EnumIO.ByName<Color> eio = new EnumIO.ByName<Color>(Color.class);
+        verify(eio, values, writeNames(values));
+        
+        // the constant's own name is returned
+        final byte[] utf8 = "CAF\u00C9".getBytes("UTF-8");
+        assertSame(Color.CAF\u00C9.name(), eio.names.get(utf8, 0, utf8.length));
+        
+        for(Input input : newInputs(writeNames(new Enum<?>[]{ Dense.ONE })))
+        {
+            assertEquals(1, input.readFieldNumber(null));
+            try
+            {
+                eio.readFrom(input);
+                fail("Expected IllegalArgumentException.");
+            }
+            catch(IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+    
+    public void testByNumber() throws Exception
+    {
+        final Color[] values = new Color[]{ Color.BLUE, Color.CAF\u00C9, Color.RED };
+        verify(new EnumIO.ByNumber<Color>(Color.class, true), values, 
+                writeNumbers(new int[]{ 2, 3, 0 }));
+    }
+    
+    public void testByEnumLiteNumber() throws Exception
+    {
+        final EnumIO.ByNumber<Dense> dense = new EnumIO.ByNumber<Dense>(Dense.class, true);
+        assertNull(dense.numbers);
+        verify(dense, new Dense[]{ Dense.FIVE, Dense.ONE, Dense.TWO }, 
+                writeNumbers(new int[]{ 5, 1, 2 }));
+        
+        final EnumIO.ByNumber<Sparse> sparse = new EnumIO.ByNumber<Sparse>(Sparse.class, true);
+        assertNotNull(sparse.numbers);
+        verify(sparse, new Sparse[]{ Sparse.BIGGER, Sparse.NEGATIVE, Sparse.ZERO, Sparse.BIG }, 
+                writeNumbers(new int[]{ Integer.MAX_VALUE, -7, 0, 100000 }));
+        
+        // by ordinal if disabled
+        verify(new EnumIO.ByNumber<Sparse>(Sparse.class, false), 
+                new Sparse[]{ Sparse.BIGGER, Sparse.NEGATIVE }, 
+                writeNumbers(new int[]{ 3, 0 }));
+        
+        for(EnumIO<?> eio : new EnumIO<?>[]{ dense, sparse })
+        {
+            for(Input input : newInputs(writeNumbers(new int[]{ 3 })))
+            {
+                assertEquals(1, input.readFieldNumber(null));
+                try
+                {
+                    eio.readFrom(input);
+                    fail("Expected ProtostuffException.");
+                }
+                catch(ProtostuffException e)
+                {
+                    // expected
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.Input;
+import com.dyuproject.protostuff.Output;
+import com.dyuproject.protostuff.Pipe;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.Tag;
+import com.dyuproject.protostuff.WireFormat.FieldType;
+import com.dyuproject.protostuff.runtime.MappedSchema.Field;
+
+/**
+ * Test for the dense and sparse {@link FieldMap}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class FieldMapTest extends AbstractTest
+{
+    
+    public static class Sparse
+    {
+        @Tag(1)
+        int id;
+        
+        @Tag(7)
+        String name;
+        
+        @Tag(50000)
+        long big;
+        
+        @Tag(100000)
+        String bigger;
+    }
+    
+    static Field<Object> newField(int number)
+    {
+        return new Field<Object>(FieldType.INT32, number, "f" + number, null)
+        {
+            protected void writeTo(Output output, Object message) throws IOException
+            {
+            }
+            protected void mergeFrom(Input input, Object message) throws IOException
+            {
+            }
+            protected void transfer(Pipe pipe, Input input, Output output, 
+                    boolean repeated) throws IOException
+            {
+            }
+        };
+    }
+    
+    static FieldMap<Object> newFieldMap(int ... numbers)
+    {
+        ArrayList<Field<Object>> fields = new ArrayList<Field<Object>>();
+        int last = 0;
+        for(int number : numbers)
+        {
+            fields.add(newField(number));
+            last = Math.max(last, number);
+        }
+        
+        return FieldMap.create(fields, last);
+    }
+    
+    static void verify(FieldMap<Object> map, int ... numbers)
+    {
+        assertEquals(numbers.length, map.getFieldCount());
+        
+        int last = 0;
+        for(int number : numbers)
+        {
+            assertEquals(number, map.getFieldByNumber(number).number);
+            last = Math.max(last, number);
+        }
+        
+        assertNull(map.getFieldByNumber(0));
+        assertNull(map.getFieldByNumber(last + 1));
+        
+        // sorted
+        List<Field<Object>> fields = map.getFields();
+        for(int i = 1; i < fields.size(); i++)
+            assertTrue(fields.get(i - 1).number < fields.get(i).number);
+    }
+    
+    public void testDense()
+    {
+        FieldMap<Object> map = newFieldMap(3, 1, 2, 5, 4);
+        assertTrue(map instanceof FieldMap.Dense<?>);
+        verify(map, 3, 1, 2, 5, 4);
+        
+        // small numbers are always dense
+        map = newFieldMap(1, FieldMap.MIN_SPARSE_FIELD_NUMBER - 1);
+        assertTrue(map instanceof FieldMap.Dense<?>);
+    }
+    
+    public void testSparse()
+    {
+        FieldMap<Object> map = newFieldMap(1, 7, 50000, 100000);
+        assertTrue(map instanceof FieldMap.Sparse<?>);
+        verify(map, 1, 7, 50000, 100000);
+        assertTrue(((FieldMap.Sparse<?>)map).numbers.length < 16);
+    }
+    
+    public void testSparseCollisions()
+    {
+        int[] numbers = new int[200];
+        for(int i = 0; i < numbers.length; i++)
+            numbers[i] = (i + 1) * 1024;
+        
+        FieldMap<Object> map = newFieldMap(numbers);
+        assertTrue(map instanceof FieldMap.Sparse<?>);
+        verify(map, numbers);
+        
+        for(int i = 1; i < 1024; i++)
+            assertNull(map.getFieldByNumber(i));
+    }
+    
+    public void testDuplicateNumber()
+    {
+        try
+        {
+            newFieldMap(1, 50000, 50000);
+            fail("Expected IllegalStateException");
+        }
+        catch(IllegalStateException e)
+        {
+            // expected
+        }
+    }
+    
+    public void testFieldsByNumber() throws Exception
+    {
+        for(FieldMap<Object> map : new FieldMap[]{
+                newFieldMap(3, 1, 5), newFieldMap(1, 7, 50000)})
+        {
+            Field<Object>[] fieldsByNumber = map.toArrayByNumber();
+            List<Field<Object>> fields = map.getFields();
+            assertEquals(fields.get(fields.size() - 1).number + 1, 
+                    fieldsByNumber.length);
+            
+            int count = 0;
+            for(int i = 0; i < fieldsByNumber.length; i++)
+            {
+                if(fieldsByNumber[i] != null)
+                {
+                    assertSame(map.getFieldByNumber(i), fieldsByNumber[i]);
+                    count++;
+                }
+            }
+            assertEquals(map.getFieldCount(), count);
+            
+            // back
+            FieldMap<Object> copy = FieldMap.create(fieldsByNumber);
+            assertEquals(map.getClass(), copy.getClass());
+            assertEquals(fields, copy.getFields());
+        }
+        
+        // the legacy pipe schema constructor
+        Schema<Sparse> schema = RuntimeSchema.getSchema(Sparse.class);
+        RuntimePipeSchema<Sparse> pipeSchema = new RuntimePipeSchema<Sparse>(schema, 
+                ((MappedSchema<Sparse>)schema).getFieldsByNumber());
+        assertTrue(pipeSchema.fieldMap instanceof FieldMap.Sparse<?>);
+        assertEquals(((MappedSchema<Sparse>)schema).fieldMap.getFields(), 
+                pipeSchema.fieldMap.getFields());
+        
+        // the dense schemas keep the array
+        MappedSchema<Baz> dense = (MappedSchema<Baz>)RuntimeSchema.getSchema(Baz.class);
+        assertTrue(dense.fieldMap instanceof FieldMap.Dense<?>);
+        assertNotNull(dense.fieldsByNumber);
+        assertSame(dense.fieldsByNumber, dense.getFieldsByNumber());
+        for(Field<Baz> f : dense.fieldMap.getFields())
+            assertSame(f, dense.fieldsByNumber[f.number]);
+    }
+    
+    public void testSparseSchema() throws Exception
+    {
+        Schema<Sparse> schema = RuntimeSchema.getSchema(Sparse.class);
+        assertTrue(((MappedSchema<Sparse>)schema).fieldMap instanceof FieldMap.Sparse<?>);
+        assertNull(((MappedSchema<Sparse>)schema).fieldsByNumber);
+        
+        Sparse message = new Sparse();
+        message.id = 1;
+        message.name = "foo";
+        message.big = Long.MAX_VALUE;
+        message.bigger = "bar";
+        
+        byte[] data = ProtostuffIOUtil.toByteArray(message, schema, buf());
+        
+        Sparse parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, parsed, schema);
+        assertEquals(message.id, parsed.id);
+        assertEquals(message.name, parsed.name);
+        assertEquals(message.big, parsed.big);
+        assertEquals(message.bigger, parsed.bigger);
+        
+        // pipe
+        byte[] protobuf = ProtobufIOUtil.toByteArray(ProtostuffIOUtil.newPipe(data), 
+                ((MappedSchema<Sparse>)schema).getPipeSchema(), buf());
+        assertEquals(ProtobufIOUtil.toByteArray(message, schema, buf()).length, 
+                protobuf.length);
+        
+        assertEquals("bigger", schema.getFieldName(100000));
+        assertNull(schema.getFieldName(99999));
+    }
+
+}
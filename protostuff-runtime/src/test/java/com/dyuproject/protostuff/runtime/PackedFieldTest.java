@@ -0,0 +1,172 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.GraphIOUtil;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.Tag;
+
+/**
+ * Test for runtime collection fields annotated with {@code @Tag(packed=true)}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class PackedFieldTest extends AbstractTest
+{
+    
+    public static class Packed
+    {
+        @Tag(value = 1, packed = true)
+        List<Integer> ints;
+        
+        @Tag(value = 2, packed = true)
+        List<Long> longs;
+        
+        @Tag(value = 3, packed = true)
+        List<Float> floats;
+        
+        @Tag(value = 4, packed = true)
+        List<Double> doubles;
+        
+        @Tag(value = 5, packed = true)
+        List<Boolean> bools;
+        
+        @Tag(value = 6, packed = true)
+        List<String> strings;
+    }
+    
+    public static class Unpacked
+    {
+        @Tag(1)
+        List<Integer> ints;
+        
+        @Tag(2)
+        List<Long> longs;
+        
+        @Tag(3)
+        List<Float> floats;
+        
+        @Tag(4)
+        List<Double> doubles;
+        
+        @Tag(5)
+        List<Boolean> bools;
+        
+        @Tag(6)
+        List<String> strings;
+    }
+    
+    static Packed filledPacked()
+    {
+        Packed p = new Packed();
+        p.ints = Arrays.asList(1, -1, 300, Integer.MIN_VALUE);
+        p.longs = Arrays.asList(0L, -1L, Long.MAX_VALUE);
+        p.floats = Arrays.asList(1.5f, -2.5f);
+        p.doubles = Arrays.asList(1.5d, -2.5d, Double.MAX_VALUE);
+        p.bools = Arrays.asList(true, false, false);
+        p.strings = Arrays.asList("a", "bc");
+        return p;
+    }
+    
+    static Unpacked toUnpacked(Packed p)
+    {
+        Unpacked u = new Unpacked();
+        u.ints = p.ints;
+        u.longs = p.longs;
+        u.floats = p.floats;
+        u.doubles = p.doubles;
+        u.bools = p.bools;
+        u.strings = p.strings;
+        return u;
+    }
+    
+    static void assertEquivalent(Packed p, Packed parsed)
+    {
+        assertEquals(p.ints, parsed.ints);
+        assertEquals(p.longs, parsed.longs);
+        assertEquals(p.floats, parsed.floats);
+        assertEquals(p.doubles, parsed.doubles);
+        assertEquals(p.bools, parsed.bools);
+        assertEquals(p.strings, parsed.strings);
+    }
+    
+    public void testProtobuf() throws IOException
+    {
+        Schema<Packed> schema = RuntimeSchema.getSchema(Packed.class);
+        Packed p = filledPacked();
+        
+        byte[] packed = ProtobufIOUtil.toByteArray(p, schema, buf());
+        byte[] unpacked = ProtobufIOUtil.toByteArray(toUnpacked(p), 
+                RuntimeSchema.getSchema(Unpacked.class), buf());
+        assertTrue(packed.length < unpacked.length);
+        
+        for(byte[] data : new byte[][]{packed, unpacked})
+        {
+            Packed parsed = schema.newMessage();
+            ProtobufIOUtil.mergeFrom(data, parsed, schema);
+            assertEquivalent(p, parsed);
+            
+            parsed = schema.newMessage();
+            ProtobufIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, schema);
+            assertEquivalent(p, parsed);
+        }
+    }
+    
+    public void testProtostuff() throws IOException
+    {
+        Schema<Packed> schema = RuntimeSchema.getSchema(Packed.class);
+        Packed p = filledPacked();
+        
+        byte[] packed = ProtostuffIOUtil.toByteArray(p, schema, buf());
+        byte[] unpacked = ProtostuffIOUtil.toByteArray(toUnpacked(p), 
+                RuntimeSchema.getSchema(Unpacked.class), buf());
+        assertTrue(packed.length < unpacked.length);
+        
+        for(byte[] data : new byte[][]{packed, unpacked})
+        {
+            Packed parsed = schema.newMessage();
+            ProtostuffIOUtil.mergeFrom(data, parsed, schema);
+            assertEquivalent(p, parsed);
+            
+            parsed = schema.newMessage();
+            ProtostuffIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, 
+                    schema);
+            assertEquivalent(p, parsed);
+        }
+    }
+    
+    public void testGraph() throws IOException
+    {
+        Schema<Packed> schema = RuntimeSchema.getSchema(Packed.class);
+        Packed p = filledPacked();
+        
+        byte[] data = GraphIOUtil.toByteArray(p, schema, buf());
+        
+        Packed parsed = schema.newMessage();
+        GraphIOUtil.mergeFrom(data, parsed, schema);
+        assertEquivalent(p, parsed);
+    }
+
+}
@@ -0,0 +1,230 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.GraphIOUtil;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * Test for fields declared as primitive arrays, which are serialized without 
+ * boxing the elements.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class PrimitiveArrayTest extends AbstractTest
+{
+    
+    public static class Primitives
+    {
+        boolean[] bools;
+        char[] chars;
+        short[] shorts;
+        int[] ints;
+        long[] longs;
+        float[] floats;
+        double[] doubles;
+        double[] empty;
+        int[] none;
+        List<double[]> doublesList;
+    }
+    
+    /**
+     * Same field numbers as {@link Primitives}, but the arrays are written 
+     * through {@link ObjectSchema} (component type id, length, dimensions and 
+     * boxed elements).
+     */
+    public static class Boxed
+    {
+        Object bools;
+        Object chars;
+        Object shorts;
+        Object ints;
+        Object longs;
+        Object floats;
+        Object doubles;
+        Object empty;
+        Object none;
+    }
+    
+    public static class Shared
+    {
+        double[] a;
+        double[] b;
+    }
+    
+    static Primitives filledPrimitives()
+    {
+        Primitives p = new Primitives();
+        p.bools = new boolean[]{true, false, true};
+        p.chars = new char[]{'a', 'z', Character.MAX_VALUE};
+        p.shorts = new short[]{0, -1, Short.MIN_VALUE, Short.MAX_VALUE};
+        p.ints = new int[]{0, -1, 300, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        p.longs = new long[]{0, -1, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE};
+        p.floats = new float[]{0f, -1.5f, Float.MAX_VALUE, Float.NaN};
+        p.doubles = new double[]{0d, -1.5d, Double.MAX_VALUE, Double.MIN_VALUE};
+        p.empty = new double[0];
+        p.doublesList = new ArrayList<double[]>();
+        p.doublesList.add(new double[]{1, 2, 3});
+        p.doublesList.add(new double[0]);
+        return p;
+    }
+    
+    static Boxed toBoxed(Primitives p)
+    {
+        Boxed b = new Boxed();
+        b.bools = p.bools;
+        b.chars = p.chars;
+        b.shorts = p.shorts;
+        b.ints = p.ints;
+        b.longs = p.longs;
+        b.floats = p.floats;
+        b.doubles = p.doubles;
+        b.empty = p.empty;
+        b.none = p.none;
+        return b;
+    }
+    
+    static void assertEquivalent(Primitives p, Primitives parsed, boolean withList)
+    {
+        assertTrue(Arrays.equals(p.bools, parsed.bools));
+        assertTrue(Arrays.equals(p.chars, parsed.chars));
+        assertTrue(Arrays.equals(p.shorts, parsed.shorts));
+        assertTrue(Arrays.equals(p.ints, parsed.ints));
+        assertTrue(Arrays.equals(p.longs, parsed.longs));
+        assertTrue(Arrays.equals(p.floats, parsed.floats));
+        assertTrue(Arrays.equals(p.doubles, parsed.doubles));
+        assertTrue(Arrays.equals(p.empty, parsed.empty));
+        assertNull(parsed.none);
+        
+        if(!withList)
+            return;
+        
+        assertEquals(p.doublesList.size(), parsed.doublesList.size());
+        for(int i = 0; i < p.doublesList.size(); i++)
+            assertTrue(Arrays.equals(p.doublesList.get(i), parsed.doublesList.get(i)));
+    }
+    
+    public void testProtobuf() throws IOException
+    {
+        Schema<Primitives> schema = RuntimeSchema.getSchema(Primitives.class);
+        Primitives p = filledPrimitives();
+        
+        byte[] data = ProtobufIOUtil.toByteArray(p, schema, buf());
+        
+        Primitives parsed = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(data, parsed, schema);
+        assertEquivalent(p, parsed, true);
+        
+        parsed = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, schema);
+        assertEquivalent(p, parsed, true);
+    }
+    
+    public void testProtostuff() throws IOException
+    {
+        Schema<Primitives> schema = RuntimeSchema.getSchema(Primitives.class);
+        Primitives p = filledPrimitives();
+        
+        byte[] data = ProtostuffIOUtil.toByteArray(p, schema, buf());
+        
+        Primitives parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, parsed, schema);
+        assertEquivalent(p, parsed, true);
+        
+        parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, schema);
+        assertEquivalent(p, parsed, true);
+    }
+    
+    public void testPipe() throws IOException
+    {
+        Schema<Primitives> schema = RuntimeSchema.getSchema(Primitives.class);
+        Primitives p = filledPrimitives();
+        
+        byte[] data = ProtostuffIOUtil.toByteArray(p, schema, buf());
+        byte[] piped = ProtostuffIOUtil.toByteArray(
+                ProtostuffIOUtil.newPipe(data), 
+                ((RuntimeSchema<Primitives>)schema).getPipeSchema(), buf());
+        
+        assertTrue(Arrays.equals(data, piped));
+    }
+    
+    public void testReadBoxedFormat() throws IOException
+    {
+        Schema<Primitives> schema = RuntimeSchema.getSchema(Primitives.class);
+        Primitives p = filledPrimitives();
+        
+        byte[] protostuff = ProtostuffIOUtil.toByteArray(toBoxed(p), 
+                RuntimeSchema.getSchema(Boxed.class), buf());
+        
+        Primitives parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(protostuff, parsed, schema);
+        assertEquivalent(p, parsed, false);
+        
+        byte[] protobuf = ProtobufIOUtil.toByteArray(toBoxed(p), 
+                RuntimeSchema.getSchema(Boxed.class), buf());
+        
+        parsed = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(protobuf, parsed, schema);
+        assertEquivalent(p, parsed, false);
+    }
+    
+    public void testSmallerThanBoxed() throws IOException
+    {
+        Primitives p = filledPrimitives();
+        p.doublesList = null;
+        
+        byte[] unboxed = ProtobufIOUtil.toByteArray(p, 
+                RuntimeSchema.getSchema(Primitives.class), buf());
+        byte[] boxed = ProtobufIOUtil.toByteArray(toBoxed(p), 
+                RuntimeSchema.getSchema(Boxed.class), buf());
+        
+        if(RuntimeEnv.PRIMITIVE_ARRAY_SCHEMAS)
+            assertTrue(unboxed.length < boxed.length);
+        else
+        {
+            // disabled by default, the arrays are written as usual (boxed)
+            assertTrue(Arrays.equals(boxed, unboxed));
+        }
+    }
+    
+    public void testGraphSharedReference() throws IOException
+    {
+        Schema<Shared> schema = RuntimeSchema.getSchema(Shared.class);
+        Shared s = new Shared();
+        s.a = new double[]{1, 2, 3};
+        s.b = s.a;
+        
+        byte[] data = GraphIOUtil.toByteArray(s, schema, buf());
+        
+        Shared parsed = schema.newMessage();
+        GraphIOUtil.mergeFrom(data, parsed, schema);
+        
+        assertTrue(Arrays.equals(s.a, parsed.a));
+        assertSame(parsed.a, parsed.b);
+    }
+
+}
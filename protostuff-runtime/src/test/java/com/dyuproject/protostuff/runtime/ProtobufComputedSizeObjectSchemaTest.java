@@ -0,0 +1,46 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+
+package com.dyuproject.protostuff.runtime;
+
+import java.util.Arrays;
+
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtobufSizeOutput;
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * Test protobuf ser/deser for runtime {@link Object} fields, with the nested 
+ * message sizes computed beforehand.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class ProtobufComputedSizeObjectSchemaTest extends ProtobufRuntimeObjectSchemaTest
+{
+    
+    final ProtobufSizeOutput sizeOutput = new ProtobufSizeOutput();
+    
+    protected <T> byte[] toByteArray(T message, Schema<T> schema)
+    {
+        final byte[] data = ProtobufIOUtil.toByteArray(message, schema, sizeOutput);
+        
+        // same as the default (shifting) path
+        assertTrue(Arrays.equals(super.toByteArray(message, schema), data));
+        
+        return data;
+    }
+
+}
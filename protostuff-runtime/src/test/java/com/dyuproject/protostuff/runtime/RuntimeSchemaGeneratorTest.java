@@ -0,0 +1,334 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.dyuproject.protostuff.Dedup;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.Tag;
+import com.dyuproject.protostuff.runtime.MappedSchema.Field;
+
+/**
+ * Test for the {@link RuntimeSchema} subclasses generated at runtime.
+ * 
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class RuntimeSchemaGeneratorTest extends TestCase
+{
+    
+    static class Base
+    {
+        private String baseName;
+    }
+    
+    static final class Fields extends Base
+    {
+        static int staticField;
+        
+        private boolean bool;
+        private byte b;
+        private char c;
+        private short s;
+        private int i;
+        private long l;
+        private float f;
+        private double d;
+        private String str;
+        private String nullStr;
+        @Dedup
+        private String dedup;
+        private Integer boxed;
+        private List<String> list;
+        private int[] ints;
+        private final Integer finalField;
+        private final int finalInt;
+        
+        Fields()
+        {
+            this(1, 2);
+        }
+        
+        Fields(int finalField, int finalInt)
+        {
+            this.finalField = Integer.valueOf(finalField);
+            this.finalInt = finalInt;
+        }
+        
+        Integer finalField()
+        {
+            return finalField;
+        }
+        
+        int finalInt()
+        {
+            return finalInt;
+        }
+    }
+    
+    static final class Small
+    {
+        @Tag(1)
+        int a;
+        
+        @Tag(3)
+        String c;
+    }
+    
+    static final class Big
+    {
+        @Tag(1)
+        int a;
+        
+        @Tag(2)
+        long b;
+        
+        @Tag(3)
+        String c;
+        
+        @Tag(100000)
+        int d;
+        
+        @Tag(100001)
+        List<String> e;
+    }
+    
+    static final class NoDirectFields
+    {
+        private final int id = 1;
+        private List<String> list;
+    }
+    
+    /**
+     * Creates the fields like {@link RuntimeSchema#createFrom(Class)} and 
+     * generates the schema.
+     */
+    static <T> RuntimeSchema<T> generate(Class<T> typeClass)
+    {
+        final IdStrategy strategy = RuntimeEnv.ID_STRATEGY;
+        final ArrayList<Field<T>> fields = new ArrayList<Field<T>>();
+        final ArrayList<java.lang.reflect.Field> reflectedFields = 
+                new ArrayList<java.lang.reflect.Field>();
+        int lastFieldNumber = 0;
+        for(java.lang.reflect.Field f : 
+            RuntimeSchema.findInstanceFields(typeClass).values())
+        {
+            final Tag tag = f.getAnnotation(Tag.class);
+            final int number = tag == null ? fields.size() + 1 : tag.value();
+            fields.add(RuntimeFieldFactory.getFieldFactory(f.getType(), 
+                    strategy).<T>create(number, f.getName(), f, strategy));
+            reflectedFields.add(f);
+            lastFieldNumber = Math.max(lastFieldNumber, number);
+        }
+        
+        return RuntimeSchemaGenerator.newSchema(typeClass, fields, reflectedFields, 
+                lastFieldNumber, RuntimeEnv.newInstantiator(typeClass), strategy);
+    }
+    
+    static <T> byte[] toProtostuff(T message, Schema<T> schema)
+    {
+        return ProtostuffIOUtil.toByteArray(message, schema, LinkedBuffer.allocate(512));
+    }
+    
+    static <T> byte[] toProtobuf(T message, Schema<T> schema)
+    {
+        return ProtobufIOUtil.toByteArray(message, schema, LinkedBuffer.allocate(512));
+    }
+    
+    static Fields newFields()
+    {
+        Fields p = new Fields();
+        ((Base)p).baseName = "base";
+        p.bool = true;
+        p.b = (byte)-3;
+        p.c = 'z';
+        p.s = Short.MIN_VALUE;
+        p.i = Integer.MIN_VALUE;
+        p.l = Long.MIN_VALUE;
+        p.f = 1.5f;
+        p.d = -2.25d;
+        p.str = "foo";
+        p.dedup = "bar";
+        p.boxed = Integer.valueOf(7);
+        p.list = new ArrayList<String>(Arrays.asList("a", "b"));
+        p.ints = new int[]{1, 2};
+        return p;
+    }
+    
+    static void assertFieldsEquals(Fields expected, Fields actual)
+    {
+        assertEquals(((Base)expected).baseName, ((Base)actual).baseName);
+        assertEquals(expected.bool, actual.bool);
+        assertEquals(expected.b, actual.b);
+        assertEquals(expected.c, actual.c);
+        assertEquals(expected.s, actual.s);
+        assertEquals(expected.i, actual.i);
+        assertEquals(expected.l, actual.l);
+        assertEquals(expected.f, actual.f);
+        assertEquals(expected.d, actual.d);
+        assertEquals(expected.str, actual.str);
+        assertEquals(expected.nullStr, actual.nullStr);
+        assertEquals(expected.dedup, actual.dedup);
+        assertEquals(expected.boxed, actual.boxed);
+        assertEquals(expected.list, actual.list);
+        assertTrue(Arrays.equals(expected.ints, actual.ints));
+        assertEquals(expected.finalField(), actual.finalField());
+        assertEquals(expected.finalInt(), actual.finalInt());
+    }
+    
+    public void testGeneratedClass() throws Exception
+    {
+        if(!RuntimeSchemaGenerator.isSupported())
+            return;
+        
+        RuntimeSchema<Fields> schema = generate(Fields.class);
+        assertNotNull(schema);
+        assertTrue(schema.getClass() != RuntimeSchema.class);
+        assertTrue(schema.getClass().getName().startsWith(Fields.class.getName() + 
+                RuntimeSchemaGenerator.CLASS_SUFFIX));
+        
+        // generated once per layout
+        System.gc();
+        assertSame(schema.getClass(), generate(Fields.class).getClass());
+        assertTrue(schema.getClass() != generate(Small.class).getClass());
+    }
+    
+    public void testWireIdentical() throws Exception
+    {
+        if(!RuntimeSchemaGenerator.isSupported())
+            return;
+        
+        Schema<Fields> generated = generate(Fields.class);
+        Schema<Fields> runtime = RuntimeSchema.createFrom(Fields.class);
+        
+        Fields message = newFields();
+        byte[] protostuff = toProtostuff(message, runtime);
+        byte[] protobuf = toProtobuf(message, runtime);
+        assertTrue(Arrays.equals(protostuff, toProtostuff(message, generated)));
+        assertTrue(Arrays.equals(protobuf, toProtobuf(message, generated)));
+        
+        Fields empty = new Fields();
+        assertTrue(Arrays.equals(toProtostuff(empty, runtime), 
+                toProtostuff(empty, generated)));
+        
+        Fields parsed = generated.newMessage();
+        ProtostuffIOUtil.mergeFrom(protostuff, parsed, generated);
+        assertFieldsEquals(message, parsed);
+        
+        parsed = generated.newMessage();
+        ProtobufIOUtil.mergeFrom(protobuf, parsed, generated);
+        assertFieldsEquals(message, parsed);
+    }
+    
+    public void testFinalFields() throws Exception
+    {
+        if(!RuntimeSchemaGenerator.isSupported())
+            return;
+        
+        Schema<Fields> generated = generate(Fields.class);
+        Schema<Fields> runtime = RuntimeSchema.createFrom(Fields.class);
+        
+        // the final fields are set by their runtime fields
+        Fields message = new Fields(5, 6);
+        Fields parsed = generated.newMessage();
+        ProtostuffIOUtil.mergeFrom(toProtostuff(message, runtime), parsed, generated);
+        assertEquals(Integer.valueOf(5), parsed.finalField());
+        assertEquals(6, parsed.finalInt());
+    }
+    
+    public void testUnknownAndSparseFields() throws Exception
+    {
+        if(!RuntimeSchemaGenerator.isSupported())
+            return;
+        
+        RuntimeSchema<Big> bigSchema = generate(Big.class);
+        RuntimeSchema<Small> smallSchema = generate(Small.class);
+        assertNotNull(bigSchema);
+        assertNotNull(smallSchema);
+        
+        Big big = new Big();
+        big.a = 1;
+        big.b = 2;
+        big.c = "three";
+        big.d = 4;
+        big.e = new ArrayList<String>(Arrays.asList("five"));
+        
+        byte[] data = toProtostuff(big, bigSchema);
+        assertTrue(Arrays.equals(toProtostuff(big, RuntimeSchema.createFrom(Big.class)), 
+                data));
+        
+        Big parsedBig = bigSchema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, parsedBig, bigSchema);
+        assertEquals(1, parsedBig.a);
+        assertEquals(2, parsedBig.b);
+        assertEquals("three", parsedBig.c);
+        assertEquals(4, parsedBig.d);
+        assertEquals(big.e, parsedBig.e);
+        
+        // the unknown fields are skipped
+        Small small = smallSchema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, small, smallSchema);
+        assertEquals(1, small.a);
+        assertEquals("three", small.c);
+    }
+    
+    public void testPipe() throws Exception
+    {
+        if(!RuntimeSchemaGenerator.isSupported())
+            return;
+        
+        RuntimeSchema<Fields> generated = generate(Fields.class);
+        Fields message = newFields();
+        
+        byte[] protobuf = ProtobufIOUtil.toByteArray(
+                ProtostuffIOUtil.newPipe(toProtostuff(message, generated)), 
+                generated.getPipeSchema(), LinkedBuffer.allocate(512));
+        assertTrue(Arrays.equals(toProtobuf(message, generated), protobuf));
+    }
+    
+    public void testNotGenerated() throws Exception
+    {
+        // no direct fields
+        assertNull(generate(NoDirectFields.class));
+        
+        assertFalse(RuntimeSchemaGenerator.isDirect(
+                Fields.class.getDeclaredField("finalInt"), Fields.class, 
+                RuntimeEnv.ID_STRATEGY));
+        assertFalse(RuntimeSchemaGenerator.isDirect(
+                Fields.class.getDeclaredField("dedup"), Fields.class, 
+                RuntimeEnv.ID_STRATEGY));
+        assertFalse(RuntimeSchemaGenerator.isDirect(
+                Base.class.getDeclaredField("baseName"), Fields.class, 
+                RuntimeEnv.ID_STRATEGY));
+        assertFalse(RuntimeSchemaGenerator.isDirect(
+                Fields.class.getDeclaredField("boxed"), Fields.class, 
+                RuntimeEnv.ID_STRATEGY));
+        assertTrue(RuntimeSchemaGenerator.isDirect(
+                Fields.class.getDeclaredField("str"), Fields.class, 
+                RuntimeEnv.ID_STRATEGY));
+        assertTrue(RuntimeSchemaGenerator.isDirect(
+                Fields.class.getDeclaredField("l"), Fields.class, 
+                RuntimeEnv.ID_STRATEGY));
+    }
+    
+}
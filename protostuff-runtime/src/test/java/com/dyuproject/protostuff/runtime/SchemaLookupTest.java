@@ -0,0 +1,87 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import junit.framework.TestCase;
+
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * Test for the class-keyed lookup of {@link DefaultIdStrategy}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class SchemaLookupTest extends TestCase
+{
+    
+    public static class Isolated
+    {
+        int id;
+        String name;
+    }
+    
+    public void testSameWrapper()
+    {
+        DefaultIdStrategy strategy = new DefaultIdStrategy();
+        
+        assertNull(strategy.getSchemaWrapper(Isolated.class, false));
+        assertTrue(strategy.pojoClassMapping.isEmpty());
+        
+        HasSchema<Isolated> hs = strategy.getSchemaWrapper(Isolated.class, true);
+        assertTrue(hs == strategy.getSchemaWrapper(Isolated.class, true));
+        assertTrue(hs == strategy.getSchemaWrapper(Isolated.class, false));
+        assertTrue(hs == strategy.pojoClassMapping.get(Isolated.class));
+        
+        Schema<Isolated> schema = RuntimeSchema.getSchema(Isolated.class, strategy);
+        assertTrue(schema == hs.getSchema());
+        assertTrue(schema == RuntimeSchema.getSchema(Isolated.class, strategy));
+    }
+    
+    public void testRegisteredBeforeLookup()
+    {
+        DefaultIdStrategy strategy = new DefaultIdStrategy();
+        RuntimeSchema<Isolated> schema = RuntimeSchema.createFrom(Isolated.class, 
+                strategy);
+        assertTrue(strategy.registerPojo(Isolated.class, schema));
+        
+        assertTrue(schema == RuntimeSchema.getSchema(Isolated.class, strategy));
+        assertTrue(strategy.pojoClassMapping.containsKey(Isolated.class));
+        assertTrue(strategy.registerPojo(Isolated.class, schema));
+    }
+    
+    public void testSameNameFromAnotherClassLoader() throws Exception
+    {
+        URL location = Isolated.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{location}, null);
+        Class<?> other = loader.loadClass(Isolated.class.getName());
+        assertTrue(other != Isolated.class);
+        
+        DefaultIdStrategy strategy = new DefaultIdStrategy();
+        HasSchema<Isolated> hs = strategy.getSchemaWrapper(Isolated.class, true);
+        
+        // resolved by name, like before
+        assertTrue(hs == strategy.getSchemaWrapper(other, true));
+        assertTrue(hs == strategy.getSchemaWrapper(other, false));
+        
+        // but not retained
+        assertFalse(strategy.pojoClassMapping.containsKey(other));
+        assertEquals(1, strategy.pojoClassMapping.size());
+    }
+
+}
@@ -0,0 +1,303 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.ByteString;
+import com.dyuproject.protostuff.Foo;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+
+/**
+ * Test for the preloading of runtime schemas.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class SchemaPreloaderTest extends AbstractTest
+{
+    
+    static final class Root
+    {
+        String name;
+        ByteString data;
+        Node node;
+        List<Leaf> leaves;
+        Map<String, Leaf[]> leafArrays;
+        Item[] items;
+    }
+    
+    static final class Node
+    {
+        int id;
+        Root parent;
+        Leaf leaf;
+    }
+    
+    static final class Leaf
+    {
+        long value;
+    }
+    
+    static final class Item
+    {
+        double value;
+    }
+    
+    static final class Empty
+    {
+        static int count;
+    }
+    
+    static final class Missing
+    {
+        int id;
+    }
+    
+    static final class Broken
+    {
+        Missing missing;
+    }
+    
+    /**
+     * Loads its own copy of this test's classes, without the class of the field 
+     * of {@link Broken}.
+     */
+    static final class MissingFieldTypeLoader extends ClassLoader
+    {
+        
+        MissingFieldTypeLoader(ClassLoader parent)
+        {
+            super(parent);
+        }
+        
+        protected synchronized Class<?> loadClass(String name, boolean resolve) 
+        throws ClassNotFoundException
+        {
+            if(Missing.class.getName().equals(name))
+                throw new ClassNotFoundException(name);
+            
+            final String outer = SchemaPreloaderTest.class.getName();
+            if(!name.equals(outer) && !name.startsWith(outer + "$"))
+                return super.loadClass(name, resolve);
+            
+            Class<?> c = findLoadedClass(name);
+            if(c == null)
+            {
+                try
+                {
+                    byte[] data = readClass(name);
+                    c = defineClass(name, data, 0, data.length);
+                }
+                catch(IOException e)
+                {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+            
+            return c;
+        }
+        
+        byte[] readClass(String name) throws IOException
+        {
+            InputStream in = getParent().getResourceAsStream(
+                    name.replace('.', '/') + ".class");
+            try
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[1024];
+                for(int len; (len = in.read(buf)) != -1;)
+                    out.write(buf, 0, len);
+                
+                return out.toByteArray();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+    }
+    
+    static final class CountingRound implements SchemaPreloader.Round
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final List<Object> messages = 
+                java.util.Collections.synchronizedList(new ArrayList<Object>());
+        
+        public <T> void run(Schema<T> schema, T message) throws IOException
+        {
+            byte[] data = ProtostuffIOUtil.toByteArray(message, schema, buf());
+            ProtostuffIOUtil.mergeFrom(data, schema.newMessage(), schema);
+            count.incrementAndGet();
+            messages.add(message);
+        }
+    }
+    
+    static void assertSample(Root root)
+    {
+        assertEquals("sample", root.name);
+        assertEquals(ByteString.copyFromUtf8("sample"), root.data);
+        
+        assertEquals(1, root.node.id);
+        assertEquals(1, root.node.leaf.value);
+        // cycles are left null
+        assertNull(root.node.parent);
+        
+        assertEquals(1, root.leaves.size());
+        assertEquals(1, root.leaves.get(0).value);
+        
+        assertEquals(1, root.leafArrays.size());
+        Leaf[] leafArray = root.leafArrays.get("sample");
+        assertEquals(1, leafArray.length);
+        assertEquals(1, leafArray[0].value);
+        
+        assertEquals(1, root.items.length);
+        assertEquals(1d, root.items[0].value);
+    }
+    
+    static List<Class<?>> typesOf(List<SchemaPreloader.Result> results)
+    {
+        ArrayList<Class<?>> types = new ArrayList<Class<?>>();
+        for(SchemaPreloader.Result r : results)
+        {
+            assertNull(r.toString(), r.error);
+            assertTrue(r.initNanos >= 0);
+            types.add(r.typeClass);
+        }
+        
+        return types;
+    }
+    
+    public void testTransitive() throws Exception
+    {
+        DefaultIdStrategy strategy = new DefaultIdStrategy();
+        List<SchemaPreloader.Result> results = SchemaPreloader.preload(
+                Arrays.<Class<?>>asList(Root.class), strategy, null, null, 0);
+        
+        List<Class<?>> types = typesOf(results);
+        // the references are preloaded level by level, once
+        assertEquals(Arrays.<Class<?>>asList(Root.class, Node.class, Leaf.class, 
+                Item.class), types);
+        
+        for(Class<?> typeClass : types)
+            assertNotNull(strategy.getSchemaWrapper(typeClass, false));
+    }
+    
+    public void testParallelWithWarmup() throws Exception
+    {
+        DefaultIdStrategy strategy = new DefaultIdStrategy();
+        CountingRound round = new CountingRound();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<SchemaPreloader.Result> results;
+        try
+        {
+            results = SchemaPreloader.preload(Arrays.<Class<?>>asList(Leaf.class, 
+                    Root.class), strategy, executor, round, 5);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        
+        assertEquals(new HashSet<Class<?>>(Arrays.<Class<?>>asList(Root.class, 
+                Node.class, Leaf.class, Item.class)), 
+                new HashSet<Class<?>>(typesOf(results)));
+        assertEquals(4, results.size());
+        assertEquals(4 * 5, round.count.get());
+        
+        // the rounds are run with populated messages
+        int roots = 0;
+        for(Object message : round.messages)
+        {
+            if(message instanceof Root)
+            {
+                assertSample((Root)message);
+                roots++;
+            }
+        }
+        assertEquals(5, roots);
+    }
+    
+    public void testSample() throws Exception
+    {
+        assertSample(SchemaPreloader.newSample(Root.class, new DefaultIdStrategy()));
+    }
+    
+    public void testFailureIsReported() throws Exception
+    {
+        List<SchemaPreloader.Result> results = SchemaPreloader.preload(
+                Arrays.<Class<?>>asList(Empty.class, Leaf.class), 
+                new DefaultIdStrategy(), null, null, 0);
+        
+        assertEquals(2, results.size());
+        assertEquals(Empty.class, results.get(0).typeClass);
+        assertNotNull(results.get(0).error);
+        assertEquals(Leaf.class, results.get(1).typeClass);
+        assertNull(results.get(1).error);
+    }
+    
+    public void testFindClasses() throws Exception
+    {
+        List<Class<?>> classes = SchemaPreloader.findClasses("com.dyuproject.protostuff", 
+                getClass().getClassLoader());
+        
+        assertTrue(classes.contains(Foo.class));
+        assertTrue(classes.contains(Root.class));
+        assertTrue(classes.contains(PojoWithArrayAndSet.class));
+        assertFalse(classes.contains(Empty.class));
+        assertFalse(classes.contains(ByteString.class));
+        assertFalse(classes.contains(Schema.class));
+    }
+    
+    public void testFindClassesSkipsMissingFieldTypes() throws Exception
+    {
+        MissingFieldTypeLoader loader = new MissingFieldTypeLoader(
+                getClass().getClassLoader());
+        
+        // the copy of Broken cannot resolve its fields
+        try
+        {
+            loader.loadClass(Broken.class.getName()).getDeclaredFields();
+            fail("Expected the class of the field to be missing.");
+        }
+        catch(NoClassDefFoundError e)
+        {
+            // expected
+        }
+        
+        List<Class<?>> classes = SchemaPreloader.findClasses(
+                "com.dyuproject.protostuff.runtime", loader);
+        
+        ArrayList<String> names = new ArrayList<String>();
+        for(Class<?> c : classes)
+            names.add(c.getName());
+        
+        assertTrue(names.contains(Root.class.getName()));
+        assertFalse(names.contains(Broken.class.getName()));
+    }
+
+}
@@ -0,0 +1,238 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import static com.dyuproject.protostuff.runtime.RuntimeFieldFactory.ID_SIZE_HINT;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.ByteArrayInput;
+import com.dyuproject.protostuff.CollectionSchema;
+import com.dyuproject.protostuff.Input;
+import com.dyuproject.protostuff.MapSchema;
+import com.dyuproject.protostuff.Output;
+import com.dyuproject.protostuff.Pipe;
+import com.dyuproject.protostuff.ProtostuffException;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.ProtostuffOutput;
+
+/**
+ * Test for the size hints written ahead of the collections/maps.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class SizeHintTest extends AbstractTest
+{
+    
+    static final class StringCollectionSchema extends CollectionSchema<String>
+    {
+        
+        StringCollectionSchema(MessageFactory messageFactory, boolean writeSizeHint)
+        {
+            super(messageFactory, writeSizeHint);
+        }
+
+        protected void addValueFrom(Input input, Collection<String> collection) 
+        throws IOException
+        {
+            collection.add(input.readString());
+        }
+
+        protected void writeValueTo(Output output, int fieldNumber, String value, 
+                boolean repeated) throws IOException
+        {
+            output.writeString(fieldNumber, value, repeated);
+        }
+
+        protected void transferValue(Pipe pipe, Input input, Output output, 
+                int number, boolean repeated) throws IOException
+        {
+            input.transferByteRangeTo(output, true, number, repeated);
+        }
+    }
+    
+    static List<String> newList(int size)
+    {
+        ArrayList<String> list = new ArrayList<String>(size);
+        for(int i = 0; i < size; i++)
+            list.add("v" + i);
+        
+        return list;
+    }
+    
+    public void testCollectionSchemaWithHint() throws IOException
+    {
+        StringCollectionSchema plain = new StringCollectionSchema(
+                CollectionSchema.MessageFactories.ArrayList, false);
+        StringCollectionSchema hinted = new StringCollectionSchema(
+                CollectionSchema.MessageFactories.ArrayList, true);
+        
+        List<String> list = newList(100);
+        
+        byte[] withHint = ProtostuffIOUtil.toByteArray(list, hinted, buf());
+        byte[] withoutHint = ProtostuffIOUtil.toByteArray(list, plain, buf());
+        assertTrue(withHint.length > withoutHint.length);
+        
+        // the hint is the first field
+        ByteArrayInput input = new ByteArrayInput(withHint, 0, withHint.length, true);
+        assertEquals(2, input.readFieldNumber(hinted));
+        assertEquals(100, input.readUInt32());
+        
+        // either schema reads either format
+        Collection<String> c = plain.newMessage();
+        ProtostuffIOUtil.mergeFrom(withHint, c, plain);
+        assertEquals(list, c);
+        
+        c = hinted.newMessage();
+        ProtostuffIOUtil.mergeFrom(withoutHint, c, hinted);
+        assertEquals(list, c);
+        
+        // pipe keeps the hint
+        byte[] piped = ProtostuffIOUtil.toByteArray(ProtostuffIOUtil.newPipe(withHint), 
+                plain.pipeSchema, buf());
+        assertTrue(Arrays.equals(withHint, piped));
+    }
+    
+    public void testSmallCollectionHasNoHint() throws IOException
+    {
+        StringCollectionSchema plain = new StringCollectionSchema(
+                CollectionSchema.MessageFactories.ArrayList, false);
+        StringCollectionSchema hinted = new StringCollectionSchema(
+                CollectionSchema.MessageFactories.ArrayList, true);
+        
+        List<String> list = newList(CollectionSchema.MIN_SIZE_HINT - 1);
+        
+        assertTrue(Arrays.equals(ProtostuffIOUtil.toByteArray(list, plain, buf()), 
+                ProtostuffIOUtil.toByteArray(list, hinted, buf())));
+    }
+    
+    public void testNewMessageWithHint()
+    {
+        assertTrue(CollectionSchema.newMessage(
+                CollectionSchema.MessageFactories.LinkedHashSet, 100) instanceof LinkedHashSet<?>);
+        assertTrue(((java.util.concurrent.ArrayBlockingQueue<?>)CollectionSchema.newMessage(
+                CollectionSchema.MessageFactories.ArrayBlockingQueue, 1)).remainingCapacity() >= 10);
+        assertTrue(CollectionSchema.newMessage(
+                CollectionSchema.MessageFactories.PriorityQueue, 1).isEmpty());
+        assertTrue(MapSchema.newMessage(
+                MapSchema.MessageFactories.IdentityHashMap, 100) instanceof 
+                java.util.IdentityHashMap<?,?>);
+        
+        // a huge (corrupt) hint does not reserve more than the cap.
+        assertTrue(CollectionSchema.newMessage(
+                CollectionSchema.MessageFactories.ArrayList, Integer.MAX_VALUE).isEmpty());
+        assertTrue(MapSchema.newMessage(
+                MapSchema.MessageFactories.HashMap, Integer.MAX_VALUE).isEmpty());
+    }
+    
+    public void testPolymorphicCollection() throws IOException
+    {
+        IdStrategy strategy = RuntimeEnv.ID_STRATEGY;
+        List<String> list = newList(20);
+        
+        ProtostuffOutput output = new ProtostuffOutput(buf());
+        // the writer only adds the hint when the size hints are enabled
+        if(!RuntimeEnv.COLLECTION_SIZE_HINTS)
+            PolymorphicCollectionSchema.writeSizeHintTo(output, list.size());
+        PolymorphicCollectionSchema.writeObjectTo(output, list, 
+                strategy.POLYMORPHIC_COLLECTION_SCHEMA, strategy);
+        byte[] data = output.toByteArray();
+        
+        // the hint is the first field (and written only once)
+        ByteArrayInput input = new ByteArrayInput(data, 0, data.length, true);
+        assertEquals(ID_SIZE_HINT, input.readFieldNumber(
+                strategy.POLYMORPHIC_COLLECTION_SCHEMA));
+        assertEquals(list.size(), input.readUInt32());
+        assertTrue(ID_SIZE_HINT != input.readFieldNumber(
+                strategy.POLYMORPHIC_COLLECTION_SCHEMA));
+        
+        Object read = PolymorphicCollectionSchema.readObjectFrom(
+                new ByteArrayInput(data, 0, data.length, true), 
+                strategy.POLYMORPHIC_COLLECTION_SCHEMA, null, strategy);
+        assertEquals(ArrayList.class, read.getClass());
+        assertEquals(list, read);
+        
+        byte[] piped = ProtostuffIOUtil.toByteArray(ProtostuffIOUtil.newPipe(data), 
+                strategy.POLYMORPHIC_COLLECTION_PIPE_SCHEMA, buf());
+        assertTrue(Arrays.equals(data, piped));
+    }
+    
+    public void testPolymorphicMap() throws IOException
+    {
+        IdStrategy strategy = RuntimeEnv.ID_STRATEGY;
+        HashMap<String,Integer> map = new HashMap<String,Integer>();
+        for(int i = 0; i < 20; i++)
+            map.put("k" + i, i);
+        
+        ProtostuffOutput output = new ProtostuffOutput(buf());
+        // the writer only adds the hint when the size hints are enabled
+        if(!RuntimeEnv.COLLECTION_SIZE_HINTS)
+            PolymorphicCollectionSchema.writeSizeHintTo(output, map.size());
+        PolymorphicMapSchema.writeObjectTo(output, map, 
+                strategy.POLYMORPHIC_MAP_SCHEMA, strategy);
+        byte[] data = output.toByteArray();
+        
+        // the hint is the first field (and written only once)
+        ByteArrayInput input = new ByteArrayInput(data, 0, data.length, true);
+        assertEquals(ID_SIZE_HINT, input.readFieldNumber(
+                strategy.POLYMORPHIC_MAP_SCHEMA));
+        assertEquals(map.size(), input.readUInt32());
+        assertTrue(ID_SIZE_HINT != input.readFieldNumber(
+                strategy.POLYMORPHIC_MAP_SCHEMA));
+        
+        Object read = PolymorphicMapSchema.readObjectFrom(
+                new ByteArrayInput(data, 0, data.length, true), 
+                strategy.POLYMORPHIC_MAP_SCHEMA, null, strategy);
+        assertEquals(HashMap.class, read.getClass());
+        assertEquals(map, read);
+        
+        byte[] piped = ProtostuffIOUtil.toByteArray(ProtostuffIOUtil.newPipe(data), 
+                strategy.POLYMORPHIC_MAP_PIPE_SCHEMA, buf());
+        assertTrue(Arrays.equals(data, piped));
+    }
+    
+    public void testHintMustPrecedeId() throws IOException
+    {
+        IdStrategy strategy = RuntimeEnv.ID_STRATEGY;
+        
+        ProtostuffOutput output = new ProtostuffOutput(buf());
+        output.writeUInt32(ID_SIZE_HINT, 20, false);
+        PolymorphicMapSchema.writeObjectTo(output, new HashMap<String,String>(), 
+                strategy.POLYMORPHIC_MAP_SCHEMA, strategy);
+        byte[] data = output.toByteArray();
+        
+        try
+        {
+            // a map where a collection is expected
+            PolymorphicCollectionSchema.readObjectFrom(
+                    new ByteArrayInput(data, 0, data.length, true), 
+                    strategy.POLYMORPHIC_COLLECTION_SCHEMA, null, strategy);
+            fail("Expected ProtostuffException");
+        }
+        catch(ProtostuffException e)
+        {
+            // expected
+        }
+    }
+    
+}
@@ -0,0 +1,217 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.ByteBufferInput;
+import com.dyuproject.protostuff.Dedup;
+import com.dyuproject.protostuff.GraphIOUtil;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.StringCache;
+
+/**
+ * Test for deduplicating the decoded strings via {@link StringCache}.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class StringCacheTest extends AbstractTest
+{
+    
+    public static final class Row
+    {
+        String country;
+        String tenant;
+        String note;
+        
+        Row() {}
+        
+        Row(String country, String tenant, String note)
+        {
+            this.country = country;
+            this.tenant = tenant;
+            this.note = note;
+        }
+    }
+    
+    public static final class Rows
+    {
+        List<Row> rows;
+    }
+    
+    public static final class DedupRow
+    {
+        @Dedup
+        String country;
+        String note;
+    }
+    
+    static final String[] COUNTRIES = new String[]{ "Philippines", "\u00D6sterreich", 
+        "\u65E5\u672C" };
+    
+    static Rows newRows(int count)
+    {
+        Rows rows = new Rows();
+        rows.rows = new ArrayList<Row>();
+        for(int i = 0; i < count; i++)
+        {
+            rows.rows.add(new Row(COUNTRIES[i % COUNTRIES.length], "tenant-" + (i % 2), 
+                    "note " + i));
+        }
+        return rows;
+    }
+    
+    static void verify(Rows expected, Rows actual)
+    {
+        assertEquals(expected.rows.size(), actual.rows.size());
+        for(int i = 0; i < expected.rows.size(); i++)
+        {
+            Row e = expected.rows.get(i), a = actual.rows.get(i);
+            assertEquals(e.country, a.country);
+            assertEquals(e.tenant, a.tenant);
+            assertEquals(e.note, a.note);
+        }
+    }
+    
+    static void verifyShared(Rows actual)
+    {
+        for(int i = COUNTRIES.length; i < actual.rows.size(); i++)
+        {
+            assertSame(actual.rows.get(i - COUNTRIES.length).country, 
+                    actual.rows.get(i).country);
+        }
+    }
+    
+    public void testBoundedCache()
+    {
+        StringCache cache = StringCache.newBoundedCache(16, 8);
+        byte[] data = "xxabcxxabc".getBytes();
+        
+        String first = cache.get(data, 2, 3);
+        assertEquals("abc", first);
+        assertSame(first, cache.get(data, 7, 3));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5d, cache.getHitRate());
+        
+        // too large, not cached
+        byte[] large = "0123456789".getBytes();
+        assertNotSame(cache.get(large, 0, large.length), cache.get(large, 0, large.length));
+        assertEquals(1, cache.getHitCount());
+        
+        assertSame("", cache.get(data, 0, 0));
+    }
+    
+    public void testBoundedCacheWithoutStats()
+    {
+        StringCache cache = StringCache.newBoundedCache(16, 8, false);
+        byte[] data = "xxabcxxabc".getBytes();
+        
+        String first = cache.get(data, 2, 3);
+        assertSame(first, cache.get(data, 7, 3));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0d, cache.getHitRate());
+    }
+    
+    public void testPerDecodeCall() throws IOException
+    {
+        Schema<Rows> schema = RuntimeSchema.getSchema(Rows.class);
+        Rows rows = newRows(30);
+        
+        byte[] protostuff = ProtostuffIOUtil.toByteArray(rows, schema, buf());
+        byte[] protobuf = ProtobufIOUtil.toByteArray(rows, schema, buf());
+        byte[] graph = GraphIOUtil.toByteArray(rows, schema, buf());
+        
+        StringCache cache = StringCache.newBoundedCache(256, 32);
+        
+        Rows parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(protostuff, parsed, schema, cache);
+        verify(rows, parsed);
+        verifyShared(parsed);
+        
+        // 3 countries, 2 tenants and 30 notes
+        assertEquals(35, cache.getMissCount());
+        assertEquals(90 - 35, cache.getHitCount());
+        
+        parsed = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(protobuf, parsed, schema, cache);
+        verify(rows, parsed);
+        verifyShared(parsed);
+        assertEquals(35, cache.getMissCount());
+        
+        parsed = schema.newMessage();
+        ProtobufIOUtil.mergeFrom(new ByteArrayInputStream(protobuf), parsed, schema, cache);
+        verify(rows, parsed);
+        verifyShared(parsed);
+        
+        parsed = schema.newMessage();
+        GraphIOUtil.mergeFrom(graph, parsed, schema, cache);
+        verify(rows, parsed);
+        verifyShared(parsed);
+        
+        parsed = schema.newMessage();
+        GraphIOUtil.mergeFrom(new ByteArrayInputStream(graph), parsed, schema, cache);
+        verify(rows, parsed);
+        verifyShared(parsed);
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(protobuf.length);
+        direct.put(protobuf).flip();
+        parsed = schema.newMessage();
+        schema.mergeFrom(new ByteBufferInput(direct, false).setStringCache(cache), parsed);
+        verify(rows, parsed);
+        verifyShared(parsed);
+        
+        assertEquals(35, cache.getMissCount());
+        assertTrue(cache.getHitRate() > 0.9);
+        
+        // without a cache
+        parsed = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(protostuff, parsed, schema);
+        verify(rows, parsed);
+        assertNotSame(parsed.rows.get(0).country, 
+                parsed.rows.get(COUNTRIES.length).country);
+    }
+    
+    public void testDedupField() throws IOException
+    {
+        Schema<DedupRow> schema = RuntimeSchema.getSchema(DedupRow.class);
+        DedupRow row = new DedupRow();
+        row.country = "Philippines";
+        row.note = "note";
+        
+        byte[] data = ProtostuffIOUtil.toByteArray(row, schema, buf());
+        
+        DedupRow r1 = schema.newMessage(), r2 = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, r1, schema);
+        ProtostuffIOUtil.mergeFrom(data, r2, schema);
+        
+        assertEquals(row.country, r1.country);
+        assertSame(r1.country, r2.country);
+        
+        // not annotated
+        assertEquals(row.note, r1.note);
+        assertNotSame(r1.note, r2.note);
+    }
+
+}
@@ -0,0 +1,226 @@
+//========================================================================
+//Copyright 2007-2026 David Yu dyuproject@gmail.com
+//------------------------------------------------------------------------
+//Licensed under the Apache License, Version 2.0 (the "License");
+//you may not use this file except in compliance with the License.
+//You may obtain a copy of the License at 
+//http://www.apache.org/licenses/LICENSE-2.0
+//Unless required by applicable law or agreed to in writing, software
+//distributed under the License is distributed on an "AS IS" BASIS,
+//WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//See the License for the specific language governing permissions and
+//limitations under the License.
+//========================================================================
+
+package com.dyuproject.protostuff.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dyuproject.protostuff.AbstractTest;
+import com.dyuproject.protostuff.ByteArrayInput;
+import com.dyuproject.protostuff.GraphIOUtil;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtobufIOUtil;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.Utf8String;
+
+/**
+ * Test for binding {@link Utf8String} fields on runtime schemas.
+ *
+ * @author David Yu
+ * @created Oct 18, 2026
+ */
+public class Utf8StringTest extends AbstractTest
+{
+    
+    public static final class WithStrings
+    {
+        int id;
+        String name;
+        List<String> tags;
+    }
+    
+    public static final class WithUtf8Strings
+    {
+        int id;
+        Utf8String name;
+        List<Utf8String> tags;
+    }
+    
+    static final String[] TAGS = new String[]{ "ascii", "\u00E9t\u00E9", 
+        "\u4E2D\u6587", "\u00FCn\u00EFc\u00F6d\u00E9", "" };
+    
+    static WithStrings newWithStrings()
+    {
+        WithStrings ws = new WithStrings();
+        ws.id = 7;
+        ws.name = "caf\u00E9 \u4E16\u754C";
+        ws.tags = new ArrayList<String>(Arrays.asList(TAGS));
+        return ws;
+    }
+    
+    static WithUtf8Strings newWithUtf8Strings()
+    {
+        WithUtf8Strings wus = new WithUtf8Strings();
+        wus.id = 7;
+        wus.name = Utf8String.copyFrom("caf\u00E9 \u4E16\u754C");
+        wus.tags = new ArrayList<Utf8String>();
+        for(String tag : TAGS)
+            wus.tags.add(Utf8String.copyFrom(tag));
+        return wus;
+    }
+    
+    static void assertEquivalent(WithStrings ws, WithUtf8Strings wus)
+    {
+        assertEquals(ws.id, wus.id);
+        assertEquals(ws.name, wus.name.toString());
+        assertEquals(ws.tags.size(), wus.tags.size());
+        for(int i = 0; i < ws.tags.size(); i++)
+            assertEquals(ws.tags.get(i), wus.tags.get(i).toString());
+    }
+    
+    public void testSameBytesAsString() throws IOException
+    {
+        Schema<WithStrings> sSchema = RuntimeSchema.getSchema(WithStrings.class);
+        Schema<WithUtf8Strings> uSchema = RuntimeSchema.getSchema(WithUtf8Strings.class);
+        
+        WithStrings ws = newWithStrings();
+        WithUtf8Strings wus = newWithUtf8Strings();
+        
+        assertTrue(Arrays.equals(ProtostuffIOUtil.toByteArray(ws, sSchema, buf()), 
+                ProtostuffIOUtil.toByteArray(wus, uSchema, buf())));
+        assertTrue(Arrays.equals(ProtobufIOUtil.toByteArray(ws, sSchema, buf()), 
+                ProtobufIOUtil.toByteArray(wus, uSchema, buf())));
+        assertTrue(Arrays.equals(GraphIOUtil.toByteArray(ws, sSchema, buf()), 
+                GraphIOUtil.toByteArray(wus, uSchema, buf())));
+    }
+    
+    public void testLazyDecode() throws IOException
+    {
+        Schema<WithStrings> sSchema = RuntimeSchema.getSchema(WithStrings.class);
+        Schema<WithUtf8Strings> uSchema = RuntimeSchema.getSchema(WithUtf8Strings.class);
+        
+        WithStrings ws = newWithStrings();
+        byte[] data = ProtostuffIOUtil.toByteArray(ws, sSchema, buf());
+        
+        WithUtf8Strings parsed = uSchema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, parsed, uSchema);
+        assertFalse(parsed.name.isDecoded());
+        assertEquivalent(ws, parsed);
+        assertTrue(parsed.name.isDecoded());
+        
+        // sliced from the buffer (no copy)
+        parsed = uSchema.newMessage();
+        ProtostuffIOUtil.mergeFrom(data, parsed, uSchema);
+        Arrays.fill(data, (byte)'x');
+        assertEquals("xxxxx", parsed.tags.get(0).toString());
+        
+        data = ProtobufIOUtil.toByteArray(ws, sSchema, buf());
+        
+        parsed = uSchema.newMessage();
+        ProtobufIOUtil.mergeFrom(new ByteArrayInputStream(data), parsed, uSchema);
+        assertFalse(parsed.name.isDecoded());
+        assertEquivalent(ws, parsed);
+        
+        parsed = uSchema.newMessage();
+        ProtobufIOUtil.mergeFrom(ByteBuffer.wrap(data), parsed, uSchema);
+        assertEquivalent(ws, parsed);
+        
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        parsed = uSchema.newMessage();
+        ProtobufIOUtil.mergeFrom(direct, parsed, uSchema);
+        assertEquivalent(ws, parsed);
+        
+        data = GraphIOUtil.toByteArray(ws, sSchema, buf());
+        
+        parsed = uSchema.newMessage();
+        GraphIOUtil.mergeFrom(data, parsed, uSchema);
+        assertEquivalent(ws, parsed);
+    }
+    
+    public void testReusedBufferCopies() throws IOException
+    {
+        Schema<WithStrings> sSchema = RuntimeSchema.getSchema(WithStrings.class);
+        Schema<WithUtf8Strings> uSchema = RuntimeSchema.getSchema(WithUtf8Strings.class);
+        
+        WithStrings ws = newWithStrings(), other = new WithStrings();
+        other.name = "something else entirely";
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtostuffIOUtil.writeDelimitedTo(out, ws, sSchema, buf());
+        ProtostuffIOUtil.writeDelimitedTo(out, other, sSchema, buf());
+        
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        LinkedBuffer buffer = buf();
+        
+        WithUtf8Strings parsed = uSchema.newMessage();
+        ProtostuffIOUtil.mergeDelimitedFrom(in, parsed, uSchema, buffer);
+        
+        WithUtf8Strings parsedOther = uSchema.newMessage();
+        ProtostuffIOUtil.mergeDelimitedFrom(in, parsedOther, uSchema, buffer);
+        
+        // not corrupted by the second read on the same buffer
+        assertEquivalent(ws, parsed);
+        assertEquals(other.name, parsedOther.name.toString());
+    }
+    
+    public void testPipe() throws IOException
+    {
+        Schema<WithStrings> sSchema = RuntimeSchema.getSchema(WithStrings.class);
+        Schema<WithUtf8Strings> uSchema = RuntimeSchema.getSchema(WithUtf8Strings.class);
+        
+        byte[] protostuff = ProtostuffIOUtil.toByteArray(newWithStrings(), sSchema, buf());
+        byte[] protobuf = ProtobufIOUtil.toByteArray(newWithStrings(), sSchema, buf());
+        
+        assertTrue(Arrays.equals(protobuf, ProtobufIOUtil.toByteArray(
+                ProtostuffIOUtil.newPipe(protostuff), 
+                ((RuntimeSchema<WithUtf8Strings>)uSchema).getPipeSchema(), buf())));
+    }
+    
+    public void testEqualsAndCompare() throws IOException
+    {
+        byte[] data = ProtostuffIOUtil.toByteArray(newWithStrings(), 
+                RuntimeSchema.getSchema(WithStrings.class), buf());
+        
+        WithUtf8Strings parsed = new WithUtf8Strings();
+        ProtostuffIOUtil.mergeFrom(data, parsed, 
+                RuntimeSchema.getSchema(WithUtf8Strings.class));
+        
+        WithUtf8Strings wus = newWithUtf8Strings();
+        for(int i = 0; i < TAGS.length; i++)
+        {
+            Utf8String a = parsed.tags.get(i), b = wus.tags.get(i);
+            assertEquals(b, a);
+            assertEquals(b.hashCode(), a.hashCode());
+            assertEquals(0, a.compareTo(b));
+            assertTrue(a.isEmpty() || !a.isDecoded());
+        }
+        
+        assertEquals(Utf8String.EMPTY, parsed.tags.get(TAGS.length - 1));
+        assertFalse(parsed.tags.get(0).equals(parsed.tags.get(1)));
+        
+        // code point order
+        String[] sorted = new String[]{ "", "a", "ab", "b", "\u00E9", "\u4E2D", 
+                "\uFFFF", "\uD83D\uDE00" };
+        for(int i = 1; i < sorted.length; i++)
+        {
+            assertTrue(Utf8String.copyFrom(sorted[i - 1]).compareTo(
+                    Utf8String.copyFrom(sorted[i])) < 0);
+        }
+        
+        ByteArrayInput input = new ByteArrayInput(data, true);
+        assertEquals(1, input.readFieldNumber(null));
+        input.readInt32();
+        assertEquals(2, input.readFieldNumber(null));
+        assertEquals(newWithStrings().name, input.readUtf8String().toString());
+    }
+
+}
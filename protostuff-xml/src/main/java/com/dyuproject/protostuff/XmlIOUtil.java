@@ -611,4 +611,161 @@ public final class XmlIOUtil
         return list;
     }
     
+    /**
+     * Lazily reads the {@code messages} from the {@link InputStream} using the given 
+     * {@code schema}, one at a time, instead of parsing them all into a list.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).  The parser is closed once the last message 
+     * is read, or when the iterator is closed.
+     */
+    public static <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse) throws IOException
+    {
+        return iterateListFrom(in, schema, reuse, DEFAULT_INPUT_FACTORY);
+    }
+    
+    /**
+     * Lazily reads the {@code messages} from the {@link InputStream} using the given 
+     * {@code schema}, one at a time, instead of parsing them all into a list.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).  The parser is closed once the last message 
+     * is read, or when the iterator is closed.
+     */
+    public static <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse, XMLInputFactory inFactory) throws IOException
+    {
+        try
+        {
+            return newListIterator(inFactory.createXMLStreamReader(in), schema, reuse, 
+                    true);
+        }
+        catch(XMLStreamException e)
+        {
+            throw new XmlInputException(e);
+        }
+    }
+    
+    /**
+     * Lazily reads the {@code messages} from the {@link XMLStreamReader} using the 
+     * given {@code schema}, one at a time, instead of parsing them all into a list.
+     * 
+     * If {@code reuse} is not null, every message is merged into it 
+     * (see {@link MessageIterator}).  The parser is not closed.
+     */
+    public static <T> MessageIterator<T> iterateListFrom(XMLStreamReader parser, 
+            Schema<T> schema, T reuse)
+    {
+        return newListIterator(parser, schema, reuse, false);
+    }
+    
+    /**
+     * Passes the {@code messages} from the {@link InputStream} to the {@code visitor}, 
+     * one at a time, until the visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitListFrom(InputStream in, Schema<T> schema, T reuse, 
+            MessageIterator.Visitor<? super T> visitor) throws IOException
+    {
+        final MessageIterator<T> iterator = iterateListFrom(in, schema, reuse);
+        try
+        {
+            return iterator.visit(visitor);
+        }
+        finally
+        {
+            iterator.close();
+        }
+    }
+    
+    /**
+     * Passes the {@code messages} from the {@link XMLStreamReader} to the 
+     * {@code visitor}, one at a time, until the visitor returns false.
+     * 
+     * @return the number of messages visited.
+     */
+    public static <T> int visitListFrom(XMLStreamReader parser, Schema<T> schema, 
+            T reuse, MessageIterator.Visitor<? super T> visitor) throws IOException
+    {
+        return newListIterator(parser, schema, reuse, false).visit(visitor);
+    }
+    
+    static <T> MessageIterator<T> newListIterator(final XMLStreamReader parser, 
+            final Schema<T> schema, final T reuse, final boolean closeParser)
+    {
+        return new MessageIterator<T>(schema, reuse)
+        {
+            final XmlInput input = new XmlInput(parser);
+            boolean started;
+            
+            protected boolean advance() throws IOException
+            {
+                try
+                {
+                    if(!started)
+                    {
+                        started = true;
+                        if(parser.nextTag() != START_ELEMENT || 
+                                !"list".equals(parser.getLocalName()))
+                        {
+                            throw new XmlInputException("Expected token START_ELEMENT: list");
+                        }
+                    }
+                    
+                    final int tag = parser.nextTag();
+                    if(tag == END_ELEMENT)
+                        return false;
+                    
+                    if(tag != START_ELEMENT || 
+                            !schema.messageName().equals(parser.getLocalName()))
+                    {
+                        throw new XmlInputException("Expected token START_ELEMENT: " + 
+                                schema.messageName());
+                    }
+                    
+                    return true;
+                }
+                catch(XMLStreamException e)
+                {
+                    throw new XmlInputException(e);
+                }
+            }
+            
+            protected void merge(T message) throws IOException
+            {
+                try
+                {
+                    if(parser.nextTag() == END_ELEMENT)
+                    {
+                        // empty message
+                        return;
+                    }
+                }
+                catch(XMLStreamException e)
+                {
+                    throw new XmlInputException(e);
+                }
+                
+                schema.mergeFrom(input, message);
+            }
+            
+            protected void release() throws IOException
+            {
+                if(closeParser)
+                {
+                    try
+                    {
+                        parser.close();
+                    }
+                    catch(XMLStreamException e)
+                    {
+                        // ignore
+                    }
+                }
+            }
+        };
+    }
+    
 }
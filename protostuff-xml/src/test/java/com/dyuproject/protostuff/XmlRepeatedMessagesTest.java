@@ -32,6 +32,12 @@ public class XmlRepeatedMessagesTest extends RepeatedMessagesTest
     {
         return XmlIOUtil.parseListFrom(in, schema);
     }
+    
+    protected <T> MessageIterator<T> iterateListFrom(InputStream in, Schema<T> schema, 
+            T reuse) throws IOException
+    {
+        return XmlIOUtil.iterateListFrom(in, schema, reuse);
+    }
 
     protected <T> void writeListTo(OutputStream out, List<T> messages, Schema<T> schema)
             throws IOException